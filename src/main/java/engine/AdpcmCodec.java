@@ -0,0 +1,459 @@
+package engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Compact sound files, IMA ADPCM in a container of our own.
+ *
+ * Each sample is stored as a 4-bit step from the previous one, a quarter
+ * of 16-bit PCM, and decoded without any codec of the platform. The file
+ * keeps the rate and channels of its source; after the header come blocks
+ * of BLOCK_FRAMES frames, each starting with the exact first sample and
+ * step index of every channel so errors never carry over, followed by the
+ * steps of each channel in turn, two per byte, low nibble first.
+ *
+ * The converter copies a resource directory, encoding its WAV files, so
+ * the copy can be packed in place of the sources.
+ */
+public final class AdpcmCodec {
+
+	/** Extension of compact sound files. */
+	public static final String EXTENSION = ".ima";
+	/** Identifies the format, "IMAD" read as a little-endian int. */
+	static final int MAGIC = 0x44414D49;
+	/** Version of the format. */
+	private static final int VERSION = 1;
+	/** Bytes of the header. */
+	private static final int HEADER_SIZE = 20;
+	/** Frames per block. */
+	static final int BLOCK_FRAMES = 1024;
+
+	/** Quantizer step sizes, indexed by step index. */
+	private static final int[] STEPS = { 7, 8, 9, 10, 11, 12, 13, 14, 16,
+			17, 19, 21, 23, 25, 28, 31, 34, 37, 41, 45, 50, 55, 60, 66, 73,
+			80, 88, 97, 107, 118, 130, 143, 157, 173, 190, 209, 230, 253, 279,
+			307, 337, 371, 408, 449, 494, 544, 598, 658, 724, 796, 876, 963,
+			1060, 1166, 1282, 1411, 1552, 1707, 1878, 2066, 2272, 2499, 2749,
+			3024, 3327, 3660, 4026, 4428, 4871, 5358, 5894, 6484, 7132, 7845,
+			8630, 9493, 10442, 11487, 12635, 13899, 15289, 16818, 18500, 20350,
+			22385, 24623, 27086, 29794, 32767 };
+	/** Change of the step index, by magnitude of the step. */
+	private static final int[] INDEX_CHANGES = { -1, -1, -1, -1, 2, 4, 6,
+			8 };
+
+	/**
+	 * Private constructor.
+	 */
+	private AdpcmCodec() {
+
+	}
+
+	/** State of one channel, shared by encoder and decoder. */
+	private static final class Channel {
+		/** Last decoded sample. */
+		private int predictor;
+		/** Index of the current step size. */
+		private int index;
+
+		/**
+		 * Decodes a step, updating the state.
+		 *
+		 * @param nibble
+		 *            Step, sign in the high bit.
+		 * @return Decoded sample.
+		 */
+		private int decode(final int nibble) {
+			int step = STEPS[this.index];
+			int delta = step >> 3;
+			if ((nibble & 4) != 0)
+				delta += step;
+			if ((nibble & 2) != 0)
+				delta += step >> 1;
+			if ((nibble & 1) != 0)
+				delta += step >> 2;
+			int value = (nibble & 8) != 0 ? this.predictor - delta
+					: this.predictor + delta;
+			this.predictor = Math.max(Short.MIN_VALUE,
+					Math.min(Short.MAX_VALUE, value));
+			this.index = Math.max(0, Math.min(STEPS.length - 1,
+					this.index + INDEX_CHANGES[nibble & 7]));
+			return this.predictor;
+		}
+
+		/**
+		 * Encodes a sample as the step the decoder follows.
+		 *
+		 * @param sample
+		 *            Sample to encode.
+		 * @return Step, sign in the high bit.
+		 */
+		private int encode(final int sample) {
+			int difference = sample - this.predictor;
+			int nibble = 0;
+			if (difference < 0) {
+				nibble = 8;
+				difference = -difference;
+			}
+			int step = STEPS[this.index];
+			if (difference >= step) {
+				nibble |= 4;
+				difference -= step;
+			}
+			if (difference >= step >> 1) {
+				nibble |= 2;
+				difference -= step >> 1;
+			}
+			if (difference >= step >> 2)
+				nibble |= 1;
+			// Keeps the state exactly as the decoder will see it.
+			decode(nibble);
+			return nibble;
+		}
+	}
+
+	/**
+	 * Encodes 16-bit samples.
+	 *
+	 * @param samples
+	 *            Samples, interleaved by channel.
+	 * @param channels
+	 *            Number of channels.
+	 * @param rate
+	 *            Frames per second.
+	 * @return Compact sound file.
+	 */
+	public static byte[] encode(final short[] samples, final int channels,
+			final int rate) {
+		if (channels < 1 || channels > Short.MAX_VALUE || rate < 1)
+			throw new IllegalArgumentException("Bad format: " + channels
+					+ " channels at " + rate + " Hz");
+		int frames = samples.length / channels;
+		int blocks = (frames + BLOCK_FRAMES - 1) / BLOCK_FRAMES;
+		ByteBuffer out = ByteBuffer.allocate(HEADER_SIZE + blocks
+				* blockSize(BLOCK_FRAMES, channels))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		out.putInt(MAGIC).putInt(VERSION).putInt(rate)
+				.putShort((short) channels).putShort((short) 0)
+				.putInt(frames);
+
+		Channel[] states = new Channel[channels];
+		for (int c = 0; c < channels; c++) {
+			states[c] = new Channel();
+			// Starts with a step fitting the sound instead of the smallest.
+			int difference = frames < 2 ? 0
+					: Math.abs(samples[channels + c] - samples[c]);
+			while (states[c].index < STEPS.length - 1
+					&& STEPS[states[c].index] < difference)
+				states[c].index++;
+		}
+		for (int first = 0; first < frames; first += BLOCK_FRAMES) {
+			int count = Math.min(BLOCK_FRAMES, frames - first);
+			for (int c = 0; c < channels; c++) {
+				// The step index carries over, only the sample is reset.
+				states[c].predictor = samples[first * channels + c];
+				out.putShort((short) states[c].predictor);
+				out.put((byte) states[c].index).put((byte) 0);
+			}
+			for (int c = 0; c < channels; c++) {
+				for (int i = 1; i < count; i += 2) {
+					int low = states[c].encode(
+							samples[(first + i) * channels + c]);
+					int high = i + 1 < count ? states[c].encode(
+							samples[(first + i + 1) * channels + c]) : 0;
+					out.put((byte) (low | high << 4));
+				}
+			}
+		}
+		return Arrays.copyOf(out.array(), out.position());
+	}
+
+	/**
+	 * @param frames
+	 *            Frames of the block.
+	 * @param channels
+	 *            Number of channels.
+	 * @return Bytes of a block.
+	 */
+	private static int blockSize(final int frames, final int channels) {
+		return channels * (4 + frames / 2);
+	}
+
+	/**
+	 * Opens a compact sound file as a 16-bit PCM stream, decoded block by
+	 * block while it is read.
+	 *
+	 * @param input
+	 *            Compact sound file.
+	 * @return PCM stream of the file.
+	 * @throws IOException
+	 *             In case of reading problems.
+	 * @throws UnsupportedAudioFileException
+	 *             If the file is not a compact sound file.
+	 */
+	public static AudioInputStream open(final InputStream input)
+			throws IOException, UnsupportedAudioFileException {
+		DataInputStream data = new DataInputStream(input);
+		byte[] header = new byte[HEADER_SIZE];
+		try {
+			data.readFully(header);
+		} catch (EOFException e) {
+			throw new UnsupportedAudioFileException("Truncated header");
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(header)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		if (buffer.getInt() != MAGIC)
+			throw new UnsupportedAudioFileException("Not a compact sound");
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new UnsupportedAudioFileException(
+					"Unsupported compact sound version " + version);
+		int rate = buffer.getInt();
+		int channels = buffer.getShort();
+		buffer.getShort();
+		int frames = buffer.getInt();
+		if (rate < 1 || channels < 1 || frames < 0)
+			throw new UnsupportedAudioFileException("Bad compact sound header");
+		AudioFormat format = new AudioFormat(rate, 16, channels, true, false);
+		return new AudioInputStream(new Decoder(data, channels, frames),
+				format, frames);
+	}
+
+	/** PCM bytes of a compact sound file, decoded a block at a time. */
+	private static final class Decoder extends InputStream {
+		/** Compact sound data after the header. */
+		private final DataInputStream input;
+		/** States of the channels. */
+		private final Channel[] states;
+		/** Frames not decoded yet. */
+		private int remaining;
+		/** Encoded block. */
+		private final byte[] block;
+		/** Decoded block, little-endian PCM. */
+		private final byte[] pcm;
+		/** Bytes of the decoded block. */
+		private int length;
+		/** Next byte of the decoded block to read. */
+		private int position;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param input
+		 *            Compact sound data after the header.
+		 * @param channels
+		 *            Number of channels.
+		 * @param frames
+		 *            Frames of the sound.
+		 */
+		private Decoder(final DataInputStream input, final int channels,
+				final int frames) {
+			this.input = input;
+			this.states = new Channel[channels];
+			for (int c = 0; c < channels; c++)
+				this.states[c] = new Channel();
+			this.remaining = frames;
+			this.block = new byte[blockSize(BLOCK_FRAMES, channels)];
+			this.pcm = new byte[BLOCK_FRAMES * channels * 2];
+		}
+
+		/**
+		 * Decodes the next block.
+		 *
+		 * @return False at the end of the sound.
+		 * @throws IOException
+		 *             If the data is truncated.
+		 */
+		private boolean next() throws IOException {
+			if (this.remaining == 0)
+				return false;
+			int channels = this.states.length;
+			int count = Math.min(BLOCK_FRAMES, this.remaining);
+			int size = blockSize(count, channels);
+			this.input.readFully(this.block, 0, size);
+			int offset = 0;
+			for (int c = 0; c < channels; c++) {
+				Channel state = this.states[c];
+				state.predictor = (short) (this.block[offset] & 0xFF
+						| this.block[offset + 1] << 8);
+				state.index = Math.min(STEPS.length - 1,
+						this.block[offset + 2] & 0xFF);
+				offset += 4;
+				put(0, c, state.predictor);
+			}
+			for (int c = 0; c < channels; c++) {
+				Channel state = this.states[c];
+				for (int i = 1; i < count; i += 2) {
+					int steps = this.block[offset++];
+					put(i, c, state.decode(steps & 0xF));
+					if (i + 1 < count)
+						put(i + 1, c, state.decode(steps >> 4 & 0xF));
+				}
+			}
+			this.remaining -= count;
+			this.length = count * channels * 2;
+			this.position = 0;
+			return true;
+		}
+
+		/**
+		 * Stores a decoded sample.
+		 *
+		 * @param frame
+		 *            Frame in the block.
+		 * @param channel
+		 *            Channel of the sample.
+		 * @param sample
+		 *            Decoded sample.
+		 */
+		private void put(final int frame, final int channel, final int sample) {
+			int offset = (frame * this.states.length + channel) * 2;
+			this.pcm[offset] = (byte) sample;
+			this.pcm[offset + 1] = (byte) (sample >> 8);
+		}
+
+		@Override
+		public int read() throws IOException {
+			if (this.position == this.length && !next())
+				return -1;
+			return this.pcm[this.position++] & 0xFF;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset,
+				final int count) throws IOException {
+			if (count == 0)
+				return 0;
+			if (this.position == this.length && !next())
+				return -1;
+			int read = Math.min(count, this.length - this.position);
+			System.arraycopy(this.pcm, this.position, bytes, offset, read);
+			this.position += read;
+			return read;
+		}
+
+		@Override
+		public void close() throws IOException {
+			this.input.close();
+		}
+	}
+
+	/**
+	 * Converts a sound file to a compact one, keeping its rate and
+	 * channels.
+	 *
+	 * @param input
+	 *            Sound file, such as a WAV file.
+	 * @return Compact sound file.
+	 * @throws IOException
+	 *             In case of reading problems.
+	 * @throws UnsupportedAudioFileException
+	 *             If the file is not a supported format.
+	 */
+	public static byte[] convert(final InputStream input)
+			throws IOException, UnsupportedAudioFileException {
+		AudioInputStream stream = AudioMixer.openPcm(input);
+		AudioFormat format = stream.getFormat();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = stream.read(buffer)) > 0)
+			bytes.write(buffer, 0, read);
+		byte[] data = bytes.toByteArray();
+		short[] samples = new short[data.length
+				/ (format.getSampleSizeInBits() / 8)];
+		AudioMixer.toShorts(data, data.length, format, samples);
+		return encode(samples, format.getChannels(),
+				Math.round(format.getSampleRate()));
+	}
+
+	/**
+	 * Copies a resource directory, converting its WAV files to compact
+	 * sound files.
+	 *
+	 * @param source
+	 *            Resource root.
+	 * @param target
+	 *            Directory to write.
+	 * @return Bytes saved by the conversion.
+	 * @throws IOException
+	 *             In case of reading or writing problems.
+	 */
+	public static long convertAll(final Path source, final Path target)
+			throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		Stream<Path> walk = Files.walk(source);
+		try {
+			walk.filter(Files::isRegularFile).sorted().forEach(files::add);
+		} finally {
+			walk.close();
+		}
+
+		long saved = 0;
+		for (Path file : files) {
+			String name = source.relativize(file).toString();
+			Path copy = target.resolve(name);
+			Files.createDirectories(copy.toAbsolutePath().getParent());
+			if (!name.toLowerCase().endsWith(".wav")) {
+				Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+				continue;
+			}
+			byte[] compact;
+			try (InputStream input = Files.newInputStream(file)) {
+				compact = convert(input);
+			} catch (UnsupportedAudioFileException e) {
+				throw new IOException(name + ": " + e.getMessage(), e);
+			}
+			Path converted = target.resolve(compactName(name));
+			Files.write(converted, compact);
+			saved += Files.size(file) - compact.length;
+		}
+		return saved;
+	}
+
+	/**
+	 * @param name
+	 *            Name of a WAV sound.
+	 * @return Name of its compact conversion.
+	 */
+	public static String compactName(final String name) {
+		int dot = name.lastIndexOf('.');
+		return (dot < 0 ? name : name.substring(0, dot)) + EXTENSION;
+	}
+
+	/**
+	 * Converts the resources, from the command line.
+	 *
+	 * @param args
+	 *            Resource root and directory to write.
+	 * @throws IOException
+	 *             In case of reading or writing problems.
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: AdpcmCodec <resource directory> "
+					+ "<target directory>");
+			System.exit(1);
+		}
+		long saved = convertAll(Paths.get(args[0]), Paths.get(args[1]));
+		System.out.println("Converted sounds into " + args[1] + ", "
+				+ saved / 1024 + " KB saved");
+	}
+}
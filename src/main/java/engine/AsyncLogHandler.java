@@ -0,0 +1,295 @@
+package engine;
+
+import java.io.BufferedWriter;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Formatter;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Log handler that keeps formatting and writing off the game thread.
+ *
+ * Publishing a record only claims a slot in a lock-free ring buffer. A
+ * background thread drains the ring, formats the records, which is when
+ * the parameters of a parameterized message are applied, and writes them
+ * in batches with one flush per batch. When the ring is full, records are
+ * dropped and counted rather than stalling the game. Each message pattern
+ * is also limited to a number of records per second; the number of
+ * suppressed records is reported with the next record of that message.
+ */
+public final class AsyncLogHandler extends Handler {
+
+	/** Property setting the level of the application logger. */
+	public static final String LEVEL_PROPERTY = "invaders.log.level";
+	/** Property setting the records per second allowed per message. */
+	public static final String RATE_PROPERTY = "invaders.log.rate";
+	/** Default records per second allowed per message. */
+	private static final int DEFAULT_RATE = 20;
+	/** Records the ring holds, a power of two. */
+	private static final int CAPACITY = 4096;
+	/** Maximum records written between flushes. */
+	private static final int BATCH_SIZE = 256;
+	/** Time the writer sleeps when the ring is empty. */
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+	/** Message patterns rate limited before the limits are reset. */
+	private static final int MAX_PATTERNS = 1024;
+
+	/** Records waiting to be written. */
+	private final MpscRing<LogRecord> ring = new MpscRing<LogRecord>(
+			CAPACITY, null);
+	/** Position up to which records were written and flushed. */
+	private volatile long written;
+	/** Records dropped because the ring was full. */
+	private final AtomicLong dropped = new AtomicLong();
+	/** Records per second allowed per message pattern. */
+	private final int rate;
+	/** Rate limit windows, by message pattern. */
+	private final ConcurrentMap<String, Window> windows =
+			new ConcurrentHashMap<String, Window>();
+	/** Destination of the records. */
+	private final Writer writer;
+	/** Writes the records. */
+	private final Thread thread;
+	/** Checks if the handler was closed. */
+	private volatile boolean closed;
+
+	/** Records of a message pattern in the current second. */
+	private static final class Window {
+		/** Current second. */
+		private long second;
+		/** Records allowed in the current second. */
+		private int count;
+		/** Records suppressed in the current second. */
+		private int suppressed;
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param writer
+	 *            Destination of the records.
+	 * @param formatter
+	 *            Formats the records.
+	 * @param level
+	 *            Lowest level written.
+	 * @param name
+	 *            Name of the writer thread.
+	 */
+	public AsyncLogHandler(final Writer writer, final Formatter formatter,
+			final Level level, final String name) {
+		this.writer = writer;
+		this.rate = Integer.getInteger(RATE_PROPERTY, DEFAULT_RATE);
+		setFormatter(formatter);
+		setLevel(level);
+
+		this.thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				writeRecords();
+			}
+		}, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Creates a handler appending to a file, which is truncated first.
+	 *
+	 * @param file
+	 *            Log file.
+	 * @param formatter
+	 *            Formats the records.
+	 * @return New handler.
+	 * @throws IOException
+	 *             If the file cannot be opened.
+	 */
+	public static AsyncLogHandler toFile(final Path file,
+			final Formatter formatter) throws IOException {
+		return new AsyncLogHandler(Files.newBufferedWriter(file,
+				StandardCharsets.UTF_8), formatter, Level.ALL, "log-file");
+	}
+
+	/**
+	 * Creates a handler writing to the standard error stream, which is
+	 * left open when the handler is closed.
+	 *
+	 * @param formatter
+	 *            Formats the records.
+	 * @return New handler.
+	 */
+	public static AsyncLogHandler toConsole(final Formatter formatter) {
+		Writer console = new FilterWriter(new BufferedWriter(
+				new OutputStreamWriter(System.err))) {
+			@Override
+			public void close() throws IOException {
+				flush();
+			}
+		};
+		return new AsyncLogHandler(console, formatter, Level.INFO,
+				"log-console");
+	}
+
+	@Override
+	public void publish(final LogRecord record) {
+		if (this.closed || !isLoggable(record) || !admit(record))
+			return;
+		if (!this.ring.offer(record))
+			this.dropped.incrementAndGet();
+	}
+
+	/**
+	 * Applies the rate limit of the record's message pattern.
+	 *
+	 * @param record
+	 *            Record to publish.
+	 * @return True if the record may be published.
+	 */
+	private boolean admit(final LogRecord record) {
+		String pattern = record.getMessage();
+		if (pattern == null)
+			return true;
+		Window window = this.windows.get(pattern);
+		if (window == null) {
+			if (this.windows.size() >= MAX_PATTERNS)
+				this.windows.clear();
+			window = new Window();
+			Window existing = this.windows.putIfAbsent(pattern, window);
+			if (existing != null)
+				window = existing;
+		}
+
+		long second = record.getMillis() / 1000;
+		int suppressed = 0;
+		boolean allowed;
+		synchronized (window) {
+			if (window.second != second) {
+				suppressed = window.suppressed;
+				window.second = second;
+				window.count = 0;
+				window.suppressed = 0;
+			}
+			allowed = ++window.count <= this.rate;
+			if (!allowed)
+				window.suppressed++;
+		}
+		if (suppressed > 0) {
+			LogRecord summary = new LogRecord(record.getLevel(),
+					"Suppressed {0} records of \"{1}\"");
+			summary.setParameters(new Object[] { suppressed, pattern });
+			if (!this.ring.offer(summary))
+				this.dropped.incrementAndGet();
+		}
+		return allowed;
+	}
+
+	/**
+	 * Writes batches of records until the handler is closed and the ring
+	 * is empty.
+	 */
+	private void writeRecords() {
+		while (true) {
+			int written = writeBatch();
+			if (written == 0) {
+				if (this.closed)
+					break;
+				LockSupport.parkNanos(this, IDLE_NANOS);
+			}
+		}
+		try {
+			this.writer.close();
+		} catch (IOException e) {
+			reportError(null, e, ErrorManager.CLOSE_FAILURE);
+		}
+	}
+
+	/**
+	 * Writes the records waiting in the ring, up to a batch, and flushes
+	 * them.
+	 *
+	 * @return Number of records written.
+	 */
+	private int writeBatch() {
+		int count = 0;
+		try {
+			long lost = this.dropped.getAndSet(0);
+			if (lost > 0) {
+				LogRecord warning = new LogRecord(Level.WARNING,
+						"Dropped {0} log records");
+				warning.setParameters(new Object[] { lost });
+				this.writer.write(getFormatter().format(warning));
+				count++;
+			}
+			LogRecord record;
+			while (count < BATCH_SIZE
+					&& (record = this.ring.poll()) != null) {
+				this.writer.write(getFormatter().format(record));
+				count++;
+			}
+			if (count > 0)
+				this.writer.flush();
+		} catch (IOException e) {
+			reportError(null, e, ErrorManager.WRITE_FAILURE);
+		} catch (RuntimeException e) {
+			reportError(null, e, ErrorManager.FORMAT_FAILURE);
+		}
+		// Failed records count as written, flush must not wait for them.
+		this.written = this.ring.getHead();
+		return count;
+	}
+
+	/**
+	 * Waits for the records published so far to be written.
+	 */
+	@Override
+	public void flush() {
+		long target = this.ring.getTail();
+		LockSupport.unpark(this.thread);
+		while (this.written < target && this.thread.isAlive())
+			LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+	}
+
+	/**
+	 * Writes the remaining records and closes the destination.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		LockSupport.unpark(this.thread);
+		try {
+			this.thread.join(TimeUnit.SECONDS.toMillis(1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reads the logger level from the level property.
+	 *
+	 * @param defaultLevel
+	 *            Level used if the property is not set or not valid.
+	 * @return Level to log at.
+	 */
+	public static Level configuredLevel(final Level defaultLevel) {
+		String name = System.getProperty(LEVEL_PROPERTY);
+		if (name == null)
+			return defaultLevel;
+		try {
+			return Level.parse(name.trim().toUpperCase());
+		} catch (IllegalArgumentException e) {
+			return defaultLevel;
+		}
+	}
+}
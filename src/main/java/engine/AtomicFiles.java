@@ -0,0 +1,57 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes files so that a crash leaves either the old or the new contents,
+ * never a mix of both.
+ */
+final class AtomicFiles {
+
+	/**
+	 * Private constructor, only static methods.
+	 */
+	private AtomicFiles() {
+
+	}
+
+	/**
+	 * Replaces a file atomically: writes a temporary file, forces it to
+	 * disk and moves it over the target.
+	 *
+	 * @param target
+	 *            File to replace.
+	 * @param contents
+	 *            New contents.
+	 * @throws IOException
+	 *             In case of writing problems.
+	 */
+	static void replace(final Path target, final ByteBuffer contents)
+			throws IOException {
+		Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+		FileChannel channel = FileChannel.open(temporary,
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			while (contents.hasRemaining())
+				channel.write(contents);
+			channel.force(true);
+		} finally {
+			channel.close();
+		}
+		try {
+			Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temporary, target,
+					StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+}
@@ -1,79 +1,219 @@
 package engine;
 
-import javax.sound.sampled.*;
-import java.io.File;
-import java.io.IOException;
+import java.util.logging.Logger;
+
+import entity.Entity;
 
 public class Audio {
-    /** Audio sound */
-    private Clip clip;
-    /** Audio file */
-    private File audioFile;
-    /** Audio input stream */
-    private AudioInputStream audioInputStream;
+    /** Property selecting the audio backend: javasound, null or recording. */
+    public static final String BACKEND_PROPERTY = "invaders.audio";
+
+    /** Backend of the game, chosen on first use */
+    private static AudioBackend defaultBackend;
+    /** Position of the listener last sent to the backend */
+    private static float listener;
+
+    /** Backend playing the sound, null for the backend of the game */
+    private final AudioBackend backend;
+    /** Name of the audio resource, decoded again once evicted */
+    private final String pathName;
     /** Audio is looping or not */
-    private boolean isLoop;
+    private final boolean isLoop;
+    /** Bus the sound plays on */
+    private final GainBus bus;
+    /** Voice last started */
+    private int voice = AudioMixer.NO_VOICE;
+    /** Priority over other sounds started in the same frame */
+    private int priority;
+    /** Shortest time between two plays, in milliseconds */
+    private int cooldown;
+    /** Attenuation with the distance to the listener, 0 for none */
+    private float rolloff;
 
     /**
      * Turn on the audio sound.
-     * @param pathName path of audio file
+     * @param pathName name of the audio resource
      * @param isLoop check the audio is loop
      */
     public Audio(String pathName, boolean isLoop){
-        try{
-            this.isLoop = isLoop;
-            clip = AudioSystem.getClip();
-            audioFile = new File(pathName);
-            audioInputStream = AudioSystem.getAudioInputStream(audioFile);
-            clip.open(audioInputStream);
-        } catch (LineUnavailableException e){
-            e.printStackTrace();
-        } catch (IOException e){
-            e.printStackTrace();
-        } catch (UnsupportedAudioFileException e) {
-            e.printStackTrace();
+        this(pathName, isLoop, GainBus.SFX);
+    }
+
+    /**
+     * Turn on the audio sound, on a given bus. The backend of the game is
+     * picked with the first use of the sound.
+     * @param pathName name of the audio resource
+     * @param isLoop check the audio is loop
+     * @param bus bus the sound plays on
+     */
+    public Audio(String pathName, boolean isLoop, GainBus bus){
+        this(null, pathName, isLoop, bus);
+    }
+
+    /**
+     * Turn on the audio sound, played by a given backend.
+     * @param backend backend playing the sound
+     * @param pathName name of the audio resource
+     * @param isLoop check the audio is loop
+     * @param bus bus the sound plays on
+     */
+    public Audio(AudioBackend backend, String pathName, boolean isLoop, GainBus bus){
+        this.isLoop = isLoop;
+        this.backend = backend;
+        this.pathName = pathName;
+        this.bus = bus;
+    }
+
+    /**
+     * Returns the backend of the game, chosen by the invaders.audio
+     * property, or else Java Sound if there is an output device and no
+     * replay is played back, and no audio otherwise.
+     * @return backend playing the sounds of the game
+     */
+    public static synchronized AudioBackend getBackend() {
+        if (defaultBackend == null) {
+            String name = System.getProperty(BACKEND_PROPERTY, "auto");
+            if (name.equals("javasound"))
+                defaultBackend = new JavaSoundBackend();
+            else if (name.equals("null"))
+                defaultBackend = new NullAudioBackend();
+            else if (name.equals("recording"))
+                defaultBackend = new RecordingAudioBackend();
+            else {
+                if (!name.equals("auto"))
+                    Logger.getLogger(Core.class.getSimpleName()).warning(
+                            "Unknown audio backend " + name + ", detecting one");
+                // Replays play back headless, as fast as they can.
+                boolean replay = System.getProperty(Replay.PLAY_PROPERTY) != null;
+                defaultBackend = !replay && AudioMixer.isOutputAvailable()
+                        ? new JavaSoundBackend() : new NullAudioBackend();
+            }
+            Logger.getLogger(Core.class.getSimpleName()).info("Audio backend: "
+                    + defaultBackend.getClass().getSimpleName());
+        }
+        return defaultBackend;
+    }
+
+    /**
+     * Replaces the backend of the game, used by the sounds created without
+     * a backend.
+     * @param backend backend playing the sounds of the game
+     */
+    public static synchronized void setBackend(AudioBackend backend) {
+        defaultBackend = backend;
+    }
+
+    /**
+     * Sets how the sound competes with the other ones of a frame.
+     * @param priority higher priorities play first when too many sounds start
+     * @param cooldown shortest time between two plays, in milliseconds
+     */
+    public void setCoalescing(int priority, int cooldown) {
+        this.priority = priority;
+        this.cooldown = cooldown;
+    }
+
+    /**
+     * @return priority over other sounds started in the same frame
+     */
+    public int getPriority() {
+        return priority;
+    }
+
+    /**
+     * @return shortest time between two plays, in milliseconds
+     */
+    public int getCooldown() {
+        return cooldown;
+    }
+
+    /**
+     * Makes the sound quieter the further it plays from the listener.
+     * @param rolloff attenuation with the distance to the listener, 0 for none
+     */
+    public void setAttenuation(float rolloff) {
+        this.rolloff = rolloff;
+    }
+
+    /**
+     * Position of an entity, from its center.
+     * @param entity entity making or hearing the sound
+     * @param width width of the screen
+     * @return position from -1, left edge, to 1, right edge
+     */
+    public static float panOf(Entity entity, int width) {
+        float center = entity.getPositionX() + entity.getWidth() / 2f;
+        return Math.max(-1f, Math.min(1f, center * 2f / width - 1f));
+    }
+
+    /**
+     * Moves the listener of the game backend to an entity, if it moved.
+     * @param entity entity hearing the sounds, such as the player's ship
+     * @param width width of the screen
+     */
+    public static synchronized void listenAt(Entity entity, int width) {
+        float pan = panOf(entity, width);
+        if (pan != listener) {
+            listener = pan;
+            getBackend().setListener(pan);
         }
     }
 
     /**
-     * Start the music clip
+     * @return name of the audio resource
+     */
+    public String getName() {
+        return pathName;
+    }
+
+    /**
+     * Ready the sound ahead of its first play, so it does not hitch the game.
+     */
+    public void prepare() {
+        backend().prepare(pathName);
+    }
+
+    /**
+     * Start the music clip with the next frame, once however many times
+     * it is asked for in the frame.
      */
     public void start(){
-        clip.setFramePosition(0);
-        clip.start();
-        if (isLoop) clip.loop(Clip.LOOP_CONTINUOUSLY);
+        SoundCoalescer.getInstance().start(this);
     }
 
+    /**
+     * Start the sound with the next frame, at the position of an entity.
+     * @param entity entity making the sound
+     * @param width width of the screen
+     */
+    public void startAt(Entity entity, int width){
+        SoundCoalescer.getInstance().start(this, panOf(entity, width));
+    }
 
     /**
-     * Stop the music clip
+     * Start the music clip now. Sound effects overlap earlier plays,
+     * looping music starts over.
+     * @param pan position from -1, left, to 1, right
      */
-    public void stop(){
-        clip.stop();
+    void play(float pan){
+        if (isLoop)
+            backend().stop(voice);
+        voice = backend().play(pathName, 1.0f, isLoop, bus, pan, rolloff);
     }
 
+
     /**
-     * Increase the music clip volume
+     * Stop the music clip with the next frame
      */
-    public void increase() {
-        if(!clip.isOpen()) // javaDocs - "Some Controls may only be available when the line(clip) is open."
-            return;
-        FloatControl gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-        float value = gainControl.getValue()+5;
-        if(gainControl.getMaximum()>value)
-            gainControl.setValue(value);
+    public void stop(){
+        SoundCoalescer.getInstance().stop(this);
     }
 
     /**
-     * Decrease the music clip volume
+     * Stop the music clip now
      */
-    public void decrease() {
-        if(!clip.isOpen())
-            return;
-        FloatControl gainControl = (FloatControl) clip.getControl(FloatControl.Type.MASTER_GAIN);
-        float value = gainControl.getValue()-5;
-        if(gainControl.getMinimum()<value)
-            gainControl.setValue(value);
+    void halt(){
+        backend().stopAll(pathName);
     }
 
     /**
@@ -81,8 +221,15 @@ public class Audio {
      * @return Ture if clip is running
      */
     public boolean isRunning() {
-        // return true from when call start() until invoke stop() or playback completes;
-        return clip.isRunning();
+        // true once the sound started playing, until stop() or playback completes
+        return backend().isPlaying(voice);
+    }
+
+    /**
+     * @return backend playing the sound
+     */
+    private AudioBackend backend() {
+        return backend != null ? backend : getBackend();
     }
 
 
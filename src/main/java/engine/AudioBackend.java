@@ -0,0 +1,107 @@
+package engine;
+
+/**
+ * Plays the sounds and music of the game.
+ *
+ * Audio and Music go through the backend selected at startup, so the game
+ * runs the same with Java Sound output, with no audio at all, or with a
+ * recording of what would have been played.
+ */
+public interface AudioBackend {
+
+	/**
+	 * Starts playing a sound.
+	 *
+	 * @param sound
+	 *            Name of the sound resource.
+	 * @param gain
+	 *            Linear gain.
+	 * @param loop
+	 *            True if the sound starts over when it ends.
+	 * @param bus
+	 *            Bus the sound plays on.
+	 * @param pan
+	 *            Position from -1, left, to 1, right.
+	 * @param rolloff
+	 *            Attenuation with the distance to the listener, 0 for none.
+	 * @return Handle of the play, AudioMixer.NO_VOICE if nothing plays.
+	 */
+	int play(String sound, float gain, boolean loop, GainBus bus, float pan,
+			float rolloff);
+
+	/**
+	 * Readies the backend for its first sounds, off the game thread, such
+	 * as compiling the mixing code.
+	 */
+	void warmUp();
+
+	/**
+	 * Readies a sound ahead of its first play, decoding it and playing its
+	 * first block silently, so the first play does not hitch the game.
+	 *
+	 * @param sound
+	 *            Name of the sound resource.
+	 */
+	void prepare(String sound);
+
+	/**
+	 * Stops a play.
+	 *
+	 * @param handle
+	 *            Handle of the play.
+	 */
+	void stop(int handle);
+
+	/**
+	 * Stops every play of a sound.
+	 *
+	 * @param sound
+	 *            Name of the sound resource.
+	 */
+	void stopAll(String sound);
+
+	/**
+	 * Changes the gain of every play of a sound.
+	 *
+	 * @param sound
+	 *            Name of the sound resource.
+	 * @param gain
+	 *            Linear gain.
+	 */
+	void setGain(String sound, float gain);
+
+	/**
+	 * @param handle
+	 *            Handle of the play.
+	 * @return True if the play is running.
+	 */
+	boolean isPlaying(int handle);
+
+	/**
+	 * Plays a music track, cross-fading from the current one.
+	 *
+	 * @param track
+	 *            Name of the track resource, null to stop the music.
+	 * @param fadeMillis
+	 *            Cross-fade time, in milliseconds.
+	 */
+	void playMusic(String track, int fadeMillis);
+
+	/**
+	 * Changes the gain of a bus, the master bus scaling the other ones.
+	 *
+	 * @param bus
+	 *            Bus to change.
+	 * @param gain
+	 *            Linear gain.
+	 */
+	void setBusGain(GainBus bus, float gain);
+
+	/**
+	 * Moves the listener, which attenuated sounds are heard from.
+	 *
+	 * @param pan
+	 *            Position from -1, left, to 1, right.
+	 */
+	void setListener(float pan);
+}
@@ -0,0 +1,275 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Finds the smallest output buffer the audio thread keeps fed on this
+ * machine.
+ *
+ * Each step plays clicks through a mixer whose line buffers one block less
+ * than the step before, and measures the line latency, the delay from a
+ * play to its first sample leaving the line, and the underruns. Steps stop
+ * at the first one with underruns or stalls; the smallest buffer without
+ * any is saved, and the game uses it from then on unless the buffer
+ * property says otherwise.
+ */
+public final class AudioCalibration {
+
+	/** Name of the calibration file in the save directory. */
+	public static final String FILE = "audio";
+	/** Property setting the time of each step, in milliseconds. */
+	public static final String TIME_PROPERTY = "invaders.audio.calibration";
+	/** Default time of each step, in milliseconds. */
+	public static final int DEFAULT_STEP_MILLIS = 3000;
+	/** Time between two clicks, in milliseconds. */
+	private static final int CLICK_INTERVAL = 100;
+	/** Length of a click, in frames. */
+	private static final int CLICK_FRAMES = 441;
+	/** Linear gain of the clicks. */
+	private static final float CLICK_GAIN = 0.2f;
+	/** Key of the buffer size in the calibration file. */
+	private static final String BUFFER_KEY = "buffer";
+
+	/** Measures of one buffer size. */
+	public static final class Step {
+		/** Blocks the output line buffers. */
+		private final int blocks;
+		/** Times the line played out everything written to it. */
+		private final int underruns;
+		/** Times the audio thread fell behind the output. */
+		private final int stalls;
+		/** Time the last frame written waits in the line, in nanoseconds. */
+		private final long lineLatency;
+		/** Average delay from a play to its output, in nanoseconds. */
+		private final long eventLatency;
+		/** Longest delay from a play to its output, in nanoseconds. */
+		private final long maxEventLatency;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param blocks
+		 *            Blocks the output line buffers.
+		 * @param underruns
+		 *            Times the line played out everything written to it.
+		 * @param stalls
+		 *            Times the audio thread fell behind the output.
+		 * @param lineLatency
+		 *            Time the last frame written waits in the line, in
+		 *            nanoseconds.
+		 * @param eventLatency
+		 *            Average delay from a play to its output, in
+		 *            nanoseconds.
+		 * @param maxEventLatency
+		 *            Longest delay from a play to its output, in
+		 *            nanoseconds.
+		 */
+		public Step(final int blocks, final int underruns, final int stalls,
+				final long lineLatency, final long eventLatency,
+				final long maxEventLatency) {
+			this.blocks = blocks;
+			this.underruns = underruns;
+			this.stalls = stalls;
+			this.lineLatency = lineLatency;
+			this.eventLatency = eventLatency;
+			this.maxEventLatency = maxEventLatency;
+		}
+
+		/**
+		 * @return Blocks the output line buffers.
+		 */
+		public int getBlocks() {
+			return this.blocks;
+		}
+
+		/**
+		 * @return True if the output never ran dry.
+		 */
+		public boolean isGlitchFree() {
+			return this.underruns == 0 && this.stalls == 0;
+		}
+
+		@Override
+		public String toString() {
+			return String.format("%d blocks (%.1f ms): line %.1f ms, "
+					+ "play to output %.1f ms avg %.1f ms max, "
+					+ "%d underruns, %d stalls", this.blocks,
+					bufferMillis(this.blocks), this.lineLatency / 1e6,
+					this.eventLatency / 1e6, this.maxEventLatency / 1e6,
+					this.underruns, this.stalls);
+		}
+	}
+
+	/**
+	 * Private constructor, only static methods.
+	 */
+	private AudioCalibration() {
+
+	}
+
+	/**
+	 * Reads the calibrated buffer size.
+	 *
+	 * @param file
+	 *            Calibration file.
+	 * @return Blocks the output line buffers, the default if not calibrated.
+	 */
+	public static int load(final Path file) {
+		try {
+			for (String line : Files.readAllLines(file,
+					StandardCharsets.UTF_8)) {
+				String[] parts = line.trim().split("\\s+");
+				if (parts.length == 2 && parts[0].equals(BUFFER_KEY))
+					return Math.max(AudioMixer.MIN_LINE_BLOCKS, Math.min(
+							AudioMixer.MAX_LINE_BLOCKS,
+							Integer.parseInt(parts[1])));
+			}
+		} catch (NoSuchFileException e) {
+			// Not calibrated yet.
+		} catch (IOException | NumberFormatException e) {
+			logger().warning("Audio calibration not loaded: "
+					+ e.getMessage());
+		}
+		return AudioMixer.DEFAULT_LINE_BLOCKS;
+	}
+
+	/**
+	 * Saves a buffer size.
+	 *
+	 * @param file
+	 *            Calibration file.
+	 * @param blocks
+	 *            Blocks the output line buffers.
+	 * @throws IOException
+	 *             In case of writing problems.
+	 */
+	public static void save(final Path file, final int blocks)
+			throws IOException {
+		Files.createDirectories(file.toAbsolutePath().getParent());
+		AtomicFiles.replace(file, ByteBuffer.wrap((BUFFER_KEY + " "
+				+ blocks + "\n").getBytes(StandardCharsets.UTF_8)));
+	}
+
+	/**
+	 * Picks the smallest buffer of the steps that never ran dry.
+	 *
+	 * @param steps
+	 *            Measured steps.
+	 * @return Blocks the output line buffers, the most if every step ran
+	 *         dry.
+	 */
+	public static int choose(final List<Step> steps) {
+		int chosen = AudioMixer.MAX_LINE_BLOCKS;
+		for (Step step : steps)
+			if (step.isGlitchFree() && step.getBlocks() < chosen)
+				chosen = step.getBlocks();
+		return chosen;
+	}
+
+	/**
+	 * Plays clicks through a mixer with a given buffer and measures it.
+	 *
+	 * @param blocks
+	 *            Blocks the output line buffers.
+	 * @param millis
+	 *            Time to play, in milliseconds.
+	 * @return Measures, null if there is no audio output.
+	 * @throws InterruptedException
+	 *             If interrupted while playing.
+	 */
+	static Step measure(final int blocks, final long millis)
+			throws InterruptedException {
+		AudioMixer mixer = new AudioMixer(AudioMixer.DEFAULT_VOICES);
+		if (!mixer.startOutput(blocks))
+			return null;
+		try {
+			AudioMixer.Sample click = click();
+			long end = System.nanoTime() + millis * 1000000L;
+			while (System.nanoTime() < end) {
+				mixer.play(click, CLICK_GAIN, false);
+				Thread.sleep(CLICK_INTERVAL);
+			}
+			return new Step(blocks, mixer.getUnderruns(), mixer.getStalls(),
+					mixer.getLineLatency(), mixer.getEventLatency(),
+					mixer.getMaxEventLatency());
+		} finally {
+			mixer.close();
+		}
+	}
+
+	/**
+	 * @return Short fading square wave.
+	 */
+	private static AudioMixer.Sample click() {
+		short[] data = new short[CLICK_FRAMES * AudioMixer.CHANNELS];
+		for (int i = 0; i < CLICK_FRAMES; i++) {
+			int level = Short.MAX_VALUE * (CLICK_FRAMES - i) / CLICK_FRAMES;
+			short value = (short) ((i / 50) % 2 == 0 ? level : -level);
+			data[i * AudioMixer.CHANNELS] = value;
+			data[i * AudioMixer.CHANNELS + 1] = value;
+		}
+		return new AudioMixer.Sample(data);
+	}
+
+	/**
+	 * @param blocks
+	 *            Blocks of the buffer.
+	 * @return Time the buffer holds, in milliseconds.
+	 */
+	private static double bufferMillis(final int blocks) {
+		return blocks * AudioMixer.BLOCK_FRAMES * 1000.0
+				/ AudioMixer.SAMPLE_RATE;
+	}
+
+	/**
+	 * Calibrates the output buffer of this machine and saves it.
+	 *
+	 * @param args
+	 *            Optional save directory, saves by default.
+	 * @throws IOException
+	 *             If the calibration cannot be saved.
+	 * @throws InterruptedException
+	 *             If interrupted while playing.
+	 */
+	public static void main(final String[] args) throws IOException,
+			InterruptedException {
+		if (!AudioMixer.isOutputAvailable()) {
+			System.err.println("No audio output to calibrate.");
+			return;
+		}
+		Path file = Paths.get(args.length > 0 ? args[0] : "saves", FILE);
+		long millis = Integer.getInteger(TIME_PROPERTY, DEFAULT_STEP_MILLIS);
+		List<Step> steps = new ArrayList<Step>();
+		for (int blocks = AudioMixer.MAX_LINE_BLOCKS;
+				blocks >= AudioMixer.MIN_LINE_BLOCKS; blocks--) {
+			Step step = measure(blocks, millis);
+			if (step == null)
+				break;
+			System.out.println(step);
+			steps.add(step);
+			if (!step.isGlitchFree())
+				break;
+		}
+		int chosen = choose(steps);
+		save(file, chosen);
+		System.out.println(String.format("Output buffer: %d blocks "
+				+ "(%.1f ms), saved to %s", chosen, bufferMillis(chosen),
+				file));
+	}
+
+	/**
+	 * @return Application logger, without initializing the game.
+	 */
+	private static Logger logger() {
+		return Logger.getLogger(Core.class.getSimpleName());
+	}
+}
@@ -0,0 +1,1161 @@
+package engine;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import javax.sound.sampled.DataLine;
+import javax.sound.sampled.LineUnavailableException;
+import javax.sound.sampled.SourceDataLine;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Software mixer playing every sound of the game through one output line.
+ *
+ * Sounds are decoded once, cached up to a memory budget, and played on a
+ * fixed number of voices, each panned and on a gain bus. Other threads send
+ * commands through a lock-free queue; a dedicated audio thread applies them
+ * and mixes the voices block by block.
+ */
+public final class AudioMixer {
+
+	/** Property setting the maximum number of voices playing at once. */
+	public static final String VOICES_PROPERTY = "invaders.audio.voices";
+	/** Default maximum number of voices playing at once. */
+	public static final int DEFAULT_VOICES = 16;
+	/** Property setting the memory of the decoded sound cache, in KB. */
+	public static final String CACHE_PROPERTY = "invaders.audio.cache";
+	/** Default memory of the decoded sound cache in KB, every effect fits. */
+	public static final int DEFAULT_CACHE_KB = 6144;
+	/** Frames per second of the output. */
+	public static final int SAMPLE_RATE = 44100;
+	/** Channels of the output. */
+	public static final int CHANNELS = 2;
+	/** Frames mixed at a time. */
+	static final int BLOCK_FRAMES = 512;
+	/** Property setting the blocks the output line buffers. */
+	public static final String BUFFER_PROPERTY = "invaders.audio.buffer";
+	/** Default blocks the output line buffers. */
+	public static final int DEFAULT_LINE_BLOCKS = 4;
+	/** Fewest blocks the output line buffers. */
+	public static final int MIN_LINE_BLOCKS = 2;
+	/** Most blocks the output line buffers. */
+	public static final int MAX_LINE_BLOCKS = 8;
+	/** Voice handle that never plays. */
+	public static final int NO_VOICE = -1;
+	/** Most voices. */
+	private static final int MAX_VOICES = 256;
+	/** Blocks mixed before the output starts. */
+	private static final int WARM_UP_BLOCKS = 200;
+
+	/** Format of the output line. */
+	private static final AudioFormat FORMAT = new AudioFormat(SAMPLE_RATE,
+			16, CHANNELS, true, false);
+
+	/** Singleton instance of the class. */
+	private static AudioMixer instance;
+
+	/** Decoded sound, interleaved stereo at the output rate. */
+	public static final class Sample {
+		/** Samples, left and right for each frame. */
+		private final short[] data;
+		/** Name of the resource, null if it was not loaded by name. */
+		private final String name;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param data
+		 *            Samples, left and right for each frame.
+		 */
+		public Sample(final short[] data) {
+			this(data, null);
+		}
+
+		/**
+		 * Constructor.
+		 *
+		 * @param data
+		 *            Samples, left and right for each frame.
+		 * @param name
+		 *            Name of the resource, null if it was not loaded by
+		 *            name.
+		 */
+		private Sample(final short[] data, final String name) {
+			this.data = data;
+			this.name = name;
+		}
+
+		/**
+		 * @param other
+		 *            Sound to compare, null to only compare the resource.
+		 * @param resource
+		 *            Name of the resource to compare, if other is null.
+		 * @return True if both are the same sound, or decodings of the same
+		 *         resource.
+		 */
+		private boolean isSameSound(final Sample other,
+				final String resource) {
+			String otherName = other != null ? other.name : resource;
+			return this == other || this.name != null
+					&& this.name.equals(otherName);
+		}
+
+		/**
+		 * @return Estimated memory of the samples, in bytes.
+		 */
+		private long cost() {
+			return 16 + this.data.length * 2L;
+		}
+
+		/**
+		 * @return Number of frames.
+		 */
+		public int getFrames() {
+			return this.data.length / CHANNELS;
+		}
+	}
+
+	/** Slot playing one sound. */
+	private static final class Voice {
+		/** Sound played, null when the voice is free. */
+		private Sample sample;
+		/** Next frame to play. */
+		private int position;
+		/** Linear gain. */
+		private float gain;
+		/** Checks if the sound starts over when it ends. */
+		private boolean loop;
+		/** Handle of the play, 0 when the voice is free. */
+		private int handle;
+		/** Ordinal of the bus the voice plays on. */
+		private int bus;
+		/** Position from -1, left, to 1, right. */
+		private float pan;
+		/** Attenuation with the distance to the listener, 0 for none. */
+		private float rolloff;
+	}
+
+	/** Voices, free or playing. */
+	private final Voice[] voices;
+	/** Maximum estimated memory of the decoded sounds. */
+	private final long budget;
+	/** Decoded sounds by resource name, least recently used first. */
+	private final LinkedHashMap<String, Sample> samples =
+			new LinkedHashMap<String, Sample>(16, 0.75f, true);
+	/** Estimated memory of the decoded sounds. */
+	private long cached;
+	/** Sounds decoded, for statistics. */
+	private int decodes;
+	/** Resources that could not be loaded, warned about once. */
+	private final Set<String> missing = new HashSet<String>();
+	/** Resources being decoded in the background. */
+	private final Set<String> decoding = new HashSet<String>();
+	/** Decodes sounds missing from the cache, created on first miss. */
+	private ExecutorService decoder;
+	/** Plays skipped because their sound was not decoded, for statistics. */
+	private final AtomicInteger misses = new AtomicInteger();
+	/** Gain of each bus, by ordinal, only used by the audio thread. */
+	private final float[] busGains = new float[GainBus.values().length];
+	/** Position of the listener, only used by the audio thread. */
+	private float listener;
+	/** Gains of the left and right channels of a voice, reused. */
+	private final float[] panGains = new float[CHANNELS];
+	/** Sum of the voices of the block being mixed. */
+	private final int[] accumulator = new int[BLOCK_FRAMES * CHANNELS];
+	/** Commands for the audio thread. */
+	private final AudioQueue commands = new AudioQueue();
+	/** Command being applied, reused. */
+	private final AudioQueue.Command command = new AudioQueue.Command();
+	/** Last handle given out. */
+	private final AtomicInteger nextHandle = new AtomicInteger();
+	/** Handle playing on each voice, 0 if free, for other threads. */
+	private final AtomicIntegerArray playing;
+	/** Streamed music mixed with the voices, null for none. */
+	private volatile MusicPlayer music;
+	/** Voices stolen, for statistics. */
+	private volatile int steals;
+	/** Longest time a command waited, in nanoseconds. */
+	private volatile long maxLatency;
+	/** Times the audio thread fell behind the output. */
+	private volatile int stalls;
+	/** Longest time between two blocks, in nanoseconds. */
+	private volatile long maxGap;
+	/** Time between blocks after which the output has run dry. */
+	private long stallNanos;
+	/** Checks if the output thread keeps going. */
+	private volatile boolean running;
+	/** Thread writing to the output line, null until it starts. */
+	private Thread output;
+	/** Time the first play of the block was sent, 0 if none. */
+	private long blockPlay;
+	/** Frames written to the line. */
+	private volatile long framesOut;
+	/** Times the line played out everything written to it. */
+	private volatile int underruns;
+	/** Time the last frame written waits in the line, in nanoseconds. */
+	private volatile long lineLatency;
+	/** Plays measured from their command to their output. */
+	private volatile long eventCount;
+	/** Sum of the delays from a play to its output, in nanoseconds. */
+	private volatile long eventLatencySum;
+	/** Longest delay from a play to its output, in nanoseconds. */
+	private volatile long maxEventLatency;
+
+	/**
+	 * Constructor, with the default cache.
+	 *
+	 * @param voiceCount
+	 *            Maximum number of voices playing at once.
+	 */
+	public AudioMixer(final int voiceCount) {
+		this(voiceCount, DEFAULT_CACHE_KB * 1024L);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param voiceCount
+	 *            Maximum number of voices playing at once.
+	 * @param budget
+	 *            Maximum estimated memory of the decoded sounds, in bytes.
+	 */
+	public AudioMixer(final int voiceCount, final long budget) {
+		this.budget = budget;
+		Arrays.fill(this.busGains, 1.0f);
+		if (voiceCount < 1 || voiceCount > MAX_VOICES)
+			throw new IllegalArgumentException("Voices must be 1 to "
+					+ MAX_VOICES + ": " + voiceCount);
+		this.voices = new Voice[voiceCount];
+		this.playing = new AtomicIntegerArray(voiceCount);
+		for (int i = 0; i < voiceCount; i++)
+			this.voices[i] = new Voice();
+	}
+
+	/**
+	 * Returns shared instance of the mixer, starting its output on first
+	 * use.
+	 *
+	 * @return Shared instance of the mixer.
+	 */
+	public static synchronized AudioMixer getInstance() {
+		if (instance == null) {
+			int voices = Integer.getInteger(VOICES_PROPERTY, DEFAULT_VOICES);
+			instance = new AudioMixer(Math.max(1,
+					Math.min(MAX_VOICES, voices)), 1024L * Integer.getInteger(
+					CACHE_PROPERTY, DEFAULT_CACHE_KB));
+			int blocks = Integer.getInteger(BUFFER_PROPERTY,
+					AudioCalibration.load(Paths.get("saves",
+							AudioCalibration.FILE)));
+			instance.startOutput(Math.max(MIN_LINE_BLOCKS,
+					Math.min(MAX_LINE_BLOCKS, blocks)));
+		}
+		return instance;
+	}
+
+	/**
+	 * @return True if there is an output line for the mixer's format.
+	 */
+	public static boolean isOutputAvailable() {
+		try {
+			return AudioSystem.isLineSupported(new DataLine.Info(
+					SourceDataLine.class, FORMAT));
+		} catch (IllegalArgumentException | SecurityException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Opens the output line and starts the mixing thread, or leaves the
+	 * mixer silent if there is no audio device.
+	 *
+	 * @param lineBlocks
+	 *            Blocks the output line buffers.
+	 * @return True if the output started.
+	 */
+	boolean startOutput(final int lineBlocks) {
+		final SourceDataLine line;
+		try {
+			line = AudioSystem.getSourceDataLine(FORMAT);
+			line.open(FORMAT, BLOCK_FRAMES * lineBlocks
+					* FORMAT.getFrameSize());
+		} catch (LineUnavailableException | IllegalArgumentException
+				| SecurityException e) {
+			logger().warning("No audio output, sounds are muted: "
+					+ e.getMessage());
+			return false;
+		}
+		this.stallNanos = (long) lineBlocks * BLOCK_FRAMES * 1000000000L
+				/ SAMPLE_RATE;
+		this.running = true;
+		line.start();
+		Thread thread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				short[] block = new short[BLOCK_FRAMES * CHANNELS];
+				byte[] bytes = new byte[block.length * 2];
+				long previous = System.nanoTime();
+				while (running) {
+					long now = System.nanoTime();
+					recordGap(now - previous);
+					previous = now;
+					render(block, BLOCK_FRAMES);
+					for (int i = 0; i < block.length; i++) {
+						bytes[2 * i] = (byte) block[i];
+						bytes[2 * i + 1] = (byte) (block[i] >> 8);
+					}
+					checkUnderrun(line);
+					// Blocks until the line has room, pacing the thread.
+					line.write(bytes, 0, bytes.length);
+					recordOutput(line, BLOCK_FRAMES);
+				}
+				line.stop();
+				line.close();
+			}
+		}, "audio-mixer");
+		thread.setDaemon(true);
+		thread.setPriority(Thread.MAX_PRIORITY);
+		this.output = thread;
+		thread.start();
+		return true;
+	}
+
+	/**
+	 * Mixes silent blocks on every voice of a scratch mixer, panned and
+	 * attenuated, so the mixing code is compiled before the first sound
+	 * plays, without holding up the output or its voices.
+	 */
+	public static void warmUp() {
+		long start = System.nanoTime();
+		AudioMixer scratch = new AudioMixer(DEFAULT_VOICES, 0);
+		short[] block = new short[BLOCK_FRAMES * CHANNELS];
+		Sample silence = new Sample(new short[BLOCK_FRAMES * CHANNELS]);
+		for (int v = 0; v < DEFAULT_VOICES; v++)
+			scratch.play(silence, 1.0f, true, GainBus.SFX,
+					2f * v / DEFAULT_VOICES - 1, 1);
+		for (int i = 0; i < WARM_UP_BLOCKS; i++)
+			scratch.render(block, BLOCK_FRAMES);
+		logger().log(Level.FINE, "Audio mixer warmed up in {0} ms",
+				(System.nanoTime() - start) / 1000000);
+	}
+
+	/**
+	 * Plays the first block of a sound silently, so its first real play
+	 * takes a path already run.
+	 *
+	 * @param sample
+	 *            Sound to prime.
+	 */
+	public void prime(final Sample sample) {
+		if (sample == null || sample.getFrames() == 0)
+			return;
+		play(new Sample(Arrays.copyOf(sample.data, Math.min(
+				sample.data.length, BLOCK_FRAMES * CHANNELS))), 0, false);
+	}
+
+	/**
+	 * Stops the output after the block being written and closes the line.
+	 *
+	 * @throws InterruptedException
+	 *             If interrupted while waiting for the output to stop.
+	 */
+	void close() throws InterruptedException {
+		this.running = false;
+		if (this.output != null)
+			this.output.join();
+	}
+
+	/**
+	 * Returns a sound resource, decoding it if it is not cached.
+	 *
+	 * @param name
+	 *            Name of the resource.
+	 * @return Decoded sound, null if it cannot be read.
+	 */
+	public Sample load(final String name) {
+		synchronized (this.samples) {
+			Sample sample = this.samples.get(name);
+			if (sample != null || this.missing.contains(name))
+				return sample;
+		}
+		Sample sample;
+		try (InputStream input = openSound(name)) {
+			sample = new Sample(decode(input).data, name);
+		} catch (IOException | UnsupportedAudioFileException e) {
+			logger().warning("Sound " + name + " not loaded: "
+					+ e.getMessage());
+			synchronized (this.samples) {
+				this.missing.add(name);
+			}
+			return null;
+		}
+		synchronized (this.samples) {
+			Sample previous = this.samples.get(name);
+			if (previous != null)
+				return previous;
+			this.decodes++;
+			this.samples.put(name, sample);
+			this.cached += sample.cost();
+			Iterator<Sample> eldest = this.samples.values().iterator();
+			while (this.cached > this.budget && this.samples.size() > 1) {
+				this.cached -= eldest.next().cost();
+				eldest.remove();
+			}
+		}
+		return sample;
+	}
+
+	/**
+	 * Returns a sound resource if it is cached, or else decodes it on a
+	 * background thread, so the caller never waits on a decoding.
+	 *
+	 * @param name
+	 *            Name of the resource.
+	 * @return Decoded sound, null if it is not cached or cannot be read.
+	 */
+	public Sample request(final String name) {
+		synchronized (this.samples) {
+			Sample sample = this.samples.get(name);
+			if (sample != null || this.missing.contains(name))
+				return sample;
+			this.misses.incrementAndGet();
+			if (!this.decoding.add(name))
+				return null;
+			if (this.decoder == null)
+				this.decoder = Executors.newSingleThreadExecutor(
+						new ThreadFactory() {
+							@Override
+							public Thread newThread(final Runnable runnable) {
+								Thread thread = new Thread(runnable,
+										"audio-decoder");
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+		}
+		this.decoder.execute(new Runnable() {
+			@Override
+			public void run() {
+				load(name);
+				synchronized (samples) {
+					decoding.remove(name);
+				}
+			}
+		});
+		return null;
+	}
+
+	/**
+	 * Opens a sound resource, preferring its compact conversion.
+	 *
+	 * @param name
+	 *            Name of the resource.
+	 * @return Sound file.
+	 * @throws IOException
+	 *             If neither the resource nor its conversion is found.
+	 */
+	static InputStream openSound(final String name) throws IOException {
+		try {
+			return Resources.open(AdpcmCodec.compactName(name));
+		} catch (FileNotFoundException e) {
+			return Resources.open(name);
+		}
+	}
+
+	/**
+	 * Decodes a PCM sound file into a sample at the output rate.
+	 *
+	 * @param input
+	 *            Sound file, such as a WAV file.
+	 * @return Decoded sound.
+	 * @throws IOException
+	 *             In case of reading problems.
+	 * @throws UnsupportedAudioFileException
+	 *             If the file is not a supported format.
+	 */
+	public static Sample decode(final InputStream input)
+			throws IOException, UnsupportedAudioFileException {
+		AudioInputStream stream = openPcm(input);
+		AudioFormat format = stream.getFormat();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		byte[] buffer = new byte[8192];
+		int read;
+		while ((read = stream.read(buffer)) > 0)
+			bytes.write(buffer, 0, read);
+
+		byte[] data = bytes.toByteArray();
+		short[] source = new short[data.length
+				/ (format.getSampleSizeInBits() / 8)];
+		toShorts(data, data.length, format, source);
+		return new Sample(resample(source, format.getChannels(),
+				Math.round(format.getSampleRate())));
+	}
+
+	/**
+	 * Opens a sound file as PCM, converting compressed encodings.
+	 *
+	 * @param input
+	 *            Sound file, such as a WAV file or a compact sound file.
+	 * @return PCM stream of the file.
+	 * @throws IOException
+	 *             In case of reading problems.
+	 * @throws UnsupportedAudioFileException
+	 *             If the file is not a supported format.
+	 */
+	static AudioInputStream openPcm(final InputStream input)
+			throws IOException, UnsupportedAudioFileException {
+		InputStream buffered = new BufferedInputStream(input);
+		buffered.mark(4);
+		int magic = 0;
+		for (int i = 0; i < 4; i++)
+			magic |= (buffered.read() & 0xFF) << 8 * i;
+		buffered.reset();
+		if (magic == AdpcmCodec.MAGIC)
+			return AdpcmCodec.open(buffered);
+		AudioInputStream stream = AudioSystem.getAudioInputStream(buffered);
+		AudioFormat format = stream.getFormat();
+		if (format.getEncoding() != AudioFormat.Encoding.PCM_SIGNED
+				&& format.getEncoding() != AudioFormat.Encoding.PCM_UNSIGNED) {
+			format = new AudioFormat(format.getSampleRate(), 16,
+					format.getChannels(), true, false);
+			stream = AudioSystem.getAudioInputStream(format, stream);
+		}
+		return stream;
+	}
+
+
+	/**
+	 * Converts PCM bytes to 16-bit samples.
+	 *
+	 * @param bytes
+	 *            PCM data.
+	 * @param length
+	 *            Bytes of PCM data.
+	 * @param format
+	 *            Format of the data.
+	 * @param samples
+	 *            Samples, interleaved by channel, filled in.
+	 * @return Number of samples converted.
+	 */
+	static int toShorts(final byte[] bytes, final int length,
+			final AudioFormat format, final short[] samples) {
+		int width = format.getSampleSizeInBits() / 8;
+		boolean signed = format.getEncoding() == AudioFormat.Encoding.PCM_SIGNED;
+		boolean bigEndian = format.isBigEndian();
+		int count = length / width;
+		for (int i = 0; i < count; i++) {
+			int offset = i * width;
+			// Only the two most significant bytes are kept.
+			int high = bigEndian ? bytes[offset]
+					: bytes[offset + width - 1];
+			int low = width == 1 ? 0 : (bigEndian ? bytes[offset + 1]
+					: bytes[offset + width - 2]) & 0xFF;
+			int value = signed ? (high << 8) | low
+					: (((high & 0xFF) << 8) | low) - 0x8000;
+			samples[i] = (short) value;
+		}
+		return count;
+	}
+
+
+	/**
+	 * Converts samples to stereo at the output rate, interpolating
+	 * linearly.
+	 *
+	 * @param source
+	 *            Samples, interleaved by channel.
+	 * @param channels
+	 *            Channels of the source.
+	 * @param rate
+	 *            Frames per second of the source.
+	 * @return Stereo samples at the output rate.
+	 */
+	private static short[] resample(final short[] source, final int channels,
+			final int rate) {
+		int frames = source.length / channels;
+		int outFrames = (int) ((long) frames * SAMPLE_RATE / rate);
+		short[] out = new short[outFrames * CHANNELS];
+		int right = Math.min(1, channels - 1);
+		for (int i = 0; i < outFrames; i++) {
+			long position = (long) i * rate;
+			int frame = (int) (position / SAMPLE_RATE);
+			int next = Math.min(frame + 1, frames - 1);
+			int fraction = (int) (position % SAMPLE_RATE);
+			for (int c = 0; c < CHANNELS; c++) {
+				int channel = c == 0 ? 0 : right;
+				int a = source[frame * channels + channel];
+				int b = source[next * channels + channel];
+				out[i * CHANNELS + c] = (short) (a + (long) (b - a)
+						* fraction / SAMPLE_RATE);
+			}
+		}
+		return out;
+	}
+
+	/**
+	 * Starts playing a sound on the effects bus.
+	 *
+	 * @param sample
+	 *            Sound to play.
+	 * @param gain
+	 *            Linear gain.
+	 * @param loop
+	 *            True if the sound starts over when it ends.
+	 * @return Handle of the voice, NO_VOICE if nothing plays.
+	 */
+	public int play(final Sample sample, final float gain,
+			final boolean loop) {
+		return play(sample, gain, loop, GainBus.SFX);
+	}
+
+	/**
+	 * Starts playing a sound. The voice is picked on the audio thread: a
+	 * free one, or else the one closest to its end, looping voices last.
+	 *
+	 * @param sample
+	 *            Sound to play.
+	 * @param gain
+	 *            Linear gain.
+	 * @param loop
+	 *            True if the sound starts over when it ends.
+	 * @param bus
+	 *            Bus the sound plays on.
+	 * @return Handle of the voice, NO_VOICE if nothing plays.
+	 */
+	public int play(final Sample sample, final float gain,
+			final boolean loop, final GainBus bus) {
+		return play(sample, gain, loop, bus, 0, 0);
+	}
+
+	/**
+	 * Starts playing a sound at a position. The voice is picked on the
+	 * audio thread: a free one, or else the one closest to its end, looping
+	 * voices last.
+	 *
+	 * @param sample
+	 *            Sound to play.
+	 * @param gain
+	 *            Linear gain.
+	 * @param loop
+	 *            True if the sound starts over when it ends.
+	 * @param bus
+	 *            Bus the sound plays on.
+	 * @param pan
+	 *            Position from -1, left, to 1, right.
+	 * @param rolloff
+	 *            Attenuation with the distance to the listener, 0 for none.
+	 * @return Handle of the voice, NO_VOICE if nothing plays.
+	 */
+	public int play(final Sample sample, final float gain,
+			final boolean loop, final GainBus bus, final float pan,
+			final float rolloff) {
+		if (sample == null || sample.getFrames() == 0)
+			return NO_VOICE;
+		int handle = this.nextHandle.incrementAndGet() & Integer.MAX_VALUE;
+		if (!this.commands.offer(AudioQueue.PLAY, sample, null, gain, loop,
+				handle, bus.ordinal(), clampPan(pan), Math.max(0, rolloff)))
+			return NO_VOICE;
+		return handle;
+	}
+
+	/**
+	 * Stops a voice.
+	 *
+	 * @param handle
+	 *            Handle of the voice.
+	 */
+	public void stop(final int handle) {
+		if (handle != NO_VOICE)
+			this.commands.offer(AudioQueue.STOP, null, null, 0, false, handle,
+					0, 0, 0);
+	}
+
+	/**
+	 * Stops every voice playing a sound.
+	 *
+	 * @param sample
+	 *            Sound to stop.
+	 */
+	public void stopAll(final Sample sample) {
+		if (sample != null)
+			this.commands.offer(AudioQueue.STOP_ALL, sample, null, 0, false,
+					NO_VOICE, 0, 0, 0);
+	}
+
+	/**
+	 * Stops every voice playing a sound resource, without decoding it.
+	 *
+	 * @param name
+	 *            Name of the resource.
+	 */
+	public void stopAll(final String name) {
+		if (name != null)
+			this.commands.offer(AudioQueue.STOP_ALL, null, name, 0, false,
+					NO_VOICE, 0, 0, 0);
+	}
+
+	/**
+	 * Changes the gain of every voice playing a sound resource, without
+	 * decoding it.
+	 *
+	 * @param name
+	 *            Name of the resource.
+	 * @param gain
+	 *            Linear gain.
+	 */
+	public void setGain(final String name, final float gain) {
+		if (name != null)
+			this.commands.offer(AudioQueue.SET_GAIN, null, name, gain, false,
+					NO_VOICE, 0, 0, 0);
+	}
+
+	/**
+	 * Changes the gain of every voice playing a sound.
+	 *
+	 * @param sample
+	 *            Sound to change.
+	 * @param gain
+	 *            Linear gain.
+	 */
+	public void setGain(final Sample sample, final float gain) {
+		if (sample != null)
+			this.commands.offer(AudioQueue.SET_GAIN, sample, null, gain,
+					false, NO_VOICE, 0, 0, 0);
+	}
+
+	/**
+	 * Changes the gain of a bus. The gain of the master bus scales the
+	 * other ones.
+	 *
+	 * @param bus
+	 *            Bus to change.
+	 * @param gain
+	 *            Linear gain.
+	 */
+	public void setBusGain(final GainBus bus, final float gain) {
+		this.commands.offer(AudioQueue.SET_BUS, null, null, gain, false,
+				NO_VOICE, bus.ordinal(), 0, 0);
+	}
+
+	/**
+	 * Moves the listener, which attenuated sounds are heard from.
+	 *
+	 * @param pan
+	 *            Position from -1, left, to 1, right.
+	 */
+	public void setListener(final float pan) {
+		this.commands.offer(AudioQueue.SET_LISTENER, null, null, 0, false,
+				NO_VOICE, 0, clampPan(pan), 0);
+	}
+
+	/**
+	 * @param pan
+	 *            Position.
+	 * @return Position between -1 and 1, 0 if not a number.
+	 */
+	private static float clampPan(final float pan) {
+		return pan > 1 ? 1 : pan < -1 ? -1 : pan == pan ? pan : 0;
+	}
+
+	/**
+	 * Works out the channel gains of a sound, panned with equal power so
+	 * that a centered sound keeps its gain on both channels.
+	 *
+	 * @param gain
+	 *            Linear gain, buses included.
+	 * @param pan
+	 *            Position from -1, left, to 1, right.
+	 * @param rolloff
+	 *            Attenuation with the distance to the listener, 0 for none.
+	 * @param listener
+	 *            Position of the listener.
+	 * @param gains
+	 *            Left and right gains, filled in.
+	 */
+	static void panGains(final float gain, final float pan,
+			final float rolloff, final float listener, final float[] gains) {
+		float scaled = gain;
+		if (rolloff > 0)
+			scaled /= 1 + rolloff * Math.abs(pan - listener);
+		if (pan == 0) {
+			gains[0] = scaled;
+			gains[1] = scaled;
+			return;
+		}
+		double angle = (pan + 1) * Math.PI / 4;
+		gains[0] = (float) (scaled * Math.sqrt(2) * Math.cos(angle));
+		gains[1] = (float) (scaled * Math.sqrt(2) * Math.sin(angle));
+	}
+
+	/**
+	 * @param handle
+	 *            Handle of the voice.
+	 * @return True if the voice plays its sound, from the block the play
+	 *         command is applied in until the sound ends or is stopped.
+	 */
+	public boolean isPlaying(final int handle) {
+		if (handle == NO_VOICE)
+			return false;
+		for (int i = 0; i < this.playing.length(); i++)
+			if (this.playing.get(i) == handle)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Sets the streamed music mixed with the voices.
+	 *
+	 * @param player
+	 *            Music player, null for none.
+	 */
+	public void setMusic(final MusicPlayer player) {
+		this.music = player;
+	}
+
+	/**
+	 * @return Voices playing.
+	 */
+	public int getActiveVoices() {
+		int active = 0;
+		for (int i = 0; i < this.playing.length(); i++)
+			if (this.playing.get(i) != 0)
+				active++;
+		return active;
+	}
+
+	/**
+	 * @return Number of sounds decoded so far, evicted ones included.
+	 */
+	public int getDecodeCount() {
+		synchronized (this.samples) {
+			return this.decodes;
+		}
+	}
+
+	/**
+	 * @return Sounds requested before they were decoded, whose plays were
+	 *         skipped.
+	 */
+	public int getMissCount() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return Estimated memory of the decoded sounds, in bytes.
+	 */
+	public long getCachedBytes() {
+		synchronized (this.samples) {
+			return this.cached;
+		}
+	}
+
+	/**
+	 * @return Voices stolen so far.
+	 */
+	public int getSteals() {
+		return this.steals;
+	}
+
+	/**
+	 * @return Commands dropped because the queue was full.
+	 */
+	public long getDroppedCommands() {
+		return this.commands.getDropped();
+	}
+
+	/**
+	 * @return Longest time a command waited for the audio thread, in
+	 *         nanoseconds.
+	 */
+	public long getMaxCommandLatency() {
+		return this.maxLatency;
+	}
+
+	/**
+	 * @return Times the audio thread fell behind the output.
+	 */
+	public int getStalls() {
+		return this.stalls;
+	}
+
+	/**
+	 * @return Longest time between two blocks of the audio thread, in
+	 *         nanoseconds.
+	 */
+	public long getMaxBlockGap() {
+		return this.maxGap;
+	}
+
+	/**
+	 * @return Frames written to the output line.
+	 */
+	public long getFramesOut() {
+		return this.framesOut;
+	}
+
+	/**
+	 * @return Times the output line played out everything written to it.
+	 */
+	public int getUnderruns() {
+		return this.underruns;
+	}
+
+	/**
+	 * @return Time the last frame written waits in the output line, in
+	 *         nanoseconds.
+	 */
+	public long getLineLatency() {
+		return this.lineLatency;
+	}
+
+	/**
+	 * @return Average delay from a play to its first sample leaving the
+	 *         line, in nanoseconds, 0 if none was measured.
+	 */
+	public long getEventLatency() {
+		long count = this.eventCount;
+		return count == 0 ? 0 : this.eventLatencySum / count;
+	}
+
+	/**
+	 * @return Longest delay from a play to its first sample leaving the
+	 *         line, in nanoseconds.
+	 */
+	public long getMaxEventLatency() {
+		return this.maxEventLatency;
+	}
+
+	/**
+	 * Applies the waiting commands and mixes the next frames of every
+	 * voice. Only called by one thread at a time, the audio thread once
+	 * the output runs.
+	 *
+	 * @param out
+	 *            Stereo samples, filled in.
+	 * @param frames
+	 *            Frames to mix, at most BLOCK_FRAMES.
+	 */
+	public void render(final short[] out, final int frames) {
+		applyCommands();
+		float master = this.busGains[GainBus.MASTER.ordinal()];
+		int length = frames * CHANNELS;
+		Arrays.fill(this.accumulator, 0, length, 0);
+		for (int v = 0; v < this.voices.length; v++) {
+			Voice voice = this.voices[v];
+			if (voice.sample == null)
+				continue;
+			short[] data = voice.sample.data;
+			int position = voice.position * CHANNELS;
+			panGains(voice.gain * this.busGains[voice.bus] * master,
+					voice.pan, voice.rolloff, this.listener, this.panGains);
+			float left = this.panGains[0];
+			float right = this.panGains[1];
+			for (int i = 0; i < length; i += CHANNELS) {
+				if (position == data.length) {
+					if (!voice.loop) {
+						free(v);
+						break;
+					}
+					position = 0;
+				}
+				this.accumulator[i] += (int) (data[position++] * left);
+				this.accumulator[i + 1] += (int) (data[position++] * right);
+			}
+			voice.position = position / CHANNELS;
+		}
+		MusicPlayer player = this.music;
+		if (player != null)
+			player.mix(this.accumulator, frames,
+					this.busGains[GainBus.MUSIC.ordinal()] * master);
+		for (int i = 0; i < length; i++) {
+			int value = this.accumulator[i];
+			out[i] = (short) (value > Short.MAX_VALUE ? Short.MAX_VALUE
+					: value < Short.MIN_VALUE ? Short.MIN_VALUE : value);
+		}
+	}
+
+	/**
+	 * Applies the commands sent since the last block.
+	 */
+	private void applyCommands() {
+		AudioQueue.Command command = this.command;
+		long earliest = 0;
+		this.blockPlay = 0;
+		while (this.commands.poll(command)) {
+			if (earliest == 0)
+				earliest = command.time;
+			switch (command.type) {
+			case AudioQueue.PLAY:
+				if (this.blockPlay == 0)
+					this.blockPlay = command.time;
+				startVoice(command);
+				break;
+			case AudioQueue.STOP:
+				for (int v = 0; v < this.voices.length; v++)
+					if (this.voices[v].handle == command.handle)
+						free(v);
+				break;
+			case AudioQueue.STOP_ALL:
+				for (int v = 0; v < this.voices.length; v++)
+					if (this.voices[v].sample != null && this.voices[v].sample
+							.isSameSound(command.sample, command.name))
+						free(v);
+				break;
+			case AudioQueue.SET_BUS:
+				this.busGains[command.bus] = command.gain;
+				break;
+			case AudioQueue.SET_LISTENER:
+				this.listener = command.pan;
+				break;
+			case AudioQueue.SET_GAIN:
+				for (Voice voice : this.voices)
+					if (voice.sample != null
+							&& voice.sample.isSameSound(command.sample,
+									command.name))
+						voice.gain = command.gain;
+				break;
+			default:
+				break;
+			}
+			command.sample = null;
+			command.name = null;
+		}
+		// Commands arrive in order, the first one waited the most.
+		if (earliest != 0) {
+			long latency = System.nanoTime() - earliest;
+			if (latency > this.maxLatency)
+				this.maxLatency = latency;
+		}
+	}
+
+	/**
+	 * Starts the sound of a play command on a free voice, stealing one if
+	 * needed.
+	 *
+	 * @param command
+	 *            Play command.
+	 */
+	private void startVoice(final AudioQueue.Command command) {
+		int chosen = -1;
+		int remaining = Integer.MAX_VALUE;
+		for (int i = 0; i < this.voices.length; i++) {
+			Voice voice = this.voices[i];
+			if (voice.sample == null) {
+				chosen = i;
+				break;
+			}
+			// Steals the voice closest to its end, looping voices last.
+			int left = voice.loop ? Integer.MAX_VALUE - 1
+					: voice.sample.getFrames() - voice.position;
+			if (left < remaining) {
+				chosen = i;
+				remaining = left;
+			}
+		}
+		Voice voice = this.voices[chosen];
+		if (voice.sample != null)
+			this.steals++;
+		voice.sample = command.sample;
+		voice.position = 0;
+		voice.gain = command.gain;
+		voice.loop = command.loop;
+		voice.handle = command.handle;
+		voice.bus = command.bus;
+		voice.pan = command.pan;
+		voice.rolloff = command.rolloff;
+		this.playing.lazySet(chosen, command.handle);
+	}
+
+	/**
+	 * Frees a voice.
+	 *
+	 * @param index
+	 *            Index of the voice.
+	 */
+	private void free(final int index) {
+		Voice voice = this.voices[index];
+		voice.sample = null;
+		voice.handle = 0;
+		this.playing.lazySet(index, 0);
+	}
+
+	/**
+	 * Counts a gap between two blocks long enough to starve the output.
+	 *
+	 * @param gap
+	 *            Time since the previous block, in nanoseconds.
+	 */
+	private void recordGap(final long gap) {
+		if (gap > this.maxGap)
+			this.maxGap = gap;
+		if (gap > this.stallNanos) {
+			this.stalls++;
+			logger().log(Level.WARNING, "Audio thread stalled for {0} ms",
+					gap / 1000000);
+		}
+	}
+
+	/**
+	 * Counts an underrun if the line played out everything written to it.
+	 *
+	 * @param line
+	 *            Output line, about to be written to.
+	 */
+	private void checkUnderrun(final SourceDataLine line) {
+		// The line starts empty, it only runs dry once it was filled.
+		if (this.framesOut * FORMAT.getFrameSize() >= line.getBufferSize()
+				&& line.available() >= line.getBufferSize()) {
+			this.underruns++;
+			logger().fine("Audio output ran dry");
+		}
+	}
+
+	/**
+	 * Counts a block written and measures the latencies.
+	 *
+	 * @param line
+	 *            Output line, just written to.
+	 * @param frames
+	 *            Frames of the block.
+	 */
+	private void recordOutput(final SourceDataLine line, final int frames) {
+		long written = this.framesOut + frames;
+		this.framesOut = written;
+		long queued = written - line.getLongFramePosition();
+		this.lineLatency = queued * 1000000000L / SAMPLE_RATE;
+		if (this.blockPlay != 0) {
+			// The block plays once the frames queued before it have.
+			long latency = System.nanoTime() - this.blockPlay
+					+ (queued - frames) * 1000000000L / SAMPLE_RATE;
+			this.eventLatencySum += latency;
+			this.eventCount++;
+			if (latency > this.maxEventLatency)
+				this.maxEventLatency = latency;
+		}
+	}
+
+	/**
+	 * @return Application logger, without initializing the game.
+	 */
+	private static Logger logger() {
+		return Logger.getLogger(Core.class.getSimpleName());
+	}
+}
@@ -0,0 +1,145 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Commands for the audio thread, sent from any thread without locking.
+ *
+ * Commands go through a ring whose slots own preallocated commands, filled
+ * in place, so sending allocates nothing. When the ring is full the
+ * command is dropped and counted.
+ */
+final class AudioQueue {
+
+	/** Starts a sound on a voice. */
+	static final int PLAY = 0;
+	/** Stops the voice of a handle. */
+	static final int STOP = 1;
+	/** Stops every voice of a sound. */
+	static final int STOP_ALL = 2;
+	/** Changes the gain of every voice of a sound. */
+	static final int SET_GAIN = 3;
+	/** Changes the gain of a bus. */
+	static final int SET_BUS = 4;
+	/** Moves the listener. */
+	static final int SET_LISTENER = 5;
+
+	/** Slots in the ring, a power of two. */
+	private static final int CAPACITY = 1024;
+
+	/** Request for the audio thread. */
+	static final class Command {
+		/** Kind of command, PLAY to SET_LISTENER. */
+		int type;
+		/** Sound concerned, if any. */
+		AudioMixer.Sample sample;
+		/** Name of the sound resource concerned, if any. */
+		String name;
+		/** Linear gain. */
+		float gain;
+		/** Checks if the sound starts over when it ends. */
+		boolean loop;
+		/** Handle of the voice concerned, if any. */
+		int handle;
+		/** Ordinal of the bus concerned, if any. */
+		int bus;
+		/** Position from -1, left, to 1, right. */
+		float pan;
+		/** Attenuation with the distance to the listener, 0 for none. */
+		float rolloff;
+		/** Time the command was sent, from System.nanoTime. */
+		long time;
+	}
+
+	/** Commands, reused lap after lap. */
+	private final MpscRing<Command> ring = new MpscRing<Command>(CAPACITY,
+			new MpscRing.Factory<Command>() {
+				@Override
+				public Command create() {
+					return new Command();
+				}
+			});
+	/** Commands dropped because the ring was full. */
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Sends a command.
+	 *
+	 * @param type
+	 *            Kind of command.
+	 * @param sample
+	 *            Sound concerned, if any.
+	 * @param name
+	 *            Name of the sound resource concerned, if any.
+	 * @param gain
+	 *            Linear gain.
+	 * @param loop
+	 *            True if the sound starts over when it ends.
+	 * @param handle
+	 *            Handle of the voice concerned, if any.
+	 * @param bus
+	 *            Ordinal of the bus concerned, if any.
+	 * @param pan
+	 *            Position from -1, left, to 1, right.
+	 * @param rolloff
+	 *            Attenuation with the distance to the listener, 0 for none.
+	 * @return False if the ring is full and the command was dropped.
+	 */
+	boolean offer(final int type, final AudioMixer.Sample sample,
+			final String name, final float gain, final boolean loop,
+			final int handle, final int bus, final float pan,
+			final float rolloff) {
+		long position = this.ring.claim();
+		if (position < 0) {
+			this.dropped.incrementAndGet();
+			return false;
+		}
+		Command command = this.ring.get(position);
+		command.type = type;
+		command.sample = sample;
+		command.name = name;
+		command.gain = gain;
+		command.loop = loop;
+		command.handle = handle;
+		command.bus = bus;
+		command.pan = pan;
+		command.rolloff = rolloff;
+		command.time = System.nanoTime();
+		this.ring.publish(position);
+		return true;
+	}
+
+	/**
+	 * Takes the next command, on the audio thread.
+	 *
+	 * @param into
+	 *            Command the next one is copied to.
+	 * @return False if no command is waiting.
+	 */
+	boolean poll(final Command into) {
+		Command command = this.ring.peek();
+		if (command == null)
+			return false;
+		into.type = command.type;
+		into.sample = command.sample;
+		into.name = command.name;
+		into.gain = command.gain;
+		into.loop = command.loop;
+		into.handle = command.handle;
+		into.bus = command.bus;
+		into.pan = command.pan;
+		into.rolloff = command.rolloff;
+		into.time = command.time;
+		command.sample = null;
+		command.name = null;
+		this.ring.remove();
+		return true;
+	}
+
+	/**
+	 * @return Commands dropped because the ring was full.
+	 */
+	long getDropped() {
+		return this.dropped.get();
+	}
+}
@@ -10,6 +10,15 @@ import java.io.Serializable;
  */
 public class Cooldown implements Serializable {
 
+	/** Released cooldowns, ready to be handed out again. */
+	private static final ObjectPool<Cooldown> POOL = new ObjectPool<Cooldown>(
+			"Cooldown", new ObjectPool.Factory<Cooldown>() {
+				@Override
+				public Cooldown create() {
+					return new Cooldown(0);
+				}
+			}, null, ObjectPool.Policy.bounded(0, 64));
+
 	/** Cooldown duration. */
 	private int milliseconds;
 	/** Maximum difference between durations. */
@@ -54,7 +63,7 @@ public class Cooldown implements Serializable {
 	 */
 	public final boolean checkFinished() {
 		if ((this.time == 0)
-				|| this.time + this.duration < System.currentTimeMillis())
+				|| this.time + this.duration < GameClock.now())
 			return true;
 		return false;
 	}
@@ -64,7 +73,7 @@ public class Cooldown implements Serializable {
 	 * @return passed time
 	 */
 	public int passedCooldown(){
-		return (int)(System.currentTimeMillis() - this.time)/1000;
+		return (int)(GameClock.now() - this.time)/1000;
 	}
 
 	/**
@@ -79,10 +88,10 @@ public class Cooldown implements Serializable {
 	 * Restarts the cooldown.
 	 */
 	public final void reset() {
-		this.time = System.currentTimeMillis();
+		this.time = GameClock.now();
 		if (this.variance != 0)
 			this.duration = (this.milliseconds - this.variance)
-					+ (int) (Math.random()
+					+ (int) (GameRandom.get().nextDouble()
 					* (this.milliseconds + this.variance));
 	}
 
@@ -100,7 +109,43 @@ public class Cooldown implements Serializable {
 	 * @return A new cooldown.
 	 */
 	public static Cooldown getCooldown(final int milliseconds) {
-		return new Cooldown(milliseconds);
+		Cooldown cooldown = POOL.acquire();
+		cooldown.milliseconds = milliseconds;
+		cooldown.variance = 0;
+		cooldown.duration = milliseconds;
+		cooldown.time = 0;
+		return cooldown;
+	}
+
+	/**
+	 * Controls creation of new cooldowns with variance.
+	 *
+	 * @param milliseconds
+	 *            Duration of the cooldown.
+	 * @param variance
+	 *            Variation in the cooldown duration.
+	 * @return A new cooldown with variance.
+	 */
+	public static Cooldown getVariableCooldown(final int milliseconds,
+			final int variance) {
+		Cooldown cooldown = POOL.acquire();
+		cooldown.milliseconds = milliseconds;
+		cooldown.variance = variance;
+		cooldown.duration = 0;
+		cooldown.time = 0;
+		return cooldown;
+	}
+
+	/**
+	 * Gives back a cooldown that is no longer referenced, so a later
+	 * request can reuse it.
+	 *
+	 * @param cooldown
+	 *            Cooldown to give back, ignored if null.
+	 */
+	public static void recycle(final Cooldown cooldown) {
+		if (cooldown != null)
+			POOL.release(cooldown);
 	}
 }
 
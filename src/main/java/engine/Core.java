@@ -2,10 +2,9 @@ package engine;
 
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.logging.ConsoleHandler;
-import java.util.logging.FileHandler;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -13,6 +12,7 @@ import java.util.logging.Logger;
 import entity.Ship;
 import screen.GameScreen;
 import screen.HighScoreScreen;
+import screen.LoadScreen;
 import screen.ScoreScreen;
 import screen.Screen;
 import screen.TitleScreen;
@@ -37,58 +37,33 @@ public final class Core {
 	private static final int MAX_LIVES = 3;
 	/** Levels between extra life. */
 	private static final int EXTRA_LIFE_FREQUENCY = 3;
-	/** Total number of levels. */
-	private static final int NUM_LEVELS = 9;
-
-	
-	/** Difficulty settings for level 1. */
-	private static final GameSettings SETTINGS_LEVEL_1 =
-			new GameSettings(5, 5, 2, 1000);
-	/** Difficulty settings for level 2. */
-	private static final GameSettings SETTINGS_LEVEL_2 =
-			new GameSettings(5, 5, 50, 2500);
-	/** Difficulty settings for level 3. */
-	private static final GameSettings SETTINGS_LEVEL_3 =
-			new GameSettings(6, 5, 40, 1500);
-	/** Difficulty settings for level 4. */
-	private static final GameSettings SETTINGS_LEVEL_4 =
-			new GameSettings(6, 6, 30, 1500);
-	/** Difficulty settings for level 5. */
-	private static final GameSettings SETTINGS_LEVEL_5 =
-			new GameSettings(7, 6, 20, 1000);
-	/** Difficulty settings for bonus level*/
-	private static final GameSettings SETTINGS_LEVEL_6_BONUS =
-			new GameSettings(16, 7, 50, 2100000);
-	/** Difficulty settings for level 7. */
-	private static final GameSettings SETTINGS_LEVEL_7 =
-			new GameSettings(7, 7, 10, 1000);
-	/** Difficulty boss settings for level 7. */
-	private static final GameSettings SETTINGS_LEVEL_8_BOSS =
-			new GameSettings(8, 7, 2, 500);
-	/** Difficulty settings for level 9. */
-	private static final GameSettings SETTINGS_LEVEL_9 =
-			new GameSettings(8, 7, 2, 500);
+	/** Longest time the shutdown waits for saves, in milliseconds. */
+	private static final long SHUTDOWN_SAVE_WAIT = 5000;
 
 	/** Frame to draw the screen on.*/
 	private static Frame frame;
 	/** Screen currently shown. */
 	private static Screen currentScreen;
-	/** Difficulty settings list. */
-	private static List<GameSettings> gameSettings;
+	/** Levels of the campaign. */
+	private static LevelPack levelPack;
 	/** Application logger. */
 	private static final transient Logger LOGGER = Logger.getLogger(Core.class
 			.getSimpleName());
 	/** Logger handler for printing to disk. */
 	private static Handler fileHandler;
 	/** Logger handler for printing to console. */
-	private static ConsoleHandler consoleHandler;
+	private static Handler consoleHandler;
+	/** Gameplay events of the session. */
+	private static Telemetry telemetry = Telemetry.disabled();
 	/** Flag to check if it's the main or restart. */
 	public static boolean flag_main = false;
 	public static boolean flag_restart = false;
-	/** Audio background music*/
-	public static Audio backgroundMusic = new Audio("src/main/resources/bgm.wav", true);
+	/** Audio background music, streamed while it plays. */
+	public static Music backgroundMusic = new Music(MusicPlayer.TITLE_TRACK);
 	/** Audio effect sound*/
 	public static Sound effectSound = new Sound();
+	/** Volume of the gain buses, kept between runs. */
+	private static Volume volume;
 
 	/** returnCode */
 	public static final int MAIN_MENU = 5;
@@ -109,38 +84,68 @@ public final class Core {
 		try {
 			LOGGER.setUseParentHandlers(false);
 
-			fileHandler = new FileHandler("log");
-			fileHandler.setFormatter(new MinimalFormatter());
-
-			consoleHandler = new ConsoleHandler();
-			consoleHandler.setFormatter(new MinimalFormatter());
+			// Records are formatted and written on background threads.
+			fileHandler = AsyncLogHandler.toFile(Paths.get("log"),
+					new MinimalFormatter());
+			consoleHandler = AsyncLogHandler.toConsole(new MinimalFormatter());
 
 			LOGGER.addHandler(fileHandler);
 			LOGGER.addHandler(consoleHandler);
-			LOGGER.setLevel(Level.ALL);
+			LOGGER.setLevel(AsyncLogHandler.configuredLevel(Level.INFO));
 
 		} catch (Exception e) {
 			// TODO handle exception
 			e.printStackTrace();
 		}
-		backgroundMusic.decrease();
+		// Writes what is still queued, also when the window is closed.
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			telemetry.close();
+			if (volume != null)
+				volume.save();
+			try {
+				if (!getFileManager().getSaveService()
+						.awaitIdle(SHUTDOWN_SAVE_WAIT))
+					LOGGER.warning("Exiting before the last save was written.");
+			} catch (InterruptedException e) {
+				LOGGER.warning("Interrupted waiting for the last save.");
+			}
+			// The handlers are null if logging could not be set up.
+			if (fileHandler != null)
+				fileHandler.close();
+			if (consoleHandler != null)
+				consoleHandler.close();
+		}, "shutdown"));
+		// The audio backend is picked, and logged, once logging is set up.
+		volume = new Volume(Audio.getBackend(), Paths.get("saves",
+				Volume.FILE));
+
+		String replay = System.getProperty(Replay.PLAY_PROPERTY);
+		if (replay != null) {
+			playReplay(Paths.get(replay));
+			System.exit(EXIT);
+		}
+		String telemetryDirectory = System.getProperty(
+				Telemetry.DIRECTORY_PROPERTY, Telemetry.DEFAULT_DIRECTORY);
+		if (!Telemetry.DISABLED.equals(telemetryDirectory)) {
+			telemetry = Telemetry.open(Paths.get(telemetryDirectory));
+			telemetry.sessionStart();
+		}
+		// Recorded levels run on game ticks so they can be replayed.
+		if (System.getProperty(Replay.RECORD_PROPERTY) != null)
+			GameClock.useTicks(System.currentTimeMillis(), FPS);
+
+		// Sounds get ready while the window and the title screen load.
+		Thread warmUp = new Thread(Core::warmUpSounds, "audio-warm-up");
+		warmUp.setDaemon(true);
+		warmUp.start();
 
 		frame = new Frame(WIDTH, HEIGHT);
 		DrawManager.getInstance().setFrame(frame);
 		int width = frame.getWidth();
 		int height = frame.getHeight();
 
-		gameSettings = new ArrayList<GameSettings>();
-		gameSettings.add(SETTINGS_LEVEL_1);
-		gameSettings.add(SETTINGS_LEVEL_2);
-		gameSettings.add(SETTINGS_LEVEL_3);
-		gameSettings.add(SETTINGS_LEVEL_4);
-		gameSettings.add(SETTINGS_LEVEL_5);
-		gameSettings.add(SETTINGS_LEVEL_6_BONUS);
-		gameSettings.add(SETTINGS_LEVEL_7);
-		gameSettings.add(SETTINGS_LEVEL_8_BOSS);
-		gameSettings.add(SETTINGS_LEVEL_9);
-
+		levelPack = LevelPack.load();
+		LOGGER.info("Loaded " + levelPack.size() + " levels.");
 
 		DesignSetting designSetting = new DesignSetting(DrawManager.SpriteType.Ship);
 		GameState gameState;
@@ -158,7 +163,7 @@ public final class Core {
 				LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
 						+ " title screen at " + FPS + " fps.");
 
-				backgroundMusic.start();
+				backgroundMusic.play(MusicPlayer.TITLE_TRACK);
 				returnCode = frame.setScreen(currentScreen,0);
 
 				LOGGER.info("Closing title screen.");
@@ -172,7 +177,7 @@ public final class Core {
 								&& gameState.getLivesRemaining() < MAX_LIVES;
 
 						currentScreen = new GameScreen(gameState,
-								gameSettings.get(gameState.getLevel() - 1),
+								getLevelSettings(gameState.getLevel()),
 								bonusLife, designSetting, width, height, FPS, frame);
 						LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
 								+ " game screen at " + FPS + " fps.");
@@ -195,9 +200,10 @@ public final class Core {
 								gameState.getBoomTimes(),
 								gameState.getSkillCool(),
 								gameState.getUltimateTimes());
+						autosave(gameState);
 
 					} while (gameState.getLivesRemaining() > 0
-							&& gameState.getLevel() <= NUM_LEVELS);
+							&& gameState.getLevel() <= levelPack.size());
 
 					effectSound.roundEndSound.start();
 					LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
@@ -237,7 +243,7 @@ public final class Core {
 								&& gameState.getLivesRemaining() < MAX_LIVES;
 
 						currentScreen = new GameScreen(gameState,
-								gameSettings.get(gameState.getLevel() - 1),
+								getLevelSettings(gameState.getLevel()),
 								bonusLife, designSetting, width, height, FPS, frame);
 
 						LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
@@ -261,9 +267,10 @@ public final class Core {
 								gameState.getBoomTimes(),
 								gameState.getSkillCool(),
 								gameState.getUltimateTimes());
+						autosave(gameState);
 
 					} while (gameState.getLivesRemaining() > 0
-							&& gameState.getLevel() <= NUM_LEVELS);
+							&& gameState.getLevel() <= levelPack.size());
 
 					effectSound.roundEndSound.start();
 					LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
@@ -282,7 +289,31 @@ public final class Core {
 					boolean isFirst = false;
 					boolean load = false;
 
-					currentScreen = FileManager.getInstance().loadGame();
+					LoadScreen loadScreen = new LoadScreen(width, height, FPS);
+					LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
+							+ " load screen at " + FPS + " fps.");
+					returnCode = frame.setScreen(loadScreen, 0);
+					LOGGER.info("Closing load screen.");
+					if (returnCode != LOAD)
+						break;
+
+					GameSnapshot snapshot = FileManager.getInstance()
+							.loadGame(loadScreen.getChosenSlot());
+					if (snapshot == null) {
+						returnCode = MAIN_MENU;
+						break;
+					}
+					gameState = GameScreen.readGameState(snapshot);
+					if (gameState.getLevel() < 1
+							|| gameState.getLevel() > levelPack.size()) {
+						LOGGER.warning("Saved game has an invalid level.");
+						returnCode = MAIN_MENU;
+						break;
+					}
+					currentScreen = new GameScreen(gameState,
+							getLevelSettings(gameState.getLevel()),
+							false, designSetting, width, height, FPS, frame);
+					((GameScreen) currentScreen).setSnapshot(snapshot);
 
 					do {
 						// One extra live every few levels.
@@ -292,7 +323,7 @@ public final class Core {
 									&& gameState.getLivesRemaining() < MAX_LIVES;
 
 							currentScreen = new GameScreen(gameState,
-									gameSettings.get(gameState.getLevel() - 1),
+									getLevelSettings(gameState.getLevel()),
 									bonusLife, designSetting, width, height, FPS, frame);
 						}
 
@@ -324,9 +355,10 @@ public final class Core {
 								gameState.getBoomTimes(),
 								gameState.getSkillCool(),
 								gameState.getUltimateTimes());
+						autosave(gameState);
 
 					} while (gameState.getLivesRemaining() > 0
-							&& gameState.getLevel() <= NUM_LEVELS);
+							&& gameState.getLevel() <= levelPack.size());
 					effectSound.roundEndSound.start();
 					LOGGER.info("Starting " + WIDTH + "x" + HEIGHT
 							+ " score screen at " + FPS + " fps, with a score of "
@@ -355,8 +387,6 @@ public final class Core {
 
 		} while (returnCode != EXIT);
 
-		fileHandler.flush();
-		fileHandler.close();
 		backgroundMusic.stop();
 		System.exit(EXIT);
 	}
@@ -368,6 +398,62 @@ public final class Core {
 
 	}
 
+	/**
+	 * Controls access to the gameplay event stream.
+	 *
+	 * @return Telemetry of the session, disabled outside of the game.
+	 */
+	public static Telemetry getTelemetry() {
+		return telemetry;
+	}
+
+	/**
+	 * Controls access to the volume.
+	 *
+	 * @return Volume of the gain buses.
+	 */
+	public static Volume getVolume() {
+		return volume;
+	}
+
+	/**
+	 * Controls access to the levels.
+	 *
+	 * @return Levels of the campaign.
+	 */
+	public static LevelPack getLevelPack() {
+		return levelPack;
+	}
+
+	/**
+	 * Returns the settings of a level, picking up changes of the level pack
+	 * file first so levels can be tuned without restarting.
+	 *
+	 * @param level
+	 *            Level number, from 1.
+	 * @return Settings of the level.
+	 */
+	private static GameSettings getLevelSettings(final int level) {
+		if (levelPack.isReloadable()) {
+			try {
+				LevelPack reloaded = levelPack.reload();
+				if (reloaded != levelPack) {
+					if (reloaded.get(level) != null) {
+						levelPack = reloaded;
+						LOGGER.info("Reloaded " + levelPack.size()
+								+ " levels.");
+					} else {
+						LOGGER.warning("Reloaded level pack has no level "
+								+ level + ", keeping the previous one.");
+					}
+				}
+			} catch (IOException e) {
+				LOGGER.warning("Level pack not reloaded: " + e.getMessage());
+			}
+		}
+		return levelPack.get(level);
+	}
+
 	/**
 	 * Controls access to the logger.
 	 * 
@@ -395,6 +481,70 @@ public final class Core {
 		return InputManager.getInstance();
 	}
 
+	/**
+	 * Plays a recorded level back as fast as possible, without a window,
+	 * and logs whether it ended as recorded.
+	 *
+	 * @param file
+	 *            Replay file.
+	 * @throws IOException
+	 *             If the replay cannot be read.
+	 * @throws ClassNotFoundException
+	 *             Never, declared by the screens.
+	 */
+	private static void playReplay(final Path file)
+			throws IOException, ClassNotFoundException {
+		Replay.Player player = Replay.Player.read(file);
+		Replay.Header header = player.getHeader();
+		GameClock.useTicks(header.getStartTime(), header.getFps());
+		GameRandom.reseed(header.getSeed());
+
+		GameScreen screen = new GameScreen(header.getState(),
+				header.getSettings(), header.isBonusLife(),
+				header.createDesign(), header.getWidth(), header.getHeight(),
+				header.getFps(), null);
+		screen.setReplay(player);
+		LOGGER.info("Playing back " + file + " at level "
+				+ header.getState().getLevel() + ".");
+		long start = System.nanoTime();
+		screen.initialize();
+		screen.run();
+		long micros = Math.max(1,
+				(System.nanoTime() - start) / 1000);
+		LOGGER.info("Played back " + player.getFrameCount() + " frames in "
+				+ micros / 1000 + " ms, "
+				+ player.getFrameCount() * 1000000 / micros
+				+ " frames per second.");
+	}
+
+	/**
+	 * Readies every sound effect, logging the time to first sound of each
+	 * with the startup metrics.
+	 */
+	private static void warmUpSounds() {
+		Audio.getBackend().warmUp();
+		Map<String, Long> ready = effectSound.warmUp();
+		StringBuilder metrics = new StringBuilder(
+				"Startup: time to first sound");
+		for (Map.Entry<String, Long> sound : ready.entrySet())
+			metrics.append(String.format(" %s %.1f ms,", sound.getKey(),
+					sound.getValue() / 1e6));
+		metrics.setLength(metrics.length() - 1);
+		LOGGER.info(metrics.toString());
+	}
+
+	/**
+	 * Autosaves the start of the next level, unless the game is over.
+	 *
+	 * @param gameState
+	 *            State the next level starts from.
+	 */
+	private static void autosave(final GameState gameState) {
+		if (gameState.getLivesRemaining() > 0
+				&& gameState.getLevel() <= levelPack.size())
+			FileManager.getInstance().autosave(gameState);
+	}
+
 	/**
 	 * Controls access to the file manager.
 	 * 
@@ -412,7 +562,17 @@ public final class Core {
 	 * @return A new cooldown.
 	 */
 	public static Cooldown getCooldown(final int milliseconds) {
-		return new Cooldown(milliseconds);
+		return Cooldown.getCooldown(milliseconds);
+	}
+
+	/**
+	 * Gives back a cooldown that is no longer used.
+	 *
+	 * @param cooldown
+	 *            Cooldown to give back.
+	 */
+	public static void recycleCooldown(final Cooldown cooldown) {
+		Cooldown.recycle(cooldown);
 	}
 
 	/**
@@ -426,6 +586,6 @@ public final class Core {
 	 */
 	public static Cooldown getVariableCooldown(final int milliseconds,
 			final int variance) {
-		return new Cooldown(milliseconds, variance);
+		return Cooldown.getVariableCooldown(milliseconds, variance);
 	}
 }
\ No newline at end of file
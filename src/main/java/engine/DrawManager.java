@@ -10,12 +10,14 @@ import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 import java.util.AbstractMap.SimpleEntry;
 import java.util.logging.Logger;
 
+import engine.GameSettings.StageType;
 import entity.*;
 import screen.PauseScreen;
 import screen.Screen;
@@ -62,8 +64,11 @@ public final class DrawManager implements Serializable {
 	private static Image templateImage;
 
 
-	/** Sprite types mapped to their images. */
-	private static Map<SpriteType, Color[][]> spriteMap;
+	/** Sprites, decoded when first drawn. */
+	private static SpriteAtlas spriteAtlas;
+	/** Sprites only some kinds of level use, prefetched before them. */
+	private static final Map<StageType, List<SpriteType>> STAGE_SPRITES =
+			new EnumMap<StageType, List<SpriteType>>(StageType.class);
 
 	/** Sprite types. */
 	public static enum SpriteType {
@@ -157,6 +162,18 @@ public final class DrawManager implements Serializable {
 
 	};
 
+	static {
+		STAGE_SPRITES.put(StageType.BONUS, Arrays.asList(
+				SpriteType.BonusLifeItem, SpriteType.BonusScoreItem1,
+				SpriteType.BonusScoreItem2, SpriteType.BonusScoreItem3,
+				SpriteType.EnemyShipD1, SpriteType.EnemyShipD2,
+				SpriteType.EnemyShipD3, SpriteType.EnemyShipD4));
+		STAGE_SPRITES.put(StageType.BOSS, Arrays.asList(SpriteType.Boss1,
+				SpriteType.Boss2, SpriteType.Boss3, SpriteType.Boss4,
+				SpriteType.BossHpLow1, SpriteType.BossHpLow2,
+				SpriteType.BossDestroyed));
+	}
+
 	/**
 	 * Private constructor.
 	 */
@@ -166,67 +183,68 @@ public final class DrawManager implements Serializable {
 		logger.info("Started loading resources.");
 
 		try {
-			spriteMap = new LinkedHashMap<SpriteType, Color[][]>();
-			spriteMap.put(SpriteType.LifeBar, new Color[65][16]);
-			spriteMap.put(SpriteType.EnergyBar, new Color[66][16]);
-			spriteMap.put(SpriteType.SpeedBar, new Color[66][16]);
-			spriteMap.put(SpriteType.BoomBar, new Color[65][16]);
-			spriteMap.put(SpriteType.LifeBox, new Color[13][7]);
-			spriteMap.put(SpriteType.EnergyBox, new Color[10][10]);
-			spriteMap.put(SpriteType.SpeedBox, new Color[10][10]);
-			spriteMap.put(SpriteType.BoomBox, new Color[13][7]);
-			spriteMap.put(SpriteType.UltimateHud, new Color[25][25]);
-			spriteMap.put(SpriteType.Ship, new Color[18][16]);
-			spriteMap.put(SpriteType.NewShipDesign1_1, new Color[16][24]);
-			spriteMap.put(SpriteType.NewShipDesign1_2, new Color[16][24]);
-			spriteMap.put(SpriteType.NewShipDesign1_3, new Color[16][24]);
-			spriteMap.put(SpriteType.NewShipDesign2, new Color[16][16]);
-			spriteMap.put(SpriteType.NewShipDesign3, new Color[17][32]);
-			spriteMap.put(SpriteType.NewShipDesign4, new Color[23][32]);
-			spriteMap.put(SpriteType.Bullet1, new Color[5][5]);
-			spriteMap.put(SpriteType.Bullet2, new Color[12][14]);
-			spriteMap.put(SpriteType.Bullet3, new Color[13][25]);
-			spriteMap.put(SpriteType.Bullet4, new Color[18][21]);
-			spriteMap.put(SpriteType.EnemyBullet, new Color[5][5]);
-			spriteMap.put(SpriteType.EnemyShipA1, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipA2, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipB1, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipB2, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipC1, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipC2, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipSpecial1, new Color[32][32]);
-			spriteMap.put(SpriteType.EnemyShipSpecial2, new Color[32][32]);
-			spriteMap.put(SpriteType.EnemyShipSpecial3, new Color[32][32]);
-			spriteMap.put(SpriteType.EnemyShipSpecial4, new Color[32][32]);
-			spriteMap.put(SpriteType.Explosion1, new Color[16][16]);
-			spriteMap.put(SpriteType.Explosion3, new Color[16][16]);
-			spriteMap.put(SpriteType.ShootingCoolItem, new Color[24][19]);
-			spriteMap.put(SpriteType.BulletSpeedItem, new Color[24][19]);
-			spriteMap.put(SpriteType.Boom, new Color[15][13]);
-			spriteMap.put(SpriteType.EnemyShipD1, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipD2, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipD3, new Color[16][16]);
-			spriteMap.put(SpriteType.EnemyShipD4, new Color[16][16]);
-			spriteMap.put(SpriteType.Skill1, new Color[16][16]);
-			spriteMap.put(SpriteType.Skill2, new Color[16][16]);
-			spriteMap.put(SpriteType.Skill3, new Color[16][16]);
-			spriteMap.put(SpriteType.Skill4, new Color[16][16]);
-			spriteMap.put(SpriteType.Ultimate, new Color[100][100]);
-			spriteMap.put(SpriteType.BonusLifeItem, new Color[16][16]);
-			spriteMap.put(SpriteType.BonusScoreItem1, new Color[16][16]);
-			spriteMap.put(SpriteType.BonusScoreItem2, new Color[16][16]);
-			spriteMap.put(SpriteType.BonusScoreItem3, new Color[16][16]);
-			spriteMap.put(SpriteType.Boss1, new Color[50][50]);
-			spriteMap.put(SpriteType.Boss2, new Color[50][50]);
-			spriteMap.put(SpriteType.Boss3, new Color[50][50]);
-			spriteMap.put(SpriteType.Boss4, new Color[50][50]);
-			spriteMap.put(SpriteType.BossHpLow1, new Color[50][50]);
-			spriteMap.put(SpriteType.BossHpLow2, new Color[50][50]);
-			spriteMap.put(SpriteType.BossDestroyed, new Color[50][50]);
-
-
-			fileManager.loadSprite(spriteMap);
-			logger.info("Finished loading the sprites.");
+			spriteAtlas = fileManager.openSpriteAtlas();
+			spriteAtlas.add(SpriteType.LifeBar, 65, 16);
+			spriteAtlas.add(SpriteType.EnergyBar, 66, 16);
+			spriteAtlas.add(SpriteType.SpeedBar, 66, 16);
+			spriteAtlas.add(SpriteType.BoomBar, 65, 16);
+			spriteAtlas.add(SpriteType.LifeBox, 13, 7);
+			spriteAtlas.add(SpriteType.EnergyBox, 10, 10);
+			spriteAtlas.add(SpriteType.SpeedBox, 10, 10);
+			spriteAtlas.add(SpriteType.BoomBox, 13, 7);
+			spriteAtlas.add(SpriteType.UltimateHud, 25, 25);
+			spriteAtlas.add(SpriteType.Ship, 18, 16);
+			spriteAtlas.add(SpriteType.NewShipDesign1_1, 16, 24);
+			spriteAtlas.add(SpriteType.NewShipDesign1_2, 16, 24);
+			spriteAtlas.add(SpriteType.NewShipDesign1_3, 16, 24);
+			spriteAtlas.add(SpriteType.NewShipDesign2, 16, 16);
+			spriteAtlas.add(SpriteType.NewShipDesign3, 17, 32);
+			spriteAtlas.add(SpriteType.NewShipDesign4, 23, 32);
+			spriteAtlas.add(SpriteType.Bullet1, 5, 5);
+			spriteAtlas.add(SpriteType.Bullet2, 12, 14);
+			spriteAtlas.add(SpriteType.Bullet3, 13, 25);
+			spriteAtlas.add(SpriteType.Bullet4, 18, 21);
+			spriteAtlas.add(SpriteType.EnemyBullet, 5, 5);
+			spriteAtlas.add(SpriteType.EnemyShipA1, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipA2, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipB1, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipB2, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipC1, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipC2, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipSpecial1, 32, 32);
+			spriteAtlas.add(SpriteType.EnemyShipSpecial2, 32, 32);
+			spriteAtlas.add(SpriteType.EnemyShipSpecial3, 32, 32);
+			spriteAtlas.add(SpriteType.EnemyShipSpecial4, 32, 32);
+			spriteAtlas.add(SpriteType.Explosion1, 16, 16);
+			spriteAtlas.add(SpriteType.Explosion3, 16, 16);
+			spriteAtlas.add(SpriteType.ShootingCoolItem, 24, 19);
+			spriteAtlas.add(SpriteType.BulletSpeedItem, 24, 19);
+			spriteAtlas.add(SpriteType.Boom, 15, 13);
+			spriteAtlas.add(SpriteType.EnemyShipD1, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipD2, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipD3, 16, 16);
+			spriteAtlas.add(SpriteType.EnemyShipD4, 16, 16);
+			spriteAtlas.add(SpriteType.Skill1, 16, 16);
+			spriteAtlas.add(SpriteType.Skill2, 16, 16);
+			spriteAtlas.add(SpriteType.Skill3, 16, 16);
+			spriteAtlas.add(SpriteType.Skill4, 16, 16);
+			spriteAtlas.add(SpriteType.Ultimate, 100, 100);
+			spriteAtlas.add(SpriteType.BonusLifeItem, 16, 16);
+			spriteAtlas.add(SpriteType.BonusScoreItem1, 16, 16);
+			spriteAtlas.add(SpriteType.BonusScoreItem2, 16, 16);
+			spriteAtlas.add(SpriteType.BonusScoreItem3, 16, 16);
+			spriteAtlas.add(SpriteType.Boss1, 50, 50);
+			spriteAtlas.add(SpriteType.Boss2, 50, 50);
+			spriteAtlas.add(SpriteType.Boss3, 50, 50);
+			spriteAtlas.add(SpriteType.Boss4, 50, 50);
+			spriteAtlas.add(SpriteType.BossHpLow1, 50, 50);
+			spriteAtlas.add(SpriteType.BossHpLow2, 50, 50);
+			spriteAtlas.add(SpriteType.BossDestroyed, 50, 50);
+
+
+			// Sprites are only located here, they are decoded when used.
+			spriteAtlas.index();
+			logger.info("Finished indexing the sprites.");
 
 			templateImage = fileManager.loadBackgroundTemplate();
 			logger.info("Finished loading the template image.");
@@ -255,6 +273,32 @@ public final class DrawManager implements Serializable {
 		return instance;
 	}
 
+	/**
+	 * Returns the collision mask of a sprite.
+	 *
+	 * @param spriteType
+	 *            Sprite to look up.
+	 * @return Mask of the opaque pixels, null if the sprite is not loaded.
+	 */
+	public SpriteMask getSpriteMask(final SpriteType spriteType) {
+		if (spriteAtlas == null || spriteType == null)
+			return null;
+		return spriteAtlas.getMask(spriteType);
+	}
+
+	/**
+	 * Decodes the sprites needed by a level ahead of time, in the
+	 * background.
+	 *
+	 * @param stageType
+	 *            Kind of the level about to be played.
+	 */
+	public void prefetchStage(final StageType stageType) {
+		List<SpriteType> sprites = STAGE_SPRITES.get(stageType);
+		if (spriteAtlas != null && sprites != null)
+			spriteAtlas.prefetch(sprites);
+	}
+
 	/**
 	 * Sets the frame to draw the image on.
 	 *
@@ -315,7 +359,22 @@ public final class DrawManager implements Serializable {
 	 */
 	public void drawEntity(final Entity entity, final int positionX,
 						   final int positionY) {
-		Color[][] image = spriteMap.get(entity.getSpriteType());
+		drawSprite(entity.getSpriteType(), positionX, positionY);
+	}
+
+	/**
+	 * Draws a sprite that is not backed by an entity object.
+	 *
+	 * @param spriteType
+	 *            Sprite to be drawn.
+	 * @param positionX
+	 *            Coordinates for the left side of the image.
+	 * @param positionY
+	 *            Coordinates for the upper side of the image.
+	 */
+	public void drawSprite(final SpriteType spriteType, final int positionX,
+						   final int positionY) {
+		Color[][] image = spriteAtlas.get(spriteType);
 		for (int i = 0; i < image.length; i++){
 			for (int j = 0; j < image[i].length; j++){
 				if (image[i][j] != Color.BLACK){
@@ -341,7 +400,24 @@ public final class DrawManager implements Serializable {
 	 */
 	public void drawEntity(final Entity entity, final int positionX,
 						   final int positionY, boolean drawBlack) {
-		Color[][] image = spriteMap.get(entity.getSpriteType());
+		drawSprite(entity.getSpriteType(), positionX, positionY, drawBlack);
+	}
+
+	/**
+	 * Draws a sprite including its black pixels.
+	 *
+	 * @param spriteType
+	 *            Sprite to be drawn.
+	 * @param positionX
+	 *            Coordinates for the left side of the image.
+	 * @param positionY
+	 *            Coordinates for the upper side of the image.
+	 * @param drawBlack
+	 *            Boolean of draw Black.
+	 */
+	public void drawSprite(final SpriteType spriteType, final int positionX,
+						   final int positionY, boolean drawBlack) {
+		Color[][] image = spriteAtlas.get(spriteType);
 		for (int i = 0; i < image.length; i++){
 			for (int j = 0; j < image[i].length; j++){
 				backBufferGraphics.setColor(image[i][j]);
@@ -359,7 +435,18 @@ public final class DrawManager implements Serializable {
 	 */
 	public void drawShadowedEntity(final Entity entity, final int positionX,
 								   final int positionY) {
-		Color[][] image = spriteMap.get(entity.getSpriteType());
+		drawShadowedSprite(entity.getSpriteType(), positionX, positionY);
+	}
+
+	/**
+	 * Draws a shadowed sprite.
+	 * @param spriteType Sprite to be drawn.
+	 * @param positionX Coordinates for the left side of the image.
+	 * @param positionY Coordinates for the upper side of the image.
+	 */
+	public void drawShadowedSprite(final SpriteType spriteType,
+								   final int positionX, final int positionY) {
+		Color[][] image = spriteAtlas.get(spriteType);
 		backBufferGraphics.setColor(Color.GRAY);
 		for (int i = 0; i < image.length; i++)
 			for (int j = 0; j < image[i].length; j++)
@@ -476,11 +563,9 @@ public final class DrawManager implements Serializable {
 	 *            Current lives.
 	 */
 	public void drawLives(final Screen screen, final int lives) {
-		Entity lifeBar = new Entity(65, 16, SpriteType.LifeBar);
-		Entity lifeBox = new Entity(13, 7, SpriteType.LifeBox);
-		drawEntity(lifeBar, 10, 14, true);
+		drawSprite(SpriteType.LifeBar, 10, 14, true);
 		for (int i = 0; i < lives; i++)
-			drawEntity(lifeBox,  48 + 30 * i, 22);
+			drawSprite(SpriteType.LifeBox,  48 + 30 * i, 22);
 	}
 
 
@@ -493,11 +578,9 @@ public final class DrawManager implements Serializable {
 	 *            upgrade status of Bullet Speed
 	 */
 	public void drawBulletSpeed(final Screen screen, final int status) {
-		Entity EnergyBar = new Entity(66, 16, SpriteType.EnergyBar);
-		Entity EnergyBox = new Entity(6, 14, SpriteType.EnergyBox);
-		drawEntity(EnergyBar, 150, 14, true);
+		drawSprite(SpriteType.EnergyBar, 150, 14, true);
 		for(int i = 0 ; i< status ; i++){
-			drawEntity(EnergyBox, 191 + 22 * i, 20, true);
+			drawSprite(SpriteType.EnergyBox, 191 + 22 * i, 20, true);
 		}
 	}
 
@@ -510,11 +593,9 @@ public final class DrawManager implements Serializable {
 	 *            upgrade status of Brust Speed
 	 */
 	public void drawShootingCool(final Screen screen, final int status) {
-		Entity SpeedBar = new Entity(66, 16, SpriteType.SpeedBar);
-		Entity SpeedBox = new Entity(6, 14, SpriteType.SpeedBox);
-		drawEntity(SpeedBar, 150, 54, true);
+		drawSprite(SpriteType.SpeedBar, 150, 54, true);
 		for(int i = 0 ; i< status ; i++){
-			drawEntity(SpeedBox, 191 + 22 * i, 60, true);
+			drawSprite(SpriteType.SpeedBox, 191 + 22 * i, 60, true);
 		}
 	}
 
@@ -539,11 +620,9 @@ public final class DrawManager implements Serializable {
 	 * @param boomTimes value of current boom
 	 */
 	public void drawBooms(final Screen screen , final int boomTimes){
-		Entity boomBar = new Entity(65, 16, SpriteType.BoomBar);
-		Entity boomBox = new Entity(13, 7, SpriteType.BoomBox);
-		drawEntity(boomBar, 10, 54, true);
+		drawSprite(SpriteType.BoomBar, 10, 54, true);
 		for (int i = 0; i < boomTimes; i++)
-			drawEntity(boomBox,  48 + 30 * i, 62);
+			drawSprite(SpriteType.BoomBox,  48 + 30 * i, 62);
 	}
 
 	/**
@@ -647,10 +726,9 @@ public final class DrawManager implements Serializable {
 	public void drawUltimate(final int UltimateTimes){
 
 		backBufferGraphics.setFont(fontRegular);
-		Entity ultimateHud = new Entity(25,25, SpriteType.UltimateHud);
 		if(UltimateTimes == 0) backBufferGraphics.setColor(Color.gray);
 		else{
-			drawEntity(ultimateHud, 327, 10, true);
+			drawSprite(SpriteType.UltimateHud, 327, 10, true);
 			backBufferGraphics.setColor(Color.decode("0xbb1e0e"));
 		}
 		backBufferGraphics.drawString("Ultimate", 310,80);
@@ -883,6 +961,55 @@ public final class DrawManager implements Serializable {
 		}
 	}
 
+	/**
+	 * Draws load screen title and instructions.
+	 *
+	 * @param screen
+	 *            Screen to draw on.
+	 */
+	public void drawLoadMenu(final Screen screen) {
+		String loadString = "Load Game";
+		String instructionsString = "Space to load, Esc to return";
+
+		backBufferGraphics.setColor(Color.GREEN);
+		drawCenteredBigString(screen, loadString, screen.getHeight() / 8);
+
+		backBufferGraphics.setColor(Color.GRAY);
+		drawCenteredRegularString(screen, instructionsString,
+				screen.getHeight() / 5);
+	}
+
+	/**
+	 * Draws the saved games to choose from.
+	 *
+	 * @param screen
+	 *            Screen to draw on.
+	 * @param saves
+	 *            Saved games, most recent first.
+	 * @param selected
+	 *            Index of the selected save.
+	 */
+	public void drawSaveSlots(final Screen screen,
+			final List<SaveSlots.SlotInfo> saves, final int selected) {
+		if (saves.isEmpty()) {
+			backBufferGraphics.setColor(Color.WHITE);
+			drawCenteredRegularString(screen, "No saved games",
+					screen.getHeight() / 4 + fontRegularMetrics.getHeight() * 2);
+			return;
+		}
+		for (int i = 0; i < saves.size(); i++) {
+			SaveSlots.SlotInfo save = saves.get(i);
+			String name = save.getSlot() == SaveService.AUTOSAVE_SLOT
+					? "Auto" : "Slot " + save.getSlot();
+			String saveString = String.format("%-6s Lv %d  %04d  x%d", name,
+					save.getLevel(), save.getScore(), save.getLives());
+			backBufferGraphics.setColor(i == selected ? Color.GREEN
+					: Color.WHITE);
+			drawCenteredRegularString(screen, saveString, screen.getHeight()
+					/ 4 + fontRegularMetrics.getHeight() * (i + 1) * 2);
+		}
+	}
+
 	/**
 	 * Draws a centered string on regular font.
 	 *
@@ -954,13 +1081,16 @@ public final class DrawManager implements Serializable {
 	 *            Screen to draw on.
 	 * @param level
 	 *            Game difficulty level.
+	 * @param title
+	 *            Announcement of the level, null for none.
 	 * @param number
 	 *            Countdown number.
 	 * @param bonusLife
 	 *            Checks if a bonus life is received.
 	 */
 	public void drawCountDown(final Screen screen, final int level,
-							  final int number, final boolean bonusLife) {
+							  final String title, final int number,
+							  final boolean bonusLife) {
 		int rectWidth = screen.getWidth();
 		int rectHeight = screen.getHeight() / 6;
 		backBufferGraphics.setColor(Color.BLACK);
@@ -968,23 +1098,8 @@ public final class DrawManager implements Serializable {
 				rectWidth, rectHeight);
 		backBufferGraphics.setColor(Color.GREEN);
 		if (number >= 4)
-			if(level == 6) {
-				drawCenteredBigString(screen, "Level " + level + " BONUS STAGE!",
-						screen.getHeight() / 2
-								+ fontBigMetrics.getHeight() / 3);
-			}
-			else if(level == 2 || level == 3 ||level == 4 || level ==5) {
-				drawCenteredBigString(screen, "Level " + level + " NEW SKILL!",
-						screen.getHeight() / 2
-								+ fontBigMetrics.getHeight() / 3);
-			}
-			else if(level == 8){
-				drawCenteredBigString(screen, "Level " + level +" Boss Stage!",
-						screen.getHeight() / 2
-								+ fontBigMetrics.getHeight() / 3);
-			}
-			else if(level == 9){
-				drawCenteredBigString(screen, "Level " + level +" You get Ultimate!",
+			if (title != null) {
+				drawCenteredBigString(screen, "Level " + level + " " + title,
 						screen.getHeight() / 2
 								+ fontBigMetrics.getHeight() / 3);
 			}
@@ -1023,6 +1138,16 @@ public final class DrawManager implements Serializable {
 				screen.getHeight() / 5);
 	}
 
+	/**
+	 * Draws the progress of the latest save
+	 * @param screen Screen to draw on.
+	 * @param status message to show
+	 */
+	public void drawSaveStatus(final Screen screen, final String status) {
+		backBufferGraphics.setColor(Color.GREEN);
+		drawCenteredRegularString(screen, status, screen.getHeight() - 40);
+	}
+
 	/**
 	 * Draws Pause menu
 	 * @param screen Screen to draw on.
@@ -1163,7 +1288,7 @@ public final class DrawManager implements Serializable {
 			SpriteType sprite = entry.getKey();
 			boolean isAchieved = entry.getValue();
 
-			if( positionX + spriteMap.get(sprite).length*2 + margin >= frame.getWidth() ){
+			if( positionX + spriteAtlas.getWidth(sprite)*2 + margin >= frame.getWidth() ){
 				j++;
 				positionX = 40;
 				positionY = positionY + 40*j;
@@ -1172,18 +1297,16 @@ public final class DrawManager implements Serializable {
 				cursorX = positionX;
 				cursorY = positionY;
 			}
-			Ship dummyShip = new Ship(0, 0, sprite);
-
 			if(isAchieved)
-				drawEntity(dummyShip, positionX, positionY);
+				drawSprite(sprite, positionX, positionY);
 			else
-				drawShadowedEntity(dummyShip, positionX, positionY);
+				drawShadowedSprite(sprite, positionX, positionY);
 
 			if(designSetting.getShipType() == sprite){
-				drawEntity(dummyShip, screen.getWidth()/2 -15 , screen.getHeight() / 3 + 20);
+				drawSprite(sprite, screen.getWidth()/2 -15 , screen.getHeight() / 3 + 20);
 			}
 			count++;
-			positionX += spriteMap.get(sprite).length*2 + margin;
+			positionX += spriteAtlas.getWidth(sprite)*2 + margin;
 		}
 		backBufferGraphics.setColor(Color.RED);
 		drawTriangle(cursorX+12, cursorY-6, true);
@@ -3,15 +3,15 @@ package engine;
 import java.awt.*;
 import java.awt.image.RenderedImage;
 import javax.imageio.ImageIO;
-import javax.swing.ImageIcon;
 import java.io.*;
 import java.net.URLDecoder;
 import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 import java.util.List;
 import java.util.logging.Logger;
 
-import engine.DrawManager.SpriteType;
 import entity.Bullet;
 import entity.BulletPool;
 import entity.EnemyShipFormation;
@@ -32,6 +32,14 @@ public final class FileManager {
 	private static Logger logger;
 	/** Max number of high scores. */
 	private static final int MAX_SCORES = 7;
+	/** Directory the save slots are stored in. */
+	private static final String SAVE_DIRECTORY = "saves";
+	/** Number of slots quick saves rotate over. */
+	private static final int QUICK_SAVE_SLOTS = 3;
+	/** Writes saved games in the background. */
+	private static SaveService saveService;
+	/** Stores the high scores. */
+	private static Leaderboard leaderboard;
 
 	/**
 	 * private constructor.
@@ -52,47 +60,17 @@ public final class FileManager {
 	}
 
 	/**
-	 * Loads sprites from disk.
-	 * 
-	 * @param spriteMap
-	 *            Mapping of sprite type and empty boolean matrix that will
-	 *            contain the image.
+	 * Opens the sprite file. Sprites are declared on the atlas and decoded
+	 * when first drawn.
+	 *
+	 * @return Atlas over the sprite file.
 	 * @throws IOException
 	 *             In case of loading problems.
 	 */
-	public void loadSprite(final Map<SpriteType, Color[][]> spriteMap)
-			throws IOException {
-		InputStream inputStream = null;
-
-		try {
-			inputStream = DrawManager.class.getClassLoader()
-					.getResourceAsStream("graphics");
-			char c;
-//			byte[] buffer = new byte[8];
-			// Sprite loading.
-			for (Map.Entry<SpriteType, Color[][]> sprite : spriteMap
-					.entrySet()) {
-				for (int i = 0; i < sprite.getValue().length; i++)
-					for (int j = 0; j < sprite.getValue()[i].length; j++) {
-						String rgbHex = "";
-						for(int k = 0 ; k < 8 ; k++){
-							do
-								c = (char) inputStream.read();
-							while (!(c>=97 && c<=122) && !(c>=48 && c<=57) ); // 변경필요
-							rgbHex += c;
-						}
-						if(rgbHex.equals("0x000000"))sprite.getValue()[i][j] = Color.BLACK;
-						else sprite.getValue()[i][j] = Color.decode(rgbHex);
-
-					}
-				logger.fine("Sprite " + sprite.getKey() + " loaded.");
-			}
-			if (inputStream != null)
-				inputStream.close();
-		} finally {
-			if (inputStream != null)
-				inputStream.close();
-		}
+	public SpriteAtlas openSpriteAtlas() throws IOException {
+		return new SpriteAtlas(Resources.get("graphics"), 1024L
+				* Integer.getInteger(SpriteAtlas.CACHE_PROPERTY,
+						SpriteAtlas.DEFAULT_CACHE_KB));
 	}
 
 	/**
@@ -113,8 +91,7 @@ public final class FileManager {
 
 		try {
 			// Font loading.
-			inputStream = FileManager.class.getClassLoader()
-					.getResourceAsStream("font.ttf");
+			inputStream = Resources.open("font.ttf");
 			font = Font.createFont(Font.TRUETYPE_FONT, inputStream).deriveFont(
 					size);
 		} finally {
@@ -140,13 +117,12 @@ public final class FileManager {
 	/**
 	 *	load Template Image of background on play.
 	 *	@return Background Image.
+	 *	@throws IOException In case of loading problems.
 	 */
-	public Image loadBackgroundTemplate() {
-		ImageIcon imageIcon;
+	public Image loadBackgroundTemplate() throws IOException {
 		Image img;
 		// Image loading.
-		imageIcon = new ImageIcon("src/main/resources/backgroundTemplate.png");
-		img = imageIcon.getImage();
+		img = ImageIO.read(Resources.open("backgroundTemplate.png"));
 		if(img != null) {
 			logger.info("Background Image("+ img.getWidth(null) + "x" + img.getHeight(null) +") loaded.");
 		}
@@ -167,8 +143,7 @@ public final class FileManager {
 		BufferedReader reader = null;
 
 		try {
-			inputStream = FileManager.class.getClassLoader()
-					.getResourceAsStream("scores");
+			inputStream = Resources.open("scores");
 			reader = new BufferedReader(new InputStreamReader(inputStream));
 
 			Score highScore = null;
@@ -190,137 +165,179 @@ public final class FileManager {
 	}
 
 	/**
-	 * Loads high scores from file, and returns a sorted list of pairs score -
-	 * value.
-	 * 
-	 * @return Sorted list of scores - players.
+	 * Returns the directory next to the game the user files are kept in.
+	 *
+	 * @return Directory of the user files.
 	 * @throws IOException
-	 *             In case of loading problems.
+	 *             If the location of the game cannot be decoded.
 	 */
-	public List<Score> loadHighScores() throws IOException {
+	private Path getUserDirectory() throws IOException {
+		String jarPath = FileManager.class.getProtectionDomain()
+				.getCodeSource().getLocation().getPath();
+		jarPath = URLDecoder.decode(jarPath, "UTF-8");
+		return new File(jarPath).getParentFile().toPath();
+	}
 
+	/**
+	 * Loads the high scores of the old text file, two lines per score.
+	 *
+	 * @param scoresFile
+	 *            File holding the scores.
+	 * @return Scores of the file.
+	 * @throws IOException
+	 *             In case of loading problems.
+	 */
+	private List<Score> loadLegacyHighScores(final File scoresFile)
+			throws IOException {
 		List<Score> highScores = new ArrayList<Score>();
-		InputStream inputStream = null;
 		BufferedReader bufferedReader = null;
 
 		try {
-			String jarPath = FileManager.class.getProtectionDomain()
-					.getCodeSource().getLocation().getPath();
-			jarPath = URLDecoder.decode(jarPath, "UTF-8");
-
-			String scoresPath = new File(jarPath).getParent();
-			scoresPath += File.separator;
-			scoresPath += "scores";
-
-			File scoresFile = new File(scoresPath);
-			inputStream = new FileInputStream(scoresFile);
 			bufferedReader = new BufferedReader(new InputStreamReader(
-					inputStream, Charset.forName("UTF-8")));
-
-			logger.info("Loading user high scores.");
+					new FileInputStream(scoresFile), Charset.forName("UTF-8")));
 
-			Score highScore = null;
 			String name = bufferedReader.readLine();
 			String score = bufferedReader.readLine();
 
 			while ((name != null) && (score != null)) {
-				highScore = new Score(name, Integer.parseInt(score));
-				highScores.add(highScore);
+				highScores.add(new Score(name, Integer.parseInt(score)));
 				name = bufferedReader.readLine();
 				score = bufferedReader.readLine();
 			}
-
-		} catch (FileNotFoundException e) {
-			// loads default if there's no user scores.
-			logger.info("Loading default high scores.");
-			highScores = loadDefaultHighScores();
 		} finally {
 			if (bufferedReader != null)
 				bufferedReader.close();
 		}
-
-		Collections.sort(highScores);
 		return highScores;
 	}
 
 	/**
-	 * Saves user high scores to disk.
-	 * 
-	 * @param highScores
-	 *            High scores to save.
+	 * Returns the leaderboard, creating it on first use. A new leaderboard
+	 * starts with the scores of the old text file, or the default scores.
+	 *
+	 * @return Leaderboard.
 	 * @throws IOException
 	 *             In case of loading problems.
 	 */
-	public void saveHighScores(final List<Score> highScores) 
-			throws IOException {
-		OutputStream outputStream = null;
-		BufferedWriter bufferedWriter = null;
-
-		try {
-			String jarPath = FileManager.class.getProtectionDomain()
-					.getCodeSource().getLocation().getPath();
-			jarPath = URLDecoder.decode(jarPath, "UTF-8");
-
-			String scoresPath = new File(jarPath).getParent();
-			scoresPath += File.separator;
-			scoresPath += "scores";
-
-			File scoresFile = new File(scoresPath);
-
-			if (!scoresFile.exists())
-				scoresFile.createNewFile();
-
-			outputStream = new FileOutputStream(scoresFile);
-			bufferedWriter = new BufferedWriter(new OutputStreamWriter(
-					outputStream, Charset.forName("UTF-8")));
-
-			logger.info("Saving user high scores.");
-
-			// Saves 7 or less scores.
-			int savedCount = 0;
-			for (Score score : highScores) {
-				if (savedCount >= MAX_SCORES)
-					break;
-				bufferedWriter.write(score.getName());
-				bufferedWriter.newLine();
-				bufferedWriter.write(Integer.toString(score.getScore()));
-				bufferedWriter.newLine();
-				savedCount++;
+	public Leaderboard getLeaderboard() throws IOException {
+		if (leaderboard != null)
+			return leaderboard;
+
+		Path directory = getUserDirectory();
+		Leaderboard created = new Leaderboard(directory);
+		if (created.top(Leaderboard.DEFAULT_CATEGORY, 1).isEmpty()) {
+			File scoresFile = directory.resolve("scores").toFile();
+			List<Score> highScores;
+			if (scoresFile.exists()) {
+				logger.info("Importing user high scores.");
+				highScores = loadLegacyHighScores(scoresFile);
+			} else {
+				logger.info("Loading default high scores.");
+				highScores = loadDefaultHighScores();
 			}
-
-		} finally {
-			if (bufferedWriter != null)
-				bufferedWriter.close();
+			created.importIfEmpty(Leaderboard.DEFAULT_CATEGORY, highScores);
 		}
+		leaderboard = created;
+		return leaderboard;
 	}
 
 	/**
-	 * Saves Game
-	 * @param gameScreen
+	 * Loads the best high scores, including those submitted by other game
+	 * instances.
+	 * 
+	 * @return Sorted list of scores - players.
 	 * @throws IOException
-	 * @throws ClassNotFoundException
+	 *             In case of loading problems.
 	 */
-	public void saveGame(GameScreen gameScreen) throws IOException, ClassNotFoundException {
-		FileOutputStream fos = new FileOutputStream("src/main/resources/gameScreen.bin");
-		ObjectOutputStream oos = new ObjectOutputStream(fos);
-		oos.writeObject(gameScreen);
-		logger.info("Save game");
-		oos.close();
+	public List<Score> loadHighScores() throws IOException {
+		logger.info("Loading user high scores.");
+		List<Score> highScores = new ArrayList<Score>();
+		for (Leaderboard.Entry entry : getLeaderboard().top(
+				Leaderboard.DEFAULT_CATEGORY, MAX_SCORES))
+			highScores.add(entry.toScore());
+		return highScores;
 	}
 
 	/**
-	 * load Game
-	 * @return saved game
+	 * Adds a score to the leaderboard.
+	 * 
+	 * @param highScore
+	 *            High score to add.
 	 * @throws IOException
-	 * @throws ClassNotFoundException
+	 *             In case of saving problems.
+	 */
+	public void saveHighScore(final Score highScore) throws IOException {
+		logger.info("Saving user high score.");
+		getLeaderboard().submit(Leaderboard.DEFAULT_CATEGORY,
+				highScore.getName(), highScore.getScore());
+	}
+
+	/**
+	 * Returns the service writing saved games, creating it on first use.
+	 *
+	 * @return Save service.
+	 */
+	public SaveService getSaveService() {
+		if (saveService == null)
+			saveService = new SaveService(Paths.get(SAVE_DIRECTORY),
+					Integer.getInteger("invaders.save.slots", QUICK_SAVE_SLOTS));
+		return saveService;
+	}
+
+	/**
+	 * Saves the game as a snapshot in the oldest quick save slot. The
+	 * snapshot is captured right away and written in the background.
+	 *
+	 * @param gameScreen
+	 *            Screen of the game to save.
 	 */
-	public GameScreen loadGame() throws IOException, ClassNotFoundException {
-		FileInputStream fis = new FileInputStream("src/main/resources/gameScreen.bin");
-		ObjectInputStream ois = new ObjectInputStream(fis);
-		GameScreen gameScreen = (GameScreen)ois.readObject();
-		logger.info("Load game");
-		return gameScreen;
+	public void saveGame(final GameScreen gameScreen) {
+		getSaveService().save(gameScreen.createSnapshot());
+	}
 
+	/**
+	 * Saves the start of a level in the autosave slot, written in the
+	 * background.
+	 *
+	 * @param gameState
+	 *            State the level starts from.
+	 */
+	public void autosave(final GameState gameState) {
+		getSaveService().autosave(GameScreen.createLevelSnapshot(gameState));
+	}
+
+	/**
+	 * Lists the saved games.
+	 *
+	 * @return Saved games, most recent first.
+	 */
+	public List<SaveSlots.SlotInfo> listSaves() {
+		return getSaveService().list();
+	}
+
+	/**
+	 * Loads a saved game.
+	 *
+	 * @param slot
+	 *            Slot to load.
+	 * @return Saved game, null if the slot is empty or cannot be read.
+	 */
+	public GameSnapshot loadGame(final int slot) {
+		try {
+			GameSnapshot snapshot = getSaveService().load(slot);
+			if (snapshot == null) {
+				logger.info("No saved game in slot " + slot + ".");
+				return null;
+			}
+			if (!snapshot.has(GameSnapshot.STATE))
+				throw new IOException("Missing game state");
+			logger.info("Load game from slot " + slot);
+			return snapshot;
+		} catch (IOException e) {
+			logger.warning("Saved game in slot " + slot
+					+ " could not be loaded: " + e.getMessage());
+			return null;
+		}
 	}
 
 }
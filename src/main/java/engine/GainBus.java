@@ -0,0 +1,16 @@
+package engine;
+
+/**
+ * Gain buses the sounds of the game play on. The master bus scales the
+ * other ones.
+ */
+public enum GainBus {
+	/** Scales every other bus. */
+	MASTER,
+	/** Background music. */
+	MUSIC,
+	/** Sound effects of the action. */
+	SFX,
+	/** Cues of menus and of the start and end of levels. */
+	UI
+}
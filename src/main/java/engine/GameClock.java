@@ -0,0 +1,95 @@
+package engine;
+
+/**
+ * Time source of the game logic.
+ *
+ * By default the clock follows the system clock. In tick mode it only
+ * moves when a frame is stepped, by exactly one frame period, so a
+ * session depends on the number of frames run and not on how fast they
+ * ran. Tick mode is used to record and replay sessions.
+ */
+public final class GameClock {
+
+	/** Checks if the clock only moves on ticks. */
+	private static boolean ticking;
+	/** Time of the first tick, in milliseconds. */
+	private static long start;
+	/** Frames per second in tick mode. */
+	private static int fps = 60;
+	/** Ticks stepped since the start. */
+	private static long ticks;
+
+	/**
+	 * Utility class.
+	 */
+	private GameClock() {
+	}
+
+	/**
+	 * @return Current game time, in milliseconds.
+	 */
+	public static long now() {
+		if (!ticking)
+			return System.currentTimeMillis();
+		return start + ticks * 1000 / fps;
+	}
+
+	/**
+	 * Switches to tick mode.
+	 *
+	 * @param startTime
+	 *            Time of the first tick, in milliseconds. Must not be zero,
+	 *            cooldowns use zero as never started.
+	 * @param framesPerSecond
+	 *            Ticks per second of game time.
+	 */
+	public static void useTicks(final long startTime,
+			final int framesPerSecond) {
+		ticking = true;
+		start = startTime;
+		fps = framesPerSecond;
+		ticks = 0;
+	}
+
+	/**
+	 * Switches back to the system clock.
+	 */
+	public static void useRealTime() {
+		ticking = false;
+	}
+
+	/**
+	 * @return True if the clock only moves on ticks.
+	 */
+	public static boolean isTicking() {
+		return ticking;
+	}
+
+	/**
+	 * Steps the clock by one frame, does nothing when following the system
+	 * clock.
+	 */
+	public static void tick() {
+		if (ticking)
+			ticks++;
+	}
+
+	/**
+	 * Steps the clock by several frames, does nothing when following the
+	 * system clock.
+	 *
+	 * @param count
+	 *            Frames to step.
+	 */
+	public static void advance(final long count) {
+		if (ticking)
+			ticks += count;
+	}
+
+	/**
+	 * @return Ticks stepped since tick mode started.
+	 */
+	public static long getTicks() {
+		return ticks;
+	}
+}
@@ -0,0 +1,36 @@
+package engine;
+
+import java.util.Random;
+
+/**
+ * Random number generator shared by the game logic. Every random decision
+ * of a level goes through it, so reseeding it reproduces a session.
+ */
+public final class GameRandom {
+
+	/** Shared generator. */
+	private static final Random RANDOM = new Random();
+
+	/**
+	 * Utility class.
+	 */
+	private GameRandom() {
+	}
+
+	/**
+	 * @return Shared generator, used from the game thread only.
+	 */
+	public static Random get() {
+		return RANDOM;
+	}
+
+	/**
+	 * Restarts the sequence of random numbers.
+	 *
+	 * @param seed
+	 *            Seed of the new sequence.
+	 */
+	public static void reseed(final long seed) {
+		RANDOM.setSeed(seed);
+	}
+}
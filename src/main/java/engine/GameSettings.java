@@ -10,6 +10,38 @@ import java.io.Serializable;
  */
 public class GameSettings implements Serializable {
 
+	/** Kinds of level. */
+	public enum StageType {
+		/** Formation that moves and shoots. */
+		NORMAL,
+		/** Timed stage with a still formation that does not shoot. */
+		BONUS,
+		/** Stage against the boss. */
+		BOSS
+	}
+
+	/** Item kinds, in the order of the drop weights. */
+	public static final int DROP_SHOOTING_COOL = 0;
+	/** Bullet speed item. */
+	public static final int DROP_BULLET_SPEED = 1;
+	/** Boom item. */
+	public static final int DROP_BOOM = 2;
+	/** Bonus life item. */
+	public static final int DROP_BONUS_LIFE = 3;
+	/** Bonus score items. */
+	public static final int DROP_BONUS_SCORE = 4;
+	/** Number of item kinds. */
+	public static final int DROP_KINDS = 5;
+
+	/** Default share of the rows of each enemy type, in percent. */
+	private static final int[] DEFAULT_ENEMY_MIX = { 30, 30, 20 };
+	/** Default chance of an item drop, one in this many kills. */
+	private static final int DEFAULT_DROP_CHANCE = 5;
+	/** Default weights of the item kinds. */
+	private static final int[] DEFAULT_DROP_WEIGHTS = { 1, 1, 1, 1, 0 };
+	/** Default duration of a bonus stage, in milliseconds. */
+	private static final int DEFAULT_BONUS_TIME = 10000;
+
 	/** Width of the level's enemy formation. */
 	private int formationWidth;
 	/** Height of the level's enemy formation. */
@@ -18,6 +50,18 @@ public class GameSettings implements Serializable {
 	private int baseSpeed;
 	/** Frequency of enemy shootings, +/- 30%. */
 	private int shootingFrecuency;
+	/** Kind of level. */
+	private StageType stageType;
+	/** Share of the rows of enemy types A, B and C in percent, D gets the rest. */
+	private int[] enemyMix;
+	/** Chance of an item drop, one in this many kills. */
+	private int dropChance;
+	/** Weights of the item kinds, by DROP constant. */
+	private int[] dropWeights;
+	/** Duration of a bonus stage, in milliseconds. */
+	private int bonusTime;
+	/** Announcement shown when the level starts, null for none. */
+	private String title;
 
 	/**
 	 * Constructor.
@@ -33,10 +77,50 @@ public class GameSettings implements Serializable {
 	 */
 	public GameSettings(final int formationWidth, final int formationHeight,
 			final int baseSpeed, final int shootingFrequency) {
+		this(formationWidth, formationHeight, baseSpeed, shootingFrequency,
+				StageType.NORMAL, DEFAULT_ENEMY_MIX, DEFAULT_DROP_CHANCE,
+				DEFAULT_DROP_WEIGHTS, DEFAULT_BONUS_TIME, null);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param formationWidth
+	 *            Width of the level's enemy formation.
+	 * @param formationHeight
+	 *            Height of the level's enemy formation.
+	 * @param baseSpeed
+	 *            Speed of the enemies.
+	 * @param shootingFrequency
+	 *            Frecuency of enemy shootings, +/- 30%, 0 for none.
+	 * @param stageType
+	 *            Kind of level.
+	 * @param enemyMix
+	 *            Share of the rows of enemy types A, B and C in percent.
+	 * @param dropChance
+	 *            Chance of an item drop, one in this many kills.
+	 * @param dropWeights
+	 *            Weights of the item kinds, by DROP constant.
+	 * @param bonusTime
+	 *            Duration of a bonus stage, in milliseconds.
+	 * @param title
+	 *            Announcement shown when the level starts, null for none.
+	 */
+	public GameSettings(final int formationWidth, final int formationHeight,
+			final int baseSpeed, final int shootingFrequency,
+			final StageType stageType, final int[] enemyMix,
+			final int dropChance, final int[] dropWeights,
+			final int bonusTime, final String title) {
 		this.formationWidth = formationWidth;
 		this.formationHeight = formationHeight;
 		this.baseSpeed = baseSpeed;
 		this.shootingFrecuency = shootingFrequency;
+		this.stageType = stageType;
+		this.enemyMix = enemyMix.clone();
+		this.dropChance = dropChance;
+		this.dropWeights = dropWeights.clone();
+		this.bonusTime = bonusTime;
+		this.title = title;
 	}
 
 	/**
@@ -67,4 +151,76 @@ public class GameSettings implements Serializable {
 		return shootingFrecuency;
 	}
 
+	/**
+	 * @return Kind of level.
+	 */
+	public final StageType getStageType() {
+		return stageType;
+	}
+
+	/**
+	 * @param type
+	 *            Enemy type, 0 to 2 for A to C.
+	 * @return Share of the formation rows of the type, in percent.
+	 */
+	public final int getEnemyShare(final int type) {
+		return enemyMix[type];
+	}
+
+	/**
+	 * @return Chance of an item drop, one in this many kills.
+	 */
+	public final int getDropChance() {
+		return dropChance;
+	}
+
+	/**
+	 * @param kind
+	 *            Item kind, one of the DROP constants.
+	 * @return Weight of the item kind.
+	 */
+	public final int getDropWeight(final int kind) {
+		return dropWeights[kind];
+	}
+
+	/**
+	 * Picks an item kind by weight.
+	 *
+	 * @param roll
+	 *            Random number between 0 and the total weight, excluded.
+	 * @return Item kind, one of the DROP constants.
+	 */
+	public final int pickDrop(final int roll) {
+		int remaining = roll;
+		for (int kind = 0; kind < DROP_KINDS; kind++) {
+			remaining -= dropWeights[kind];
+			if (remaining < 0)
+				return kind;
+		}
+		return DROP_KINDS - 1;
+	}
+
+	/**
+	 * @return Sum of the item kind weights.
+	 */
+	public final int getTotalDropWeight() {
+		int total = 0;
+		for (int weight : dropWeights)
+			total += weight;
+		return total;
+	}
+
+	/**
+	 * @return Duration of a bonus stage, in milliseconds.
+	 */
+	public final int getBonusTime() {
+		return bonusTime;
+	}
+
+	/**
+	 * @return Announcement shown when the level starts, null for none.
+	 */
+	public final String getTitle() {
+		return title;
+	}
 }
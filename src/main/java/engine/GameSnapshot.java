@@ -0,0 +1,390 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Saved state of a game, stored as tagged sections of little-endian
+ * primitives.
+ *
+ * The file starts with a magic number and a format version, followed by
+ * the sections, each one as a tag, a length and its bytes. Readers skip
+ * sections they do not know, and reads past the end of a section return
+ * zero, so new fields are appended to the end of a section and new data
+ * goes in new sections. The version only changes when old saves can no
+ * longer be read.
+ */
+public final class GameSnapshot {
+
+	/** Marks a save file, "INVS" in little-endian order. */
+	public static final int MAGIC = 0x53564E49;
+	/** Current format version. */
+	public static final int VERSION = 1;
+
+	/** Score, lives and other counters of the game. */
+	public static final int STATE = 1;
+	/** Player's ship. */
+	public static final int SHIP = 2;
+	/** Enemy ship formation. */
+	public static final int FORMATION = 3;
+	/** Boss of the boss stage. */
+	public static final int BOSS = 4;
+	/** Bullets and booms on screen. */
+	public static final int BULLETS = 5;
+	/** Falling items. */
+	public static final int ITEMS = 6;
+	/** Skill cooldowns and cursor. */
+	public static final int SKILLS = 7;
+
+	/** Bytes before the first section. */
+	private static final int HEADER_SIZE = 12;
+	/** Bytes before the contents of a section. */
+	private static final int SECTION_HEADER_SIZE = 8;
+	/** Largest section accepted, guards against corrupted lengths. */
+	private static final int MAX_SECTION_SIZE = 1 << 24;
+
+	/** Section contents by tag, kept in tag order. */
+	private final Map<Integer, byte[]> sections = new TreeMap<Integer, byte[]>();
+
+	/**
+	 * Writes the fields of one section.
+	 */
+	public static final class Writer {
+		/** Bytes written so far. */
+		private ByteBuffer buffer = ByteBuffer.allocate(64)
+				.order(ByteOrder.LITTLE_ENDIAN);
+
+		/**
+		 * Makes room for more bytes.
+		 *
+		 * @param bytes
+		 *            Bytes about to be written.
+		 */
+		private void ensure(final int bytes) {
+			if (this.buffer.remaining() >= bytes)
+				return;
+			int capacity = Math.max(this.buffer.capacity() * 2,
+					this.buffer.position() + bytes);
+			ByteBuffer grown = ByteBuffer.allocate(capacity)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			this.buffer.flip();
+			grown.put(this.buffer);
+			this.buffer = grown;
+		}
+
+		/**
+		 * @param value
+		 *            Value to write.
+		 * @return This writer.
+		 */
+		public Writer putByte(final int value) {
+			ensure(1);
+			this.buffer.put((byte) value);
+			return this;
+		}
+
+		/**
+		 * @param value
+		 *            Value to write.
+		 * @return This writer.
+		 */
+		public Writer putBoolean(final boolean value) {
+			return putByte(value ? 1 : 0);
+		}
+
+		/**
+		 * @param value
+		 *            Value to write.
+		 * @return This writer.
+		 */
+		public Writer putInt(final int value) {
+			ensure(4);
+			this.buffer.putInt(value);
+			return this;
+		}
+
+		/**
+		 * @param value
+		 *            Value to write.
+		 * @return This writer.
+		 */
+		public Writer putLong(final long value) {
+			ensure(8);
+			this.buffer.putLong(value);
+			return this;
+		}
+
+		/**
+		 * Writes a string as its UTF-8 length and bytes.
+		 *
+		 * @param value
+		 *            Value to write, null is written as an empty string.
+		 * @return This writer.
+		 */
+		public Writer putString(final String value) {
+			byte[] bytes = value == null ? new byte[0]
+					: value.getBytes(StandardCharsets.UTF_8);
+			putInt(bytes.length);
+			ensure(bytes.length);
+			this.buffer.put(bytes);
+			return this;
+		}
+
+		/**
+		 * Writes raw bytes.
+		 *
+		 * @param bytes
+		 *            Array holding the bytes.
+		 * @param offset
+		 *            First byte to write.
+		 * @param length
+		 *            Number of bytes to write.
+		 * @return This writer.
+		 */
+		public Writer putBytes(final byte[] bytes, final int offset,
+				final int length) {
+			ensure(length);
+			this.buffer.put(bytes, offset, length);
+			return this;
+		}
+
+		/**
+		 * @return Copy of the bytes written.
+		 */
+		byte[] toByteArray() {
+			return Arrays.copyOf(this.buffer.array(), this.buffer.position());
+		}
+	}
+
+	/**
+	 * Reads the fields of one section, in the order they were written.
+	 * Fields missing at the end of the section read as zero.
+	 */
+	public static final class Reader {
+		/** Section contents. */
+		private final ByteBuffer buffer;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param contents
+		 *            Section contents.
+		 */
+		Reader(final byte[] contents) {
+			this.buffer = ByteBuffer.wrap(contents)
+					.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		/**
+		 * @return Next value.
+		 */
+		public int getByte() {
+			return this.buffer.remaining() >= 1 ? this.buffer.get() : 0;
+		}
+
+		/**
+		 * @return Next value.
+		 */
+		public boolean getBoolean() {
+			return getByte() != 0;
+		}
+
+		/**
+		 * @return Next value.
+		 */
+		public int getInt() {
+			return this.buffer.remaining() >= 4 ? this.buffer.getInt() : 0;
+		}
+
+		/**
+		 * @return Next value.
+		 */
+		public long getLong() {
+			return this.buffer.remaining() >= 8 ? this.buffer.getLong() : 0;
+		}
+
+		/**
+		 * @return Next value, empty if missing.
+		 */
+		public String getString() {
+			int length = getInt();
+			if (length <= 0 || length > this.buffer.remaining())
+				return "";
+			byte[] bytes = new byte[length];
+			this.buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * @return Bytes left to read.
+		 */
+		public int remaining() {
+			return this.buffer.remaining();
+		}
+
+		/**
+		 * @return True if there are fields left to read.
+		 */
+		public boolean hasRemaining() {
+			return this.buffer.hasRemaining();
+		}
+	}
+
+	/**
+	 * Stores a section, replacing any previous one with the same tag.
+	 *
+	 * @param tag
+	 *            Section tag.
+	 * @param writer
+	 *            Writer holding the section fields.
+	 */
+	public void put(final int tag, final Writer writer) {
+		this.sections.put(tag, writer.toByteArray());
+	}
+
+	/**
+	 * Opens a section for reading.
+	 *
+	 * @param tag
+	 *            Section tag.
+	 * @return Reader over the section, null if the snapshot does not have it.
+	 */
+	public Reader get(final int tag) {
+		byte[] contents = this.sections.get(tag);
+		return contents == null ? null : new Reader(contents);
+	}
+
+	/**
+	 * @param tag
+	 *            Section tag.
+	 * @return True if the snapshot has the section.
+	 */
+	public boolean has(final int tag) {
+		return this.sections.containsKey(tag);
+	}
+
+	/**
+	 * @return Section contents by tag, read only.
+	 */
+	Map<Integer, byte[]> getSections() {
+		return Collections.unmodifiableMap(this.sections);
+	}
+
+	/**
+	 * Builds a snapshot from section contents.
+	 *
+	 * @param sections
+	 *            Section contents by tag.
+	 * @return New snapshot.
+	 */
+	static GameSnapshot of(final Map<Integer, byte[]> sections) {
+		GameSnapshot snapshot = new GameSnapshot();
+		snapshot.sections.putAll(sections);
+		return snapshot;
+	}
+
+	/**
+	 * Encodes the snapshot.
+	 *
+	 * @return Buffer holding the whole file, ready to be written.
+	 */
+	public ByteBuffer encode() {
+		int size = HEADER_SIZE;
+		for (byte[] contents : this.sections.values())
+			size += SECTION_HEADER_SIZE + contents.length;
+
+		ByteBuffer buffer = ByteBuffer.allocate(size)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(this.sections.size());
+		for (Map.Entry<Integer, byte[]> section : this.sections.entrySet()) {
+			buffer.putInt(section.getKey());
+			buffer.putInt(section.getValue().length);
+			buffer.put(section.getValue());
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Decodes a snapshot.
+	 *
+	 * @param buffer
+	 *            Whole file contents.
+	 * @return Decoded snapshot.
+	 * @throws IOException
+	 *             If the contents are not a save file or come from a newer
+	 *             format.
+	 */
+	public static GameSnapshot decode(final ByteBuffer buffer)
+			throws IOException {
+		ByteBuffer input = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		if (input.remaining() < HEADER_SIZE || input.getInt() != MAGIC)
+			throw new IOException("Not a save file");
+		int version = input.getInt();
+		if (version > VERSION)
+			throw new IOException("Unsupported save version " + version);
+
+		GameSnapshot snapshot = new GameSnapshot();
+		int count = input.getInt();
+		for (int i = 0; i < count; i++) {
+			if (input.remaining() < SECTION_HEADER_SIZE)
+				throw new IOException("Truncated save file");
+			int tag = input.getInt();
+			int length = input.getInt();
+			if (length < 0 || length > MAX_SECTION_SIZE
+					|| length > input.remaining())
+				throw new IOException("Corrupted section " + tag);
+			byte[] contents = new byte[length];
+			input.get(contents);
+			snapshot.sections.put(tag, contents);
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Writes the encoded snapshot to a channel.
+	 *
+	 * @param channel
+	 *            Channel to write to.
+	 * @throws IOException
+	 *             If the channel fails.
+	 */
+	public void writeTo(final WritableByteChannel channel) throws IOException {
+		ByteBuffer buffer = encode();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	/**
+	 * Reads a snapshot from a channel.
+	 *
+	 * @param channel
+	 *            Channel to read from.
+	 * @param size
+	 *            Number of bytes in the channel.
+	 * @return Decoded snapshot.
+	 * @throws IOException
+	 *             If the channel fails or its contents are not a valid save.
+	 */
+	public static GameSnapshot readFrom(final ReadableByteChannel channel,
+			final long size) throws IOException {
+		if (size > MAX_SECTION_SIZE)
+			throw new IOException("Save file too large");
+		ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		while (buffer.hasRemaining())
+			if (channel.read(buffer) < 0)
+				throw new IOException("Truncated save file");
+		buffer.flip();
+		return decode(buffer);
+	}
+}
@@ -13,9 +13,11 @@ import java.io.Serializable;
 public final class InputManager implements KeyListener, Serializable {
 
 	/** Number of recognised keys. */
-	private static final int NUM_KEYS = 256;
+	public static final int NUM_KEYS = 256;
 	/** Array with the keys marked as pressed or not. */
 	private static boolean[] keys;
+	/** Key states read instead of the live ones, null to read live keys. */
+	private static boolean[] frozenKeys;
 	/** Singleton instance of the class. */
 	private static InputManager instance;
 
@@ -45,7 +47,29 @@ public final class InputManager implements KeyListener, Serializable {
 	 * @return Key state.
 	 */
 	public boolean isKeyDown(final int keyCode) {
-		return keys[keyCode];
+		boolean[] state = frozenKeys;
+		return state != null ? state[keyCode] : keys[keyCode];
+	}
+
+	/**
+	 * Copies the live key states.
+	 *
+	 * @param state
+	 *            Array of NUM_KEYS entries to copy to.
+	 */
+	public void copyKeys(final boolean[] state) {
+		System.arraycopy(keys, 0, state, 0, NUM_KEYS);
+	}
+
+	/**
+	 * Makes isKeyDown read the given key states instead of the live ones,
+	 * so keys pressed in the middle of a frame wait for the next one.
+	 *
+	 * @param state
+	 *            Key states to read, null to read the live keys again.
+	 */
+	public void freezeKeys(final boolean[] state) {
+		frozenKeys = state;
 	}
 
 	/**
@@ -0,0 +1,90 @@
+package engine;
+
+/**
+ * Audio backend playing through the software mixer and its Java Sound
+ * output line.
+ */
+public final class JavaSoundBackend implements AudioBackend {
+
+	/** Mixer playing the sounds. */
+	private final AudioMixer mixer;
+	/** Streams the music through the mixer. */
+	private final MusicPlayer music;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param mixer
+	 *            Mixer playing the sounds.
+	 * @param music
+	 *            Streams the music through the mixer.
+	 */
+	public JavaSoundBackend(final AudioMixer mixer, final MusicPlayer music) {
+		this.mixer = mixer;
+		this.music = music;
+	}
+
+	/**
+	 * Constructor playing resources through the shared mixer.
+	 */
+	public JavaSoundBackend() {
+		this(AudioMixer.getInstance(), new MusicPlayer(MusicPlayer.TITLE_TRACK));
+	}
+
+	@Override
+	public int play(final String sound, final float gain, final boolean loop,
+			final GainBus bus, final float pan, final float rolloff) {
+		// A sound missing from the cache is decoded in the background and
+		// skipped this time, rather than decoded on the game thread.
+		return this.mixer.play(this.mixer.request(sound), gain, loop, bus,
+				pan, rolloff);
+	}
+
+	@Override
+	public void warmUp() {
+		AudioMixer.warmUp();
+	}
+
+	@Override
+	public void prepare(final String sound) {
+		this.mixer.prime(this.mixer.load(sound));
+	}
+
+	@Override
+	public void stop(final int handle) {
+		this.mixer.stop(handle);
+	}
+
+	@Override
+	public void stopAll(final String sound) {
+		this.mixer.stopAll(sound);
+	}
+
+	@Override
+	public void setGain(final String sound, final float gain) {
+		this.mixer.setGain(sound, gain);
+	}
+
+	@Override
+	public boolean isPlaying(final int handle) {
+		return this.mixer.isPlaying(handle);
+	}
+
+	@Override
+	public void playMusic(final String track, final int fadeMillis) {
+		if (track == null)
+			this.music.stop();
+		else
+			this.music.play(track, fadeMillis);
+	}
+
+	@Override
+	public void setBusGain(final GainBus bus, final float gain) {
+		this.mixer.setBusGain(bus, gain);
+	}
+
+	@Override
+	public void setListener(final float pan) {
+		this.mixer.setListener(pan);
+	}
+}
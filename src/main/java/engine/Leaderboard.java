@@ -0,0 +1,594 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+
+/**
+ * Stores high scores as an append-only log, indexed in memory.
+ *
+ * Every submitted score is appended to the log as a checksummed record.
+ * The log is read into a sorted set per category, so top scores are read
+ * without sorting, and into a map of the best score of every player.
+ * Writers take a lock file, so several game instances can share the
+ * leaderboard; each one reads the records appended by the others before
+ * writing. Once the log holds many more records than are worth keeping,
+ * it is compacted to the best scores of each category plus the best score
+ * of every player, and atomically replaced. The log header carries a
+ * generation number, so other instances notice the replacement and read
+ * the new log from the start.
+ */
+public final class Leaderboard {
+
+	/** Category of the regular game. */
+	public static final String DEFAULT_CATEGORY = "arcade";
+
+	/** Marks the log file, "INVL" in little-endian order. */
+	private static final int MAGIC = 0x4C564E49;
+	/** Bytes before the first record: magic and generation. */
+	private static final int HEADER_SIZE = 12;
+	/** Bytes before the contents of a record: length and checksum. */
+	private static final int RECORD_HEADER_SIZE = 8;
+	/** Largest record accepted, guards against corrupted lengths. */
+	private static final int MAX_RECORD_SIZE = 4096;
+	/** Default number of best scores kept per category when compacting. */
+	public static final int DEFAULT_RETAINED = 1000;
+
+	/** In-process locks by log file, as file locks are held per process. */
+	private static final ConcurrentMap<Path, Object> PROCESS_LOCKS =
+			new ConcurrentHashMap<Path, Object>();
+
+	/** Orders entries from best to worst, older entries first on ties. */
+	private static final Comparator<Entry> RANKING = new Comparator<Entry>() {
+		@Override
+		public int compare(final Entry a, final Entry b) {
+			if (a.score != b.score)
+				return a.score > b.score ? -1 : 1;
+			if (a.time != b.time)
+				return a.time < b.time ? -1 : 1;
+			return Long.compare(a.sequence, b.sequence);
+		}
+	};
+
+	/** One submitted score. */
+	public static final class Entry {
+		/** Player's name. */
+		private final String name;
+		/** Score points. */
+		private final int score;
+		/** Category the score belongs to. */
+		private final String category;
+		/** Moment the score was submitted, in milliseconds. */
+		private final long time;
+		/** Order the entry was indexed in, breaks ties. */
+		private final long sequence;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param name
+		 *            Player's name.
+		 * @param score
+		 *            Score points.
+		 * @param category
+		 *            Category the score belongs to.
+		 * @param time
+		 *            Moment the score was submitted, in milliseconds.
+		 * @param sequence
+		 *            Order the entry was indexed in.
+		 */
+		private Entry(final String name, final int score,
+				final String category, final long time, final long sequence) {
+			this.name = name;
+			this.score = score;
+			this.category = category;
+			this.time = time;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * @return Player's name.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * @return Score points.
+		 */
+		public int getScore() {
+			return this.score;
+		}
+
+		/**
+		 * @return Category the score belongs to.
+		 */
+		public String getCategory() {
+			return this.category;
+		}
+
+		/**
+		 * @return Moment the score was submitted, in milliseconds.
+		 */
+		public long getTime() {
+			return this.time;
+		}
+
+		/**
+		 * @return The entry as a high score record.
+		 */
+		public Score toScore() {
+			return new Score(this.name, this.score);
+		}
+	}
+
+	/** Best scores kept per category when compacting. */
+	private final int retainedPerCategory;
+	/** Log file. */
+	private final Path logFile;
+	/** Lock file taken by writers. */
+	private final Path lockFile;
+	/** Sorted entries by category. */
+	private final ConcurrentMap<String, ConcurrentSkipListSet<Entry>> rankings =
+			new ConcurrentHashMap<String, ConcurrentSkipListSet<Entry>>();
+	/** Best entry of each player, by category and name. */
+	private final ConcurrentMap<String, Entry> bests =
+			new ConcurrentHashMap<String, Entry>();
+	/** Gives every indexed entry its order. */
+	private final AtomicLong sequence = new AtomicLong();
+	/** Generation of the log the index was read from, 0 if none. */
+	private long generation;
+	/** Offset in the log up to which records were indexed. */
+	private long offset;
+	/** Records in the log, including those superseded. */
+	private int records;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directory
+	 *            Directory holding the leaderboard files.
+	 */
+	public Leaderboard(final Path directory) {
+		this(directory, DEFAULT_RETAINED);
+	}
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directory
+	 *            Directory holding the leaderboard files.
+	 * @param retainedPerCategory
+	 *            Best scores kept per category when compacting.
+	 */
+	public Leaderboard(final Path directory, final int retainedPerCategory) {
+		this.retainedPerCategory = retainedPerCategory;
+		this.logFile = directory.resolve("leaderboard.log");
+		this.lockFile = directory.resolve("leaderboard.lock");
+	}
+
+	/**
+	 * Submits a score.
+	 *
+	 * @param category
+	 *            Category the score belongs to.
+	 * @param name
+	 *            Player's name.
+	 * @param score
+	 *            Score points.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	public void submit(final String category, final String name,
+			final int score) throws IOException {
+		List<Score> scores = new ArrayList<Score>();
+		scores.add(new Score(name, score));
+		append(category, scores, false);
+	}
+
+	/**
+	 * Imports scores from an older leaderboard, if this one is empty.
+	 *
+	 * @param category
+	 *            Category the scores belong to.
+	 * @param scores
+	 *            Scores to import.
+	 * @return True if the scores were imported.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	public boolean importIfEmpty(final String category,
+			final List<Score> scores) throws IOException {
+		return append(category, scores, true);
+	}
+
+	/**
+	 * Returns the best scores of a category, including scores submitted by
+	 * other game instances.
+	 *
+	 * @param category
+	 *            Category of the scores.
+	 * @param count
+	 *            Maximum number of scores.
+	 * @return Best scores, best first.
+	 * @throws IOException
+	 *             In case of loading problems.
+	 */
+	public List<Entry> top(final String category, final int count)
+			throws IOException {
+		refresh();
+		List<Entry> top = new ArrayList<Entry>(count);
+		ConcurrentSkipListSet<Entry> ranking = this.rankings.get(category);
+		if (ranking == null)
+			return top;
+		for (Entry entry : ranking) {
+			if (top.size() >= count)
+				break;
+			top.add(entry);
+		}
+		return top;
+	}
+
+	/**
+	 * Returns the best score of a player.
+	 *
+	 * @param category
+	 *            Category of the score.
+	 * @param name
+	 *            Player's name.
+	 * @return Best entry of the player, null if there is none.
+	 * @throws IOException
+	 *             In case of loading problems.
+	 */
+	public Entry best(final String category, final String name)
+			throws IOException {
+		refresh();
+		return this.bests.get(key(category, name));
+	}
+
+	/**
+	 * Appends scores to the log while holding the writer lock.
+	 *
+	 * @param category
+	 *            Category the scores belong to.
+	 * @param scores
+	 *            Scores to append.
+	 * @param onlyIfEmpty
+	 *            Only appends if the log has no records.
+	 * @return True if the scores were appended.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	private boolean append(final String category, final List<Score> scores,
+			final boolean onlyIfEmpty) throws IOException {
+		Object processLock = PROCESS_LOCKS.computeIfAbsent(
+				this.logFile.toAbsolutePath().normalize(), path -> new Object());
+		synchronized (processLock) {
+			Files.createDirectories(this.logFile.toAbsolutePath().getParent());
+			FileChannel lockChannel = FileChannel.open(this.lockFile,
+					StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+			try {
+				FileLock lock = lockChannel.lock();
+				try {
+					return appendLocked(category, scores, onlyIfEmpty);
+				} finally {
+					lock.release();
+				}
+			} finally {
+				lockChannel.close();
+			}
+		}
+	}
+
+	/**
+	 * Appends scores to the log, the writer lock being held.
+	 *
+	 * @param category
+	 *            Category the scores belong to.
+	 * @param scores
+	 *            Scores to append.
+	 * @param onlyIfEmpty
+	 *            Only appends if the log has no records.
+	 * @return True if the scores were appended.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	private synchronized boolean appendLocked(final String category,
+			final List<Score> scores, final boolean onlyIfEmpty)
+			throws IOException {
+		refresh();
+		if (onlyIfEmpty && this.records > 0)
+			return false;
+		if (this.generation == 0) {
+			writeLog(new ArrayList<Entry>());
+			refresh();
+		}
+
+		long now = System.currentTimeMillis();
+		List<byte[]> encoded = new ArrayList<byte[]>();
+		int size = 0;
+		for (Score score : scores) {
+			byte[] record = encode(new Entry(score.getName(),
+					score.getScore(), category, now, 0));
+			encoded.add(record);
+			size += RECORD_HEADER_SIZE + record.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		for (byte[] record : encoded)
+			putRecord(buffer, record);
+		buffer.flip();
+
+		FileChannel channel = FileChannel.open(this.logFile,
+				StandardOpenOption.WRITE);
+		try {
+			// Drops a record torn by a writer that crashed.
+			if (channel.size() > this.offset)
+				channel.truncate(this.offset);
+			long position = this.offset;
+			while (buffer.hasRemaining())
+				position += channel.write(buffer, position);
+			channel.force(false);
+		} finally {
+			channel.close();
+		}
+		refresh();
+
+		if (this.records > 2 * retained().size())
+			compact();
+		return true;
+	}
+
+	/**
+	 * Reads the records appended to the log since the last refresh. If the
+	 * log was replaced, the index is rebuilt from the start.
+	 *
+	 * @throws IOException
+	 *             In case of loading problems.
+	 */
+	private synchronized void refresh() throws IOException {
+		if (!Files.exists(this.logFile))
+			return;
+		FileChannel channel = FileChannel.open(this.logFile,
+				StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if (size < HEADER_SIZE)
+				return;
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, header, 0);
+			if (header.getInt(0) != MAGIC)
+				throw new IOException("Not a leaderboard log");
+			long logGeneration = header.getLong(4);
+			if (logGeneration != this.generation) {
+				this.rankings.clear();
+				this.bests.clear();
+				this.generation = logGeneration;
+				this.offset = HEADER_SIZE;
+				this.records = 0;
+			}
+			if (size <= this.offset)
+				return;
+
+			ByteBuffer tail = ByteBuffer.allocate((int) (size - this.offset))
+					.order(ByteOrder.LITTLE_ENDIAN);
+			readFully(channel, tail, this.offset);
+			tail.flip();
+			byte[] record;
+			while ((record = readRecord(tail)) != null) {
+				index(decode(record));
+				this.records++;
+			}
+			// A torn or unfinished record stays unread until it is
+			// completed or truncated by the next writer.
+			this.offset += tail.position();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Rewrites the log with the entries worth keeping.
+	 *
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	private void compact() throws IOException {
+		writeLog(new ArrayList<Entry>(retained()));
+		refresh();
+	}
+
+	/**
+	 * @return Best scores of each category and best score of each player.
+	 */
+	private Set<Entry> retained() {
+		Set<Entry> kept = new LinkedHashSet<Entry>();
+		for (ConcurrentSkipListSet<Entry> ranking : this.rankings.values()) {
+			int count = 0;
+			for (Entry entry : ranking) {
+				if (count++ >= this.retainedPerCategory)
+					break;
+				kept.add(entry);
+			}
+		}
+		kept.addAll(this.bests.values());
+		return kept;
+	}
+
+	/**
+	 * Atomically replaces the log with a new generation holding the given
+	 * entries.
+	 *
+	 * @param entries
+	 *            Entries of the new log.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	private void writeLog(final List<Entry> entries) throws IOException {
+		List<byte[]> encoded = new ArrayList<byte[]>(entries.size());
+		int size = HEADER_SIZE;
+		for (Entry entry : entries) {
+			byte[] record = encode(entry);
+			encoded.add(record);
+			size += RECORD_HEADER_SIZE + record.length;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate(size)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		long newGeneration;
+		do {
+			newGeneration = new Random().nextLong();
+		} while (newGeneration == 0 || newGeneration == this.generation);
+		buffer.putInt(MAGIC).putLong(newGeneration);
+		for (byte[] record : encoded)
+			putRecord(buffer, record);
+		buffer.flip();
+		AtomicFiles.replace(this.logFile, buffer);
+	}
+
+	/**
+	 * Adds an entry to the index.
+	 *
+	 * @param entry
+	 *            Entry read from the log.
+	 */
+	private void index(final Entry entry) {
+		ConcurrentSkipListSet<Entry> ranking = this.rankings.get(
+				entry.category);
+		if (ranking == null) {
+			ranking = new ConcurrentSkipListSet<Entry>(RANKING);
+			ConcurrentSkipListSet<Entry> existing =
+					this.rankings.putIfAbsent(entry.category, ranking);
+			if (existing != null)
+				ranking = existing;
+		}
+		ranking.add(entry);
+		this.bests.merge(key(entry.category, entry.name), entry,
+				(a, b) -> RANKING.compare(a, b) <= 0 ? a : b);
+	}
+
+	/**
+	 * @param category
+	 *            Category of the score.
+	 * @param name
+	 *            Player's name.
+	 * @return Key of the player's best score.
+	 */
+	private static String key(final String category, final String name) {
+		return category + '\n' + name;
+	}
+
+	/**
+	 * Encodes an entry as record contents.
+	 *
+	 * @param entry
+	 *            Entry to encode.
+	 * @return Record contents.
+	 */
+	private static byte[] encode(final Entry entry) {
+		return new GameSnapshot.Writer().putLong(entry.time)
+				.putInt(entry.score).putString(entry.category)
+				.putString(entry.name).toByteArray();
+	}
+
+	/**
+	 * Decodes record contents.
+	 *
+	 * @param record
+	 *            Record contents.
+	 * @return Decoded entry.
+	 */
+	private Entry decode(final byte[] record) {
+		GameSnapshot.Reader reader = new GameSnapshot.Reader(record);
+		long time = reader.getLong();
+		int score = reader.getInt();
+		String category = reader.getString();
+		String name = reader.getString();
+		return new Entry(name, score, category, time,
+				this.sequence.incrementAndGet());
+	}
+
+	/**
+	 * Writes a record: length, checksum and contents.
+	 *
+	 * @param buffer
+	 *            Buffer to write to.
+	 * @param contents
+	 *            Record contents.
+	 */
+	private static void putRecord(final ByteBuffer buffer,
+			final byte[] contents) {
+		CRC32 crc = new CRC32();
+		crc.update(contents, 0, contents.length);
+		buffer.putInt(contents.length);
+		buffer.putInt((int) crc.getValue());
+		buffer.put(contents);
+	}
+
+	/**
+	 * Reads the next record if it is complete and intact.
+	 *
+	 * @param log
+	 *            Log contents, positioned at a record.
+	 * @return Record contents, null at the end of the valid records.
+	 */
+	private static byte[] readRecord(final ByteBuffer log) {
+		if (log.remaining() < RECORD_HEADER_SIZE)
+			return null;
+		int start = log.position();
+		int length = log.getInt(start);
+		if (length < 0 || length > MAX_RECORD_SIZE
+				|| length > log.remaining() - RECORD_HEADER_SIZE)
+			return null;
+		byte[] contents = new byte[length];
+		log.position(start + RECORD_HEADER_SIZE);
+		log.get(contents);
+
+		CRC32 crc = new CRC32();
+		crc.update(contents, 0, contents.length);
+		if ((int) crc.getValue() != log.getInt(start + 4)) {
+			log.position(start);
+			return null;
+		}
+		return contents;
+	}
+
+	/**
+	 * Fills a buffer from a channel.
+	 *
+	 * @param channel
+	 *            Channel to read from.
+	 * @param buffer
+	 *            Buffer to fill.
+	 * @param position
+	 *            Position in the channel to read from.
+	 * @throws IOException
+	 *             If the channel ends before the buffer is full.
+	 */
+	private static void readFully(final FileChannel channel,
+			final ByteBuffer buffer, final long position) throws IOException {
+		long next = position;
+		while (buffer.hasRemaining()) {
+			int read = channel.read(buffer, next);
+			if (read < 0)
+				throw new IOException("Truncated leaderboard log");
+			next += read;
+		}
+	}
+}
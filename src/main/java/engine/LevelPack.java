@@ -0,0 +1,385 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import engine.GameSettings.StageType;
+
+/**
+ * Levels of a campaign, read from a level pack file.
+ *
+ * A pack is a text file where "level N" starts each level, numbered from
+ * 1 without gaps, followed by one setting per line:
+ *
+ * <pre>
+ * formation &lt;width&gt; &lt;height&gt;
+ * speed &lt;base speed&gt;
+ * shooting &lt;milliseconds between shots, 0 for none&gt;
+ * stage normal|bonus|boss
+ * mix &lt;percent A&gt; &lt;percent B&gt; &lt;percent C&gt;
+ * drops &lt;one in&gt; &lt;cool&gt; &lt;speed&gt; &lt;boom&gt; &lt;life&gt; &lt;score&gt;
+ * bonus-time &lt;seconds&gt;
+ * title &lt;text&gt;
+ * </pre>
+ *
+ * Formation, speed and shooting are required, the rest has defaults. Text
+ * after '#' is a comment. The file is parsed line by line into validated
+ * settings; errors name the line. Parsed packs are cached by file and
+ * modification time, and a pack from a file can be reloaded when the file
+ * changes, so levels can be tuned while the game runs.
+ */
+public final class LevelPack {
+
+	/** Property naming a level pack file to play instead of the default. */
+	public static final String PACK_PROPERTY = "invaders.levels";
+	/** Resource holding the default level pack. */
+	public static final String DEFAULT_RESOURCE = "levels";
+	/** Largest formation side. */
+	private static final int MAX_FORMATION = 32;
+
+	/** Packs parsed from files, by absolute path. */
+	private static final ConcurrentMap<Path, LevelPack> CACHE =
+			new ConcurrentHashMap<Path, LevelPack>();
+
+	/** Settings of each level, from level 1. */
+	private final List<GameSettings> levels;
+	/** File the pack was read from, null for a resource. */
+	private final Path file;
+	/** Modification time of the file when it was read. */
+	private final long modified;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param levels
+	 *            Settings of each level.
+	 * @param file
+	 *            File the pack was read from, null for a resource.
+	 * @param modified
+	 *            Modification time of the file when it was read.
+	 */
+	private LevelPack(final List<GameSettings> levels, final Path file,
+			final long modified) {
+		this.levels = Collections.unmodifiableList(levels);
+		this.file = file;
+		this.modified = modified;
+	}
+
+	/**
+	 * Loads the pack named by the property, or else the default one.
+	 *
+	 * @return Level pack.
+	 * @throws IOException
+	 *             If the pack cannot be read or is not valid.
+	 */
+	public static LevelPack load() throws IOException {
+		String name = System.getProperty(PACK_PROPERTY);
+		if (name != null)
+			return load(Paths.get(name));
+		Reader reader = new InputStreamReader(
+				Resources.open(DEFAULT_RESOURCE), StandardCharsets.UTF_8);
+		try {
+			return new LevelPack(parse(reader, DEFAULT_RESOURCE), null, 0);
+		} finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Loads a pack file, parsing it only if it changed since last loaded.
+	 *
+	 * @param path
+	 *            Level pack file.
+	 * @return Level pack.
+	 * @throws IOException
+	 *             If the pack cannot be read or is not valid.
+	 */
+	public static LevelPack load(final Path path) throws IOException {
+		Path file = path.toAbsolutePath().normalize();
+		long modified = Files.getLastModifiedTime(file).toMillis();
+		LevelPack cached = CACHE.get(file);
+		if (cached != null && cached.modified == modified)
+			return cached;
+
+		Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+		LevelPack pack;
+		try {
+			pack = new LevelPack(parse(reader, file.getFileName().toString()),
+					file, modified);
+		} finally {
+			reader.close();
+		}
+		CACHE.put(file, pack);
+		return pack;
+	}
+
+	/**
+	 * Returns the pack as it is now on disk.
+	 *
+	 * @return This pack if its file did not change or it has no file, else
+	 *         the new version.
+	 * @throws IOException
+	 *             If the changed file cannot be read or is not valid.
+	 */
+	public LevelPack reload() throws IOException {
+		if (this.file == null)
+			return this;
+		return load(this.file);
+	}
+
+	/**
+	 * @return True if the pack was read from a file that can be reloaded.
+	 */
+	public boolean isReloadable() {
+		return this.file != null;
+	}
+
+	/**
+	 * @param level
+	 *            Level number, from 1.
+	 * @return Settings of the level, null if the pack has no such level.
+	 */
+	public GameSettings get(final int level) {
+		if (level < 1 || level > this.levels.size())
+			return null;
+		return this.levels.get(level - 1);
+	}
+
+	/**
+	 * @return Number of levels.
+	 */
+	public int size() {
+		return this.levels.size();
+	}
+
+	/**
+	 * Parses a level pack.
+	 *
+	 * @param source
+	 *            Text of the pack.
+	 * @param name
+	 *            Name of the pack, for error messages.
+	 * @return Settings of each level.
+	 * @throws IOException
+	 *             If the pack cannot be read or is not valid.
+	 */
+	static List<GameSettings> parse(final Reader source, final String name)
+			throws IOException {
+		BufferedReader reader = source instanceof BufferedReader
+				? (BufferedReader) source : new BufferedReader(source);
+		List<GameSettings> levels = new ArrayList<GameSettings>();
+		LevelBuilder level = null;
+		int lineNumber = 0;
+		String line;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			int comment = line.indexOf('#');
+			if (comment >= 0)
+				line = line.substring(0, comment);
+			line = line.trim();
+			if (line.isEmpty())
+				continue;
+
+			String[] words = line.split("\\s+");
+			String key = words[0].toLowerCase(Locale.ROOT);
+			try {
+				if ("level".equals(key)) {
+					if (level != null)
+						levels.add(level.build());
+					int number = number(words, 1, 1);
+					if (number != levels.size() + 1)
+						throw new IllegalArgumentException("expected level "
+								+ (levels.size() + 1) + ", found " + number);
+					level = new LevelBuilder(number, lineNumber);
+				} else if (level == null) {
+					throw new IllegalArgumentException(
+							"setting before the first level");
+				} else {
+					level.set(key, words, line);
+				}
+			} catch (IllegalArgumentException e) {
+				throw new IOException(name + ":" + lineNumber + ": "
+						+ e.getMessage());
+			}
+		}
+		try {
+			if (level != null)
+				levels.add(level.build());
+		} catch (IllegalArgumentException e) {
+			throw new IOException(name + ":" + level.line + ": "
+					+ e.getMessage());
+		}
+		if (levels.isEmpty())
+			throw new IOException(name + ": no levels");
+		return levels;
+	}
+
+	/**
+	 * Reads a whole number.
+	 *
+	 * @param words
+	 *            Words of the line.
+	 * @param index
+	 *            Index of the word.
+	 * @param minimum
+	 *            Smallest valid value.
+	 * @return Value of the word.
+	 */
+	private static int number(final String[] words, final int index,
+			final int minimum) {
+		if (index >= words.length)
+			throw new IllegalArgumentException("missing value for "
+					+ words[0]);
+		int value;
+		try {
+			value = Integer.parseInt(words[index]);
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("not a number: "
+					+ words[index]);
+		}
+		if (value < minimum)
+			throw new IllegalArgumentException(words[0] + " below "
+					+ minimum + ": " + value);
+		return value;
+	}
+
+	/** Settings of a level being parsed. */
+	private static final class LevelBuilder {
+		/** Level number. */
+		private final int number;
+		/** Line the level starts on. */
+		private final int line;
+		/** Width of the formation, 0 until set. */
+		private int width;
+		/** Height of the formation, 0 until set. */
+		private int height;
+		/** Base speed, 0 until set. */
+		private int speed;
+		/** Milliseconds between shots, -1 until set. */
+		private int shooting = -1;
+		/** Kind of level. */
+		private StageType stageType = StageType.NORMAL;
+		/** Share of the rows of enemy types A, B and C. */
+		private int[] mix = { 30, 30, 20 };
+		/** Chance of an item drop, one in this many kills. */
+		private int dropChance = 5;
+		/** Weights of the item kinds. */
+		private int[] dropWeights = { 1, 1, 1, 1, 0 };
+		/** Duration of a bonus stage, in milliseconds. */
+		private int bonusTime = 10000;
+		/** Announcement, null for none. */
+		private String title;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param number
+		 *            Level number.
+		 * @param line
+		 *            Line the level starts on.
+		 */
+		private LevelBuilder(final int number, final int line) {
+			this.number = number;
+			this.line = line;
+		}
+
+		/**
+		 * Applies a setting line.
+		 *
+		 * @param key
+		 *            Setting name, lower case.
+		 * @param words
+		 *            Words of the line.
+		 * @param text
+		 *            Whole line, without comment.
+		 */
+		private void set(final String key, final String[] words,
+				final String text) {
+			switch (key) {
+			case "formation":
+				this.width = number(words, 1, 1);
+				this.height = number(words, 2, 1);
+				if (this.width > MAX_FORMATION || this.height > MAX_FORMATION)
+					throw new IllegalArgumentException("formation larger than "
+							+ MAX_FORMATION);
+				break;
+			case "speed":
+				this.speed = number(words, 1, 1);
+				break;
+			case "shooting":
+				this.shooting = number(words, 1, 0);
+				break;
+			case "stage":
+				if (words.length < 2)
+					throw new IllegalArgumentException("missing stage type");
+				try {
+					this.stageType = StageType.valueOf(
+							words[1].toUpperCase(Locale.ROOT));
+				} catch (IllegalArgumentException e) {
+					throw new IllegalArgumentException("unknown stage type "
+							+ words[1]);
+				}
+				break;
+			case "mix":
+				int total = 0;
+				for (int i = 0; i < this.mix.length; i++) {
+					this.mix[i] = number(words, i + 1, 0);
+					total += this.mix[i];
+				}
+				if (total > 100)
+					throw new IllegalArgumentException("enemy mix above 100%");
+				break;
+			case "drops":
+				this.dropChance = number(words, 1, 1);
+				int weights = 0;
+				for (int i = 0; i < this.dropWeights.length; i++) {
+					this.dropWeights[i] = number(words, i + 2, 0);
+					weights += this.dropWeights[i];
+				}
+				if (weights == 0)
+					throw new IllegalArgumentException("all drop weights are 0");
+				break;
+			case "bonus-time":
+				this.bonusTime = number(words, 1, 1) * 1000;
+				break;
+			case "title":
+				this.title = text.substring(words[0].length()).trim();
+				break;
+			default:
+				throw new IllegalArgumentException("unknown setting " + key);
+			}
+		}
+
+		/**
+		 * Checks the level is complete.
+		 *
+		 * @return Settings of the level.
+		 */
+		private GameSettings build() {
+			if (this.width == 0)
+				throw new IllegalArgumentException("level " + this.number
+						+ " has no formation");
+			if (this.speed == 0)
+				throw new IllegalArgumentException("level " + this.number
+						+ " has no speed");
+			if (this.shooting < 0)
+				throw new IllegalArgumentException("level " + this.number
+						+ " has no shooting");
+			return new GameSettings(this.width, this.height, this.speed,
+					this.shooting, this.stageType, this.mix, this.dropChance,
+					this.dropWeights, this.bonusTime, this.title);
+		}
+	}
+}
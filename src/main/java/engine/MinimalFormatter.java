@@ -14,8 +14,8 @@ import java.util.logging.LogRecord;
  */
 public class MinimalFormatter extends Formatter {
 
-	/** Format for the date. */
-	private static final DateFormat FORMAT = new SimpleDateFormat("h:mm:ss");
+	/** Format for the date, not shared as it is not thread safe. */
+	private final DateFormat dateFormat = new SimpleDateFormat("h:mm:ss");
 	/** System line separator. */
 	private static final String LINE_SEPARATOR = System
 			.getProperty("line.separator");
@@ -25,8 +25,8 @@ public class MinimalFormatter extends Formatter {
 
 		StringBuilder output = new StringBuilder().append("[")
 				.append(logRecord.getLevel()).append('|')
-				.append(FORMAT.format(new Date(logRecord.getMillis())))
-				.append("]: ").append(logRecord.getMessage()).append(' ')
+				.append(this.dateFormat.format(new Date(logRecord.getMillis())))
+				.append("]: ").append(formatMessage(logRecord)).append(' ')
 				.append(LINE_SEPARATOR);
 
 		return output.toString();
@@ -0,0 +1,191 @@
+package engine;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded multi-producer, single-consumer ring, without locks.
+ *
+ * Producers claim a slot with a compare-and-set on the tail, fill it in and
+ * publish it; each slot's sequence number tells the consumer when it is
+ * filled and producers when it is free again. A ring built with a factory
+ * owns one element per slot, filled in place and reused lap after lap, so
+ * sending allocates nothing; otherwise slots hold the offered elements.
+ * Claiming fails, rather than waiting, when the ring is full.
+ *
+ * @param <T>
+ *            Type of the elements.
+ */
+final class MpscRing<T> {
+
+	/** Factory of the elements owned by the slots. */
+	interface Factory<T> {
+		/**
+		 * @return New element for a slot.
+		 */
+		T create();
+	}
+
+	/** Slots, a power of two of them. */
+	private final Object[] slots;
+	/** Sequence of each slot: free for position p at p, filled at p + 1. */
+	private final AtomicLongArray sequences;
+	/** Checks if the slots own their elements. */
+	private final boolean owned;
+	/** Next position claimed by a producer. */
+	private final AtomicLong tail = new AtomicLong();
+	/** Next position taken by the consumer. */
+	private volatile long head;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param capacity
+	 *            Slots in the ring, a power of two.
+	 * @param factory
+	 *            Creates the element of each slot, null if slots hold the
+	 *            offered elements.
+	 */
+	MpscRing(final int capacity, final Factory<T> factory) {
+		if (capacity < 1 || Integer.bitCount(capacity) != 1)
+			throw new IllegalArgumentException(
+					"Capacity must be a power of two: " + capacity);
+		this.slots = new Object[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+		this.owned = factory != null;
+		for (int i = 0; i < capacity; i++) {
+			this.sequences.set(i, i);
+			if (factory != null)
+				this.slots[i] = factory.create();
+		}
+	}
+
+	/**
+	 * Claims the next slot, on a producer thread.
+	 *
+	 * @return Position of the slot, -1 if the ring is full.
+	 */
+	long claim() {
+		while (true) {
+			long position = this.tail.get();
+			long sequence = this.sequences.get(index(position));
+			if (sequence == position) {
+				if (this.tail.compareAndSet(position, position + 1))
+					return position;
+			} else if (sequence < position) {
+				// The consumer has not freed the slot a lap ago yet.
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * @param position
+	 *            Position of a claimed slot.
+	 * @return Element of the slot, to fill in.
+	 */
+	@SuppressWarnings("unchecked")
+	T get(final long position) {
+		return (T) this.slots[index(position)];
+	}
+
+	/**
+	 * Stores an element in a claimed slot.
+	 *
+	 * @param position
+	 *            Position of the slot.
+	 * @param element
+	 *            Element to store.
+	 */
+	void set(final long position, final T element) {
+		this.slots[index(position)] = element;
+	}
+
+	/**
+	 * Hands a filled slot over to the consumer.
+	 *
+	 * @param position
+	 *            Position of the slot.
+	 */
+	void publish(final long position) {
+		this.sequences.lazySet(index(position), position + 1);
+	}
+
+	/**
+	 * Stores an element in the next slot.
+	 *
+	 * @param element
+	 *            Element to store.
+	 * @return False if the ring is full.
+	 */
+	boolean offer(final T element) {
+		long position = claim();
+		if (position < 0)
+			return false;
+		set(position, element);
+		publish(position);
+		return true;
+	}
+
+	/**
+	 * Looks at the next element, on the consumer thread.
+	 *
+	 * @return Next element, null if none was published.
+	 */
+	@SuppressWarnings("unchecked")
+	T peek() {
+		long position = this.head;
+		int index = index(position);
+		if (this.sequences.get(index) != position + 1)
+			return null;
+		return (T) this.slots[index];
+	}
+
+	/**
+	 * Frees the slot of the element returned by peek, on the consumer
+	 * thread.
+	 */
+	void remove() {
+		long position = this.head;
+		int index = index(position);
+		if (!this.owned)
+			this.slots[index] = null;
+		this.sequences.lazySet(index, position + this.slots.length);
+		this.head = position + 1;
+	}
+
+	/**
+	 * Takes the next element, on the consumer thread.
+	 *
+	 * @return Next element, null if none was published.
+	 */
+	T poll() {
+		T element = peek();
+		if (element != null)
+			remove();
+		return element;
+	}
+
+	/**
+	 * @return Position of the next slot a producer claims.
+	 */
+	long getTail() {
+		return this.tail.get();
+	}
+
+	/**
+	 * @return Position of the next element the consumer takes.
+	 */
+	long getHead() {
+		return this.head;
+	}
+
+	/**
+	 * @param position
+	 *            Position in the ring.
+	 * @return Index of its slot.
+	 */
+	private int index(final long position) {
+		return (int) position & (this.slots.length - 1);
+	}
+}
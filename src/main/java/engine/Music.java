@@ -0,0 +1,91 @@
+package engine;
+
+/**
+ * Background music of the game, played by the audio backend.
+ */
+public final class Music {
+
+	/** Backend playing the music, null for the backend of the game. */
+	private final AudioBackend backend;
+	/** Track last asked for. */
+	private String track;
+	/** Checks if music was asked for and not stopped. */
+	private boolean running;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param backend
+	 *            Backend playing the music.
+	 * @param track
+	 *            Track played by start.
+	 */
+	public Music(final AudioBackend backend, final String track) {
+		this.backend = backend;
+		this.track = track;
+	}
+
+	/**
+	 * Constructor playing through the backend of the game, picked when the
+	 * music first plays.
+	 *
+	 * @param track
+	 *            Track played by start.
+	 */
+	public Music(final String track) {
+		this(null, track);
+	}
+
+	/**
+	 * Plays a track, cross-fading from the current one.
+	 *
+	 * @param name
+	 *            Track to play.
+	 */
+	public void play(final String name) {
+		play(name, MusicPlayer.DEFAULT_FADE);
+	}
+
+	/**
+	 * Plays a track, cross-fading from the current one.
+	 *
+	 * @param name
+	 *            Track to play.
+	 * @param fadeMillis
+	 *            Cross-fade time, in milliseconds.
+	 */
+	public void play(final String name, final int fadeMillis) {
+		this.track = name;
+		this.running = true;
+		backend().playMusic(name, fadeMillis);
+	}
+
+	/**
+	 * Starts the last track played again, without a fade.
+	 */
+	public void start() {
+		play(this.track, 0);
+	}
+
+	/**
+	 * Stops the music.
+	 */
+	public void stop() {
+		this.running = false;
+		backend().playMusic(null, 0);
+	}
+
+	/**
+	 * @return Backend playing the music.
+	 */
+	private AudioBackend backend() {
+		return this.backend != null ? this.backend : Audio.getBackend();
+	}
+
+	/**
+	 * @return True from when music is played until it is stopped.
+	 */
+	public boolean isRunning() {
+		return this.running;
+	}
+}
@@ -0,0 +1,639 @@
+package engine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Background music streamed from its file while it plays.
+ *
+ * A decoder thread reads the track in small chunks, converts them to the
+ * mixer's format and queues them in a few buffers per deck, so only a
+ * fraction of a second of music is in memory. At the end of the file the
+ * decoder starts reading it again into the same chunk, so the loop has no
+ * gap. There are two decks: a new track is buffered on the idle deck, then
+ * the audio thread cross-fades from the playing deck to it.
+ *
+ * The game thread only posts requests; the decoder opens files and the
+ * audio thread mixes, so neither blocks the game.
+ */
+public final class MusicPlayer {
+
+	/** Music of the title screen. */
+	public static final String TITLE_TRACK = "bgm.wav";
+	/** Music of the levels. */
+	public static final String GAME_TRACK = "bgm.wav";
+	/** Music of the boss stage. */
+	public static final String BOSS_TRACK = "bgm.wav";
+	/** Default cross-fade time, in milliseconds. */
+	public static final int DEFAULT_FADE = 1500;
+
+	/** Frames of a chunk. */
+	static final int CHUNK_FRAMES = 4096;
+	/** Chunks buffered per deck. */
+	static final int CHUNKS = 4;
+	/** Longest sleep of the decoder between checks. */
+	private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+	/** Deck free for the decoder. */
+	private static final int IDLE = 0;
+	/** Deck audible or about to be. */
+	private static final int PLAYING = 1;
+	/** Deck fading out. */
+	private static final int FADING = 2;
+	/** Deck faded out, to be closed by the decoder. */
+	private static final int DONE = 3;
+
+	/** Opens tracks by name. */
+	public interface TrackSource {
+		/**
+		 * @param track
+		 *            Name of the track.
+		 * @return Sound file of the track.
+		 * @throws IOException
+		 *             If the track cannot be opened.
+		 */
+		InputStream open(String track) throws IOException;
+	}
+
+	/** Track asked for by the game, null to stop. */
+	private static final class Request {
+		/** Name of the track, null to stop. */
+		private final String track;
+		/** Frames the cross-fade lasts. */
+		private final int fadeFrames;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param track
+		 *            Name of the track, null to stop.
+		 * @param fadeMillis
+		 *            Cross-fade time, in milliseconds.
+		 */
+		private Request(final String track, final int fadeMillis) {
+			this.track = track;
+			this.fadeFrames = (int) ((long) fadeMillis
+					* AudioMixer.SAMPLE_RATE / 1000);
+		}
+	}
+
+	/** Request buffered by the decoder, ready for the audio thread. */
+	private static final class Start {
+		/** Request handled. */
+		private final Request request;
+		/** Deck to make audible, null to stop. */
+		private final Deck deck;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param request
+		 *            Request handled.
+		 * @param deck
+		 *            Deck to make audible, null to stop.
+		 */
+		private Start(final Request request, final Deck deck) {
+			this.request = request;
+			this.deck = deck;
+		}
+	}
+
+	/** Stream of one track, filled by the decoder and read by the mixer. */
+	private static final class Deck {
+		/** Decoded chunks, interleaved stereo at the output rate. */
+		private final short[][] chunks =
+				new short[CHUNKS][CHUNK_FRAMES * AudioMixer.CHANNELS];
+		/** Frames in each chunk. */
+		private final int[] lengths = new int[CHUNKS];
+		/** Chunks filled by the decoder. */
+		private final AtomicLong filled = new AtomicLong();
+		/** Chunks played by the audio thread. */
+		private final AtomicLong played = new AtomicLong();
+		/** IDLE, PLAYING, FADING or DONE. */
+		private volatile int state = IDLE;
+
+		/** Name of the track, decoder side. */
+		private String track;
+		/** Open file of the track. */
+		private AudioInputStream stream;
+		/** PCM format of the file. */
+		private AudioFormat format;
+		/** Bytes read from the file. */
+		private byte[] bytes;
+		/** Samples of the bytes read, interleaved by channel. */
+		private short[] source;
+		/** Frames in source. */
+		private int sourceFrames;
+		/** Position in the track of the first frame of source. */
+		private long sourceBase;
+		/** Frame before the first one of source. */
+		private final short[] previous = new short[2];
+		/** Output frames produced. */
+		private long produced;
+
+		/** Next frame of the current chunk, audio side. */
+		private int offset;
+		/** Current fade gain. */
+		private float fade;
+		/** Fade gain change per frame. */
+		private float fadeStep;
+		/** Fade gain aimed at. */
+		private float fadeTarget;
+
+		/**
+		 * Starts fading towards a gain.
+		 *
+		 * @param target
+		 *            Gain aimed at, 0 or 1.
+		 * @param frames
+		 *            Frames the fade lasts, 0 for at once.
+		 */
+		private void fadeTo(final float target, final int frames) {
+			this.fadeTarget = target;
+			if (frames <= 0)
+				this.fade = target;
+			else
+				this.fadeStep = Math.abs(target - this.fade) / frames;
+		}
+	}
+
+	/** Mixer the music plays through. */
+	private final AudioMixer mixer;
+	/** Opens tracks. */
+	private final TrackSource source;
+	/** The two decks. */
+	private final Deck[] decks = { new Deck(), new Deck() };
+	/** Latest request of the game. */
+	private volatile Request pending;
+	/** Latest request buffered, for the audio thread. */
+	private volatile Start started;
+	/** Track last asked for. */
+	private String track;
+	/** Checks if music was asked for and not stopped. */
+	private volatile boolean running;
+	/** Chunks the audio thread found missing. */
+	private final AtomicLong underruns = new AtomicLong();
+	/** Decodes the decks, started on first play. */
+	private volatile Thread decoder;
+
+	/** Request last handled, decoder side. */
+	private Request handled;
+	/** Start last published, decoder side. */
+	private Start published;
+
+	/** Start last applied, audio side. */
+	private Start applied;
+	/** Audible deck, audio side. */
+	private Deck current;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param mixer
+	 *            Mixer to play through.
+	 * @param source
+	 *            Opens tracks by name.
+	 * @param track
+	 *            Track played by start.
+	 */
+	public MusicPlayer(final AudioMixer mixer, final TrackSource source,
+			final String track) {
+		this.mixer = mixer;
+		this.source = source;
+		this.track = track;
+	}
+
+	/**
+	 * Constructor playing resources through the shared mixer.
+	 *
+	 * @param track
+	 *            Track played by start.
+	 */
+	public MusicPlayer(final String track) {
+		this(AudioMixer.getInstance(), new TrackSource() {
+			@Override
+			public InputStream open(final String name) throws IOException {
+				return AudioMixer.openSound(name);
+			}
+		}, track);
+	}
+
+	/**
+	 * Plays a track, cross-fading from the current one.
+	 *
+	 * @param name
+	 *            Track to play.
+	 */
+	public void play(final String name) {
+		play(name, DEFAULT_FADE);
+	}
+
+	/**
+	 * Plays a track, cross-fading from the current one. Playing the track
+	 * already playing changes nothing.
+	 *
+	 * @param name
+	 *            Track to play.
+	 * @param fadeMillis
+	 *            Cross-fade time, in milliseconds.
+	 */
+	public synchronized void play(final String name, final int fadeMillis) {
+		this.track = name;
+		this.running = true;
+		post(new Request(name, fadeMillis));
+	}
+
+	/**
+	 * Starts the last track played again, without a fade.
+	 */
+	public void start() {
+		play(this.track, 0);
+	}
+
+	/**
+	 * Stops the music.
+	 */
+	public synchronized void stop() {
+		this.running = false;
+		post(new Request(null, 0));
+	}
+
+	/**
+	 * @return True from when music is played until it is stopped.
+	 */
+	public boolean isRunning() {
+		return this.running;
+	}
+
+	/**
+	 * @return Times the audio thread found no decoded chunk ready.
+	 */
+	public long getUnderruns() {
+		return this.underruns.get();
+	}
+
+	/**
+	 * Hands a request to the decoder, starting it if needed.
+	 *
+	 * @param request
+	 *            Request of the game.
+	 */
+	private void post(final Request request) {
+		this.pending = request;
+		if (this.decoder == null) {
+			this.mixer.setMusic(this);
+			this.decoder = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					decodeLoop();
+				}
+			}, "music-decoder");
+			this.decoder.setDaemon(true);
+			this.decoder.start();
+		}
+		LockSupport.unpark(this.decoder);
+	}
+
+	/**
+	 * Serves requests and keeps the decks filled, on the decoder thread.
+	 */
+	private void decodeLoop() {
+		while (true) {
+			boolean worked = false;
+			Request request = this.pending;
+			if (request != this.handled && serve(request)) {
+				this.handled = request;
+				worked = true;
+			}
+			for (Deck deck : this.decks) {
+				if (deck.state == DONE) {
+					close(deck);
+					// A start that came too late for a faded deck is redone.
+					if (this.published != null
+							&& this.published.deck == deck)
+						this.handled = null;
+					worked = true;
+				} else if (deck.state != IDLE) {
+					worked |= fill(deck);
+				}
+			}
+			if (!worked)
+				LockSupport.parkNanos(this, IDLE_NANOS);
+		}
+	}
+
+	/**
+	 * Buffers the track of a request and hands it to the audio thread.
+	 *
+	 * @param request
+	 *            Request of the game.
+	 * @return False if no deck is free yet.
+	 */
+	private boolean serve(final Request request) {
+		Deck deck = null;
+		if (request.track != null) {
+			for (Deck candidate : this.decks)
+				if (candidate.state == PLAYING
+						&& request.track.equals(candidate.track))
+					deck = candidate;
+			if (deck == null) {
+				for (Deck candidate : this.decks)
+					if (candidate.state == IDLE)
+						deck = candidate;
+				if (deck == null)
+					return false;
+				if (!open(deck, request.track))
+					return true;
+				while (fill(deck))
+					continue;
+				if (deck.state == DONE) {
+					close(deck);
+					return true;
+				}
+				deck.state = PLAYING;
+			}
+		}
+		this.published = new Start(request, deck);
+		this.started = this.published;
+		return true;
+	}
+
+	/**
+	 * Opens a track on an idle deck.
+	 *
+	 * @param deck
+	 *            Idle deck.
+	 * @param name
+	 *            Track to open.
+	 * @return False if the track cannot be played.
+	 */
+	private boolean open(final Deck deck, final String name) {
+		deck.track = name;
+		deck.filled.set(0);
+		deck.played.set(0);
+		deck.sourceFrames = 0;
+		deck.sourceBase = 0;
+		deck.previous[0] = 0;
+		deck.previous[1] = 0;
+		deck.produced = 0;
+		deck.offset = 0;
+		deck.fade = 0;
+		try {
+			reopen(deck);
+			int frameBytes = deck.format.getFrameSize();
+			deck.bytes = new byte[CHUNK_FRAMES * frameBytes];
+			deck.source = new short[CHUNK_FRAMES * deck.format.getChannels()];
+			return true;
+		} catch (IOException | UnsupportedAudioFileException e) {
+			logger().warning("Music " + name + " not played: "
+					+ e.getMessage());
+			close(deck);
+			return false;
+		}
+	}
+
+	/**
+	 * Opens the file of a deck's track from the start.
+	 *
+	 * @param deck
+	 *            Deck to open.
+	 * @throws IOException
+	 *             If the file cannot be read.
+	 * @throws UnsupportedAudioFileException
+	 *             If the file is not a supported format.
+	 */
+	private void reopen(final Deck deck)
+			throws IOException, UnsupportedAudioFileException {
+		if (deck.stream != null)
+			deck.stream.close();
+		deck.stream = null;
+		deck.stream = AudioMixer.openPcm(this.source.open(deck.track));
+		AudioFormat format = deck.stream.getFormat();
+		if (deck.format != null && !deck.format.matches(format))
+			throw new IOException("Format changed");
+		deck.format = format;
+	}
+
+	/**
+	 * Decodes the next chunk of a deck if one is free.
+	 *
+	 * @param deck
+	 *            Deck to fill.
+	 * @return True if a chunk was decoded.
+	 */
+	private boolean fill(final Deck deck) {
+		long position = deck.filled.get();
+		if (position - deck.played.get() >= CHUNKS)
+			return false;
+		int index = (int) (position % CHUNKS);
+		short[] out = deck.chunks[index];
+		int rate = Math.round(deck.format.getSampleRate());
+		int channels = deck.format.getChannels();
+		int right = Math.min(1, channels - 1);
+		int frames = 0;
+		try {
+			while (frames < CHUNK_FRAMES) {
+				long sourcePosition = deck.produced * rate;
+				long frame = sourcePosition / AudioMixer.SAMPLE_RATE;
+				if (frame + 1 >= deck.sourceBase + deck.sourceFrames) {
+					readSource(deck);
+					continue;
+				}
+				int fraction = (int) (sourcePosition % AudioMixer.SAMPLE_RATE);
+				int first = (int) (frame - deck.sourceBase);
+				for (int c = 0; c < AudioMixer.CHANNELS; c++) {
+					int channel = c == 0 ? 0 : right;
+					int a = first < 0 ? deck.previous[c]
+							: deck.source[first * channels + channel];
+					int b = deck.source[(first + 1) * channels + channel];
+					out[frames * AudioMixer.CHANNELS + c] = (short) (a
+							+ (long) (b - a) * fraction
+							/ AudioMixer.SAMPLE_RATE);
+				}
+				frames++;
+				deck.produced++;
+			}
+		} catch (IOException | UnsupportedAudioFileException e) {
+			logger().warning("Music " + deck.track + " stopped: "
+					+ e.getMessage());
+			deck.state = DONE;
+			return false;
+		}
+		deck.lengths[index] = frames;
+		deck.filled.lazySet(position + 1);
+		return true;
+	}
+
+	/**
+	 * Reads the next bytes of a deck's file, from the start again at its
+	 * end.
+	 *
+	 * @param deck
+	 *            Deck to read.
+	 * @throws IOException
+	 *             If the file cannot be read or is empty.
+	 * @throws UnsupportedAudioFileException
+	 *             If the file is not a supported format.
+	 */
+	private void readSource(final Deck deck)
+			throws IOException, UnsupportedAudioFileException {
+		int channels = deck.format.getChannels();
+		if (deck.sourceFrames > 0) {
+			int last = (deck.sourceFrames - 1) * channels;
+			deck.previous[0] = deck.source[last];
+			deck.previous[1] = deck.source[last + Math.min(1, channels - 1)];
+		}
+		deck.sourceBase += deck.sourceFrames;
+		deck.sourceFrames = 0;
+		int frameBytes = deck.format.getFrameSize();
+		int read = deck.stream.read(deck.bytes, 0,
+				deck.bytes.length / frameBytes * frameBytes);
+		if (read <= 0) {
+			// Loops without a gap: the start follows in the same chunk.
+			reopen(deck);
+			read = deck.stream.read(deck.bytes, 0,
+					deck.bytes.length / frameBytes * frameBytes);
+			if (read <= 0)
+				throw new IOException("No audio data");
+		}
+		int samples = AudioMixer.toShorts(deck.bytes,
+				read / frameBytes * frameBytes, deck.format, deck.source);
+		deck.sourceFrames = samples / channels;
+	}
+
+	/**
+	 * Closes the file of a deck and frees it.
+	 *
+	 * @param deck
+	 *            Deck to free.
+	 */
+	private void close(final Deck deck) {
+		if (deck.stream != null) {
+			try {
+				deck.stream.close();
+			} catch (IOException e) {
+				logger().warning("Closing music failed: " + e.getMessage());
+			}
+		}
+		deck.stream = null;
+		deck.format = null;
+		deck.track = null;
+		deck.state = IDLE;
+	}
+
+	/**
+	 * Adds the music to a block of the mixer, on the audio thread.
+	 *
+	 * @param accumulator
+	 *            Stereo sums of the block, added to.
+	 * @param frames
+	 *            Frames of the block.
+	 * @param volume
+	 *            Linear gain of the music bus.
+	 */
+	void mix(final int[] accumulator, final int frames, final float volume) {
+		Start start = this.started;
+		if (start != this.applied) {
+			this.applied = start;
+			apply(start);
+		}
+		for (Deck deck : this.decks) {
+			int state = deck.state;
+			if (state == PLAYING || state == FADING)
+				mixDeck(deck, accumulator, frames, volume);
+		}
+	}
+
+	/**
+	 * Cross-fades to the deck of a start.
+	 *
+	 * @param start
+	 *            Request buffered by the decoder.
+	 */
+	private void apply(final Start start) {
+		Deck next = start.deck;
+		if (next != null && next.state == DONE)
+			return;
+		int fadeFrames = start.request.fadeFrames;
+		if (this.current != null && this.current != next
+				&& this.current.state == PLAYING) {
+			this.current.state = FADING;
+			this.current.fadeTo(0, fadeFrames);
+		}
+		if (next != null) {
+			if (next != this.current && next.state != FADING)
+				next.fade = 0;
+			next.state = PLAYING;
+			next.fadeTo(1, fadeFrames);
+		}
+		this.current = next;
+	}
+
+	/**
+	 * Adds the frames of a deck to a block.
+	 *
+	 * @param deck
+	 *            Deck playing.
+	 * @param accumulator
+	 *            Stereo sums of the block, added to.
+	 * @param frames
+	 *            Frames of the block.
+	 * @param volume
+	 *            Linear gain of the music.
+	 */
+	private void mixDeck(final Deck deck, final int[] accumulator,
+			final int frames, final float volume) {
+		int i = 0;
+		while (i < frames) {
+			long position = deck.played.get();
+			if (position >= deck.filled.get()) {
+				this.underruns.incrementAndGet();
+				break;
+			}
+			int index = (int) (position % CHUNKS);
+			short[] chunk = deck.chunks[index];
+			int length = deck.lengths[index];
+			while (i < frames && deck.offset < length) {
+				if (deck.fade != deck.fadeTarget) {
+					deck.fade += deck.fade < deck.fadeTarget ? deck.fadeStep
+							: -deck.fadeStep;
+					if (Math.abs(deck.fade - deck.fadeTarget) < deck.fadeStep)
+						deck.fade = deck.fadeTarget;
+				}
+				float gain = volume * deck.fade;
+				int sample = deck.offset * AudioMixer.CHANNELS;
+				accumulator[i * AudioMixer.CHANNELS] += (int) (chunk[sample]
+						* gain);
+				accumulator[i * AudioMixer.CHANNELS + 1] += (int) (chunk[
+						sample + 1] * gain);
+				deck.offset++;
+				i++;
+			}
+			if (deck.offset == length) {
+				deck.offset = 0;
+				deck.played.lazySet(position + 1);
+				LockSupport.unpark(this.decoder);
+			}
+		}
+		if (deck.state == FADING && deck.fade == 0) {
+			deck.offset = 0;
+			deck.state = DONE;
+			LockSupport.unpark(this.decoder);
+		}
+	}
+
+	/**
+	 * @return Application logger, without initializing the game.
+	 */
+	private static Logger logger() {
+		return Logger.getLogger(Core.class.getSimpleName());
+	}
+}
@@ -0,0 +1,59 @@
+package engine;
+
+/**
+ * Audio backend playing nothing, for machines without a sound device and
+ * for simulations and benchmarks. Sounds are never even decoded.
+ */
+public final class NullAudioBackend implements AudioBackend {
+
+	@Override
+	public int play(final String sound, final float gain, final boolean loop,
+			final GainBus bus, final float pan, final float rolloff) {
+		return AudioMixer.NO_VOICE;
+	}
+
+	@Override
+	public void warmUp() {
+		// Nothing plays.
+	}
+
+	@Override
+	public void prepare(final String sound) {
+		// Nothing plays.
+	}
+
+	@Override
+	public void stop(final int handle) {
+		// Nothing plays.
+	}
+
+	@Override
+	public void stopAll(final String sound) {
+		// Nothing plays.
+	}
+
+	@Override
+	public void setGain(final String sound, final float gain) {
+		// Nothing plays.
+	}
+
+	@Override
+	public boolean isPlaying(final int handle) {
+		return false;
+	}
+
+	@Override
+	public void playMusic(final String track, final int fadeMillis) {
+		// Nothing plays.
+	}
+
+	@Override
+	public void setBusGain(final GainBus bus, final float gain) {
+		// Nothing plays.
+	}
+
+	@Override
+	public void setListener(final float pan) {
+		// Nothing plays.
+	}
+}
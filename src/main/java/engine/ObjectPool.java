@@ -0,0 +1,313 @@
+package engine;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Keeps released objects around so they can be handed out again instead
+ * of being allocated. A pool belongs to the first thread that uses it and
+ * rejects calls from any other thread, so it needs no locking. It also
+ * rejects objects it did not hand out, such as one released twice.
+ *
+ * @param <T>
+ *            Type of the pooled objects.
+ */
+public final class ObjectPool<T> {
+
+	/**
+	 * Creates a new object when the pool is empty.
+	 *
+	 * @param <T>
+	 *            Type of the pooled objects.
+	 */
+	public interface Factory<T> {
+		/**
+		 * @return A new object.
+		 */
+		T create();
+	}
+
+	/**
+	 * Clears the state of an object when it goes back to the pool.
+	 *
+	 * @param <T>
+	 *            Type of the pooled objects.
+	 */
+	public interface Resetter<T> {
+		/**
+		 * @param object
+		 *            Object being released.
+		 */
+		void reset(T object);
+	}
+
+	/**
+	 * How many objects a pool creates up front and how many it keeps.
+	 */
+	public static final class Policy {
+		/** Objects created when the pool is built. */
+		private final int prefill;
+		/** Idle objects kept, extra released objects are dropped. */
+		private final int maxIdle;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param prefill
+		 *            Objects created when the pool is built.
+		 * @param maxIdle
+		 *            Idle objects kept, extra released objects are dropped.
+		 */
+		private Policy(final int prefill, final int maxIdle) {
+			this.prefill = prefill;
+			this.maxIdle = maxIdle;
+		}
+
+		/**
+		 * Keeps every released object.
+		 *
+		 * @param prefill
+		 *            Objects created when the pool is built.
+		 * @return New policy.
+		 */
+		public static Policy unbounded(final int prefill) {
+			return new Policy(prefill, Integer.MAX_VALUE);
+		}
+
+		/**
+		 * Keeps at most a given number of idle objects.
+		 *
+		 * @param prefill
+		 *            Objects created when the pool is built.
+		 * @param maxIdle
+		 *            Idle objects kept, extra released objects are dropped.
+		 * @return New policy.
+		 */
+		public static Policy bounded(final int prefill, final int maxIdle) {
+			return new Policy(Math.min(prefill, maxIdle), maxIdle);
+		}
+	}
+
+	/** Every pool still referenced, for reporting. */
+	private static final List<WeakReference<ObjectPool<?>>> POOLS =
+			new ArrayList<WeakReference<ObjectPool<?>>>();
+
+	/** Name used in reports. */
+	private final String name;
+	/** Creates new objects. */
+	private final Factory<T> factory;
+	/** Clears released objects, may be null. */
+	private final Resetter<T> resetter;
+	/** Capacity policy. */
+	private final Policy policy;
+	/** Idle objects, most recently released on top. */
+	private final ArrayDeque<T> idle;
+	/** Objects currently handed out, by identity. */
+	private final Set<T> inUse = Collections.newSetFromMap(
+			new IdentityHashMap<T, Boolean>());
+	/** Thread the pool is confined to, null until first used. */
+	private Thread owner;
+
+	/** Objects created by the factory. */
+	private long created;
+	/** Objects handed out. */
+	private long acquired;
+	/** Objects handed out from the idle stack. */
+	private long reused;
+	/** Objects given back. */
+	private long released;
+	/** Objects given back but dropped by the policy. */
+	private long discarded;
+	/** Highest number of objects handed out at once. */
+	private int peakInUse;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param name
+	 *            Name used in reports.
+	 * @param factory
+	 *            Creates new objects.
+	 * @param resetter
+	 *            Clears released objects, may be null.
+	 * @param policy
+	 *            Capacity policy.
+	 */
+	public ObjectPool(final String name, final Factory<T> factory,
+			final Resetter<T> resetter, final Policy policy) {
+		this.name = name;
+		this.factory = factory;
+		this.resetter = resetter;
+		this.policy = policy;
+		this.idle = new ArrayDeque<T>(Math.max(16, policy.prefill));
+		prefill();
+		synchronized (POOLS) {
+			Iterator<WeakReference<ObjectPool<?>>> pools = POOLS.iterator();
+			while (pools.hasNext())
+				if (pools.next().get() == null)
+					pools.remove();
+			POOLS.add(new WeakReference<ObjectPool<?>>(this));
+		}
+	}
+
+	/**
+	 * Fills the idle stack as requested by the policy.
+	 */
+	private void prefill() {
+		for (int i = 0; i < this.policy.prefill; i++) {
+			this.idle.push(this.factory.create());
+			this.created++;
+		}
+	}
+
+	/**
+	 * Checks that the pool is used from its owner thread.
+	 */
+	private void checkThread() {
+		Thread current = Thread.currentThread();
+		if (this.owner == null)
+			this.owner = current;
+		else if (this.owner != current)
+			throw new IllegalStateException("Pool " + this.name
+					+ " is confined to " + this.owner.getName()
+					+ ", used from " + current.getName());
+	}
+
+	/**
+	 * Hands out an idle object, or a new one if there are none.
+	 *
+	 * @return Object ready to be initialized by the caller.
+	 */
+	public T acquire() {
+		checkThread();
+		T object = this.idle.poll();
+		if (object == null) {
+			object = this.factory.create();
+			this.created++;
+		} else {
+			this.reused++;
+		}
+		this.acquired++;
+		this.inUse.add(object);
+		if (this.inUse.size() > this.peakInUse)
+			this.peakInUse = this.inUse.size();
+		return object;
+	}
+
+	/**
+	 * Gives an object back. It must not be used by the caller afterwards.
+	 *
+	 * @param object
+	 *            Object to give back.
+	 * @throws IllegalStateException
+	 *             If the object is not handed out by the pool, for instance
+	 *             because it was already released.
+	 */
+	public void release(final T object) {
+		checkThread();
+		if (!this.inUse.remove(object))
+			throw new IllegalStateException("Pool " + this.name
+					+ " did not hand out the object released, or it was"
+					+ " released twice");
+		this.released++;
+		if (this.idle.size() >= this.policy.maxIdle) {
+			this.discarded++;
+			return;
+		}
+		if (this.resetter != null)
+			this.resetter.reset(object);
+		this.idle.push(object);
+	}
+
+	/**
+	 * Gives back every object of a collection.
+	 *
+	 * @param objects
+	 *            Objects to give back.
+	 */
+	public void releaseAll(final Iterable<? extends T> objects) {
+		for (T object : objects)
+			release(object);
+	}
+
+	/**
+	 * Drops every idle object, forgets the objects handed out, clears the
+	 * statistics and frees the pool to be used from another thread.
+	 */
+	public void reset() {
+		this.idle.clear();
+		this.inUse.clear();
+		this.owner = null;
+		this.created = 0;
+		this.acquired = 0;
+		this.reused = 0;
+		this.released = 0;
+		this.discarded = 0;
+		this.peakInUse = 0;
+		prefill();
+	}
+
+	/**
+	 * @return Number of idle objects.
+	 */
+	public int getIdleCount() {
+		return this.idle.size();
+	}
+
+	/**
+	 * @return Objects created by the factory.
+	 */
+	public long getCreatedCount() {
+		return this.created;
+	}
+
+	/**
+	 * @return Objects handed out from the idle stack.
+	 */
+	public long getReusedCount() {
+		return this.reused;
+	}
+
+	/**
+	 * @return Highest number of objects handed out at once.
+	 */
+	public int getPeakInUse() {
+		return this.peakInUse;
+	}
+
+	/**
+	 * @return Summary of the pool usage.
+	 */
+	@Override
+	public String toString() {
+		return this.name + " pool: " + this.acquired + " acquired ("
+				+ this.reused + " reused, " + this.created + " created), "
+				+ this.released + " released (" + this.discarded
+				+ " discarded), " + this.inUse.size() + " in use (peak "
+				+ this.peakInUse + "), " + this.idle.size() + " idle";
+	}
+
+	/**
+	 * @return Summary of every pool, one per line.
+	 */
+	public static String describeAll() {
+		StringBuilder description = new StringBuilder();
+		synchronized (POOLS) {
+			for (WeakReference<ObjectPool<?>> reference : POOLS) {
+				ObjectPool<?> pool = reference.get();
+				if (pool == null)
+					continue;
+				if (description.length() > 0)
+					description.append(System.lineSeparator());
+				description.append(pool);
+			}
+		}
+		return description.toString();
+	}
+}
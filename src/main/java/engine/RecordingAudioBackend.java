@@ -0,0 +1,226 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Audio backend recording the timeline of audio events instead of playing
+ * them, for tests. A play counts as running until it is stopped, as sounds
+ * are not decoded to know their length.
+ */
+public final class RecordingAudioBackend implements AudioBackend {
+
+	/** Kind of audio event. */
+	public enum Type {
+		/** A sound started. */
+		PLAY,
+		/** A play stopped. */
+		STOP,
+		/** Every play of a sound stopped. */
+		STOP_ALL,
+		/** The gain of a sound changed. */
+		SET_GAIN,
+		/** A music track started, or the music stopped. */
+		PLAY_MUSIC,
+		/** The gain of a bus changed. */
+		SET_BUS_GAIN,
+		/** The listener moved. */
+		SET_LISTENER
+	}
+
+	/** Audio event, as asked for by the game. */
+	public static final class Event {
+		/** Game time of the event, in milliseconds. */
+		private final long time;
+		/** Kind of event. */
+		private final Type type;
+		/** Sound, track or bus concerned, null if none. */
+		private final String name;
+		/** Handle of the play concerned, NO_VOICE if none. */
+		private final int handle;
+		/** Linear gain, or fade time in milliseconds for music. */
+		private final float value;
+		/** Position of the play or listener, from -1 to 1. */
+		private final float pan;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param time
+		 *            Game time of the event, in milliseconds.
+		 * @param type
+		 *            Kind of event.
+		 * @param name
+		 *            Sound, track or bus concerned, null if none.
+		 * @param handle
+		 *            Handle of the play concerned, NO_VOICE if none.
+		 * @param value
+		 *            Linear gain, or fade time in milliseconds for music.
+		 * @param pan
+		 *            Position of the play or listener, from -1 to 1.
+		 */
+		private Event(final long time, final Type type, final String name,
+				final int handle, final float value, final float pan) {
+			this.time = time;
+			this.type = type;
+			this.name = name;
+			this.handle = handle;
+			this.value = value;
+			this.pan = pan;
+		}
+
+		/**
+		 * @return Game time of the event, in milliseconds.
+		 */
+		public long getTime() {
+			return this.time;
+		}
+
+		/**
+		 * @return Kind of event.
+		 */
+		public Type getType() {
+			return this.type;
+		}
+
+		/**
+		 * @return Sound, track or bus concerned, null if none.
+		 */
+		public String getName() {
+			return this.name;
+		}
+
+		/**
+		 * @return Handle of the play concerned, NO_VOICE if none.
+		 */
+		public int getHandle() {
+			return this.handle;
+		}
+
+		/**
+		 * @return Linear gain, or fade time in milliseconds for music.
+		 */
+		public float getValue() {
+			return this.value;
+		}
+
+		/**
+		 * @return Position of the play or listener, from -1 to 1.
+		 */
+		public float getPan() {
+			return this.pan;
+		}
+
+		@Override
+		public String toString() {
+			return this.time + " " + this.type
+					+ (this.name != null ? " " + this.name : "");
+		}
+	}
+
+	/** Events so far, oldest first. */
+	private final List<Event> events = new ArrayList<Event>();
+	/** Sound of each play not stopped yet, by handle. */
+	private final Map<Integer, String> running = new HashMap<Integer, String>();
+	/** Last handle given out. */
+	private int lastHandle;
+
+	@Override
+	public synchronized int play(final String sound, final float gain,
+			final boolean loop, final GainBus bus, final float pan,
+			final float rolloff) {
+		int handle = ++this.lastHandle;
+		this.running.put(handle, sound);
+		record(Type.PLAY, sound, handle, gain, pan);
+		return handle;
+	}
+
+	@Override
+	public void warmUp() {
+		// Nothing to compile, sounds are only recorded.
+	}
+
+	@Override
+	public void prepare(final String sound) {
+		// Sounds are not decoded, so there is nothing to ready.
+	}
+
+	@Override
+	public synchronized void stop(final int handle) {
+		this.running.remove(handle);
+		record(Type.STOP, null, handle, 0, 0);
+	}
+
+	@Override
+	public synchronized void stopAll(final String sound) {
+		Iterator<String> plays = this.running.values().iterator();
+		while (plays.hasNext())
+			if (plays.next().equals(sound))
+				plays.remove();
+		record(Type.STOP_ALL, sound, AudioMixer.NO_VOICE, 0, 0);
+	}
+
+	@Override
+	public synchronized void setGain(final String sound, final float gain) {
+		record(Type.SET_GAIN, sound, AudioMixer.NO_VOICE, gain, 0);
+	}
+
+	@Override
+	public synchronized boolean isPlaying(final int handle) {
+		return this.running.containsKey(handle);
+	}
+
+	@Override
+	public synchronized void playMusic(final String track,
+			final int fadeMillis) {
+		record(Type.PLAY_MUSIC, track, AudioMixer.NO_VOICE, fadeMillis, 0);
+	}
+
+	@Override
+	public synchronized void setBusGain(final GainBus bus, final float gain) {
+		record(Type.SET_BUS_GAIN, bus.name(), AudioMixer.NO_VOICE, gain, 0);
+	}
+
+	@Override
+	public synchronized void setListener(final float pan) {
+		record(Type.SET_LISTENER, null, AudioMixer.NO_VOICE, 0, pan);
+	}
+
+	/**
+	 * Adds an event to the timeline.
+	 *
+	 * @param type
+	 *            Kind of event.
+	 * @param name
+	 *            Sound, track or bus concerned, null if none.
+	 * @param handle
+	 *            Handle of the play concerned, NO_VOICE if none.
+	 * @param value
+	 *            Linear gain, or fade time in milliseconds for music.
+	 * @param pan
+	 *            Position of the play or listener, from -1 to 1.
+	 */
+	private void record(final Type type, final String name, final int handle,
+			final float value, final float pan) {
+		this.events.add(new Event(GameClock.now(), type, name, handle, value,
+				pan));
+	}
+
+	/**
+	 * @return Events so far, oldest first.
+	 */
+	public synchronized List<Event> getEvents() {
+		return Collections.unmodifiableList(new ArrayList<Event>(this.events));
+	}
+
+	/**
+	 * Forgets the events so far, keeping the plays running.
+	 */
+	public synchronized void clear() {
+		this.events.clear();
+	}
+}
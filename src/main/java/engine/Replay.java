@@ -0,0 +1,703 @@
+package engine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import engine.DrawManager.SpriteType;
+import engine.GameSettings.StageType;
+
+/**
+ * Recording of one level, replayable frame by frame.
+ *
+ * A replay holds what a level starts from (the random seed, the game
+ * clock, the settings and the game state) followed by the key states read
+ * on every frame. Only the changes are stored: each event is the number of
+ * frames since the previous one and the keys that toggled, as
+ * delta-encoded varints, so a frame without changes costs nothing. Time
+ * spent in the pause menu is stored as the number of clock ticks it took.
+ * The replay ends with the final counters, which playback checks to tell
+ * whether the level was reproduced exactly.
+ */
+public final class Replay {
+
+	/** Property naming the directory replays are recorded to. */
+	public static final String RECORD_PROPERTY = "invaders.replay.record";
+	/** Property naming a replay to play back headless instead of playing. */
+	public static final String PLAY_PROPERTY = "invaders.replay.play";
+
+	/** Marks a replay file, "INVR" in little-endian order. */
+	private static final int MAGIC = 0x52564E49;
+	/** Current format version, older ones are not played back. */
+	private static final int VERSION = 2;
+
+	/**
+	 * Utility class.
+	 */
+	private Replay() {
+	}
+
+	/** What a recorded level starts from. */
+	public static final class Header {
+		/** Seed of the game random generator. */
+		private final long seed;
+		/** Game clock time of the first frame. */
+		private final long startTime;
+		/** Frames per second. */
+		private final int fps;
+		/** Screen width. */
+		private final int width;
+		/** Screen height. */
+		private final int height;
+		/** Settings of the level. */
+		private final GameSettings settings;
+		/** State the level starts from. */
+		private final GameState state;
+		/** Checks if a bonus life is awarded this level. */
+		private final boolean bonusLife;
+		/** Sprite of the player's ship. */
+		private final SpriteType shipType;
+		/** Width of the player's ship. */
+		private final int shipWidth;
+		/** Height of the player's ship. */
+		private final int shipHeight;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param seed
+		 *            Seed of the game random generator.
+		 * @param startTime
+		 *            Game clock time of the first frame.
+		 * @param fps
+		 *            Frames per second.
+		 * @param width
+		 *            Screen width.
+		 * @param height
+		 *            Screen height.
+		 * @param settings
+		 *            Settings of the level.
+		 * @param state
+		 *            State the level starts from.
+		 * @param bonusLife
+		 *            Checks if a bonus life is awarded this level.
+		 * @param design
+		 *            Design of the player's ship.
+		 */
+		public Header(final long seed, final long startTime, final int fps,
+				final int width, final int height,
+				final GameSettings settings, final GameState state,
+				final boolean bonusLife, final DesignSetting design) {
+			this(seed, startTime, fps, width, height, settings, state,
+					bonusLife,
+					design.getShipType(), design.getSizeX(),
+					design.getSizeY());
+		}
+
+		/**
+		 * Constructor.
+		 *
+		 * @param seed
+		 *            Seed of the game random generator.
+		 * @param startTime
+		 *            Game clock time of the first frame.
+		 * @param fps
+		 *            Frames per second.
+		 * @param width
+		 *            Screen width.
+		 * @param height
+		 *            Screen height.
+		 * @param settings
+		 *            Settings of the level.
+		 * @param state
+		 *            State the level starts from.
+		 * @param bonusLife
+		 *            Checks if a bonus life is awarded this level.
+		 * @param shipType
+		 *            Sprite of the player's ship.
+		 * @param shipWidth
+		 *            Width of the player's ship.
+		 * @param shipHeight
+		 *            Height of the player's ship.
+		 */
+		private Header(final long seed, final long startTime, final int fps,
+				final int width, final int height,
+				final GameSettings settings, final GameState state,
+				final boolean bonusLife, final SpriteType shipType,
+				final int shipWidth, final int shipHeight) {
+			this.seed = seed;
+			this.startTime = startTime;
+			this.fps = fps;
+			this.width = width;
+			this.height = height;
+			this.settings = settings;
+			this.state = state;
+			this.bonusLife = bonusLife;
+			this.shipType = shipType;
+			this.shipWidth = shipWidth;
+			this.shipHeight = shipHeight;
+		}
+
+		/**
+		 * @return Seed of the game random generator.
+		 */
+		public long getSeed() {
+			return this.seed;
+		}
+
+		/**
+		 * @return Game clock time of the first frame.
+		 */
+		public long getStartTime() {
+			return this.startTime;
+		}
+
+		/**
+		 * @return Frames per second.
+		 */
+		public int getFps() {
+			return this.fps;
+		}
+
+		/**
+		 * @return Screen width.
+		 */
+		public int getWidth() {
+			return this.width;
+		}
+
+		/**
+		 * @return Screen height.
+		 */
+		public int getHeight() {
+			return this.height;
+		}
+
+		/**
+		 * @return Settings of the level.
+		 */
+		public GameSettings getSettings() {
+			return this.settings;
+		}
+
+		/**
+		 * @return State the level starts from.
+		 */
+		public GameState getState() {
+			return this.state;
+		}
+
+		/**
+		 * @return True if a bonus life is awarded this level.
+		 */
+		public boolean isBonusLife() {
+			return this.bonusLife;
+		}
+
+		/**
+		 * @return Design of the player's ship.
+		 */
+		public DesignSetting createDesign() {
+			DesignSetting design = new DesignSetting(this.shipType);
+			design.setShipSize(this.shipWidth, this.shipHeight);
+			return design;
+		}
+	}
+
+	/** Counters of a level when it ends. */
+	public static final class Outcome {
+		/** Score. */
+		private final int score;
+		/** Lives left. */
+		private final int lives;
+		/** Bullets shot. */
+		private final int bulletsShot;
+		/** Ships destroyed. */
+		private final int shipsDestroyed;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param score
+		 *            Score.
+		 * @param lives
+		 *            Lives left.
+		 * @param bulletsShot
+		 *            Bullets shot.
+		 * @param shipsDestroyed
+		 *            Ships destroyed.
+		 */
+		public Outcome(final int score, final int lives,
+				final int bulletsShot, final int shipsDestroyed) {
+			this.score = score;
+			this.lives = lives;
+			this.bulletsShot = bulletsShot;
+			this.shipsDestroyed = shipsDestroyed;
+		}
+
+		@Override
+		public boolean equals(final Object other) {
+			if (!(other instanceof Outcome))
+				return false;
+			Outcome outcome = (Outcome) other;
+			return this.score == outcome.score && this.lives == outcome.lives
+					&& this.bulletsShot == outcome.bulletsShot
+					&& this.shipsDestroyed == outcome.shipsDestroyed;
+		}
+
+		@Override
+		public int hashCode() {
+			return ((this.score * 31 + this.lives) * 31 + this.bulletsShot)
+					* 31 + this.shipsDestroyed;
+		}
+
+		@Override
+		public String toString() {
+			return "score " + this.score + ", " + this.lives + " lives, "
+					+ this.bulletsShot + " bullets shot, "
+					+ this.shipsDestroyed + " ships destroyed";
+		}
+	}
+
+	/** Records the frames of a level as they are played. */
+	public static final class Recorder {
+		/** Header of the replay. */
+		private final Header header;
+		/** Encoded frame events. */
+		private final ByteArrayOutputStream events =
+				new ByteArrayOutputStream();
+		/** Key states of the previous frame. */
+		private final boolean[] previous = new boolean[InputManager.NUM_KEYS];
+		/** Frames recorded. */
+		private long frame;
+		/** Frame of the last event. */
+		private long lastEvent;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param header
+		 *            What the level starts from.
+		 */
+		public Recorder(final Header header) {
+			this.header = header;
+		}
+
+		/**
+		 * Records the key states of a new frame.
+		 *
+		 * @param keys
+		 *            Key states read by the frame.
+		 */
+		public void frame(final boolean[] keys) {
+			this.frame++;
+			int count = 0;
+			for (int i = 0; i < keys.length; i++)
+				if (keys[i] != this.previous[i])
+					count++;
+			if (count == 0)
+				return;
+
+			startEvent(count << 1);
+			int last = 0;
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != this.previous[i]) {
+					writeVarint(this.events, i - last);
+					last = i;
+					this.previous[i] = keys[i];
+				}
+			}
+		}
+
+		/**
+		 * Records a visit to the pause menu during the current frame.
+		 *
+		 * @param ticks
+		 *            Clock ticks spent in the pause menu.
+		 */
+		public void pause(final long ticks) {
+			startEvent(1);
+			writeVarint(this.events, ticks);
+		}
+
+		/**
+		 * Starts an event at the current frame.
+		 *
+		 * @param kind
+		 *            Number of toggled keys shifted left, or 1 for a pause.
+		 */
+		private void startEvent(final int kind) {
+			writeVarint(this.events, this.frame - this.lastEvent);
+			writeVarint(this.events, kind);
+			this.lastEvent = this.frame;
+		}
+
+		/**
+		 * @return Frames recorded.
+		 */
+		public long getFrameCount() {
+			return this.frame;
+		}
+
+		/**
+		 * Ends the recording and encodes it.
+		 *
+		 * @param outcome
+		 *            Counters of the level when it ended.
+		 * @return Encoded replay.
+		 */
+		public byte[] finish(final Outcome outcome) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(
+					64 + this.events.size());
+			writeInt(out, MAGIC);
+			writeInt(out, VERSION);
+			writeVarint(out, this.header.seed);
+			writeVarint(out, this.header.startTime);
+			writeVarint(out, this.header.fps);
+			writeVarint(out, this.header.width);
+			writeVarint(out, this.header.height);
+			GameSettings settings = this.header.settings;
+			writeVarint(out, settings.getFormationWidth());
+			writeVarint(out, settings.getFormationHeight());
+			writeVarint(out, settings.getBaseSpeed());
+			writeVarint(out, settings.getShootingFrecuency());
+			writeVarint(out, settings.getStageType().ordinal());
+			for (int type = 0; type < 3; type++)
+				writeVarint(out, settings.getEnemyShare(type));
+			writeVarint(out, settings.getDropChance());
+			for (int kind = 0; kind < GameSettings.DROP_KINDS; kind++)
+				writeVarint(out, settings.getDropWeight(kind));
+			writeVarint(out, settings.getBonusTime());
+			writeString(out, settings.getTitle());
+			GameState state = this.header.state;
+			writeVarint(out, state.getLevel());
+			writeVarint(out, state.getScore());
+			writeVarint(out, state.getLivesRemaining());
+			writeVarint(out, state.getBulletsShot());
+			writeVarint(out, state.getShipsDestroyed());
+			writeVarint(out, state.getBoomTimes());
+			writeVarint(out, state.getUltimateTimes());
+			for (int coolTime : state.getSkillCool())
+				writeVarint(out, coolTime);
+			writeVarint(out, this.header.bonusLife ? 1 : 0);
+			writeString(out, this.header.shipType.name());
+			writeVarint(out, this.header.shipWidth);
+			writeVarint(out, this.header.shipHeight);
+
+			byte[] recorded = this.events.toByteArray();
+			out.write(recorded, 0, recorded.length);
+			// End marker: frames until the end and no toggled keys.
+			writeVarint(out, this.frame - this.lastEvent);
+			writeVarint(out, 0);
+			writeVarint(out, outcome.score);
+			writeVarint(out, outcome.lives);
+			writeVarint(out, outcome.bulletsShot);
+			writeVarint(out, outcome.shipsDestroyed);
+			return out.toByteArray();
+		}
+
+		/**
+		 * Ends the recording and writes it to a new file.
+		 *
+		 * @param directory
+		 *            Directory to write the replay to.
+		 * @param outcome
+		 *            Counters of the level when it ended.
+		 * @return Replay file written.
+		 * @throws IOException
+		 *             In case of writing problems.
+		 */
+		public Path save(final Path directory, final Outcome outcome)
+				throws IOException {
+			Files.createDirectories(directory);
+			Path file = directory.resolve("replay-"
+					+ this.header.state.getLevel() + "-"
+					+ System.currentTimeMillis() + ".rep");
+			AtomicFiles.replace(file, ByteBuffer.wrap(finish(outcome)));
+			return file;
+		}
+	}
+
+	/** Feeds a recorded level back frame by frame. */
+	public static final class Player {
+		/** Encoded replay. */
+		private final byte[] data;
+		/** Header of the replay. */
+		private final Header header;
+		/** Position of the next event in the data. */
+		private int position;
+		/** Frame of the next event. */
+		private long nextEvent;
+		/** Kind of the next event, as written by the recorder. */
+		private int nextKind;
+		/** Frames played back. */
+		private long frame;
+		/** Counters the level ended with when recorded, null until read. */
+		private Outcome expected;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param data
+		 *            Encoded replay.
+		 * @throws IOException
+		 *             If the data is not a valid replay.
+		 */
+		public Player(final byte[] data) throws IOException {
+			this.data = data;
+			try {
+				if (readInt() != MAGIC)
+					throw new IOException("Not a replay file");
+				int version = readInt();
+				if (version != VERSION)
+					throw new IOException("Unsupported replay version "
+							+ version);
+				long seed = readVarint();
+				long startTime = readVarint();
+				int fps = (int) readVarint();
+				int width = (int) readVarint();
+				int height = (int) readVarint();
+				int formationWidth = (int) readVarint();
+				int formationHeight = (int) readVarint();
+				int baseSpeed = (int) readVarint();
+				int shooting = (int) readVarint();
+				StageType stageType = StageType.values()[(int) readVarint()];
+				int[] enemyMix = new int[3];
+				for (int i = 0; i < enemyMix.length; i++)
+					enemyMix[i] = (int) readVarint();
+				int dropChance = (int) readVarint();
+				int[] dropWeights = new int[GameSettings.DROP_KINDS];
+				for (int i = 0; i < dropWeights.length; i++)
+					dropWeights[i] = (int) readVarint();
+				int bonusTime = (int) readVarint();
+				GameSettings settings = new GameSettings(formationWidth,
+						formationHeight, baseSpeed, shooting, stageType,
+						enemyMix, dropChance, dropWeights, bonusTime,
+						readString());
+				int level = (int) readVarint();
+				int score = (int) readVarint();
+				int lives = (int) readVarint();
+				int bulletsShot = (int) readVarint();
+				int shipsDestroyed = (int) readVarint();
+				int boomTimes = (int) readVarint();
+				int ultimateTimes = (int) readVarint();
+				int[] skillCool = new int[4];
+				for (int i = 0; i < skillCool.length; i++)
+					skillCool[i] = (int) readVarint();
+				boolean bonusLife = readVarint() != 0;
+				String ship = readString();
+				int shipWidth = (int) readVarint();
+				int shipHeight = (int) readVarint();
+				this.header = new Header(seed, startTime, fps, width, height,
+						settings,
+						new GameState(level, score, lives, bulletsShot,
+								shipsDestroyed, boomTimes, skillCool,
+								ultimateTimes),
+						bonusLife, SpriteType.valueOf(ship), shipWidth,
+						shipHeight);
+				readEvent();
+			} catch (RuntimeException e) {
+				throw new IOException("Corrupted replay", e);
+			}
+		}
+
+		/**
+		 * Reads a replay file.
+		 *
+		 * @param path
+		 *            Replay file.
+		 * @return Player of the replay.
+		 * @throws IOException
+		 *             If the file cannot be read or is not a valid replay.
+		 */
+		public static Player read(final Path path) throws IOException {
+			return new Player(Files.readAllBytes(path));
+		}
+
+		/**
+		 * @return What the level starts from.
+		 */
+		public Header getHeader() {
+			return this.header;
+		}
+
+		/**
+		 * Steps to the next frame and fills in its key states.
+		 *
+		 * @param keys
+		 *            Key states of the previous frame, updated in place.
+		 * @return False if the recording has no more frames.
+		 * @throws IOException
+		 *             If the replay is corrupted.
+		 */
+		public boolean frame(final boolean[] keys) throws IOException {
+			if (this.expected != null && this.frame >= this.nextEvent)
+				return false;
+			this.frame++;
+			try {
+				while (this.expected == null && this.nextEvent <= this.frame) {
+					if ((this.nextKind & 1) != 0) {
+						if (this.nextEvent == this.frame)
+							break;
+						// A pause the playback never reached: it diverged.
+						readVarint();
+						readEvent();
+						continue;
+					}
+					int last = 0;
+					for (int i = this.nextKind >> 1; i > 0; i--) {
+						last += (int) readVarint();
+						keys[last] = !keys[last];
+					}
+					readEvent();
+				}
+			} catch (RuntimeException e) {
+				throw new IOException("Corrupted replay", e);
+			}
+			return true;
+		}
+
+		/**
+		 * Returns the clock ticks spent in the pause menu in the current
+		 * frame, when the recorded player paused.
+		 *
+		 * @return Ticks spent paused, 0 if the recording did not pause.
+		 * @throws IOException
+		 *             If the replay is corrupted.
+		 */
+		public long pause() throws IOException {
+			if (this.expected != null || this.nextEvent != this.frame
+					|| (this.nextKind & 1) == 0)
+				return 0;
+			try {
+				long ticks = readVarint();
+				readEvent();
+				return ticks;
+			} catch (RuntimeException e) {
+				throw new IOException("Corrupted replay", e);
+			}
+		}
+
+		/**
+		 * @return Frames played back.
+		 */
+		public long getFrameCount() {
+			return this.frame;
+		}
+
+		/**
+		 * @return Counters the level ended with when recorded.
+		 */
+		public Outcome getExpected() {
+			return this.expected;
+		}
+
+		/**
+		 * Reads the header of the next event, or the final counters at the
+		 * end marker.
+		 */
+		private void readEvent() {
+			this.nextEvent += readVarint();
+			this.nextKind = (int) readVarint();
+			if (this.nextKind == 0)
+				this.expected = new Outcome((int) readVarint(),
+						(int) readVarint(), (int) readVarint(),
+						(int) readVarint());
+		}
+
+		/**
+		 * @return Next little-endian int.
+		 */
+		private int readInt() {
+			int value = 0;
+			for (int i = 0; i < 4; i++)
+				value |= (this.data[this.position++] & 0xFF) << (8 * i);
+			return value;
+		}
+
+		/**
+		 * @return Next string, possibly null.
+		 */
+		private String readString() {
+			int length = (int) readVarint();
+			if (length == 0)
+				return null;
+			String value = new String(this.data, this.position, length - 1,
+					StandardCharsets.UTF_8);
+			this.position += length - 1;
+			return value;
+		}
+
+		/**
+		 * @return Next varint.
+		 */
+		private long readVarint() {
+			long value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				if (shift > 63)
+					throw new IllegalStateException("Varint too long");
+				b = this.data[this.position++];
+				value |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return value;
+		}
+	}
+
+	/**
+	 * Writes a little-endian int.
+	 *
+	 * @param out
+	 *            Stream to write to.
+	 * @param value
+	 *            Value to write.
+	 */
+	private static void writeInt(final ByteArrayOutputStream out,
+			final int value) {
+		for (int i = 0; i < 4; i++)
+			out.write(value >>> (8 * i));
+	}
+
+	/**
+	 * Writes a varint, 7 bits per byte with the high bit set on all but
+	 * the last byte. Negative ints take 10 bytes, which no field needs.
+	 *
+	 * @param out
+	 *            Stream to write to.
+	 * @param value
+	 *            Value to write.
+	 */
+	private static void writeVarint(final ByteArrayOutputStream out,
+			final long value) {
+		long remaining = value;
+		while ((remaining & ~0x7FL) != 0) {
+			out.write((int) (remaining & 0x7F) | 0x80);
+			remaining >>>= 7;
+		}
+		out.write((int) remaining);
+	}
+
+	/**
+	 * Writes a UTF-8 string after its length plus one, 0 standing for null.
+	 *
+	 * @param out
+	 *            Stream to write to.
+	 * @param value
+	 *            String to write, possibly null.
+	 */
+	private static void writeString(final ByteArrayOutputStream out,
+			final String value) {
+		if (value == null) {
+			writeVarint(out, 0);
+			return;
+		}
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		writeVarint(out, bytes.length + 1);
+		out.write(bytes, 0, bytes.length);
+	}
+}
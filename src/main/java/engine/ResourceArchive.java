@@ -0,0 +1,252 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Packed archive of the game resources, memory-mapped when opened.
+ *
+ * The archive starts with a magic number, a format version and an index
+ * listing the name, offset, length and checksum of every resource,
+ * followed by the resources themselves. Resources are served as read-only
+ * views of the mapping, so nothing is copied until the loaders read it.
+ */
+public final class ResourceArchive {
+
+	/** Marks an archive, "INVP" in little-endian order. */
+	private static final int MAGIC = 0x50564E49;
+	/** Current format version. */
+	private static final int VERSION = 1;
+	/** Bytes of an index entry besides the name itself. */
+	private static final int ENTRY_SIZE = 18;
+
+	/** Location of a resource in the archive. */
+	private static final class Entry {
+		/** Offset of the resource in the archive. */
+		private final int offset;
+		/** Length of the resource. */
+		private final int length;
+		/** Checksum of the resource. */
+		private final int crc;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param offset
+		 *            Offset of the resource in the archive.
+		 * @param length
+		 *            Length of the resource.
+		 * @param crc
+		 *            Checksum of the resource.
+		 */
+		private Entry(final int offset, final int length, final int crc) {
+			this.offset = offset;
+			this.length = length;
+			this.crc = crc;
+		}
+	}
+
+	/** Mapped archive. */
+	private final ByteBuffer mapping;
+	/** Resources by name, in archive order. */
+	private final Map<String, Entry> entries;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param mapping
+	 *            Mapped archive.
+	 * @param entries
+	 *            Resources by name.
+	 */
+	private ResourceArchive(final ByteBuffer mapping,
+			final Map<String, Entry> entries) {
+		this.mapping = mapping;
+		this.entries = entries;
+	}
+
+	/**
+	 * Maps an archive.
+	 *
+	 * @param path
+	 *            Archive file.
+	 * @return Opened archive.
+	 * @throws IOException
+	 *             If the file is not a valid archive.
+	 */
+	public static ResourceArchive open(final Path path) throws IOException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		MappedByteBuffer mapping;
+		try {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Resource archive too large");
+			// The mapping stays valid once the channel is closed.
+			mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			channel.close();
+		}
+		mapping.order(ByteOrder.LITTLE_ENDIAN);
+
+		try {
+			if (mapping.getInt() != MAGIC)
+				throw new IOException("Not a resource archive");
+			int version = mapping.getInt();
+			if (version > VERSION)
+				throw new IOException("Unsupported archive version "
+						+ version);
+			int count = mapping.getInt();
+			Map<String, Entry> entries = new LinkedHashMap<String, Entry>();
+			for (int i = 0; i < count; i++) {
+				byte[] name = new byte[mapping.getShort() & 0xFFFF];
+				mapping.get(name);
+				int offset = mapping.getInt();
+				int length = mapping.getInt();
+				int crc = mapping.getInt();
+				mapping.getInt(); // Reserved.
+				if (offset < 0 || length < 0
+						|| offset > mapping.capacity() - length)
+					throw new IOException("Corrupted archive entry");
+				entries.put(new String(name, StandardCharsets.UTF_8),
+						new Entry(offset, length, crc));
+			}
+			return new ResourceArchive(mapping, entries);
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupted resource archive", e);
+		}
+	}
+
+	/**
+	 * Returns a resource.
+	 *
+	 * @param name
+	 *            Resource name, relative to the resource root with '/'
+	 *            separators.
+	 * @return Read-only view of the resource, null if it is not archived.
+	 */
+	public ByteBuffer get(final String name) {
+		Entry entry = this.entries.get(name);
+		if (entry == null)
+			return null;
+		ByteBuffer view = this.mapping.duplicate();
+		view.limit(entry.offset + entry.length).position(entry.offset);
+		return view.slice().asReadOnlyBuffer();
+	}
+
+	/**
+	 * @return Names of the archived resources.
+	 */
+	public List<String> getNames() {
+		return Collections.unmodifiableList(
+				new ArrayList<String>(this.entries.keySet()));
+	}
+
+	/**
+	 * Checks every resource against its checksum.
+	 *
+	 * @return Name of the first damaged resource, null if all are intact.
+	 */
+	public String verify() {
+		for (Map.Entry<String, Entry> entry : this.entries.entrySet()) {
+			ByteBuffer contents = get(entry.getKey());
+			CRC32 crc = new CRC32();
+			crc.update(contents);
+			if ((int) crc.getValue() != entry.getValue().crc)
+				return entry.getKey();
+		}
+		return null;
+	}
+
+	/**
+	 * Packs every file under a directory into an archive.
+	 *
+	 * @param directory
+	 *            Resource root.
+	 * @param target
+	 *            Archive to write.
+	 * @return Number of resources packed.
+	 * @throws IOException
+	 *             In case of reading or writing problems.
+	 */
+	public static int pack(final Path directory, final Path target)
+			throws IOException {
+		List<Path> files = new ArrayList<Path>();
+		Stream<Path> walk = Files.walk(directory);
+		try {
+			walk.filter(Files::isRegularFile).sorted()
+					.forEach(files::add);
+		} finally {
+			walk.close();
+		}
+
+		List<byte[]> names = new ArrayList<byte[]>(files.size());
+		int indexSize = 12;
+		long size = 0;
+		for (Path file : files) {
+			byte[] name = directory.relativize(file).toString()
+					.replace(file.getFileSystem().getSeparator(), "/")
+					.getBytes(StandardCharsets.UTF_8);
+			names.add(name);
+			indexSize += ENTRY_SIZE + name.length;
+			size += Files.size(file);
+		}
+		if (indexSize + size > Integer.MAX_VALUE)
+			throw new IOException("Resources too large to pack");
+
+		ByteBuffer archive = ByteBuffer.allocate((int) (indexSize + size))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		archive.putInt(MAGIC).putInt(VERSION).putInt(files.size());
+		int offset = indexSize;
+		for (int i = 0; i < files.size(); i++) {
+			byte[] contents = Files.readAllBytes(files.get(i));
+			CRC32 crc = new CRC32();
+			crc.update(contents, 0, contents.length);
+			archive.putShort((short) names.get(i).length).put(names.get(i));
+			archive.putInt(offset).putInt(contents.length);
+			archive.putInt((int) crc.getValue()).putInt(0);
+			archive.mark();
+			archive.position(offset);
+			archive.put(contents);
+			archive.reset();
+			offset += contents.length;
+		}
+		archive.clear();
+		AtomicFiles.replace(target, archive);
+		return files.size();
+	}
+
+	/**
+	 * Packs a resource directory from the command line.
+	 *
+	 * @param args
+	 *            Resource root and archive to write.
+	 * @throws IOException
+	 *             In case of reading or writing problems.
+	 */
+	public static void main(final String[] args) throws IOException {
+		if (args.length != 2) {
+			System.err.println("Usage: ResourceArchive <directory> <archive>");
+			System.exit(1);
+		}
+		int count = pack(Paths.get(args[0]), Paths.get(args[1]));
+		String damaged = open(Paths.get(args[1])).verify();
+		if (damaged != null)
+			throw new IOException("Packed resource " + damaged + " is damaged");
+		System.out.println("Packed " + count + " resources into " + args[1]);
+	}
+}
@@ -0,0 +1,266 @@
+package engine;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Finds the game resources and serves them as read-only buffers.
+ *
+ * Resources are looked up in the packed archive first, then on the
+ * classpath, then under the source resource directory, so the game runs
+ * the same from a packed build, a jar or the source tree. Archived and
+ * file system resources are memory-mapped; resources inside a jar are read
+ * once. Buffers are cached, every call gets its own view.
+ */
+public final class Resources {
+
+	/** Property naming the archive to use. */
+	public static final String ARCHIVE_PROPERTY = "invaders.resources";
+	/** Default archive file name. */
+	public static final String DEFAULT_ARCHIVE = "resources.pak";
+	/** Resource directory of the source tree. */
+	private static final String RESOURCE_DIRECTORY = "src/main/resources";
+
+	/** Resources already found, by name. */
+	private static final ConcurrentMap<String, ByteBuffer> CACHE =
+			new ConcurrentHashMap<String, ByteBuffer>();
+	/** Opened archive, null if there is none. */
+	private static ResourceArchive archive;
+	/** Checks if the archive was looked for. */
+	private static boolean archiveLoaded;
+
+	/**
+	 * Utility class.
+	 */
+	private Resources() {
+	}
+
+	/**
+	 * Returns a resource.
+	 *
+	 * @param name
+	 *            Resource name, relative to the resource root with '/'
+	 *            separators.
+	 * @return Read-only view of the resource, positioned at its start.
+	 * @throws IOException
+	 *             If the resource cannot be found or read.
+	 */
+	public static ByteBuffer get(final String name) throws IOException {
+		ByteBuffer contents = CACHE.get(name);
+		if (contents == null) {
+			contents = find(name);
+			ByteBuffer existing = CACHE.putIfAbsent(name, contents);
+			if (existing != null)
+				contents = existing;
+		}
+		return contents.duplicate();
+	}
+
+	/**
+	 * Opens a resource as a stream over its buffer.
+	 *
+	 * @param name
+	 *            Resource name.
+	 * @return Stream over the resource, supporting mark and reset.
+	 * @throws IOException
+	 *             If the resource cannot be found or read.
+	 */
+	public static InputStream open(final String name) throws IOException {
+		return new BufferInputStream(get(name));
+	}
+
+	/**
+	 * Uses a given archive instead of looking for one, and forgets the
+	 * resources found so far.
+	 *
+	 * @param resourceArchive
+	 *            Archive to use, null to use none.
+	 */
+	public static synchronized void setArchive(
+			final ResourceArchive resourceArchive) {
+		archive = resourceArchive;
+		archiveLoaded = true;
+		CACHE.clear();
+	}
+
+	/**
+	 * Looks a resource up in the archive, the classpath and the source
+	 * tree.
+	 *
+	 * @param name
+	 *            Resource name.
+	 * @return Read-only buffer of the resource.
+	 * @throws IOException
+	 *             If the resource cannot be found or read.
+	 */
+	private static ByteBuffer find(final String name) throws IOException {
+		ResourceArchive resourceArchive = getArchive();
+		if (resourceArchive != null) {
+			ByteBuffer contents = resourceArchive.get(name);
+			if (contents != null)
+				return contents;
+		}
+
+		URL url = Resources.class.getClassLoader().getResource(name);
+		if (url != null) {
+			if ("file".equals(url.getProtocol())) {
+				try {
+					return map(Paths.get(url.toURI()));
+				} catch (URISyntaxException e) {
+					throw new IOException(e);
+				}
+			}
+			InputStream inputStream = url.openStream();
+			try {
+				return ByteBuffer.wrap(readAll(inputStream))
+						.asReadOnlyBuffer();
+			} finally {
+				inputStream.close();
+			}
+		}
+
+		Path file = Paths.get(RESOURCE_DIRECTORY, name);
+		if (Files.isRegularFile(file))
+			return map(file);
+		throw new FileNotFoundException("Resource " + name + " not found");
+	}
+
+	/**
+	 * Returns the archive, opening it on first use. The archive named by
+	 * the property is used if set, otherwise the default archive in the
+	 * working directory, if present.
+	 *
+	 * @return Opened archive, null if there is none.
+	 * @throws IOException
+	 *             If the archive exists but cannot be opened.
+	 */
+	private static synchronized ResourceArchive getArchive()
+			throws IOException {
+		if (!archiveLoaded) {
+			Path path = Paths.get(System.getProperty(ARCHIVE_PROPERTY,
+					DEFAULT_ARCHIVE));
+			if (Files.isRegularFile(path))
+				archive = ResourceArchive.open(path);
+			archiveLoaded = true;
+		}
+		return archive;
+	}
+
+	/**
+	 * Maps a file.
+	 *
+	 * @param file
+	 *            File to map.
+	 * @return Read-only mapping of the file.
+	 * @throws IOException
+	 *             If the file cannot be mapped.
+	 */
+	private static ByteBuffer map(final Path file) throws IOException {
+		FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+		try {
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0,
+					channel.size());
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * Reads a stream to its end.
+	 *
+	 * @param inputStream
+	 *            Stream to read.
+	 * @return Bytes read.
+	 * @throws IOException
+	 *             If the stream fails.
+	 */
+	private static byte[] readAll(final InputStream inputStream)
+			throws IOException {
+		byte[] buffer = new byte[8192];
+		int length = 0;
+		int read;
+		while ((read = inputStream.read(buffer, length,
+				buffer.length - length)) >= 0) {
+			length += read;
+			if (length == buffer.length)
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		return Arrays.copyOf(buffer, length);
+	}
+
+	/**
+	 * Stream over a buffer, without copying it.
+	 */
+	private static final class BufferInputStream extends InputStream {
+		/** Buffer read. */
+		private final ByteBuffer buffer;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param buffer
+		 *            Buffer to read.
+		 */
+		private BufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+			this.buffer.mark();
+		}
+
+		@Override
+		public int read() {
+			return this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(final byte[] bytes, final int offset,
+				final int length) {
+			if (length == 0)
+				return 0;
+			if (!this.buffer.hasRemaining())
+				return -1;
+			int count = Math.min(length, this.buffer.remaining());
+			this.buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public long skip(final long count) {
+			int skipped = (int) Math.max(0,
+					Math.min(count, this.buffer.remaining()));
+			this.buffer.position(this.buffer.position() + skipped);
+			return skipped;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+
+		@Override
+		public boolean markSupported() {
+			return true;
+		}
+
+		@Override
+		public synchronized void mark(final int readLimit) {
+			this.buffer.mark();
+		}
+
+		@Override
+		public synchronized void reset() {
+			this.buffer.reset();
+		}
+	}
+}
@@ -0,0 +1,272 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Writes saved games on a background thread, so saving never stalls a
+ * frame.
+ *
+ * The caller captures a snapshot on the game thread and hands it over.
+ * The worker stores it in a save slot, where full rewrites go through a
+ * temporary file that is forced to disk and atomically moved over the
+ * slot, and deltas are appended with a checksum, so a crash never leaves
+ * a torn save. Slot 0 holds the autosave, quick saves rotate over the
+ * following slots, replacing the oldest one. If several saves for the
+ * same slot are requested while one is being written, only the latest is
+ * written next.
+ */
+public final class SaveService {
+
+	/** Progress of the latest save request. */
+	public enum Status {
+		/** Nothing saved yet. */
+		IDLE,
+		/** A save is being written. */
+		SAVING,
+		/** The latest save is on disk. */
+		SAVED,
+		/** The latest save failed. */
+		FAILED
+	}
+
+	/** Slot holding the autosave. */
+	public static final int AUTOSAVE_SLOT = 0;
+	/** Request key for a quick save, whose slot is picked by the worker. */
+	private static final int QUICK_SAVE = -1;
+
+	/** Slots the saves are stored in. */
+	private final SaveSlots slots;
+	/** Number of slots quick saves rotate over. */
+	private final int quickSlots;
+	/** Writes the saves. */
+	private final ExecutorService worker;
+	/** Guards the pending snapshots and the status. */
+	private final Object lock = new Object();
+	/** Snapshots waiting to be written, by slot. */
+	private final Map<Integer, GameSnapshot> pending =
+			new LinkedHashMap<Integer, GameSnapshot>();
+	/** Checks if the worker has been asked to write the pending snapshots. */
+	private boolean scheduled;
+	/** Application logger. */
+	private final Logger logger;
+
+	/** Progress of the latest save request. */
+	private volatile Status status = Status.IDLE;
+	/** Moment the status last changed. */
+	private volatile long statusTime;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directory
+	 *            Directory holding the save slots.
+	 * @param quickSlots
+	 *            Number of slots quick saves rotate over.
+	 */
+	public SaveService(final Path directory, final int quickSlots) {
+		this.slots = new SaveSlots(directory);
+		this.quickSlots = Math.max(1, quickSlots);
+		this.logger = Core.getLogger();
+		this.worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(final Runnable runnable) {
+				Thread thread = new Thread(runnable, "save-worker");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+	/**
+	 * Requests a quick save, stored over the oldest quick save slot.
+	 * Returns at once, the snapshot is written later.
+	 *
+	 * @param snapshot
+	 *            Snapshot captured on the game thread. It must not be
+	 *            modified afterwards.
+	 */
+	public void save(final GameSnapshot snapshot) {
+		request(QUICK_SAVE, snapshot);
+	}
+
+	/**
+	 * Requests an autosave. Returns at once, the snapshot is written later.
+	 *
+	 * @param snapshot
+	 *            Snapshot captured on the game thread. It must not be
+	 *            modified afterwards.
+	 */
+	public void autosave(final GameSnapshot snapshot) {
+		request(AUTOSAVE_SLOT, snapshot);
+	}
+
+	/**
+	 * Queues a snapshot and wakes the worker if needed.
+	 *
+	 * @param slot
+	 *            Slot to save to, or QUICK_SAVE.
+	 * @param snapshot
+	 *            Snapshot to save.
+	 */
+	private void request(final int slot, final GameSnapshot snapshot) {
+		synchronized (this.lock) {
+			this.pending.put(slot, snapshot);
+			setStatus(Status.SAVING);
+			if (this.scheduled)
+				return;
+			this.scheduled = true;
+		}
+		this.worker.execute(new Runnable() {
+			@Override
+			public void run() {
+				writePending();
+			}
+		});
+	}
+
+	/**
+	 * Writes the requested snapshots until none is left, on the worker
+	 * thread.
+	 */
+	private void writePending() {
+		while (true) {
+			int slot;
+			GameSnapshot snapshot;
+			synchronized (this.lock) {
+				Iterator<Map.Entry<Integer, GameSnapshot>> next =
+						this.pending.entrySet().iterator();
+				if (!next.hasNext()) {
+					this.scheduled = false;
+					return;
+				}
+				Map.Entry<Integer, GameSnapshot> request = next.next();
+				slot = request.getKey();
+				snapshot = request.getValue();
+				next.remove();
+			}
+
+			Status result;
+			try {
+				if (slot == QUICK_SAVE)
+					slot = nextQuickSlot();
+				long start = System.nanoTime();
+				int bytes = this.slots.write(slot, snapshot,
+						SaveSlots.SlotInfo.of(slot, snapshot));
+				this.logger.info("Game saved to slot " + slot + ", " + bytes
+						+ " bytes in " + TimeUnit.NANOSECONDS.toMicros(
+								System.nanoTime() - start) + " us.");
+				result = Status.SAVED;
+			} catch (IOException e) {
+				this.logger.warning("Saving the game failed: "
+						+ e.getMessage());
+				result = Status.FAILED;
+			}
+
+			synchronized (this.lock) {
+				// A newer request keeps the status at saving.
+				if (this.pending.isEmpty())
+					setStatus(result);
+			}
+		}
+	}
+
+	/**
+	 * Picks the slot for a quick save: the first empty one, or else the
+	 * one saved the longest ago.
+	 *
+	 * @return Slot number.
+	 */
+	private int nextQuickSlot() {
+		List<SaveSlots.SlotInfo> saved = this.slots.list();
+		int oldest = 1;
+		long oldestTime = Long.MAX_VALUE;
+		for (int slot = 1; slot <= this.quickSlots; slot++) {
+			long time = -1;
+			for (SaveSlots.SlotInfo info : saved)
+				if (info.getSlot() == slot)
+					time = info.getTime();
+			if (time < 0)
+				return slot;
+			if (time < oldestTime) {
+				oldest = slot;
+				oldestTime = time;
+			}
+		}
+		return oldest;
+	}
+
+	/**
+	 * Loads a slot.
+	 *
+	 * @param slot
+	 *            Slot to load.
+	 * @return Saved game, null if the slot is empty.
+	 * @throws IOException
+	 *             If the slot cannot be read.
+	 */
+	public GameSnapshot load(final int slot) throws IOException {
+		return this.slots.read(slot);
+	}
+
+	/**
+	 * Lists the saved slots, most recent first, without reading them.
+	 *
+	 * @return Summaries of the saved slots.
+	 */
+	public List<SaveSlots.SlotInfo> list() {
+		return this.slots.list();
+	}
+
+	/**
+	 * @param status
+	 *            New status.
+	 */
+	private void setStatus(final Status status) {
+		this.statusTime = System.currentTimeMillis();
+		this.status = status;
+	}
+
+	/**
+	 * @return Progress of the latest save request.
+	 */
+	public Status getStatus() {
+		return this.status;
+	}
+
+	/**
+	 * @return Moment the status last changed, in milliseconds.
+	 */
+	public long getStatusTime() {
+		return this.statusTime;
+	}
+
+	/**
+	 * Waits for the requested saves to be written.
+	 *
+	 * @param milliseconds
+	 *            Maximum time to wait.
+	 * @return True if every requested save was written or failed.
+	 * @throws InterruptedException
+	 *             If interrupted while waiting.
+	 */
+	public boolean awaitIdle(final long milliseconds)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + milliseconds;
+		while (this.status == Status.SAVING) {
+			if (System.currentTimeMillis() >= deadline)
+				return false;
+			Thread.sleep(5);
+		}
+		return true;
+	}
+}
@@ -0,0 +1,555 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Stores saved games in numbered slots.
+ *
+ * Each slot file starts with a keyframe, a full snapshot, followed by
+ * delta records holding only the bytes of each section that differ from
+ * the keyframe. Loading applies the last valid delta to the keyframe.
+ * Every record carries a checksum, so a record torn by a crash is ignored
+ * and the previous one is used. Once the deltas grow too large the slot is
+ * rewritten with a new keyframe.
+ *
+ * An index file lists the level, score and lives of every slot, so the
+ * load menu does not need to read the slots themselves.
+ */
+public final class SaveSlots {
+
+	/** Summary of a slot, as listed in the index. */
+	public static final class SlotInfo {
+		/** Slot number. */
+		private final int slot;
+		/** Level the save resumes at. */
+		private final int level;
+		/** Score when saved. */
+		private final int score;
+		/** Lives left when saved. */
+		private final int lives;
+		/** Moment of the save, in milliseconds. */
+		private final long time;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param slot
+		 *            Slot number.
+		 * @param level
+		 *            Level the save resumes at.
+		 * @param score
+		 *            Score when saved.
+		 * @param lives
+		 *            Lives left when saved.
+		 * @param time
+		 *            Moment of the save, in milliseconds.
+		 */
+		public SlotInfo(final int slot, final int level, final int score,
+				final int lives, final long time) {
+			this.slot = slot;
+			this.level = level;
+			this.score = score;
+			this.lives = lives;
+			this.time = time;
+		}
+
+		/**
+		 * Builds the summary of a snapshot from its state section, whose
+		 * first fields are the level, the score and the lives.
+		 *
+		 * @param slot
+		 *            Slot number.
+		 * @param snapshot
+		 *            Saved game.
+		 * @return Summary of the saved game.
+		 */
+		public static SlotInfo of(final int slot,
+				final GameSnapshot snapshot) {
+			GameSnapshot.Reader state = snapshot.get(GameSnapshot.STATE);
+			if (state == null)
+				return new SlotInfo(slot, 0, 0, 0, System.currentTimeMillis());
+			return new SlotInfo(slot, state.getInt(), state.getInt(),
+					state.getInt(), System.currentTimeMillis());
+		}
+
+		/**
+		 * @return Slot number.
+		 */
+		public int getSlot() {
+			return this.slot;
+		}
+
+		/**
+		 * @return Level the save resumes at.
+		 */
+		public int getLevel() {
+			return this.level;
+		}
+
+		/**
+		 * @return Score when saved.
+		 */
+		public int getScore() {
+			return this.score;
+		}
+
+		/**
+		 * @return Lives left when saved.
+		 */
+		public int getLives() {
+			return this.lives;
+		}
+
+		/**
+		 * @return Moment of the save, in milliseconds.
+		 */
+		public long getTime() {
+			return this.time;
+		}
+	}
+
+	/** Marks a slot file, "INVD" in little-endian order. */
+	private static final int SLOT_MAGIC = 0x44564E49;
+	/** Marks the index file, "INVX" in little-endian order. */
+	private static final int INDEX_MAGIC = 0x58564E49;
+	/** Current slot and index format version. */
+	private static final int VERSION = 1;
+	/** Record holding a full snapshot. */
+	private static final byte KEYFRAME = 'K';
+	/** Record holding changes against the keyframe. */
+	private static final byte DELTA = 'D';
+	/** Bytes before the contents of a record. */
+	private static final int RECORD_HEADER_SIZE = 9;
+	/** Equal bytes that still get merged into a single changed run. */
+	private static final int RUN_GAP = 8;
+	/** Deltas written before the slot gets a new keyframe. */
+	private static final int MAX_DELTAS = 32;
+
+	/** Directory holding the slots. */
+	private final Path directory;
+	/** Keyframes of the slots written or read so far. */
+	private final Map<Integer, GameSnapshot> keyframes =
+			new HashMap<Integer, GameSnapshot>();
+	/** Deltas appended to each slot since its keyframe. */
+	private final Map<Integer, Integer> deltaCounts =
+			new HashMap<Integer, Integer>();
+	/** Size of the keyframe record of each slot. */
+	private final Map<Integer, Integer> keyframeSizes =
+			new HashMap<Integer, Integer>();
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directory
+	 *            Directory holding the slots.
+	 */
+	public SaveSlots(final Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Saves a snapshot in a slot, as a delta if the slot already holds a
+	 * keyframe close enough to it.
+	 *
+	 * @param slot
+	 *            Slot to save to.
+	 * @param snapshot
+	 *            Snapshot to save.
+	 * @param info
+	 *            Summary listed in the index.
+	 * @return Bytes written to the slot.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	public synchronized int write(final int slot, final GameSnapshot snapshot,
+			final SlotInfo info) throws IOException {
+		Files.createDirectories(this.directory);
+		GameSnapshot keyframe = getKeyframe(slot);
+		int written;
+		if (keyframe == null) {
+			written = writeKeyframe(slot, snapshot);
+		} else {
+			byte[] delta = diff(keyframe, snapshot);
+			int deltas = this.deltaCounts.get(slot);
+			if (deltas >= MAX_DELTAS
+					|| delta.length * 2 > this.keyframeSizes.get(slot))
+				written = writeKeyframe(slot, snapshot);
+			else
+				written = appendDelta(slot, delta);
+		}
+		updateIndex(info);
+		return written;
+	}
+
+	/**
+	 * Loads the latest save of a slot.
+	 *
+	 * @param slot
+	 *            Slot to load.
+	 * @return Saved game, null if the slot is empty.
+	 * @throws IOException
+	 *             If the slot cannot be read.
+	 */
+	public synchronized GameSnapshot read(final int slot) throws IOException {
+		Path path = getSlotFile(slot);
+		if (!Files.exists(path))
+			return null;
+		ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path))
+				.order(ByteOrder.LITTLE_ENDIAN);
+		if (file.remaining() < 8 || file.getInt() != SLOT_MAGIC)
+			throw new IOException("Not a save slot");
+		if (file.getInt() > VERSION)
+			throw new IOException("Unsupported save slot version");
+
+		byte[] keyframe = readRecord(file, KEYFRAME);
+		if (keyframe == null)
+			throw new IOException("Save slot has no keyframe");
+		int keyframeSize = file.position();
+		GameSnapshot base = GameSnapshot.decode(ByteBuffer.wrap(keyframe));
+
+		byte[] lastDelta = null;
+		int deltas = 0;
+		byte[] delta;
+		while ((delta = readRecord(file, DELTA)) != null) {
+			lastDelta = delta;
+			deltas++;
+		}
+
+		this.keyframes.put(slot, base);
+		this.keyframeSizes.put(slot, keyframeSize);
+		// Deltas appended after a torn record would never be read, so the
+		// next save rewrites the slot.
+		this.deltaCounts.put(slot, file.hasRemaining() ? MAX_DELTAS : deltas);
+		return lastDelta == null ? base : patch(base, lastDelta);
+	}
+
+	/**
+	 * Lists the saved slots from the index, most recent first.
+	 *
+	 * @return Summaries of the saved slots.
+	 */
+	public synchronized List<SlotInfo> list() {
+		List<SlotInfo> slots = new ArrayList<SlotInfo>(readIndex().values());
+		Collections.sort(slots, (a, b) -> Long.compare(b.getTime(),
+				a.getTime()));
+		return slots;
+	}
+
+	/**
+	 * @param slot
+	 *            Slot number.
+	 * @return File of the slot.
+	 */
+	public Path getSlotFile(final int slot) {
+		return this.directory.resolve("slot" + slot + ".sav");
+	}
+
+	/**
+	 * Returns the keyframe of a slot, reading it if it is not cached.
+	 *
+	 * @param slot
+	 *            Slot number.
+	 * @return Keyframe, null if the slot is empty or unreadable.
+	 */
+	private GameSnapshot getKeyframe(final int slot) {
+		if (!this.keyframes.containsKey(slot)) {
+			try {
+				read(slot);
+			} catch (IOException e) {
+				return null;
+			}
+		}
+		return this.keyframes.get(slot);
+	}
+
+	/**
+	 * Replaces a slot with a new keyframe, atomically.
+	 *
+	 * @param slot
+	 *            Slot number.
+	 * @param snapshot
+	 *            Snapshot to use as keyframe.
+	 * @return Bytes written.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	private int writeKeyframe(final int slot, final GameSnapshot snapshot)
+			throws IOException {
+		ByteBuffer encoded = snapshot.encode();
+		byte[] contents = new byte[encoded.remaining()];
+		encoded.get(contents);
+
+		ByteBuffer file = ByteBuffer.allocate(8 + RECORD_HEADER_SIZE
+				+ contents.length).order(ByteOrder.LITTLE_ENDIAN);
+		file.putInt(SLOT_MAGIC).putInt(VERSION);
+		putRecord(file, KEYFRAME, contents);
+		file.flip();
+		int size = file.remaining();
+		AtomicFiles.replace(getSlotFile(slot), file);
+
+		this.keyframes.put(slot, GameSnapshot.decode(ByteBuffer.wrap(contents)));
+		this.keyframeSizes.put(slot, size);
+		this.deltaCounts.put(slot, 0);
+		return size;
+	}
+
+	/**
+	 * Appends a delta record to a slot.
+	 *
+	 * @param slot
+	 *            Slot number.
+	 * @param delta
+	 *            Encoded delta.
+	 * @return Bytes written.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	private int appendDelta(final int slot, final byte[] delta)
+			throws IOException {
+		ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE
+				+ delta.length).order(ByteOrder.LITTLE_ENDIAN);
+		putRecord(record, DELTA, delta);
+		record.flip();
+		int size = record.remaining();
+
+		FileChannel channel = FileChannel.open(getSlotFile(slot),
+				StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+		try {
+			while (record.hasRemaining())
+				channel.write(record);
+			channel.force(false);
+		} finally {
+			channel.close();
+		}
+		this.deltaCounts.put(slot, this.deltaCounts.get(slot) + 1);
+		return size;
+	}
+
+	/**
+	 * Writes a record: type, length, checksum and contents.
+	 *
+	 * @param buffer
+	 *            Buffer to write to.
+	 * @param type
+	 *            Record type.
+	 * @param contents
+	 *            Record contents.
+	 */
+	private static void putRecord(final ByteBuffer buffer, final byte type,
+			final byte[] contents) {
+		CRC32 crc = new CRC32();
+		crc.update(contents, 0, contents.length);
+		buffer.put(type);
+		buffer.putInt(contents.length);
+		buffer.putInt((int) crc.getValue());
+		buffer.put(contents);
+	}
+
+	/**
+	 * Reads the next record if it has the expected type and is intact.
+	 *
+	 * @param file
+	 *            Slot contents, positioned at a record.
+	 * @param type
+	 *            Expected record type.
+	 * @return Record contents, null at the end of the valid records.
+	 */
+	private static byte[] readRecord(final ByteBuffer file, final byte type) {
+		if (file.remaining() < RECORD_HEADER_SIZE)
+			return null;
+		int start = file.position();
+		int length = file.getInt(start + 1);
+		if (file.get(start) != type || length < 0
+				|| length > file.remaining() - RECORD_HEADER_SIZE)
+			return null;
+		byte[] contents = new byte[length];
+		file.position(start + RECORD_HEADER_SIZE);
+		file.get(contents);
+
+		CRC32 crc = new CRC32();
+		crc.update(contents, 0, contents.length);
+		if ((int) crc.getValue() != file.getInt(start + 5)) {
+			file.position(start);
+			return null;
+		}
+		return contents;
+	}
+
+	/**
+	 * Encodes the changes from a keyframe to a snapshot. For each changed
+	 * section: tag, new length (-1 if removed), number of runs and each run
+	 * as offset, length and bytes.
+	 *
+	 * @param keyframe
+	 *            Base snapshot.
+	 * @param snapshot
+	 *            New snapshot.
+	 * @return Encoded delta.
+	 */
+	static byte[] diff(final GameSnapshot keyframe,
+			final GameSnapshot snapshot) {
+		Map<Integer, byte[]> before = keyframe.getSections();
+		Map<Integer, byte[]> after = snapshot.getSections();
+		GameSnapshot.Writer out = new GameSnapshot.Writer();
+		List<Integer> tags = new ArrayList<Integer>();
+		for (Map.Entry<Integer, byte[]> section : after.entrySet())
+			if (!Arrays.equals(section.getValue(),
+					before.get(section.getKey())))
+				tags.add(section.getKey());
+		for (Integer tag : before.keySet())
+			if (!after.containsKey(tag))
+				tags.add(tag);
+
+		out.putInt(tags.size());
+		for (Integer tag : tags) {
+			byte[] old = before.get(tag);
+			byte[] current = after.get(tag);
+			out.putInt(tag);
+			if (current == null) {
+				out.putInt(-1);
+				continue;
+			}
+			out.putInt(current.length);
+			if (old == null)
+				old = new byte[0];
+
+			List<int[]> runs = new ArrayList<int[]>();
+			int i = 0;
+			while (i < current.length) {
+				if (i < old.length && old[i] == current[i]) {
+					i++;
+					continue;
+				}
+				int start = i;
+				int end = i + 1;
+				// Extends the run while the next difference is close.
+				for (int j = end; j < current.length
+						&& j < end + RUN_GAP; j++)
+					if (j >= old.length || old[j] != current[j])
+						end = j + 1;
+				runs.add(new int[] { start, end - start });
+				i = end;
+			}
+			out.putInt(runs.size());
+			for (int[] run : runs) {
+				out.putInt(run[0]).putInt(run[1]);
+				out.putBytes(current, run[0], run[1]);
+			}
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Applies a delta to a keyframe.
+	 *
+	 * @param keyframe
+	 *            Base snapshot.
+	 * @param delta
+	 *            Encoded delta.
+	 * @return Patched snapshot.
+	 * @throws IOException
+	 *             If the delta is corrupted.
+	 */
+	static GameSnapshot patch(final GameSnapshot keyframe, final byte[] delta)
+			throws IOException {
+		Map<Integer, byte[]> sections =
+				new TreeMap<Integer, byte[]>(keyframe.getSections());
+		ByteBuffer in = ByteBuffer.wrap(delta).order(ByteOrder.LITTLE_ENDIAN);
+		try {
+			int count = in.getInt();
+			for (int n = 0; n < count; n++) {
+				int tag = in.getInt();
+				int length = in.getInt();
+				if (length < 0) {
+					sections.remove(tag);
+					continue;
+				}
+				byte[] old = sections.get(tag);
+				byte[] current = Arrays.copyOf(old == null ? new byte[0]
+						: old, length);
+				int runs = in.getInt();
+				for (int r = 0; r < runs; r++) {
+					int offset = in.getInt();
+					int size = in.getInt();
+					in.get(current, offset, size);
+				}
+				sections.put(tag, current);
+			}
+		} catch (RuntimeException e) {
+			throw new IOException("Corrupted save delta", e);
+		}
+		return GameSnapshot.of(sections);
+	}
+
+	/**
+	 * Adds or replaces a slot in the index.
+	 *
+	 * @param info
+	 *            Summary of the slot.
+	 * @throws IOException
+	 *             In case of saving problems.
+	 */
+	private void updateIndex(final SlotInfo info) throws IOException {
+		Map<Integer, SlotInfo> index = readIndex();
+		index.put(info.getSlot(), info);
+
+		ByteBuffer file = ByteBuffer.allocate(12 + index.size() * 24)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		file.putInt(INDEX_MAGIC).putInt(VERSION).putInt(index.size());
+		for (SlotInfo slot : index.values()) {
+			file.putInt(slot.getSlot()).putInt(slot.getLevel());
+			file.putInt(slot.getScore()).putInt(slot.getLives());
+			file.putLong(slot.getTime());
+		}
+		file.flip();
+		AtomicFiles.replace(getIndexFile(), file);
+	}
+
+	/**
+	 * Reads the index.
+	 *
+	 * @return Summaries by slot, empty if there is no valid index.
+	 */
+	private Map<Integer, SlotInfo> readIndex() {
+		Map<Integer, SlotInfo> index = new TreeMap<Integer, SlotInfo>();
+		Path path = getIndexFile();
+		if (!Files.exists(path))
+			return index;
+		try {
+			ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(path))
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if (file.getInt() != INDEX_MAGIC || file.getInt() > VERSION)
+				return index;
+			int count = file.getInt();
+			for (int i = 0; i < count; i++) {
+				SlotInfo slot = new SlotInfo(file.getInt(), file.getInt(),
+						file.getInt(), file.getInt(), file.getLong());
+				index.put(slot.getSlot(), slot);
+			}
+		} catch (IOException | RuntimeException e) {
+			index.clear();
+		}
+		return index;
+	}
+
+	/**
+	 * @return File of the index.
+	 */
+	private Path getIndexFile() {
+		return this.directory.resolve("index");
+	}
+}
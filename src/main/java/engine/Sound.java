@@ -1,5 +1,8 @@
 package engine;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class Sound {
     /** shooting sound */
     public Audio shootingSound;
@@ -46,77 +49,62 @@ public class Sound {
      * Constructor, adds Audio.
      */
     public Sound(){
-        shootingSound = new Audio("src/main/resources/shootingSound.wav", false);
-        destroyedEnemySound = new Audio("src/main/resources/destroyedEnemySound.wav", false);
-        hitEnemySound = new Audio("src/main/resources/hitEnemySound.wav", false);
-        getItemSound = new Audio("src/main/resources/getItemSound.wav", false);
-        getCoinSound = new Audio("src/main/resources/getCoin.wav", false);
-        getPowerUpSound = new Audio("src/main/resources/getPowerUp.wav",false);
-        dropItemSound = new Audio("src/main/resources/dropItemSound.wav", false);
-        boomingSound = new Audio("src/main/resources/boomingSound.wav", false);
-        deathSound = new Audio("src/main/resources/deathSound.wav", false);
-        roundStartSound = new Audio("src/main/resources/roundStart.wav", false);
-        countDownSound = new Audio("src/main/resources/countdown.wav", false);   // 0.9s
-        shipDeathSound = new Audio("src/main/resources/shipDeathSound.wav", false); // 1.398s
-        roundEndSound = new Audio("src/main/resources/roundEndSound.wav", false);  // 2.757s
-        skill1Sound = new Audio("src/main/resources/skill1.wav", false);
-        skill2Sound = new Audio("src/main/resources/skill2.wav", false);
-        skill3Sound = new Audio("src/main/resources/skill3.wav", false);
-        skill4Sound = new Audio("src/main/resources/skill4.wav", false);
-        skillUnlockSound = new Audio("src/main/resources/skillUnlock.wav", false);
-        recoverySound = new Audio("src/main/resources/recovery.wav", false);
-        ultimateSound = new Audio("src/main/resources/ultimate.wav", false);
-    }
+        shootingSound = new Audio("shootingSound.wav", false);
+        destroyedEnemySound = new Audio("destroyedEnemySound.wav", false);
+        hitEnemySound = new Audio("hitEnemySound.wav", false);
+        getItemSound = new Audio("getItemSound.wav", false);
+        getCoinSound = new Audio("getCoin.wav", false);
+        getPowerUpSound = new Audio("getPowerUp.wav",false);
+        dropItemSound = new Audio("dropItemSound.wav", false);
+        boomingSound = new Audio("boomingSound.wav", false);
+        deathSound = new Audio("deathSound.wav", false);
+        roundStartSound = new Audio("roundStart.wav", false, GainBus.UI);
+        countDownSound = new Audio("countdown.wav", false, GainBus.UI);   // 0.9s
+        shipDeathSound = new Audio("shipDeathSound.wav", false); // 1.398s
+        roundEndSound = new Audio("roundEndSound.wav", false, GainBus.UI);  // 2.757s
+        skill1Sound = new Audio("skill1.wav", false);
+        skill2Sound = new Audio("skill2.wav", false);
+        skill3Sound = new Audio("skill3.wav", false);
+        skill4Sound = new Audio("skill4.wav", false);
+        skillUnlockSound = new Audio("skillUnlock.wav", false, GainBus.UI);
+        recoverySound = new Audio("recovery.wav", false);
+        ultimateSound = new Audio("ultimate.wav", false);
 
-    /**
-     * Increase the music volume
-     */
-    public void increase(){
-        this.shootingSound.increase();
-        this.destroyedEnemySound.increase();
-        this.hitEnemySound.increase();
-        this.getItemSound.increase();
-        this.dropItemSound.increase();
-        this.boomingSound.increase();
-        this.deathSound.increase();
-        this.roundStartSound.increase();
-        this.countDownSound.increase();
-        this.shipDeathSound.increase();
-        this.roundEndSound.increase();
-        this.getCoinSound.increase();
-        this.getPowerUpSound.increase();
-        this.skill1Sound.increase();
-        this.skill2Sound.increase();
-        this.skill3Sound.increase();
-        this.skill4Sound.increase();
-        this.skillUnlockSound.increase();
-        this.recoverySound.increase();
-        this.ultimateSound.increase();
+        // Hits and drops can come by the dozen in one frame, losing a life never
+        shipDeathSound.setCoalescing(3, 0);
+        deathSound.setCoalescing(3, 0);
+        ultimateSound.setCoalescing(2, 0);
+        boomingSound.setCoalescing(2, 0);
+        hitEnemySound.setCoalescing(0, 60);
+        destroyedEnemySound.setCoalescing(0, 60);
+        dropItemSound.setCoalescing(0, 100);
+        shootingSound.setCoalescing(1, 0);
+
+        // Enemies far from the ship are heard a little quieter
+        hitEnemySound.setAttenuation(0.5f);
+        destroyedEnemySound.setAttenuation(0.5f);
+        dropItemSound.setAttenuation(0.5f);
     }
 
     /**
-     * Increase the music volume
+     * Ready every sound ahead of its first play, the countdown ones last so
+     * the larger sounds do not push them out of the cache, as they play as
+     * soon as a game starts.
+     * @return time from the start of the warm-up until each sound was ready,
+     *         in nanoseconds, by resource name
      */
-    public void decrease(){
-        this.shootingSound.decrease();
-        this.destroyedEnemySound.decrease();
-        this.hitEnemySound.decrease();
-        this.getItemSound.decrease();
-        this.dropItemSound.decrease();
-        this.boomingSound.decrease();
-        this.deathSound.decrease();
-        this.roundStartSound.decrease();
-        this.countDownSound.decrease();
-        this.shipDeathSound.decrease();
-        this.roundEndSound.decrease();
-        this.getCoinSound.decrease();
-        this.getPowerUpSound.decrease();
-        this.skill1Sound.decrease();
-        this.skill2Sound.decrease();
-        this.skill3Sound.decrease();
-        this.skill4Sound.decrease();
-        this.skillUnlockSound.decrease();
-        this.recoverySound.decrease();
-        this.ultimateSound.decrease();
+    public Map<String, Long> warmUp() {
+        Audio[] sounds = {shootingSound, destroyedEnemySound, hitEnemySound,
+                dropItemSound, getItemSound, getCoinSound, getPowerUpSound,
+                boomingSound, deathSound, shipDeathSound, roundEndSound,
+                skill1Sound, skill2Sound, skill3Sound, skill4Sound, recoverySound,
+                ultimateSound, skillUnlockSound, countDownSound, roundStartSound};
+        Map<String, Long> ready = new LinkedHashMap<>();
+        long start = System.nanoTime();
+        for (Audio sound : sounds) {
+            sound.prepare();
+            ready.put(sound.getName(), System.nanoTime() - start);
+        }
+        return ready;
     }
 }
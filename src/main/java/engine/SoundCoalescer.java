@@ -0,0 +1,239 @@
+package engine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Collects the sound events of a frame and plays a bounded number of them.
+ *
+ * Starting and stopping a sound only records the event; the screen loop
+ * flushes once per frame. Identical events of the frame, or within the
+ * window of the last play of the sound, count once. Each sound may also
+ * have a longer cooldown between plays, and a priority: when more sounds
+ * start in a frame than the budget allows, the lowest priority ones are
+ * dropped. Stops are applied before starts, and a stop cancels a start of
+ * the same frame. Dropped events are counted by reason. A sound started
+ * from several places in a frame plays once at their average position.
+ */
+public final class SoundCoalescer {
+
+	/** Property setting the window identical sound events merge in, in ms. */
+	public static final String WINDOW_PROPERTY = "invaders.audio.window";
+	/** Default window identical sound events merge in, in milliseconds. */
+	public static final int DEFAULT_WINDOW = 40;
+	/** Property setting the most sounds started per frame. */
+	public static final String BUDGET_PROPERTY = "invaders.audio.events";
+	/** Default most sounds started per frame. */
+	public static final int DEFAULT_BUDGET = 4;
+
+	/** Singleton instance of the class. */
+	private static SoundCoalescer instance;
+
+	/** Events of one sound. */
+	private static final class Entry {
+		/** Sound concerned. */
+		private final Audio audio;
+		/** Checks if the sound starts this frame. */
+		private boolean start;
+		/** Starts this frame. */
+		private int starts;
+		/** Sum of the positions of the starts this frame. */
+		private float panSum;
+		/** Checks if the sound stops this frame. */
+		private boolean stop;
+		/** Checks if the entry is in the pending list. */
+		private boolean pending;
+		/** Time of the last play, in milliseconds, or never if negative. */
+		private long lastPlayed = -1;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param audio
+		 *            Sound concerned.
+		 */
+		private Entry(final Audio audio) {
+			this.audio = audio;
+		}
+	}
+
+	/** Highest priority first, request order kept otherwise. */
+	private static final Comparator<Entry> BY_PRIORITY =
+			new Comparator<Entry>() {
+				@Override
+				public int compare(final Entry a, final Entry b) {
+					return Integer.compare(b.audio.getPriority(),
+							a.audio.getPriority());
+				}
+			};
+
+	/** Window identical events merge in, in milliseconds. */
+	private final int window;
+	/** Most sounds started per frame. */
+	private final int budget;
+	/** Events by sound. */
+	private final Map<Audio, Entry> entries =
+			new IdentityHashMap<Audio, Entry>();
+	/** Sounds with events this frame, in request order. */
+	private final List<Entry> pending = new ArrayList<Entry>();
+	/** Sounds started. */
+	private long played;
+	/** Starts merged with an identical one. */
+	private long duplicates;
+	/** Starts dropped while their sound cooled down. */
+	private long coolingDown;
+	/** Starts dropped for lower priority sounds over the budget. */
+	private long overBudget;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param window
+	 *            Window identical events merge in, in milliseconds.
+	 * @param budget
+	 *            Most sounds started per frame.
+	 */
+	public SoundCoalescer(final int window, final int budget) {
+		if (window < 0 || budget < 1)
+			throw new IllegalArgumentException("Bad window " + window
+					+ " or budget " + budget);
+		this.window = window;
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns shared instance of the coalescer, flushed by the screens.
+	 *
+	 * @return Shared instance of the coalescer.
+	 */
+	public static synchronized SoundCoalescer getInstance() {
+		if (instance == null)
+			instance = new SoundCoalescer(Math.max(0, Integer.getInteger(
+					WINDOW_PROPERTY, DEFAULT_WINDOW)), Math.max(1,
+					Integer.getInteger(BUDGET_PROPERTY, DEFAULT_BUDGET)));
+		return instance;
+	}
+
+	/**
+	 * Records a start of a sound for the next flush, centered.
+	 *
+	 * @param audio
+	 *            Sound to start.
+	 */
+	public void start(final Audio audio) {
+		start(audio, 0);
+	}
+
+	/**
+	 * Records a start of a sound for the next flush.
+	 *
+	 * @param audio
+	 *            Sound to start.
+	 * @param pan
+	 *            Position from -1, left, to 1, right.
+	 */
+	public synchronized void start(final Audio audio, final float pan) {
+		Entry entry = pend(audio);
+		if (entry.start)
+			this.duplicates++;
+		entry.start = true;
+		entry.starts++;
+		entry.panSum += pan;
+	}
+
+	/**
+	 * Records a stop of a sound for the next flush, canceling its start.
+	 *
+	 * @param audio
+	 *            Sound to stop.
+	 */
+	public synchronized void stop(final Audio audio) {
+		Entry entry = pend(audio);
+		entry.start = false;
+		entry.starts = 0;
+		entry.panSum = 0;
+		entry.stop = true;
+	}
+
+	/**
+	 * @param audio
+	 *            Sound with an event.
+	 * @return Entry of the sound, in the pending list.
+	 */
+	private Entry pend(final Audio audio) {
+		Entry entry = this.entries.get(audio);
+		if (entry == null) {
+			entry = new Entry(audio);
+			this.entries.put(audio, entry);
+		}
+		if (!entry.pending) {
+			entry.pending = true;
+			this.pending.add(entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Applies the events recorded since the last flush, once per frame.
+	 */
+	public synchronized void flush() {
+		if (this.pending.isEmpty())
+			return;
+		long now = GameClock.now();
+		for (Entry entry : this.pending)
+			if (entry.stop)
+				entry.audio.halt();
+		Collections.sort(this.pending, BY_PRIORITY);
+		int started = 0;
+		for (Entry entry : this.pending) {
+			if (entry.start) {
+				long since = entry.lastPlayed < 0 ? Long.MAX_VALUE
+						: now - entry.lastPlayed;
+				if (since < this.window) {
+					this.duplicates++;
+				} else if (since < entry.audio.getCooldown()) {
+					this.coolingDown++;
+				} else if (started == this.budget) {
+					this.overBudget++;
+				} else {
+					entry.audio.play(entry.panSum / entry.starts);
+					entry.lastPlayed = now;
+					started++;
+					this.played++;
+				}
+			}
+			entry.start = false;
+			entry.starts = 0;
+			entry.panSum = 0;
+			entry.stop = false;
+			entry.pending = false;
+		}
+		this.pending.clear();
+	}
+
+	/**
+	 * @return Sounds started.
+	 */
+	public synchronized long getPlayed() {
+		return this.played;
+	}
+
+	/**
+	 * @return Sound starts dropped, for any reason.
+	 */
+	public synchronized long getDropped() {
+		return this.duplicates + this.coolingDown + this.overBudget;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "Sound events: " + this.played + " played, " + getDropped()
+				+ " dropped (" + this.duplicates + " duplicates, "
+				+ this.coolingDown + " cooling down, " + this.overBudget
+				+ " over budget)";
+	}
+}
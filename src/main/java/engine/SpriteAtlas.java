@@ -0,0 +1,351 @@
+package engine;
+
+import java.awt.Color;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+import engine.DrawManager.SpriteType;
+
+/**
+ * Sprites of the graphics file, decoded when first drawn.
+ *
+ * Opening the atlas only scans the file for where each sprite starts.
+ * Sprites are decoded on demand into a cache bounded by an estimate of
+ * their memory, evicting the least recently used ones. Decoded colors are
+ * interned in a palette, so a pixel costs one reference. Sprites known to
+ * be needed soon can be prefetched on a background thread.
+ */
+public final class SpriteAtlas {
+
+	/** Property setting the memory of the decoded sprite cache, in KB. */
+	public static final String CACHE_PROPERTY = "invaders.sprites.cache";
+	/** Default memory of the decoded sprite cache, in KB. */
+	public static final int DEFAULT_CACHE_KB = 256;
+	/** Estimated bytes of a pixel reference. */
+	private static final int PIXEL_BYTES = 4;
+	/** Estimated bytes of the array holding a column of pixels. */
+	private static final int COLUMN_BYTES = 16;
+	/** Characters encoding a pixel. */
+	private static final int PIXEL_CHARACTERS = 8;
+
+	/** Location and size of a sprite in the graphics file. */
+	private static final class Layout {
+		/** Width in pixels. */
+		private final int width;
+		/** Height in pixels. */
+		private final int height;
+		/** Offset of the first pixel, -1 until indexed. */
+		private int offset = -1;
+
+		/**
+		 * Constructor.
+		 *
+		 * @param width
+		 *            Width in pixels.
+		 * @param height
+		 *            Height in pixels.
+		 */
+		private Layout(final int width, final int height) {
+			this.width = width;
+			this.height = height;
+		}
+
+		/**
+		 * @return Estimated memory of the decoded sprite.
+		 */
+		private long cost() {
+			return (long) this.width * (COLUMN_BYTES + this.height
+					* PIXEL_BYTES);
+		}
+	}
+
+	/** Graphics file. */
+	private final ByteBuffer source;
+	/** Maximum estimated memory of the decoded sprites. */
+	private final long budget;
+	/** Sprites in file order. */
+	private final Map<SpriteType, Layout> layouts =
+			new EnumMap<SpriteType, Layout>(SpriteType.class);
+	/** Sprites in the order they were added. */
+	private final List<SpriteType> order = new ArrayList<SpriteType>();
+	/** Decoded sprites, least recently used first. */
+	private final LinkedHashMap<SpriteType, Color[][]> cache =
+			new LinkedHashMap<SpriteType, Color[][]>(16, 0.75f, true);
+	/** Estimated memory of the decoded sprites. */
+	private long cached;
+	/** Collision masks, kept as they are small. */
+	private final Map<SpriteType, SpriteMask> masks =
+			new EnumMap<SpriteType, SpriteMask>(SpriteType.class);
+	/** Colors decoded so far, by RGB value. */
+	private final Map<Integer, Color> palette = new HashMap<Integer, Color>();
+	/** Sprites decoded, for statistics. */
+	private int decodes;
+	/** Decodes sprites ahead of use, created on first prefetch. */
+	private ExecutorService prefetcher;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param source
+	 *            Graphics file.
+	 * @param budget
+	 *            Maximum estimated memory of the decoded sprites, in bytes.
+	 */
+	public SpriteAtlas(final ByteBuffer source, final long budget) {
+		this.source = source.duplicate();
+		this.budget = budget;
+	}
+
+	/**
+	 * Declares the next sprite of the graphics file.
+	 *
+	 * @param spriteType
+	 *            Sprite.
+	 * @param width
+	 *            Width in pixels.
+	 * @param height
+	 *            Height in pixels.
+	 */
+	public void add(final SpriteType spriteType, final int width,
+			final int height) {
+		this.layouts.put(spriteType, new Layout(width, height));
+		this.order.add(spriteType);
+	}
+
+	/**
+	 * Finds where every declared sprite starts, without decoding them.
+	 *
+	 * @throws EOFException
+	 *             If the file ends before the last sprite.
+	 */
+	public synchronized void index() throws EOFException {
+		ByteBuffer file = this.source.duplicate();
+		for (SpriteType spriteType : this.order) {
+			Layout layout = this.layouts.get(spriteType);
+			int characters = layout.width * layout.height * PIXEL_CHARACTERS;
+			for (int i = 0; i < characters; i++) {
+				while (true) {
+					if (!file.hasRemaining())
+						throw new EOFException("Sprite file ends at "
+								+ spriteType);
+					if (isPixelCharacter(file.get()))
+						break;
+				}
+				if (i == 0)
+					layout.offset = file.position() - 1;
+			}
+		}
+	}
+
+	/**
+	 * Returns a sprite, decoding it if needed.
+	 *
+	 * @param spriteType
+	 *            Sprite.
+	 * @return Colors by column and row, null if the sprite is unknown.
+	 */
+	public synchronized Color[][] get(final SpriteType spriteType) {
+		Color[][] image = this.cache.get(spriteType);
+		if (image != null)
+			return image;
+		Layout layout = this.layouts.get(spriteType);
+		if (layout == null || layout.offset < 0)
+			return null;
+
+		image = decode(layout);
+		this.decodes++;
+		this.cache.put(spriteType, image);
+		this.cached += layout.cost();
+		Iterator<SpriteType> eldest = this.cache.keySet().iterator();
+		while (this.cached > this.budget && this.cache.size() > 1) {
+			SpriteType evicted = eldest.next();
+			eldest.remove();
+			this.cached -= this.layouts.get(evicted).cost();
+		}
+		return image;
+	}
+
+	/**
+	 * Returns the collision mask of a sprite.
+	 *
+	 * @param spriteType
+	 *            Sprite.
+	 * @return Mask of the opaque pixels, null if the sprite is unknown.
+	 */
+	public synchronized SpriteMask getMask(final SpriteType spriteType) {
+		SpriteMask mask = this.masks.get(spriteType);
+		if (mask == null) {
+			Color[][] image = get(spriteType);
+			if (image == null)
+				return null;
+			mask = new SpriteMask(image);
+			this.masks.put(spriteType, mask);
+		}
+		return mask;
+	}
+
+	/**
+	 * @param spriteType
+	 *            Sprite.
+	 * @return Width in pixels, 0 if the sprite is unknown.
+	 */
+	public int getWidth(final SpriteType spriteType) {
+		Layout layout = this.layouts.get(spriteType);
+		return layout == null ? 0 : layout.width;
+	}
+
+	/**
+	 * @param spriteType
+	 *            Sprite.
+	 * @return Height in pixels, 0 if the sprite is unknown.
+	 */
+	public int getHeight(final SpriteType spriteType) {
+		Layout layout = this.layouts.get(spriteType);
+		return layout == null ? 0 : layout.height;
+	}
+
+	/**
+	 * Decodes sprites on a background thread, so they are ready when first
+	 * drawn.
+	 *
+	 * @param spriteTypes
+	 *            Sprites needed soon.
+	 */
+	public void prefetch(final Collection<SpriteType> spriteTypes) {
+		final List<SpriteType> needed = new ArrayList<SpriteType>(spriteTypes);
+		synchronized (this) {
+			if (this.prefetcher == null)
+				this.prefetcher = Executors.newSingleThreadExecutor(
+						new ThreadFactory() {
+							@Override
+							public Thread newThread(final Runnable runnable) {
+								Thread thread = new Thread(runnable,
+										"sprite-prefetch");
+								thread.setDaemon(true);
+								return thread;
+							}
+						});
+		}
+		this.prefetcher.execute(new Runnable() {
+			@Override
+			public void run() {
+				for (SpriteType spriteType : needed)
+					getMask(spriteType);
+			}
+		});
+	}
+
+	/**
+	 * @return Number of sprites decoded so far, evicted ones included.
+	 */
+	public synchronized int getDecodeCount() {
+		return this.decodes;
+	}
+
+	/**
+	 * @return Estimated memory of the decoded sprites, in bytes.
+	 */
+	public synchronized long getCachedBytes() {
+		return this.cached;
+	}
+
+	/**
+	 * Decodes a sprite. Pixels are eight characters such as "0xff8800",
+	 * separated by any other characters.
+	 *
+	 * @param layout
+	 *            Location of the sprite.
+	 * @return Colors by column and row.
+	 */
+	private Color[][] decode(final Layout layout) {
+		ByteBuffer file = this.source.duplicate();
+		file.position(layout.offset);
+		Color[][] image = new Color[layout.width][layout.height];
+		char[] pixel = new char[PIXEL_CHARACTERS];
+		for (int i = 0; i < layout.width; i++) {
+			for (int j = 0; j < layout.height; j++) {
+				for (int k = 0; k < PIXEL_CHARACTERS; k++) {
+					byte c;
+					do {
+						c = file.get();
+					} while (!isPixelCharacter(c));
+					pixel[k] = (char) c;
+				}
+				image[i][j] = toColor(pixel);
+			}
+		}
+		return image;
+	}
+
+	/**
+	 * Interns the color of a pixel.
+	 *
+	 * @param pixel
+	 *            Characters of the pixel.
+	 * @return Shared color, Color.BLACK for black.
+	 */
+	private Color toColor(final char[] pixel) {
+		int rgb;
+		// Same notations as Integer.decode, without building a string.
+		if (pixel[0] == '0' && pixel[1] == 'x')
+			rgb = parseDigits(pixel, 2, 16);
+		else if (pixel[0] == '0')
+			rgb = parseDigits(pixel, 1, 8);
+		else
+			rgb = parseDigits(pixel, 0, 10);
+		if (rgb == 0)
+			return Color.BLACK;
+		Color color = this.palette.get(rgb);
+		if (color == null) {
+			color = new Color(rgb);
+			this.palette.put(rgb, color);
+		}
+		return color;
+	}
+
+	/**
+	 * Parses the digits of a pixel.
+	 *
+	 * @param pixel
+	 *            Characters of the pixel.
+	 * @param start
+	 *            Index of the first digit.
+	 * @param radix
+	 *            Base of the digits.
+	 * @return Value of the digits.
+	 * @throws NumberFormatException
+	 *             If a character is not a digit of the base.
+	 */
+	private static int parseDigits(final char[] pixel, final int start,
+			final int radix) {
+		int value = 0;
+		for (int i = start; i < pixel.length; i++) {
+			int digit = Character.digit(pixel[i], radix);
+			if (digit < 0)
+				throw new NumberFormatException("Bad pixel: "
+						+ new String(pixel));
+			value = value * radix + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * @param c
+	 *            Character of the graphics file.
+	 * @return True if the character is part of a pixel.
+	 */
+	private static boolean isPixelCharacter(final byte c) {
+		return (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9');
+	}
+}
@@ -0,0 +1,130 @@
+package engine;
+
+import java.awt.Color;
+
+/**
+ * Opaque pixels of a sprite, packed as bit rows at screen resolution.
+ * Used as the narrow phase of collision tests once bounding boxes already
+ * overlap.
+ */
+public final class SpriteMask {
+
+	/** Screen pixels per sprite pixel, as drawn by the draw manager. */
+	private static final int SCALE = 2;
+
+	/** Width in screen pixels. */
+	private final int width;
+	/** Height in screen pixels. */
+	private final int height;
+	/** Number of words in each row. */
+	private final int words;
+	/** Rows of bits, one bit per screen pixel, bit i of word w is x = 64w+i. */
+	private final long[] bits;
+
+	/**
+	 * Constructor, builds the mask from a sprite image.
+	 *
+	 * @param image
+	 *            Sprite image, indexed [x][y]. Black pixels are transparent.
+	 */
+	public SpriteMask(final Color[][] image) {
+		int spriteWidth = image.length;
+		int spriteHeight = spriteWidth == 0 ? 0 : image[0].length;
+		this.width = spriteWidth * SCALE;
+		this.height = spriteHeight * SCALE;
+		this.words = (this.width + 63) >>> 6;
+		this.bits = new long[Math.max(1, this.words * this.height)];
+
+		for (int i = 0; i < spriteWidth; i++)
+			for (int j = 0; j < spriteHeight; j++)
+				if (image[i][j] != null && image[i][j] != Color.BLACK)
+					for (int dy = 0; dy < SCALE; dy++)
+						for (int dx = 0; dx < SCALE; dx++)
+							set(i * SCALE + dx, j * SCALE + dy);
+	}
+
+	/**
+	 * Marks a pixel as opaque.
+	 *
+	 * @param x
+	 *            Column of the pixel.
+	 * @param y
+	 *            Row of the pixel.
+	 */
+	private void set(final int x, final int y) {
+		this.bits[y * this.words + (x >>> 6)] |= 1L << (x & 63);
+	}
+
+	/**
+	 * Reads up to 64 consecutive bits of a row.
+	 *
+	 * @param row
+	 *            Row to read.
+	 * @param offset
+	 *            First column to read.
+	 * @param count
+	 *            Number of columns, 64 at most.
+	 * @return Bits of the requested columns, first column in bit 0.
+	 */
+	private long bitsAt(final int row, final int offset, final int count) {
+		int base = row * this.words;
+		int word = offset >>> 6;
+		int shift = offset & 63;
+		long value = this.bits[base + word] >>> shift;
+		if (shift != 0 && word + 1 < this.words)
+			value |= this.bits[base + word + 1] << (64 - shift);
+		if (count < 64)
+			value &= (1L << count) - 1;
+		return value;
+	}
+
+	/**
+	 * Checks if any opaque pixels of two masks overlap.
+	 *
+	 * @param a
+	 *            First mask.
+	 * @param ax
+	 *            Position of the first mask in the x-axis.
+	 * @param ay
+	 *            Position of the first mask in the y-axis.
+	 * @param b
+	 *            Second mask.
+	 * @param bx
+	 *            Position of the second mask in the x-axis.
+	 * @param by
+	 *            Position of the second mask in the y-axis.
+	 * @return True if at least one pixel is opaque in both.
+	 */
+	public static boolean overlaps(final SpriteMask a, final int ax,
+			final int ay, final SpriteMask b, final int bx, final int by) {
+		int left = Math.max(ax, bx);
+		int right = Math.min(ax + a.width, bx + b.width);
+		int top = Math.max(ay, by);
+		int bottom = Math.min(ay + a.height, by + b.height);
+		if (left >= right || top >= bottom)
+			return false;
+
+		for (int y = top; y < bottom; y++)
+			for (int x = left; x < right; x += 64) {
+				int count = Math.min(64, right - x);
+				if ((a.bitsAt(y - ay, x - ax, count)
+						& b.bitsAt(y - by, x - bx, count)) != 0)
+					return true;
+			}
+		return false;
+	}
+
+	/**
+	 * @return Width in screen pixels.
+	 */
+	public int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * @return Height in screen pixels.
+	 */
+	public int getHeight() {
+		return this.height;
+	}
+}
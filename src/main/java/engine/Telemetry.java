@@ -0,0 +1,394 @@
+package engine;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * Stream of gameplay events, written to rolling session files for offline
+ * analysis.
+ *
+ * Every event is a fixed-size binary record: its type, the level, three
+ * values whose meaning depends on the type, and the game time. Levels past
+ * MAX_LEVEL are recorded as MAX_LEVEL. The game thread stores records in a
+ * single-producer ring buffer without allocating; a background thread
+ * copies them to the current session file a few times per second. When a
+ * file grows past its size limit, the next part of the session is started.
+ * Events are dropped, and counted, rather than blocking the game when the
+ * ring is full.
+ */
+public final class Telemetry {
+
+	/** Gameplay events, stored by ordinal. */
+	public enum Event {
+		/** A game session started. */
+		SESSION_START,
+		/** A level started: score, lives. */
+		LEVEL_START,
+		/** A level ended: score, lives, duration in milliseconds. */
+		LEVEL_END,
+		/** The player shot a bullet. */
+		SHOT,
+		/** An enemy was destroyed: points, weapon. */
+		KILL,
+		/** A skill was used: skill number. */
+		SKILL,
+		/** An item was picked up: item sprite ordinal. */
+		ITEM,
+		/** The player's ship was hit: lives left. */
+		DEATH
+	}
+
+	/** Weapon of a kill: a bullet. */
+	public static final int WEAPON_BULLET = 0;
+	/** Weapon of a kill: a boom. */
+	public static final int WEAPON_BOOM = 1;
+	/** Weapon of a kill: the ultimate. */
+	public static final int WEAPON_ULTIMATE = 2;
+
+	/** Property naming the directory the session files go to. */
+	public static final String DIRECTORY_PROPERTY = "invaders.telemetry";
+	/** Default directory of the session files. */
+	public static final String DEFAULT_DIRECTORY = "telemetry";
+	/** Property value turning telemetry off. */
+	public static final String DISABLED = "none";
+	/** Extension of the session files. */
+	static final String EXTENSION = ".tel";
+
+	/** Marks a session file, "INVT" in little-endian order. */
+	static final int MAGIC = 0x54564E49;
+	/** Current format version, 2 since levels take two bytes. */
+	static final int VERSION = 2;
+	/** Bytes of the file header: magic, version and session. */
+	static final int HEADER_SIZE = 16;
+	/** Bytes of an event record. */
+	static final int RECORD_SIZE = 24;
+	/** Highest level a record holds. */
+	public static final int MAX_LEVEL = 0xFFFF;
+	/** Records the ring holds. */
+	private static final int CAPACITY = 8192;
+	/** Bytes of a session file before the next part is started. */
+	private static final long MAX_FILE_SIZE = 1 << 20;
+	/** Time between writes of the ring. */
+	private static final long FLUSH_NANOS =
+			TimeUnit.MILLISECONDS.toNanos(250);
+
+	/** Records waiting to be written, null when telemetry is off. */
+	private final ByteBuffer ring;
+	/** Next record stored by the game thread. */
+	private final AtomicLong tail = new AtomicLong();
+	/** Next record written by the flusher. */
+	private final AtomicLong head = new AtomicLong();
+	/** Events dropped because the ring was full. */
+	private final AtomicLong dropped = new AtomicLong();
+	/** Directory of the session files. */
+	private final Path directory;
+	/** Session identifier, the time it started. */
+	private final long session;
+	/** Writes the records, null when telemetry is off. */
+	private final Thread flusher;
+	/** Checks if the stream was closed. */
+	private volatile boolean closed;
+
+	/** Current session file, only used by the flusher. */
+	private FileChannel file;
+	/** Part number of the current session file. */
+	private int part;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param directory
+	 *            Directory of the session files, null to turn telemetry off.
+	 */
+	private Telemetry(final Path directory) {
+		this.directory = directory;
+		this.session = System.currentTimeMillis();
+		if (directory == null) {
+			this.ring = null;
+			this.flusher = null;
+			return;
+		}
+		this.ring = ByteBuffer.allocateDirect(CAPACITY * RECORD_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		this.flusher = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				flushLoop();
+			}
+		}, "telemetry-flusher");
+		this.flusher.setDaemon(true);
+		this.flusher.start();
+	}
+
+	/**
+	 * Starts a session writing to a directory.
+	 *
+	 * @param directory
+	 *            Directory of the session files.
+	 * @return Telemetry stream of the session.
+	 */
+	public static Telemetry open(final Path directory) {
+		return new Telemetry(directory);
+	}
+
+	/**
+	 * @return Stream that records nothing.
+	 */
+	public static Telemetry disabled() {
+		return new Telemetry(null);
+	}
+
+	/**
+	 * @return True if events are recorded.
+	 */
+	public boolean isEnabled() {
+		return this.ring != null;
+	}
+
+	/**
+	 * Records an event. Must only be called from the game thread.
+	 *
+	 * @param event
+	 *            Type of event.
+	 * @param level
+	 *            Level being played, 0 outside levels.
+	 * @param first
+	 *            First value of the event.
+	 * @param second
+	 *            Second value of the event.
+	 * @param third
+	 *            Third value of the event.
+	 */
+	public void emit(final Event event, final int level, final int first,
+			final int second, final int third) {
+		if (this.ring == null || this.closed)
+			return;
+		long position = this.tail.get();
+		if (position - this.head.get() >= CAPACITY) {
+			this.dropped.incrementAndGet();
+			return;
+		}
+		int offset = (int) (position % CAPACITY) * RECORD_SIZE;
+		this.ring.put(offset, (byte) event.ordinal());
+		this.ring.put(offset + 1, (byte) 0);
+		this.ring.putShort(offset + 2,
+				(short) Math.max(0, Math.min(MAX_LEVEL, level)));
+		this.ring.putInt(offset + 4, first);
+		this.ring.putInt(offset + 8, second);
+		this.ring.putInt(offset + 12, third);
+		this.ring.putLong(offset + 16, GameClock.now());
+		this.tail.lazySet(position + 1);
+	}
+
+	/**
+	 * Records the start of a session.
+	 */
+	public void sessionStart() {
+		emit(Event.SESSION_START, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Records the start of a level.
+	 *
+	 * @param level
+	 *            Level started.
+	 * @param score
+	 *            Score at the start.
+	 * @param lives
+	 *            Lives at the start.
+	 */
+	public void levelStart(final int level, final int score,
+			final int lives) {
+		emit(Event.LEVEL_START, level, score, lives, 0);
+	}
+
+	/**
+	 * Records the end of a level.
+	 *
+	 * @param level
+	 *            Level ended.
+	 * @param score
+	 *            Score at the end.
+	 * @param lives
+	 *            Lives left, 0 if the level was lost.
+	 * @param duration
+	 *            Time the level took, in milliseconds.
+	 */
+	public void levelEnd(final int level, final int score, final int lives,
+			final long duration) {
+		emit(Event.LEVEL_END, level, score, lives,
+				(int) Math.min(Integer.MAX_VALUE, duration));
+	}
+
+	/**
+	 * Records a shot of the player.
+	 *
+	 * @param level
+	 *            Level being played.
+	 */
+	public void shot(final int level) {
+		emit(Event.SHOT, level, 0, 0, 0);
+	}
+
+	/**
+	 * Records a destroyed enemy.
+	 *
+	 * @param level
+	 *            Level being played.
+	 * @param points
+	 *            Points awarded.
+	 * @param weapon
+	 *            Weapon that destroyed it, one of the WEAPON constants.
+	 */
+	public void kill(final int level, final int points, final int weapon) {
+		emit(Event.KILL, level, points, weapon, 0);
+	}
+
+	/**
+	 * Records a skill use.
+	 *
+	 * @param level
+	 *            Level being played.
+	 * @param skill
+	 *            Skill number, from 1.
+	 */
+	public void skill(final int level, final int skill) {
+		emit(Event.SKILL, level, skill, 0, 0);
+	}
+
+	/**
+	 * Records a picked up item.
+	 *
+	 * @param level
+	 *            Level being played.
+	 * @param item
+	 *            Sprite of the item.
+	 */
+	public void item(final int level, final DrawManager.SpriteType item) {
+		emit(Event.ITEM, level, item.ordinal(), 0, 0);
+	}
+
+	/**
+	 * Records a hit on the player's ship.
+	 *
+	 * @param level
+	 *            Level being played.
+	 * @param lives
+	 *            Lives left.
+	 */
+	public void death(final int level, final int lives) {
+		emit(Event.DEATH, level, lives, 0, 0);
+	}
+
+	/**
+	 * Writes the ring periodically until the stream is closed.
+	 */
+	private void flushLoop() {
+		ByteBuffer reader = this.ring.duplicate()
+				.order(ByteOrder.LITTLE_ENDIAN);
+		while (true) {
+			boolean last = this.closed;
+			try {
+				writeRecords(reader);
+			} catch (IOException e) {
+				Logger.getLogger(Core.class.getSimpleName()).warning(
+						"Writing telemetry failed: " + e.getMessage());
+				return;
+			}
+			if (last)
+				break;
+			LockSupport.parkNanos(this, FLUSH_NANOS);
+		}
+		try {
+			if (this.file != null)
+				this.file.close();
+		} catch (IOException e) {
+			Logger.getLogger(Core.class.getSimpleName()).warning(
+					"Closing telemetry failed: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * Copies the records waiting in the ring to the session file.
+	 *
+	 * @param reader
+	 *            View of the ring owned by the flusher.
+	 * @throws IOException
+	 *             In case of writing problems.
+	 */
+	private void writeRecords(final ByteBuffer reader) throws IOException {
+		long start = this.head.get();
+		long end = this.tail.get();
+		if (start == end)
+			return;
+		if (this.file == null || this.file.size()
+				+ (end - start) * RECORD_SIZE > MAX_FILE_SIZE)
+			startPart();
+
+		for (long position = start; position < end;) {
+			int index = (int) (position % CAPACITY);
+			// Up to the end of the ring at most, the rest on the next pass.
+			int count = (int) Math.min(end - position, CAPACITY - index);
+			reader.limit((index + count) * RECORD_SIZE)
+					.position(index * RECORD_SIZE);
+			while (reader.hasRemaining())
+				this.file.write(reader);
+			position += count;
+			this.head.lazySet(position);
+		}
+		reader.clear();
+	}
+
+	/**
+	 * Closes the current session file and starts the next part.
+	 *
+	 * @throws IOException
+	 *             If the file cannot be created.
+	 */
+	private void startPart() throws IOException {
+		if (this.file != null)
+			this.file.close();
+		Files.createDirectories(this.directory);
+		this.part++;
+		Path path = this.directory.resolve("session-" + this.session + "-"
+				+ this.part + EXTENSION);
+		this.file = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+				.order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putLong(this.session).flip();
+		while (header.hasRemaining())
+			this.file.write(header);
+	}
+
+	/**
+	 * @return Events dropped because the ring was full.
+	 */
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	/**
+	 * Writes the remaining events and closes the session file.
+	 */
+	public void close() {
+		if (this.flusher == null || this.closed)
+			return;
+		this.closed = true;
+		LockSupport.unpark(this.flusher);
+		try {
+			this.flusher.join(TimeUnit.SECONDS.toMillis(1));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,339 @@
+package engine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+/**
+ * Offline aggregation of telemetry session files into per-level
+ * statistics.
+ *
+ * Every file is read and summed up on its own, in parallel, and the
+ * summaries are merged, so thousands of sessions are processed at the
+ * speed of the disk. Damaged files are skipped.
+ */
+public final class TelemetryReport {
+
+	/** Statistics of one level over many sessions. */
+	public static final class LevelStats {
+		/** Times the level was started. */
+		private long attempts;
+		/** Times the level was cleared. */
+		private long clears;
+		/** Total time spent in cleared attempts, in milliseconds. */
+		private long playTime;
+		/** Bullets shot. */
+		private long shots;
+		/** Enemies destroyed. */
+		private long kills;
+		/** Enemies destroyed, by weapon. */
+		private final long[] weaponKills = new long[3];
+		/** Skill uses, by skill. */
+		private final long[] skillUses = new long[4];
+		/** Items picked up. */
+		private long items;
+		/** Hits on the player's ship. */
+		private long deaths;
+
+		/**
+		 * Adds an event of this level.
+		 *
+		 * @param event
+		 *            Type of event.
+		 * @param first
+		 *            First value of the event.
+		 * @param second
+		 *            Second value of the event.
+		 * @param third
+		 *            Third value of the event.
+		 */
+		private void add(final Telemetry.Event event, final int first,
+				final int second, final int third) {
+			switch (event) {
+			case LEVEL_START:
+				this.attempts++;
+				break;
+			case LEVEL_END:
+				if (second > 0) {
+					this.clears++;
+					this.playTime += third;
+				}
+				break;
+			case SHOT:
+				this.shots++;
+				break;
+			case KILL:
+				this.kills++;
+				if (second >= 0 && second < this.weaponKills.length)
+					this.weaponKills[second]++;
+				break;
+			case SKILL:
+				if (first >= 1 && first <= this.skillUses.length)
+					this.skillUses[first - 1]++;
+				break;
+			case ITEM:
+				this.items++;
+				break;
+			case DEATH:
+				this.deaths++;
+				break;
+			default:
+				break;
+			}
+		}
+
+		/**
+		 * Adds the statistics of other sessions.
+		 *
+		 * @param other
+		 *            Statistics to add.
+		 * @return This object.
+		 */
+		private LevelStats merge(final LevelStats other) {
+			this.attempts += other.attempts;
+			this.clears += other.clears;
+			this.playTime += other.playTime;
+			this.shots += other.shots;
+			this.kills += other.kills;
+			for (int i = 0; i < this.weaponKills.length; i++)
+				this.weaponKills[i] += other.weaponKills[i];
+			for (int i = 0; i < this.skillUses.length; i++)
+				this.skillUses[i] += other.skillUses[i];
+			this.items += other.items;
+			this.deaths += other.deaths;
+			return this;
+		}
+
+		/**
+		 * @return Times the level was started.
+		 */
+		public long getAttempts() {
+			return this.attempts;
+		}
+
+		/**
+		 * @return Times the level was cleared.
+		 */
+		public long getClears() {
+			return this.clears;
+		}
+
+		/**
+		 * @return Average time to clear the level, in milliseconds.
+		 */
+		public long getAverageTime() {
+			return this.clears == 0 ? 0 : this.playTime / this.clears;
+		}
+
+		/**
+		 * @return Enemies destroyed per bullet shot.
+		 */
+		public double getAccuracy() {
+			return this.shots == 0 ? 0 : (double) this.kills / this.shots;
+		}
+
+		/**
+		 * @return Bullets shot.
+		 */
+		public long getShots() {
+			return this.shots;
+		}
+
+		/**
+		 * @return Enemies destroyed.
+		 */
+		public long getKills() {
+			return this.kills;
+		}
+
+		/**
+		 * @param weapon
+		 *            Weapon, one of the Telemetry WEAPON constants.
+		 * @return Enemies destroyed with the weapon.
+		 */
+		public long getKills(final int weapon) {
+			return this.weaponKills[weapon];
+		}
+
+		/**
+		 * @param skill
+		 *            Skill number, from 1.
+		 * @return Uses of the skill.
+		 */
+		public long getSkillUses(final int skill) {
+			return this.skillUses[skill - 1];
+		}
+
+		/**
+		 * @return Items picked up.
+		 */
+		public long getItems() {
+			return this.items;
+		}
+
+		/**
+		 * @return Hits on the player's ship.
+		 */
+		public long getDeaths() {
+			return this.deaths;
+		}
+	}
+
+	/**
+	 * Utility class.
+	 */
+	private TelemetryReport() {
+	}
+
+	/**
+	 * Aggregates every session file in a directory.
+	 *
+	 * @param directory
+	 *            Directory of the session files.
+	 * @return Statistics by level.
+	 * @throws IOException
+	 *             If the directory cannot be listed.
+	 */
+	public static Map<Integer, LevelStats> aggregate(final Path directory)
+			throws IOException {
+		Stream<Path> files = Files.list(directory);
+		try {
+			return files
+					.filter(file -> file.getFileName().toString()
+							.endsWith(Telemetry.EXTENSION))
+					.parallel()
+					.map(TelemetryReport::readSession)
+					.reduce(new TreeMap<Integer, LevelStats>(),
+							TelemetryReport::merge,
+							TelemetryReport::merge);
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		} finally {
+			files.close();
+		}
+	}
+
+	/**
+	 * Sums up one session file.
+	 *
+	 * @param file
+	 *            Session file.
+	 * @return Statistics by level, empty if the file is damaged.
+	 */
+	static Map<Integer, LevelStats> readSession(final Path file) {
+		Map<Integer, LevelStats> levels = new TreeMap<Integer, LevelStats>();
+		ByteBuffer buffer;
+		try {
+			buffer = ByteBuffer.wrap(Files.readAllBytes(file))
+					.order(ByteOrder.LITTLE_ENDIAN);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (buffer.remaining() < Telemetry.HEADER_SIZE
+				|| buffer.getInt() != Telemetry.MAGIC)
+			return levels;
+		int version = buffer.getInt();
+		if (version > Telemetry.VERSION)
+			return levels;
+		buffer.getLong(); // Session.
+
+		Telemetry.Event[] events = Telemetry.Event.values();
+		// A torn last record is ignored.
+		while (buffer.remaining() >= Telemetry.RECORD_SIZE) {
+			int type = buffer.get() & 0xFF;
+			int level;
+			if (version == 1) {
+				level = buffer.get() & 0xFF;
+				buffer.getShort();
+			} else {
+				buffer.get();
+				level = buffer.getShort() & 0xFFFF;
+			}
+			int first = buffer.getInt();
+			int second = buffer.getInt();
+			int third = buffer.getInt();
+			buffer.getLong(); // Time.
+			if (type >= events.length || level == 0)
+				continue;
+			LevelStats stats = levels.get(level);
+			if (stats == null) {
+				stats = new LevelStats();
+				levels.put(level, stats);
+			}
+			stats.add(events[type], first, second, third);
+		}
+		return levels;
+	}
+
+	/**
+	 * Merges two sets of statistics into a new one.
+	 *
+	 * @param left
+	 *            Statistics by level.
+	 * @param right
+	 *            Statistics by level.
+	 * @return Sum of both.
+	 */
+	private static Map<Integer, LevelStats> merge(
+			final Map<Integer, LevelStats> left,
+			final Map<Integer, LevelStats> right) {
+		Map<Integer, LevelStats> sum = new TreeMap<Integer, LevelStats>();
+		addAll(sum, left);
+		addAll(sum, right);
+		return sum;
+	}
+
+	/**
+	 * Adds statistics into a sum.
+	 *
+	 * @param sum
+	 *            Statistics by level, updated.
+	 * @param part
+	 *            Statistics by level to add, unchanged.
+	 */
+	private static void addAll(final Map<Integer, LevelStats> sum,
+			final Map<Integer, LevelStats> part) {
+		for (Map.Entry<Integer, LevelStats> entry : part.entrySet()) {
+			LevelStats stats = sum.get(entry.getKey());
+			if (stats == null) {
+				stats = new LevelStats();
+				sum.put(entry.getKey(), stats);
+			}
+			stats.merge(entry.getValue());
+		}
+	}
+
+	/**
+	 * Prints the statistics of a telemetry directory.
+	 *
+	 * @param args
+	 *            Directory of the session files, the default one if absent.
+	 * @throws IOException
+	 *             If the directory cannot be read.
+	 */
+	public static void main(final String[] args) throws IOException {
+		Path directory = Paths.get(args.length > 0 ? args[0]
+				: Telemetry.DEFAULT_DIRECTORY);
+		System.out.println("level attempts clears avg-time accuracy "
+				+ "skill1 skill2 skill3 skill4 items deaths");
+		for (Map.Entry<Integer, LevelStats> entry
+				: aggregate(directory).entrySet()) {
+			LevelStats stats = entry.getValue();
+			System.out.println(String.format(
+					"%5d %8d %6d %7.1fs %7.1f%% %6d %6d %6d %6d %5d %6d",
+					entry.getKey(), stats.getAttempts(), stats.getClears(),
+					stats.getAverageTime() / 1000.0,
+					stats.getAccuracy() * 100, stats.getSkillUses(1),
+					stats.getSkillUses(2), stats.getSkillUses(3),
+					stats.getSkillUses(4), stats.getItems(),
+					stats.getDeaths()));
+		}
+	}
+}
@@ -0,0 +1,176 @@
+package engine;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.logging.Logger;
+
+/**
+ * Volume of each gain bus, as set by the player and kept between runs.
+ *
+ * A change sets the gain of one bus in the backend, which applies it to
+ * every sound of the bus at once. Levels are saved as lines of a bus name
+ * and a level in decibels.
+ */
+public final class Volume {
+
+	/** Name of the volume file in the save directory. */
+	public static final String FILE = "volume";
+	/** Highest level, in decibels. */
+	private static final float MAX_LEVEL = 6.0f;
+	/** Lowest level, in decibels. */
+	private static final float MIN_LEVEL = -80.0f;
+	/** Level change of increase and decrease, in decibels. */
+	private static final float STEP = 5.0f;
+	/** Level of the music until the player changes it, in decibels. */
+	private static final float DEFAULT_MUSIC_LEVEL = -5.0f;
+
+	/** Backend the levels are applied to. */
+	private final AudioBackend backend;
+	/** File the levels are kept in. */
+	private final Path file;
+	/** Level of each bus, by ordinal, in decibels. */
+	private final float[] levels = new float[GainBus.values().length];
+	/** Checks if a level changed since the last save. */
+	private boolean changed;
+
+	/**
+	 * Constructor, reading the saved levels and applying them.
+	 *
+	 * @param backend
+	 *            Backend the levels are applied to.
+	 * @param file
+	 *            File the levels are kept in.
+	 */
+	public Volume(final AudioBackend backend, final Path file) {
+		this.backend = backend;
+		this.file = file;
+		this.levels[GainBus.MUSIC.ordinal()] = DEFAULT_MUSIC_LEVEL;
+		try {
+			load(new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+		} catch (NoSuchFileException e) {
+			// Defaults until the player changes a level.
+		} catch (IOException e) {
+			logger().warning("Volume not loaded: " + e.getMessage());
+		}
+		for (GainBus bus : GainBus.values())
+			apply(bus);
+	}
+
+	/**
+	 * Reads saved levels, skipping unknown buses and bad lines.
+	 *
+	 * @param text
+	 *            Saved levels.
+	 * @throws IOException
+	 *             Never, from reading the text.
+	 */
+	private void load(final String text) throws IOException {
+		BufferedReader reader = new BufferedReader(new StringReader(text));
+		String line;
+		while ((line = reader.readLine()) != null) {
+			String[] parts = line.trim().split("\\s+");
+			if (parts.length != 2)
+				continue;
+			try {
+				GainBus bus = GainBus.valueOf(
+						parts[0].toUpperCase(Locale.ROOT));
+				float level = Float.parseFloat(parts[1]);
+				this.levels[bus.ordinal()] = Math.max(MIN_LEVEL,
+						Math.min(MAX_LEVEL, level));
+			} catch (IllegalArgumentException e) {
+				logger().warning("Bad volume line: " + line);
+			}
+		}
+	}
+
+	/**
+	 * @param bus
+	 *            Bus.
+	 * @return Level of the bus, in decibels.
+	 */
+	public synchronized float getLevel(final GainBus bus) {
+		return this.levels[bus.ordinal()];
+	}
+
+	/**
+	 * Raises the level of a bus by a step, up to the highest level.
+	 *
+	 * @param bus
+	 *            Bus to change.
+	 */
+	public synchronized void increase(final GainBus bus) {
+		float value = this.levels[bus.ordinal()] + STEP;
+		if (value < MAX_LEVEL)
+			setLevel(bus, value);
+	}
+
+	/**
+	 * Lowers the level of a bus by a step, down to the lowest level.
+	 *
+	 * @param bus
+	 *            Bus to change.
+	 */
+	public synchronized void decrease(final GainBus bus) {
+		float value = this.levels[bus.ordinal()] - STEP;
+		if (value > MIN_LEVEL)
+			setLevel(bus, value);
+	}
+
+	/**
+	 * @param bus
+	 *            Bus to change.
+	 * @param value
+	 *            Level, in decibels.
+	 */
+	private void setLevel(final GainBus bus, final float value) {
+		this.levels[bus.ordinal()] = value;
+		this.changed = true;
+		apply(bus);
+	}
+
+	/**
+	 * Sets the gain of a bus in the backend.
+	 *
+	 * @param bus
+	 *            Bus to apply.
+	 */
+	private void apply(final GainBus bus) {
+		this.backend.setBusGain(bus,
+				(float) Math.pow(10, this.levels[bus.ordinal()] / 20));
+	}
+
+	/**
+	 * Saves the levels if they changed.
+	 */
+	public synchronized void save() {
+		if (!this.changed)
+			return;
+		StringBuilder text = new StringBuilder();
+		for (GainBus bus : GainBus.values())
+			text.append(bus.name().toLowerCase(Locale.ROOT)).append(' ')
+					.append(this.levels[bus.ordinal()]).append('\n');
+		try {
+			Path directory = this.file.toAbsolutePath().getParent();
+			Files.createDirectories(directory);
+			AtomicFiles.replace(this.file, ByteBuffer.wrap(text.toString()
+					.getBytes(StandardCharsets.UTF_8)));
+			this.changed = false;
+		} catch (IOException e) {
+			logger().warning("Volume not saved: " + e.getMessage());
+		}
+	}
+
+	/**
+	 * @return Application logger, without initializing the game.
+	 */
+	private static Logger logger() {
+		return Logger.getLogger(Core.class.getSimpleName());
+	}
+}
@@ -9,6 +9,10 @@ public class Boom extends Entity {
 
     private int speedX ;
     private int speedY ;
+    /** Position in the x-axis before the last update. */
+    private int previousPositionX;
+    /** Position in the y-axis before the last update. */
+    private int previousPositionY;
     /**
      * Constructor, establishes the entity's generic properties.
      *
@@ -22,14 +26,38 @@ public class Boom extends Entity {
         this.speedX = speedX;
         this.speedY = speedY;
         this.spriteType = DrawManager.SpriteType.Boom;
+        resetPreviousPosition();
     }
     /**
      * Updates the boom's position.
      */
     public final void update() {
+        this.previousPositionX = this.positionX;
+        this.previousPositionY = this.positionY;
         this.positionX += this.speedX;
         this.positionY += this.speedY;
     }
+    /**
+     * Forgets the last movement, used when the boom is placed rather than
+     * moved.
+     */
+    public final void resetPreviousPosition() {
+        this.previousPositionX = this.positionX;
+        this.previousPositionY = this.positionY;
+    }
+
+    /**
+     * Getter for the X axis position before the last update.
+     * @return Previous position of the boom in the X axis.
+     */
+    public final int getPreviousPositionX() { return this.previousPositionX; }
+
+    /**
+     * Getter for the Y axis position before the last update.
+     * @return Previous position of the boom in the Y axis.
+     */
+    public final int getPreviousPositionY() { return this.previousPositionY; }
+
     /**
      * Setter of the speeds of the boom.
      *
@@ -43,5 +71,19 @@ public class Boom extends Entity {
         this.speedY = speedY;
     }
 
+    /**
+     * Getter for the speedX of the boom.
+     *
+     * @return SpeedX of the boom.
+     */
+    public final int getSpeedX() { return this.speedX; }
+
+    /**
+     * Getter for the speedY of the boom.
+     *
+     * @return SpeedY of the boom.
+     */
+    public final int getSpeedY() { return this.speedY; }
+
 
 }
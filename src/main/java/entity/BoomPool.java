@@ -1,13 +1,15 @@
 package entity;
 
 import java.io.Serializable;
-import java.util.HashSet;
 import java.util.Set;
 
+import engine.ObjectPool;
+
 public class BoomPool implements Serializable {
 
-    /** Set of already created booms. */
-    private static Set<Boom> pool = new HashSet<>();
+    /** Already created booms, handed out again once recycled. */
+    private static final ObjectPool<Boom> pool = new ObjectPool<>("Boom",
+            () -> new Boom(0, 0, 0, 0), null, ObjectPool.Policy.bounded(0, 16));
 
     /** Constructor, not called */
     private BoomPool() {
@@ -32,18 +34,11 @@ public class BoomPool implements Serializable {
      */
     public static Boom getBoom(final int positionX,
                                    final int positionY, final int speedX , final int speedY) {
-        Boom boom;
-        if (!pool.isEmpty()) {
-            boom = pool.iterator().next();
-            pool.remove(boom);
-            boom.setPositionX(positionX - boom.getWidth() / 2);
-            boom.setPositionY(positionY);
-            boom.setSpeed(speedX,speedY);
-
-        } else {
-            boom = new Boom(positionX, positionY, speedX,speedY);
-            boom.setPositionX(positionX - boom.getWidth() / 2);
-        }
+        Boom boom = pool.acquire();
+        boom.setPositionX(positionX - boom.getWidth() / 2);
+        boom.setPositionY(positionY);
+        boom.setSpeed(speedX, speedY);
+        boom.resetPreviousPosition();
         return boom;
     }
 
@@ -55,6 +50,13 @@ public class BoomPool implements Serializable {
      *            Booms to recycle.
      */
     public static void recycle(final Set<Boom> boom) {
-        pool.addAll(boom);
+        pool.releaseAll(boom);
+    }
+
+    /**
+     * Drops every recycled boom, used when a game is left.
+     */
+    public static void reset() {
+        pool.reset();
     }
 }
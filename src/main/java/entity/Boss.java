@@ -2,6 +2,7 @@ package entity;
 
 import engine.Cooldown;
 import engine.DrawManager;
+import engine.GameRandom;
 import screen.Screen;
 
 import java.awt.*;
@@ -123,7 +124,7 @@ public class Boss extends Entity {
         if(movementInterval >= 50) {
             movementInterval = 0;
 
-            switch (new Random().nextInt(8)) {
+            switch (GameRandom.get().nextInt(8)) {
                 case 0: // LEFT_DOWN
                     currentDirection =  Direction.LEFT_DOWN;
                     break;
@@ -241,8 +242,8 @@ public class Boss extends Entity {
         if (this.shootingCooldown.checkFinished()) {
             this.shootingCooldown.reset();
             for (int i = 0; i<=6; i++) {
-                speedX.add(xlist[new Random().nextInt(8)]);
-                while(speedX.size()!=i+1) speedX.add(xlist[new Random().nextInt(8)]);
+                speedX.add(xlist[GameRandom.get().nextInt(8)]);
+                while(speedX.size()!=i+1) speedX.add(xlist[GameRandom.get().nextInt(8)]);
             }
 
             for(Iterator i = speedX.iterator(); i.hasNext();){
@@ -270,6 +271,15 @@ public class Boss extends Entity {
         }
     }
 
+    /**
+     * Getter for the remaining lives of the boss.
+     *
+     * @return Lives left.
+     */
+    public final int getLives() {
+        return this.live;
+    }
+
     /**
      * Getter for the score bonus if this boss is destroyed.
      *
@@ -21,6 +21,10 @@ public class Bullet extends Entity {
 	 */
 	private int speedX;
 	private int speedY;
+	/** Position in the x-axis before the last update. */
+	private int previousPositionX;
+	/** Position in the y-axis before the last update. */
+	private int previousPositionY;
 
 	/**
 	 * Constructor, establishes the bullet's properties.
@@ -40,6 +44,7 @@ public class Bullet extends Entity {
 		this.speedX = speedX;
 		this.speedY = speedY;
 		setSprite();
+		resetPreviousPosition();
 	}
 
 	/**
@@ -70,6 +75,8 @@ public class Bullet extends Entity {
 	 * Updates the bullet's position.
 	 */
 	public final void update(boolean skill3) {
+		this.previousPositionX = this.positionX;
+		this.previousPositionY = this.positionY;
 		if(skill3 && this.speedY > 0){
 			this.positionY += 1 ;
 			this.positionX += this.speedX;
@@ -80,6 +87,37 @@ public class Bullet extends Entity {
 		}
 	}
 
+	/**
+	 * Forgets the last movement, used when the bullet is placed rather than
+	 * moved.
+	 */
+	public final void resetPreviousPosition() {
+		this.previousPositionX = this.positionX;
+		this.previousPositionY = this.positionY;
+	}
+
+	/**
+	 * Restores the default size, bigger bullets change it in setSprite.
+	 */
+	final void resetSize() {
+		this.width = 5 * 2;
+		this.height = 5 * 2;
+	}
+
+	/**
+	 * Getter for the X axis position before the last update.
+	 *
+	 * @return Previous position of the bullet in the X axis.
+	 */
+	public final int getPreviousPositionX() { return this.previousPositionX; }
+
+	/**
+	 * Getter for the Y axis position before the last update.
+	 *
+	 * @return Previous position of the bullet in the Y axis.
+	 */
+	public final int getPreviousPositionY() { return this.previousPositionY; }
+
 	/**
 	 * Setter of the speed of the bullet.
 	 * 
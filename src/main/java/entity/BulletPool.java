@@ -1,9 +1,10 @@
 package entity;
 
 import java.io.Serializable;
-import java.util.HashSet;
 import java.util.Set;
 
+import engine.ObjectPool;
+
 /**
  * Implements a pool of recyclable bullets.
  *
@@ -12,8 +13,19 @@ import java.util.Set;
  */
 public final class BulletPool implements Serializable {
 
-	/** Set of already created bullets. */
-	private static Set<Bullet> pool = new HashSet<Bullet>();
+	/** Already created bullets, handed out again once recycled. */
+	private static final ObjectPool<Bullet> pool = new ObjectPool<Bullet>(
+			"Bullet", new ObjectPool.Factory<Bullet>() {
+				@Override
+				public Bullet create() {
+					return new Bullet(0, 0, 0, 0);
+				}
+			}, new ObjectPool.Resetter<Bullet>() {
+				@Override
+				public void reset(final Bullet bullet) {
+					bullet.resetSize();
+				}
+			}, ObjectPool.Policy.bounded(0, 256));
 
 	/**
 	 * Constructor, not called.
@@ -40,20 +52,12 @@ public final class BulletPool implements Serializable {
 	 */
 	public static Bullet getBullet(final int positionX, final int positionY,
 								   final int speedX, final int speedY) {
-		Bullet bullet;
-
-		if (!pool.isEmpty()) {
-			bullet = pool.iterator().next();
-			pool.remove(bullet);
-			bullet.setPositionX(positionX - bullet.getWidth() / 2);
-			bullet.setPositionY(positionY);
-			bullet.setSpeed(speedX, speedY);
-			bullet.setSprite();
-
-		} else {
-			bullet = new Bullet(positionX, positionY, speedX, speedY);
-			bullet.setPositionX(positionX - bullet.getWidth() / 2);
-		}
+		Bullet bullet = pool.acquire();
+		bullet.setSpeed(speedX, speedY);
+		bullet.setSprite();
+		bullet.setPositionX(positionX - bullet.getWidth() / 2);
+		bullet.setPositionY(positionY);
+		bullet.resetPreviousPosition();
 		return bullet;
 	}
 
@@ -65,6 +69,14 @@ public final class BulletPool implements Serializable {
 	 *            Bullets to recycle.
 	 */
 	public static void recycle(final Set<Bullet> bullet) {
-		pool.addAll(bullet);
+		pool.releaseAll(bullet);
+	}
+
+	/**
+	 * Drops every recycled bullet, used when a game is left so bullets of
+	 * a finished game are not kept alive.
+	 */
+	public static void reset() {
+		pool.reset();
 	}
 }
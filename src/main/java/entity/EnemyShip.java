@@ -34,6 +34,10 @@ public class EnemyShip extends Entity {
 	private int pointValue;
 
 	private int lives = 1;
+	/** Column of the ship in its formation. */
+	int formationColumn;
+	/** Row of the ship in its formation. */
+	int formationRow;
 
 	/**
 	 * Constructor, establishes the ship's properties.
@@ -89,6 +93,19 @@ public class EnemyShip extends Entity {
 		this.pointValue = BONUS_TYPE_POINTS;
 	}
 
+	/**
+	 * Puts a recycled special ship back at its starting properties.
+	 */
+	final void respawnSpecial() {
+		this.positionX = -32;
+		this.positionY = 120;
+		this.spriteType = SpriteType.EnemyShipSpecial1;
+		this.animationCooldown.reset();
+		this.isDestroyed = false;
+		this.lives = 1;
+		this.pointValue = BONUS_TYPE_POINTS;
+	}
+
 	/**
 	 * Getter for the score bonus if this ship is destroyed.
 	 * 
@@ -117,53 +134,49 @@ public class EnemyShip extends Entity {
 	public final void update() {
 		if (this.animationCooldown.checkFinished()) {
 			this.animationCooldown.reset();
+			this.spriteType = nextFrame(this.spriteType);
+		}
+	}
 
-			switch (this.spriteType) {
-				case EnemyShipA1:
-					this.spriteType = SpriteType.EnemyShipA2;
-					break;
-				case EnemyShipA2:
-					this.spriteType = SpriteType.EnemyShipA1;
-					break;
-				case EnemyShipB1:
-					this.spriteType = SpriteType.EnemyShipB2;
-					break;
-				case EnemyShipB2:
-					this.spriteType = SpriteType.EnemyShipB1;
-					break;
-				case EnemyShipC1:
-					this.spriteType = SpriteType.EnemyShipC2;
-					break;
-				case EnemyShipC2:
-					this.spriteType = SpriteType.EnemyShipC1;
-					break;
-				case EnemyShipD1:
-					this.spriteType = SpriteType.EnemyShipD2;
-					break;
-				case EnemyShipD2:
-					this.spriteType = SpriteType.EnemyShipD1;
-					break;
-				case EnemyShipD3:
-					this.spriteType = SpriteType.EnemyShipD4;
-					break;
-				case EnemyShipD4:
-					this.spriteType = SpriteType.EnemyShipD3;
-					break;
-				case EnemyShipSpecial1:
-					this.spriteType = SpriteType.EnemyShipSpecial2;
-					break;
-				case EnemyShipSpecial2:
-					this.spriteType = SpriteType.EnemyShipSpecial3;
-					break;
-				case EnemyShipSpecial3:
-					this.spriteType = SpriteType.EnemyShipSpecial4;
-					break;
-				case EnemyShipSpecial4:
-					this.spriteType = SpriteType.EnemyShipSpecial1;
-					break;
-				default:
-					break;
-			}
+	/**
+	 * Gets the animation frame that follows a given sprite.
+	 *
+	 * @param spriteType
+	 *            Current frame.
+	 * @return Next frame, or the same sprite if it is not animated.
+	 */
+	public static SpriteType nextFrame(final SpriteType spriteType) {
+		switch (spriteType) {
+			case EnemyShipA1:
+				return SpriteType.EnemyShipA2;
+			case EnemyShipA2:
+				return SpriteType.EnemyShipA1;
+			case EnemyShipB1:
+				return SpriteType.EnemyShipB2;
+			case EnemyShipB2:
+				return SpriteType.EnemyShipB1;
+			case EnemyShipC1:
+				return SpriteType.EnemyShipC2;
+			case EnemyShipC2:
+				return SpriteType.EnemyShipC1;
+			case EnemyShipD1:
+				return SpriteType.EnemyShipD2;
+			case EnemyShipD2:
+				return SpriteType.EnemyShipD1;
+			case EnemyShipD3:
+				return SpriteType.EnemyShipD4;
+			case EnemyShipD4:
+				return SpriteType.EnemyShipD3;
+			case EnemyShipSpecial1:
+				return SpriteType.EnemyShipSpecial2;
+			case EnemyShipSpecial2:
+				return SpriteType.EnemyShipSpecial3;
+			case EnemyShipSpecial3:
+				return SpriteType.EnemyShipSpecial4;
+			case EnemyShipSpecial4:
+				return SpriteType.EnemyShipSpecial1;
+			default:
+				return spriteType;
 		}
 	}
 	/**
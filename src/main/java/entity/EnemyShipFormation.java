@@ -3,6 +3,7 @@ package entity;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import screen.Screen;
@@ -10,7 +11,9 @@ import engine.Cooldown;
 import engine.Core;
 import engine.DrawManager;
 import engine.DrawManager.SpriteType;
+import engine.GameRandom;
 import engine.GameSettings;
+import engine.GameSnapshot;
 
 /**
  * Groups enemy ships into a formation that moves together.
@@ -26,12 +29,6 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 	private static final int INIT_POS_Y = 200;
 	/** Distance between ships. */
 	private static final int SEPARATION_DISTANCE = 40;
-	/** Proportion of C-type ships. */
-	private static final double PROPORTION_C = 0.2;
-	/** Proportion of B-type ships. */
-	private static final double PROPORTION_B = 0.3;
-	/** Proportion of B-type ships. */
-	private static final double PROPORTION_A = 0.3;
 	/** Lateral speed of the formation. */
 	private static final int X_SPEED = 8;
 	/** Downwards speed of the formation. */
@@ -60,8 +57,8 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 	private transient Screen screen;
 
 
-	/** List of enemy ships forming the formation. */
-	private List<List<EnemyShip>> enemyShips;
+	/** Ships forming the formation, indexed [column][row], null once removed. */
+	private EnemyShip[][] enemyShips;
 	/** Minimum time between shots. */
 	private Cooldown shootingCooldown;
 	/** moving change interval */
@@ -74,6 +71,8 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 	private int shootingInterval;
 	/** Variance in the time between shots. */
 	private int shootingVariance;
+	/** Checks if the formation stays in place, as in bonus stages. */
+	private boolean stationary;
 	/** Initial ship speed. */
 	private int baseSpeed;
 	/** Speed of the ships. */
@@ -96,10 +95,34 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 	private int shipWidth;
 	/** Height of one ship. */
 	private int shipHeight;
-	/** List of ships that are able to shoot. */
-	private List<EnemyShip> shooters;
 	/** Number of not destroyed ships. */
 	private int shipCount;
+	/** Number of not destroyed ships in each column. */
+	private int[] columnCounts;
+	/** Number of not destroyed ships in each row. */
+	private int[] rowCounts;
+	/** Row of the bottom-most live ship in each column, -1 when empty. */
+	private int[] bottomRows;
+	/** Columns that still have a live ship, their bottom ship can shoot. */
+	private int[] shooterColumns;
+	/** Index of each column in shooterColumns, -1 when it has no shooter. */
+	private int[] shooterSlots;
+	/** Number of columns in shooterColumns. */
+	private int shooterCount;
+	/** First column with a live ship. */
+	private int firstColumn;
+	/** Last column with a live ship. */
+	private int lastColumn;
+	/** First row with a live ship. */
+	private int firstRow;
+	/** Last row with a live ship. */
+	private int lastRow;
+	/** Position in the x-axis of the upper left slot, even if empty. */
+	private int originX;
+	/** Position in the y-axis of the upper left slot, even if empty. */
+	private int originY;
+	/** Destroyed ships still showing their explosion. */
+	private List<EnemyShip> explosions;
 	/** Pattern motion button. */
 	private int currentPattern ;
 	private int previousPattern;
@@ -132,63 +155,80 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 		this.logger = Core.getLogger();
 		this.moovingCooldown = Core.getCooldown(MOVE_CHANGE);
 		this.moovingCooldown.reset();
-		this.enemyShips = new ArrayList<List<EnemyShip>>();
 		this.currentDirection = Direction.RIGHT;
 		this.movementInterval = 0;
 		this.nShipsWide = gameSettings.getFormationWidth();
 		this.nShipsHigh = gameSettings.getFormationHeight();
 		this.shootingInterval = gameSettings.getShootingFrecuency();
+		this.stationary = gameSettings.getStageType()
+				== GameSettings.StageType.BONUS;
 		this.shootingVariance = (int) (gameSettings.getShootingFrecuency()
 				* SHOOTING_VARIANCE);
 		this.baseSpeed = gameSettings.getBaseSpeed();
 		this.movementSpeed = this.baseSpeed;
 		this.positionX = INIT_POS_X;
 		this.positionY = INIT_POS_Y;
-		this.shooters = new ArrayList<EnemyShip>();
+		this.originX = INIT_POS_X;
+		this.originY = INIT_POS_Y;
+		this.explosions = new ArrayList<EnemyShip>();
 		//패턴 동작버튼
 		this.currentPattern = 0;
 		this.previousPattern = 0;
 
 		SpriteType spriteType;
+		int shareA = gameSettings.getEnemyShare(0);
+		int shareB = shareA + gameSettings.getEnemyShare(1);
+		int shareC = shareB + gameSettings.getEnemyShare(2);
 
 		this.logger.info("Initializing " + nShipsWide + "x" + nShipsHigh
 				+ " ship formation in (" + positionX + "," + positionY + ")");
 
-		// Each sub-list is a column on the formation.
-		for (int i = 0; i < this.nShipsWide; i++)
-			this.enemyShips.add(new ArrayList<EnemyShip>());
+		this.enemyShips = new EnemyShip[this.nShipsWide][this.nShipsHigh];
+		this.columnCounts = new int[this.nShipsWide];
+		this.rowCounts = new int[this.nShipsHigh];
+		this.bottomRows = new int[this.nShipsWide];
+		this.shooterColumns = new int[this.nShipsWide];
+		this.shooterSlots = new int[this.nShipsWide];
 
-		for (List<EnemyShip> column : this.enemyShips) {
+		for (int column = 0; column < this.nShipsWide; column++) {
 			for (int i = 0; i < this.nShipsHigh; i++) {
-				if (i / (float) this.nShipsHigh < PROPORTION_A)
+				// Rows by percent of the height, in whole numbers.
+				if (i * 100 < shareA * this.nShipsHigh)
 					spriteType = SpriteType.EnemyShipA1;
-				else if (i / (float) this.nShipsHigh < PROPORTION_A
-						+ PROPORTION_B)
+				else if (i * 100 < shareB * this.nShipsHigh)
 					spriteType = SpriteType.EnemyShipB1;
-				else if (i / (float) this.nShipsHigh < PROPORTION_A
-						+ PROPORTION_B + PROPORTION_C)
+				else if (i * 100 < shareC * this.nShipsHigh)
 					spriteType = SpriteType.EnemyShipC1;
 				else
 					spriteType = SpriteType.EnemyShipD1;
 
-				column.add(new EnemyShip((SEPARATION_DISTANCE 
-						* this.enemyShips.indexOf(column))
-								+ positionX, (SEPARATION_DISTANCE * i)
-								+ positionY, spriteType));
+				EnemyShip enemyShip = new EnemyShip((SEPARATION_DISTANCE
+						* column) + positionX, (SEPARATION_DISTANCE * i)
+								+ positionY, spriteType);
+				enemyShip.formationColumn = column;
+				enemyShip.formationRow = i;
+				this.enemyShips[column][i] = enemyShip;
+				this.columnCounts[column]++;
+				this.rowCounts[i]++;
 				this.shipCount++;
 			}
+			this.bottomRows[column] = this.nShipsHigh - 1;
+			this.shooterColumns[column] = column;
+			this.shooterSlots[column] = column;
 		}
+		this.shooterCount = this.nShipsWide;
+		this.firstColumn = 0;
+		this.lastColumn = this.nShipsWide - 1;
+		this.firstRow = 0;
+		this.lastRow = this.nShipsHigh - 1;
 
-		this.shipWidth = this.enemyShips.get(0).get(0).getWidth();
-		this.shipHeight = this.enemyShips.get(0).get(0).getHeight();
+		this.shipWidth = this.enemyShips[0][0].getWidth();
+		this.shipHeight = this.enemyShips[0][0].getHeight();
 
 		this.width = (this.nShipsWide - 1) * SEPARATION_DISTANCE
 				+ this.shipWidth;
 		this.height = (this.nShipsHigh - 1) * SEPARATION_DISTANCE
 				+ this.shipHeight;
-
-		for (List<EnemyShip> column : this.enemyShips)
-			this.shooters.add(column.get(column.size() - 1));
 	}
 
 	/**
@@ -206,10 +246,11 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 	 */
 	public final void draw() {
 		if (drawManager == null) drawManager = Core.getDrawManager();
-		for (List<EnemyShip> column : this.enemyShips)
+		for (EnemyShip[] column : this.enemyShips)
 			for (EnemyShip enemyShip : column)
-				drawManager.drawEntity(enemyShip, enemyShip.getPositionX(),
-						enemyShip.getPositionY());
+				if (enemyShip != null)
+					drawManager.drawEntity(enemyShip, enemyShip.getPositionX(),
+							enemyShip.getPositionY());
 	}
 
 	/**
@@ -248,30 +289,30 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if (isAtHorizontalAltitude)
 						if (previousDirection == Direction.RIGHT) {
 							currentDirection = Direction.LEFT;
-							this.logger.info("Formation now moving left 1");
+							this.logger.fine("Formation now moving left 1");
 						} else {
 							currentDirection = Direction.RIGHT;
-							this.logger.info("Formation now moving right 2");
+							this.logger.fine("Formation now moving right 2");
 						}
 				} else if (currentDirection == Direction.LEFT) {
 					if (isAtLeftSide)
 						if (!isAtBottom) {
 							previousDirection = currentDirection;
 							currentDirection = Direction.DOWN;
-							this.logger.info("Formation now moving down 3");
+							this.logger.fine("Formation now moving down 3");
 						} else {
 							currentDirection = Direction.RIGHT;
-							this.logger.info("Formation now moving right 4");
+							this.logger.fine("Formation now moving right 4");
 						}
 				} else { //RIGHT
 					if (isAtRightSide)
 						if (!isAtBottom) {
 							previousDirection = currentDirection;
 							currentDirection = Direction.DOWN;
-							this.logger.info("Formation now moving down 5");
+							this.logger.fine("Formation now moving down 5");
 						} else {
 							currentDirection = Direction.LEFT;
-							this.logger.info("Formation now moving left 6");
+							this.logger.fine("Formation now moving left 6");
 						}
 				}
 				if (currentDirection == Direction.RIGHT)
@@ -284,34 +325,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 				positionX += movementX;
 				positionY += movementY;
 
-				// Cleans explosions.
-				List<EnemyShip> destroyed;
-				for (List<EnemyShip> column : this.enemyShips) {
-					destroyed = new ArrayList<EnemyShip>();
-					for (EnemyShip ship : column) {
-						if (ship != null && ship.isDestroyed()) {
-							destroyed.add(ship);
-							this.logger.info("Removed enemy "
-									+ column.indexOf(ship) + " from column "
-									+ this.enemyShips.indexOf(column));
-						}
-					}
-					column.removeAll(destroyed);
-				}
-
-				if (!skill2) {
-					for (List<EnemyShip> column : this.enemyShips){
-						for (EnemyShip enemyShip : column) {
-							if(shootingInterval != 2100000){
-								enemyShip.move(movementX, movementY);
-							}
-							else{
-								enemyShip.move(0,0);
-							}
-							enemyShip.update();
-						}
-					}
-				}
+				moveShips(movementX, movementY, skill2);
 			}
 
 		}
@@ -320,7 +334,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 				movementInterval = 0;
 				int bound = 9;
 				if(this.currentPattern == 0){
-					this.currentPattern = new Random().nextInt(bound)+1;
+					this.currentPattern = GameRandom.get().nextInt(bound)+1;
 				}
 				if(this.currentPattern == 1){
 					int goalX = 20;
@@ -330,7 +344,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( X <= goalX && Y <= goalY){
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern)
-							this.currentPattern = new Random().nextInt(bound) + 1;
+							this.currentPattern = GameRandom.get().nextInt(bound) + 1;
 
 					}
 					else if( X > goalX && Y > goalY){
@@ -351,7 +365,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( between(X,goalX-10,goalX+10) && Y <= goalY){ // X true Y true
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern) //이전과 똑같은 방향으로 가지않게.
-							this.currentPattern = new Random().nextInt(bound) + 1;
+							this.currentPattern = GameRandom.get().nextInt(bound) + 1;
 					}
 					else if( !between(X,goalX-10,goalX+10) ){ // X false
 						if( X <= goalX ){
@@ -379,7 +393,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( X >= goalX && Y <= goalY){
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern)
-							this.currentPattern = new Random().nextInt(bound) + 1;
+							this.currentPattern = GameRandom.get().nextInt(bound) + 1;
 
 					}
 					else if( X < goalX && Y > goalY){
@@ -400,7 +414,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( X <= goalX  && between(Y,goalY-10,goalY+10)){
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern)
-							this.currentPattern = new Random().nextInt(bound) + 1;
+							this.currentPattern = GameRandom.get().nextInt(bound) + 1;
 					}
 					else if( !between(Y,goalY-10,goalY+10) ){
 						if( Y <= goalY ){
@@ -428,7 +442,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( between(X,goalX-10,goalX+10)  && between(Y,goalY-10,goalY+10)){
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern)
-							this.currentPattern = new Random().nextInt(bound) + 1;
+							this.currentPattern = GameRandom.get().nextInt(bound) + 1;
 					}
 					else if( !between(Y,goalY-10,goalY+10) ){
 						if( Y <= goalY ){
@@ -467,7 +481,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( X >= goalX  && between(Y,goalY-10,goalY+10)){
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern)
-							this.currentPattern = new Random().nextInt(bound) + 1;
+							this.currentPattern = GameRandom.get().nextInt(bound) + 1;
 					}
 					else if( !between(Y,goalY-10,goalY+10) ){
 						if( Y <= goalY ){
@@ -496,7 +510,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( X <= goalX && Y >= goalY){
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern)
-							this.currentPattern = new Random().nextInt(bound)+1;
+							this.currentPattern = GameRandom.get().nextInt(bound)+1;
 					}
 					else if( X > goalX && Y < goalY){
 						currentDirection = Direction.LEFT_DOWN;
@@ -517,7 +531,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( between(X,goalX-10,goalX+10) && Y >= goalY){
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern)
-							this.currentPattern = new Random().nextInt(bound) + 1;
+							this.currentPattern = GameRandom.get().nextInt(bound) + 1;
 					}
 					else if( !between(X,goalX-10,goalX+10) ){
 						if( X <= goalX ){
@@ -545,7 +559,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 					if( X >= goalX && Y >= goalY){
 						this.previousPattern = this.currentPattern;
 						while(this.currentPattern == this.previousPattern)
-							this.currentPattern = new Random().nextInt(bound)+1;
+							this.currentPattern = GameRandom.get().nextInt(bound)+1;
 					}
 					else if( X < goalX && Y < goalY){
 						currentDirection = Direction.RIGHT_DOWN;
@@ -583,33 +597,7 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 				positionX += movementX;
 				positionY += movementY;
 
-				// Cleans explosions.
-				List<EnemyShip> destroyed;
-				for (List<EnemyShip> column : this.enemyShips) {
-					destroyed = new ArrayList<EnemyShip>();
-					for (EnemyShip ship : column) {
-						if (ship != null && ship.isDestroyed()) {
-							destroyed.add(ship);
-							this.logger.info("Removed enemy "
-									+ column.indexOf(ship) + " from column "
-									+ this.enemyShips.indexOf(column));
-						}
-					}
-					column.removeAll(destroyed);
-				}
-				if (!skill2) {
-					for (List<EnemyShip> column : this.enemyShips){
-						for (EnemyShip enemyShip : column) {
-							if(shootingInterval != 2100000){
-								enemyShip.move(movementX, movementY);
-							}
-							else{
-								enemyShip.move(0,0);
-							}
-							enemyShip.update();
-						}
-					}
-				}
+				moveShips(movementX, movementY, skill2);
 			}
 		}
 	}
@@ -627,53 +615,68 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 	}
 
 	/**
-	 * Cleans empty columns, adjusts the width and height of the formation.
+	 * Removes finished explosions and moves the remaining ships.
+	 *
+	 * @param movementX
+	 *            Distance to move in the x-axis.
+	 * @param movementY
+	 *            Distance to move in the y-axis.
+	 * @param skill2
+	 *            True if the ships are stopped by the stun skill.
 	 */
-	private void cleanUp() {
-		Set<Integer> emptyColumns = new HashSet<Integer>();
-		int maxColumn = 0;
-		int minPositionY = Integer.MAX_VALUE;
-		for (List<EnemyShip> column : this.enemyShips) {
-			if (!column.isEmpty()) {
-				// Height of this column
-				int columnSize = column.get(column.size() - 1).positionY
-						- this.positionY + this.shipHeight;
-				maxColumn = Math.max(maxColumn, columnSize);
-				minPositionY = Math.min(minPositionY, column.get(0)
-						.getPositionY());
-			} else {
-				// Empty column, we remove it.
-				emptyColumns.add(this.enemyShips.indexOf(column));
-			}
-		}
-		for (int index : emptyColumns) {
-			this.enemyShips.remove(index);
-			logger.info("Removed column " + index);
+	private void moveShips(final int movementX, final int movementY,
+			final boolean skill2) {
+		// Cleans explosions.
+		for (EnemyShip ship : this.explosions) {
+			this.enemyShips[ship.formationColumn][ship.formationRow] = null;
+			if (this.logger.isLoggable(Level.FINE))
+				this.logger.log(Level.FINE, "Removed enemy {0} from column {1}",
+						new Object[] { ship.formationRow, ship.formationColumn });
 		}
+		this.explosions.clear();
 
-		int leftMostPoint = 0;
-		int rightMostPoint = 0;
-		
-		for (List<EnemyShip> column : this.enemyShips) {
-			if (!column.isEmpty()) {
-				if (leftMostPoint == 0)
-					leftMostPoint = column.get(0).getPositionX();
-				rightMostPoint = column.get(0).getPositionX();
+		if (!skill2) {
+			if (!this.stationary) {
+				this.originX += movementX;
+				this.originY += movementY;
+			}
+			for (EnemyShip[] column : this.enemyShips) {
+				for (EnemyShip enemyShip : column) {
+					if (enemyShip == null)
+						continue;
+					if (!this.stationary) {
+						enemyShip.move(movementX, movementY);
+					} else {
+						enemyShip.move(0, 0);
+					}
+					enemyShip.update();
+				}
 			}
 		}
-
-		this.width = rightMostPoint - leftMostPoint + this.shipWidth;
-		this.height = maxColumn;
-
-		this.positionX = leftMostPoint;
-		this.positionY = minPositionY;
 	}
 
+	/**
+	 * Adjusts the position, width and height of the formation to the live
+	 * ships, using the bounding box kept up to date by destroy.
+	 */
+	private void cleanUp() {
+		if (this.shipCount <= 0)
+			return;
+		this.positionX = this.originX + this.firstColumn * SEPARATION_DISTANCE;
+		this.positionY = this.originY + this.firstRow * SEPARATION_DISTANCE;
+		this.width = (this.lastColumn - this.firstColumn) * SEPARATION_DISTANCE
+				+ this.shipWidth;
+		this.height = (this.lastRow - this.firstRow) * SEPARATION_DISTANCE
+				+ this.shipHeight;
+	}
 
 	public final void targetingShoot(final Set<Bullet> bullets, final Entity target) {
 		// For now, only ships in the bottom row are able to shoot.
-		int index = (int) (Math.random() * this.shooters.size());
-		EnemyShip shooter = this.shooters.get(index);
+		if (this.shooterCount == 0 || this.shootingInterval <= 0)
+			return;
+		int column = this.shooterColumns[
+				GameRandom.get().nextInt(this.shooterCount)];
+		EnemyShip shooter = this.enemyShips[column][this.bottomRows[column]];
 		if (this.shootingCooldown.checkFinished()) {
 			this.shootingCooldown.reset();
 			int difX = target.getPositionX() + target.width / 2 - shooter.getPositionX() - shooter.width / 2;
@@ -695,57 +698,184 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 	 *            Ship to be destroyed.
 	 */
 	public final void destroy(final EnemyShip destroyedShip) {
-		for (List<EnemyShip> column : this.enemyShips)
-			for (int i = 0; i < column.size(); i++)
-				if (column.get(i).equals(destroyedShip)) {
-					column.get(i).destroy();
-					this.logger.info("Destroyed ship in ("
-							+ this.enemyShips.indexOf(column) + "," + i + ")");
-				}
-
-		// Updates the list of ships that can shoot the player.
-		if (this.shooters.contains(destroyedShip) && destroyedShip.isDestroyed()) {
-			int destroyedShipIndex = this.shooters.indexOf(destroyedShip);
-			int destroyedShipColumnIndex = -1;
-
-			for (List<EnemyShip> column : this.enemyShips)
-				if (column.contains(destroyedShip)) {
-					destroyedShipColumnIndex = this.enemyShips.indexOf(column);
-					break;
-				}
-
-			EnemyShip nextShooter = getNextShooter(this.enemyShips
-					.get(destroyedShipColumnIndex));
+		int column = destroyedShip.formationColumn;
+		int row = destroyedShip.formationRow;
+		if (destroyedShip.isDestroyed()
+				|| this.enemyShips[column][row] != destroyedShip)
+			return;
+
+		destroyedShip.destroy();
+		this.logger.log(Level.INFO, "Destroyed ship in ({0},{1})",
+				new Object[] { column, row });
+		if (!destroyedShip.isDestroyed())
+			return;
+
+		this.explosions.add(destroyedShip);
+		this.shipCount--;
+		this.columnCounts[column]--;
+		this.rowCounts[row]--;
+
+		// Updates the ship that can shoot the player from this column.
+		if (this.columnCounts[column] == 0) {
+			this.bottomRows[column] = -1;
+			removeShooter(column);
+			this.logger.log(Level.INFO, "Shooters list reduced to {0} members.",
+					this.shooterCount);
+		} else if (this.bottomRows[column] == row) {
+			int nextRow = row - 1;
+			while (isGone(column, nextRow))
+				nextRow--;
+			this.bottomRows[column] = nextRow;
+		}
 
-			if (nextShooter != null)
-				this.shooters.set(destroyedShipIndex, nextShooter);
-			else {
-				this.shooters.remove(destroyedShipIndex);
-				this.logger.info("Shooters list reduced to "
-						+ this.shooters.size() + " members.");
-			}
+		// Shrinks the bounding box past emptied edges.
+		if (this.shipCount > 0) {
+			while (this.columnCounts[this.firstColumn] == 0)
+				this.firstColumn++;
+			while (this.columnCounts[this.lastColumn] == 0)
+				this.lastColumn--;
+			while (this.rowCounts[this.firstRow] == 0)
+				this.firstRow++;
+			while (this.rowCounts[this.lastRow] == 0)
+				this.lastRow--;
 		}
+	}
 
-		if (destroyedShip.isDestroyed()) this.shipCount--;
+	/**
+	 * Checks if a slot holds no live ship.
+	 *
+	 * @param column
+	 *            Column of the slot.
+	 * @param row
+	 *            Row of the slot.
+	 * @return True if the slot is empty or its ship is destroyed.
+	 */
+	private boolean isGone(final int column, final int row) {
+		EnemyShip ship = this.enemyShips[column][row];
+		return ship == null || ship.isDestroyed();
+	}
+
+	/**
+	 * Removes a column from the shooters, moving the last one into its slot.
+	 *
+	 * @param column
+	 *            Column left without live ships.
+	 */
+	private void removeShooter(final int column) {
+		int slot = this.shooterSlots[column];
+		int last = this.shooterColumns[--this.shooterCount];
+		this.shooterColumns[slot] = last;
+		this.shooterSlots[last] = slot;
+		this.shooterSlots[column] = -1;
 	}
 
 	/**
 	 * Gets the ship on a given column that will be in charge of shooting.
-	 * 
+	 *
 	 * @param column
 	 *            Column to search.
-	 * @return New shooter ship.
+	 * @return Bottom-most live ship of the column, null if there is none.
+	 */
+	public final EnemyShip getShooter(final int column) {
+		int row = this.bottomRows[column];
+		return row < 0 ? null : this.enemyShips[column][row];
+	}
+
+	/**
+	 * @return Number of ships able to shoot.
+	 */
+	public final int getShooterCount() {
+		return this.shooterCount;
+	}
+
+	/**
+	 * @return Total width of the live ships.
+	 */
+	public final int getWidth() {
+		return this.width;
+	}
+
+	/**
+	 * @return Total height of the live ships.
+	 */
+	public final int getHeight() {
+		return this.height;
+	}
+
+	/**
+	 * Writes the state of the formation to a snapshot section.
+	 *
+	 * @param out
+	 *            Section to write to.
+	 */
+	public final void writeState(final GameSnapshot.Writer out) {
+		out.putInt(this.nShipsWide).putInt(this.nShipsHigh);
+		out.putInt(this.originX).putInt(this.originY);
+		out.putString(this.currentDirection.name());
+		out.putString(this.previousDirection == null ? null
+				: this.previousDirection.name());
+		out.putInt(this.movementInterval);
+		out.putInt(this.currentPattern).putInt(this.previousPattern);
+		for (int column = 0; column < this.nShipsWide; column++)
+			for (int row = 0; row < this.nShipsHigh; row++)
+				out.putByte(isGone(column, row) ? 0
+						: this.enemyShips[column][row].getLives());
+	}
+
+	/**
+	 * Restores the state written by writeState. Ships missing from the
+	 * saved formation are removed, damaged ones are hit again.
+	 *
+	 * @param in
+	 *            Section to read from.
 	 */
-	public final EnemyShip getNextShooter(final List<EnemyShip> column) {
-		Iterator<EnemyShip> iterator = column.iterator();
-		EnemyShip nextShooter = null;
-		while (iterator.hasNext()) {
-			EnemyShip checkShip = iterator.next();
-			if (checkShip != null && !checkShip.isDestroyed())
-				nextShooter = checkShip;
+	public final void readState(final GameSnapshot.Reader in) {
+		if (in.getInt() != this.nShipsWide || in.getInt() != this.nShipsHigh) {
+			this.logger.warning("Saved formation does not match the level,"
+					+ " starting with a full formation.");
+			return;
 		}
+		int savedOriginX = in.getInt();
+		int savedOriginY = in.getInt();
+		this.currentDirection = directionOf(in.getString(), Direction.RIGHT);
+		this.previousDirection = directionOf(in.getString(), null);
+		this.movementInterval = in.getInt();
+		this.currentPattern = in.getInt();
+		this.previousPattern = in.getInt();
+
+		for (int column = 0; column < this.nShipsWide; column++)
+			for (int row = 0; row < this.nShipsHigh; row++) {
+				int lives = in.getByte();
+				EnemyShip ship = this.enemyShips[column][row];
+				while (!ship.isDestroyed() && ship.getLives() > lives)
+					destroy(ship);
+			}
+		for (EnemyShip ship : this.explosions)
+			this.enemyShips[ship.formationColumn][ship.formationRow] = null;
+		this.explosions.clear();
+
+		for (EnemyShip ship : this)
+			ship.move(savedOriginX - this.originX, savedOriginY - this.originY);
+		this.originX = savedOriginX;
+		this.originY = savedOriginY;
+		cleanUp();
+	}
 
-		return nextShooter;
+	/**
+	 * Parses a saved direction.
+	 *
+	 * @param name
+	 *            Name of the direction.
+	 * @param fallback
+	 *            Direction used if the name is unknown.
+	 * @return Parsed direction.
+	 */
+	private static Direction directionOf(final String name,
+			final Direction fallback) {
+		for (Direction direction : Direction.values())
+			if (direction.name().equals(name))
+				return direction;
+		return fallback;
 	}
 
 	/**
@@ -755,13 +885,33 @@ public class EnemyShipFormation implements Iterable<EnemyShip> , Serializable {
 	 */
 	@Override
 	public final Iterator<EnemyShip> iterator() {
-		Set<EnemyShip> enemyShipsList = new HashSet<EnemyShip>();
+		return new Iterator<EnemyShip>() {
+			/** Slot of the next ship, column-major. */
+			private int slot = advance(0);
+
+			private int advance(final int from) {
+				int next = from;
+				while (next < nShipsWide * nShipsHigh
+						&& enemyShips[next / nShipsHigh][next % nShipsHigh] == null)
+					next++;
+				return next;
+			}
 
-		for (List<EnemyShip> column : this.enemyShips)
-			for (EnemyShip enemyShip : column)
-				enemyShipsList.add(enemyShip);
+			@Override
+			public boolean hasNext() {
+				return this.slot < nShipsWide * nShipsHigh;
+			}
 
-		return enemyShipsList.iterator();
+			@Override
+			public EnemyShip next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				EnemyShip ship = enemyShips[this.slot / nShipsHigh][this.slot
+						% nShipsHigh];
+				this.slot = advance(this.slot + 1);
+				return ship;
+			}
+		};
 	}
 
 	/**
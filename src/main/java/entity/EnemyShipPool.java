@@ -0,0 +1,49 @@
+package entity;
+
+import engine.ObjectPool;
+
+/**
+ * Implements a pool of recyclable special enemy ships.
+ */
+public final class EnemyShipPool {
+
+	/** Already created special ships, handed out again once recycled. */
+	private static final ObjectPool<EnemyShip> specialPool =
+			new ObjectPool<EnemyShip>("EnemyShipSpecial",
+					new ObjectPool.Factory<EnemyShip>() {
+						@Override
+						public EnemyShip create() {
+							return new EnemyShip();
+						}
+					}, null, ObjectPool.Policy.bounded(0, 1));
+
+	/**
+	 * Constructor, not called.
+	 */
+	private EnemyShipPool() {
+
+	}
+
+	/**
+	 * Returns a special ship at its starting position, reusing a recycled
+	 * one if available.
+	 *
+	 * @return Requested special ship.
+	 */
+	public static EnemyShip getSpecialShip() {
+		EnemyShip ship = specialPool.acquire();
+		ship.respawnSpecial();
+		return ship;
+	}
+
+	/**
+	 * Adds a special ship to the available ones.
+	 *
+	 * @param ship
+	 *            Special ship to recycle, ignored if null.
+	 */
+	public static void recycleSpecialShip(final EnemyShip ship) {
+		if (ship != null)
+			specialPool.release(ship);
+	}
+}
@@ -0,0 +1,157 @@
+package entity;
+
+import engine.DrawManager;
+
+/**
+ * Systems run over the rows of an {@link EntityWorld}. Each system touches
+ * only the components it needs, walking the packed arrays once per tick.
+ */
+public final class EntitySystems {
+
+	/**
+	 * Called for every row that collides with a target.
+	 */
+	public interface CollisionHandler {
+		/**
+		 * Reacts to a collision.
+		 *
+		 * @param world
+		 *            World the row belongs to.
+		 * @param index
+		 *            Row colliding with the target.
+		 * @return True if the row must be removed.
+		 */
+		boolean onCollision(EntityWorld world, int index);
+	}
+
+	/**
+	 * Constructor, not called.
+	 */
+	private EntitySystems() {
+
+	}
+
+	/**
+	 * Moves every row with a position and a velocity.
+	 *
+	 * @param world
+	 *            World to update.
+	 */
+	public static void move(final EntityWorld world) {
+		int components = EntityWorld.POSITION | EntityWorld.VELOCITY;
+		for (int i = 0; i < world.size(); i++)
+			if (world.has(i, components))
+				world.integrate(i);
+	}
+
+	/**
+	 * Switches animated rows to their next frame when their timer runs out.
+	 *
+	 * @param world
+	 *            World to update.
+	 */
+	public static void animate(final EntityWorld world) {
+		int components = EntityWorld.SPRITE | EntityWorld.ANIMATION;
+		for (int i = 0; i < world.size(); i++)
+			if (world.has(i, components) && world.tickAnimation(i))
+				world.setSprite(i, EnemyShip.nextFrame(world.getSprite(i)));
+	}
+
+	/**
+	 * Removes rows whose lifetime has run out.
+	 *
+	 * @param world
+	 *            World to update.
+	 */
+	public static void expire(final EntityWorld world) {
+		for (int i = world.size() - 1; i >= 0; i--)
+			if (world.has(i, EntityWorld.LIFETIME) && world.tickLifetime(i))
+				world.destroy(i);
+	}
+
+	/**
+	 * Removes rows that have left the playing area vertically.
+	 *
+	 * @param world
+	 *            World to update.
+	 * @param minY
+	 *            Lowest y position still on screen.
+	 * @param maxY
+	 *            Highest y position still on screen.
+	 */
+	public static void cull(final EntityWorld world, final int minY,
+			final int maxY) {
+		for (int i = world.size() - 1; i >= 0; i--)
+			if (world.has(i, EntityWorld.POSITION)
+					&& (world.getPositionY(i) < minY
+					|| world.getPositionY(i) > maxY))
+				world.destroy(i);
+	}
+
+	/**
+	 * Tests every row with a collider against a target entity.
+	 *
+	 * @param world
+	 *            World to check.
+	 * @param target
+	 *            Entity to test against.
+	 * @param handler
+	 *            Reaction to each collision.
+	 * @return Number of rows that collided.
+	 */
+	public static int collide(final EntityWorld world, final Entity target,
+			final CollisionHandler handler) {
+		int components = EntityWorld.POSITION | EntityWorld.COLLIDER;
+		int hits = 0;
+		for (int i = world.size() - 1; i >= 0; i--) {
+			if (!world.has(i, components) || !overlaps(world, i, target))
+				continue;
+			hits++;
+			if (handler.onCollision(world, i))
+				world.destroy(i);
+		}
+		return hits;
+	}
+
+	/**
+	 * Draws every row with a position and a sprite.
+	 *
+	 * @param world
+	 *            World to draw.
+	 * @param drawManager
+	 *            Draw manager to draw with.
+	 */
+	public static void render(final EntityWorld world,
+			final DrawManager drawManager) {
+		int components = EntityWorld.POSITION | EntityWorld.SPRITE;
+		for (int i = 0; i < world.size(); i++)
+			if (world.has(i, components))
+				drawManager.drawSprite(world.getSprite(i),
+						world.getPositionX(i), world.getPositionY(i));
+	}
+
+	/**
+	 * Checks if a row overlaps an entity, comparing centers the same way
+	 * entities are compared against each other.
+	 *
+	 * @param world
+	 *            World the row belongs to.
+	 * @param index
+	 *            Row to test.
+	 * @param target
+	 *            Entity to test against.
+	 * @return True if both boxes overlap.
+	 */
+	private static boolean overlaps(final EntityWorld world, final int index,
+			final Entity target) {
+		int centerAX = world.getPositionX(index) + world.getWidth(index) / 2;
+		int centerAY = world.getPositionY(index) + world.getHeight(index) / 2;
+		int centerBX = target.getPositionX() + target.getWidth() / 2;
+		int centerBY = target.getPositionY() + target.getHeight() / 2;
+		int maxDistanceX = world.getWidth(index) / 2 + target.getWidth() / 2;
+		int maxDistanceY = world.getHeight(index) / 2 + target.getHeight() / 2;
+
+		return Math.abs(centerAX - centerBX) < maxDistanceX
+				&& Math.abs(centerAY - centerBY) < maxDistanceY;
+	}
+}
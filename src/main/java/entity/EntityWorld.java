@@ -0,0 +1,456 @@
+package entity;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+import engine.DrawManager.SpriteType;
+import engine.GameSnapshot;
+
+/**
+ * Stores lightweight game objects as rows of dense component arrays.
+ * Live rows are always packed in [0, size()), so systems iterate plain
+ * arrays instead of chasing object references.
+ */
+public class EntityWorld implements Serializable {
+
+	/** Position component, upper left corner. */
+	public static final int POSITION = 1;
+	/** Velocity component, applied every tick. */
+	public static final int VELOCITY = 1 << 1;
+	/** Sprite component, image the row is drawn as. */
+	public static final int SPRITE = 1 << 2;
+	/** Collider component, size of the bounding box. */
+	public static final int COLLIDER = 1 << 3;
+	/** Lifetime component, ticks left before removal. */
+	public static final int LIFETIME = 1 << 4;
+	/** Points component, score awarded on pickup or kill. */
+	public static final int POINTS = 1 << 5;
+	/** Animation component, ticks between sprite frames. */
+	public static final int ANIMATION = 1 << 6;
+
+	/** Initial number of rows reserved. */
+	private static final int INITIAL_CAPACITY = 16;
+
+	/** Number of live rows. */
+	private int size;
+	/** Component masks. */
+	private int[] masks;
+	/** Position in the x-axis. */
+	private int[] positionX;
+	/** Position in the y-axis. */
+	private int[] positionY;
+	/** Speed in the x-axis. */
+	private int[] velocityX;
+	/** Speed in the y-axis. */
+	private int[] velocityY;
+	/** Sprite types. */
+	private SpriteType[] sprites;
+	/** Collider widths. */
+	private int[] width;
+	/** Collider heights. */
+	private int[] height;
+	/** Remaining ticks. */
+	private int[] lifetime;
+	/** Point values. */
+	private int[] points;
+	/** Ticks between animation frames. */
+	private int[] animationPeriod;
+	/** Ticks until the next animation frame. */
+	private int[] animationTimer;
+
+	/**
+	 * Constructor, reserves the default capacity.
+	 */
+	public EntityWorld() {
+		this(INITIAL_CAPACITY);
+	}
+
+	/**
+	 * Constructor, reserves a given capacity.
+	 *
+	 * @param capacity
+	 *            Rows reserved before the arrays need to grow.
+	 */
+	public EntityWorld(final int capacity) {
+		int initial = Math.max(1, capacity);
+		this.masks = new int[initial];
+		this.positionX = new int[initial];
+		this.positionY = new int[initial];
+		this.velocityX = new int[initial];
+		this.velocityY = new int[initial];
+		this.sprites = new SpriteType[initial];
+		this.width = new int[initial];
+		this.height = new int[initial];
+		this.lifetime = new int[initial];
+		this.points = new int[initial];
+		this.animationPeriod = new int[initial];
+		this.animationTimer = new int[initial];
+	}
+
+	/**
+	 * Adds a new row with the given components. Component values start at
+	 * zero and are filled in with the setters.
+	 *
+	 * @param mask
+	 *            Components of the new row.
+	 * @return Index of the new row.
+	 */
+	public final int create(final int mask) {
+		if (this.size == this.masks.length)
+			grow();
+		int index = this.size++;
+		this.masks[index] = mask;
+		this.positionX[index] = 0;
+		this.positionY[index] = 0;
+		this.velocityX[index] = 0;
+		this.velocityY[index] = 0;
+		this.sprites[index] = null;
+		this.width[index] = 0;
+		this.height[index] = 0;
+		this.lifetime[index] = 0;
+		this.points[index] = 0;
+		this.animationPeriod[index] = 0;
+		this.animationTimer[index] = 0;
+		return index;
+	}
+
+	/**
+	 * Removes a row. The last row is moved into its place, so callers
+	 * removing while iterating should walk the rows backwards.
+	 *
+	 * @param index
+	 *            Row to remove.
+	 */
+	public final void destroy(final int index) {
+		int last = --this.size;
+		if (index != last) {
+			this.masks[index] = this.masks[last];
+			this.positionX[index] = this.positionX[last];
+			this.positionY[index] = this.positionY[last];
+			this.velocityX[index] = this.velocityX[last];
+			this.velocityY[index] = this.velocityY[last];
+			this.sprites[index] = this.sprites[last];
+			this.width[index] = this.width[last];
+			this.height[index] = this.height[last];
+			this.lifetime[index] = this.lifetime[last];
+			this.points[index] = this.points[last];
+			this.animationPeriod[index] = this.animationPeriod[last];
+			this.animationTimer[index] = this.animationTimer[last];
+		}
+		this.sprites[last] = null;
+	}
+
+	/**
+	 * Removes every row.
+	 */
+	public final void clear() {
+		Arrays.fill(this.sprites, 0, this.size, null);
+		this.size = 0;
+	}
+
+	/**
+	 * Doubles the capacity of every component array.
+	 */
+	private void grow() {
+		int capacity = this.masks.length * 2;
+		this.masks = Arrays.copyOf(this.masks, capacity);
+		this.positionX = Arrays.copyOf(this.positionX, capacity);
+		this.positionY = Arrays.copyOf(this.positionY, capacity);
+		this.velocityX = Arrays.copyOf(this.velocityX, capacity);
+		this.velocityY = Arrays.copyOf(this.velocityY, capacity);
+		this.sprites = Arrays.copyOf(this.sprites, capacity);
+		this.width = Arrays.copyOf(this.width, capacity);
+		this.height = Arrays.copyOf(this.height, capacity);
+		this.lifetime = Arrays.copyOf(this.lifetime, capacity);
+		this.points = Arrays.copyOf(this.points, capacity);
+		this.animationPeriod = Arrays.copyOf(this.animationPeriod, capacity);
+		this.animationTimer = Arrays.copyOf(this.animationTimer, capacity);
+	}
+
+	/**
+	 * Writes every row to a snapshot section.
+	 *
+	 * @param out
+	 *            Section to write to.
+	 */
+	public final void writeTo(final GameSnapshot.Writer out) {
+		out.putInt(this.size);
+		for (int i = 0; i < this.size; i++) {
+			out.putInt(this.masks[i]);
+			out.putInt(this.positionX[i]).putInt(this.positionY[i]);
+			out.putInt(this.velocityX[i]).putInt(this.velocityY[i]);
+			out.putString(this.sprites[i] == null ? null
+					: this.sprites[i].name());
+			out.putInt(this.width[i]).putInt(this.height[i]);
+			out.putInt(this.lifetime[i]);
+			out.putInt(this.points[i]);
+			out.putInt(this.animationPeriod[i]);
+			out.putInt(this.animationTimer[i]);
+		}
+	}
+
+	/**
+	 * Replaces every row with the ones read from a snapshot section. Rows
+	 * with a sprite this version does not know are dropped.
+	 *
+	 * @param in
+	 *            Section to read from.
+	 */
+	public final void readFrom(final GameSnapshot.Reader in) {
+		clear();
+		int count = in.getInt();
+		for (int n = 0; n < count && in.hasRemaining(); n++) {
+			int i = create(in.getInt());
+			this.positionX[i] = in.getInt();
+			this.positionY[i] = in.getInt();
+			this.velocityX[i] = in.getInt();
+			this.velocityY[i] = in.getInt();
+			String sprite = in.getString();
+			this.width[i] = in.getInt();
+			this.height[i] = in.getInt();
+			this.lifetime[i] = in.getInt();
+			this.points[i] = in.getInt();
+			this.animationPeriod[i] = in.getInt();
+			this.animationTimer[i] = in.getInt();
+			try {
+				this.sprites[i] = sprite.isEmpty() ? null
+						: SpriteType.valueOf(sprite);
+			} catch (IllegalArgumentException e) {
+				destroy(i);
+			}
+		}
+	}
+
+	/**
+	 * Checks if any row is drawn with one of the given sprites.
+	 *
+	 * @param spriteTypes
+	 *            Sprites to look for.
+	 * @return True if at least one row uses one of them.
+	 */
+	public final boolean contains(final SpriteType... spriteTypes) {
+		for (int i = 0; i < this.size; i++)
+			for (SpriteType spriteType : spriteTypes)
+				if (this.sprites[i] == spriteType)
+					return true;
+		return false;
+	}
+
+	/**
+	 * @return Number of live rows.
+	 */
+	public final int size() {
+		return this.size;
+	}
+
+	/**
+	 * @param index
+	 *            Row to check.
+	 * @param components
+	 *            Components required.
+	 * @return True if the row has every requested component.
+	 */
+	public final boolean has(final int index, final int components) {
+		return (this.masks[index] & components) == components;
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Position in the x-axis.
+	 */
+	public final int getPositionX(final int index) {
+		return this.positionX[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Position in the y-axis.
+	 */
+	public final int getPositionY(final int index) {
+		return this.positionY[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to update.
+	 * @param positionX
+	 *            New position in the x-axis.
+	 * @param positionY
+	 *            New position in the y-axis.
+	 */
+	public final void setPosition(final int index, final int positionX,
+			final int positionY) {
+		this.positionX[index] = positionX;
+		this.positionY[index] = positionY;
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Speed in the x-axis.
+	 */
+	public final int getVelocityX(final int index) {
+		return this.velocityX[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Speed in the y-axis.
+	 */
+	public final int getVelocityY(final int index) {
+		return this.velocityY[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to update.
+	 * @param velocityX
+	 *            New speed in the x-axis.
+	 * @param velocityY
+	 *            New speed in the y-axis.
+	 */
+	public final void setVelocity(final int index, final int velocityX,
+			final int velocityY) {
+		this.velocityX[index] = velocityX;
+		this.velocityY[index] = velocityY;
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Sprite the row is drawn as.
+	 */
+	public final SpriteType getSprite(final int index) {
+		return this.sprites[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to update.
+	 * @param spriteType
+	 *            New sprite.
+	 */
+	public final void setSprite(final int index, final SpriteType spriteType) {
+		this.sprites[index] = spriteType;
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Width of the collider.
+	 */
+	public final int getWidth(final int index) {
+		return this.width[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Height of the collider.
+	 */
+	public final int getHeight(final int index) {
+		return this.height[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to update.
+	 * @param width
+	 *            New collider width.
+	 * @param height
+	 *            New collider height.
+	 */
+	public final void setCollider(final int index, final int width,
+			final int height) {
+		this.width[index] = width;
+		this.height[index] = height;
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Ticks left before the row is removed.
+	 */
+	public final int getLifetime(final int index) {
+		return this.lifetime[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to update.
+	 * @param ticks
+	 *            Ticks left before the row is removed.
+	 */
+	public final void setLifetime(final int index, final int ticks) {
+		this.lifetime[index] = ticks;
+	}
+
+	/**
+	 * @param index
+	 *            Row to read.
+	 * @return Point value of the row.
+	 */
+	public final int getPoints(final int index) {
+		return this.points[index];
+	}
+
+	/**
+	 * @param index
+	 *            Row to update.
+	 * @param points
+	 *            New point value.
+	 */
+	public final void setPoints(final int index, final int points) {
+		this.points[index] = points;
+	}
+
+	/**
+	 * @param index
+	 *            Row to update.
+	 * @param period
+	 *            Ticks between animation frames.
+	 */
+	public final void setAnimation(final int index, final int period) {
+		this.animationPeriod[index] = period;
+		this.animationTimer[index] = period;
+	}
+
+	/**
+	 * Advances the animation timer of a row.
+	 *
+	 * @param index
+	 *            Row to update.
+	 * @return True if the row must switch to its next frame.
+	 */
+	final boolean tickAnimation(final int index) {
+		if (--this.animationTimer[index] > 0)
+			return false;
+		this.animationTimer[index] = this.animationPeriod[index];
+		return true;
+	}
+
+	/**
+	 * Decrements the lifetime of a row.
+	 *
+	 * @param index
+	 *            Row to update.
+	 * @return True if the row has expired.
+	 */
+	final boolean tickLifetime(final int index) {
+		return --this.lifetime[index] <= 0;
+	}
+
+	/**
+	 * Moves a row by its velocity.
+	 *
+	 * @param index
+	 *            Row to update.
+	 */
+	final void integrate(final int index) {
+		this.positionX[index] += this.velocityX[index];
+		this.positionY[index] += this.velocityY[index];
+	}
+}
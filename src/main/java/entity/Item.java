@@ -30,19 +30,49 @@ public class Item extends Entity {
         super(positionX, positionY, sizeX * 2, sizeY * 2, Color.BLUE);
         this.spriteType = spriteType;
         this.speed = speed;
-        switch (this.spriteType) {
+        this.pointValue = pointValueOf(spriteType);
+    }
+
+    /**
+     * Adds a falling item to a world, as a row with the same properties
+     * an Item object would have.
+     *
+     * @param world Destination world.
+     * @param positionX Initial position of the item in the X axis.
+     * @param positionY Initial position of the item in the Y axis.
+     * @param sizeX Item X size
+     * @param sizeY Item Y size
+     * @param spriteType Sprite of the item.
+     * @param speed Speed of item
+     * @return Index of the new row.
+     */
+    public static int spawn(EntityWorld world, int positionX, int positionY, int sizeX, int sizeY,
+                            DrawManager.SpriteType spriteType, int speed) {
+        int index = world.create(EntityWorld.POSITION | EntityWorld.VELOCITY | EntityWorld.SPRITE
+                | EntityWorld.COLLIDER | EntityWorld.POINTS);
+        world.setPosition(index, positionX, positionY);
+        world.setVelocity(index, 0, speed);
+        world.setSprite(index, spriteType);
+        world.setCollider(index, sizeX * 2, sizeY * 2);
+        world.setPoints(index, pointValueOf(spriteType));
+        return index;
+    }
+
+    /**
+     * Getter of the point value of an item sprite.
+     * @param spriteType Sprite of the item.
+     * @return point
+     */
+    public static int pointValueOf(DrawManager.SpriteType spriteType) {
+        switch (spriteType) {
             case BonusScoreItem1:
-                this.pointValue = 50;
-                break;
+                return 50;
             case BonusScoreItem2:
-                this.pointValue = 100;
-                break;
+                return 100;
             case BonusScoreItem3:
-                this.pointValue = 300;
-                break;
+                return 300;
             default:
-                this.pointValue = 0;
-                break;
+                return 0;
         }
     }
 
@@ -202,6 +202,7 @@ public class Ship extends Entity {
 	 * @param interval milliseconds of the cool time.
 	 */
 	public void setShootingCoolDown(int interval) {
+		Cooldown.recycle(this.shootingCooldown);
 		this.shootingCooldown = Cooldown.getCooldown(interval);
 		SHOOTING_INTERVAL = interval;
 	}
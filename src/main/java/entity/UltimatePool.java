@@ -0,0 +1,48 @@
+package entity;
+
+import engine.ObjectPool;
+
+/**
+ * Implements a pool of recyclable ultimates.
+ */
+public final class UltimatePool {
+
+    /** Already created ultimates, handed out again once recycled. */
+    private static final ObjectPool<Ultimate> pool = new ObjectPool<>(
+            "Ultimate", () -> new Ultimate(0, 0), null,
+            ObjectPool.Policy.bounded(0, 1));
+
+    /** Constructor, not called. */
+    private UltimatePool() {
+
+    }
+
+    /**
+     * Returns an ultimate from the pool if one is available, a new one if
+     * there isn't.
+     *
+     * @param positionX
+     *            Requested position of the ultimate in the X axis.
+     * @param positionY
+     *            Requested position of the ultimate in the Y axis.
+     * @return Requested ultimate.
+     */
+    public static Ultimate getUltimate(final int positionX,
+                                       final int positionY) {
+        Ultimate ultimate = pool.acquire();
+        ultimate.setPositionX(positionX);
+        ultimate.setPositionY(positionY);
+        return ultimate;
+    }
+
+    /**
+     * Adds an ultimate to the available ones.
+     *
+     * @param ultimate
+     *            Ultimate to recycle, ignored if null.
+     */
+    public static void recycle(final Ultimate ultimate) {
+        if (ultimate != null)
+            pool.release(ultimate);
+    }
+}
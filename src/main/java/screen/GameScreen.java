@@ -3,12 +3,13 @@ package screen;
 import java.awt.event.KeyEvent;
 import java.io.IOException;
 import java.io.Serializable;
-import java.util.HashSet;
-import java.util.Random;
+import java.nio.file.Paths;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import entity.*;
 import engine.*;
+import engine.GameSettings.StageType;
 import skill.*;
 
 import static engine.Core.backgroundMusic;
@@ -42,15 +43,21 @@ public class GameScreen extends Screen implements Serializable {
 	private static final int SEPARATION_LINE_HEIGHT = 100;
 	/** Time between changing skill cursor */
 	private static final int SKILL_CURSOR_DELAY = 200;
-	/** boss stage level */
-	private static final int BOSS_STAGE_LEVEL = 8;
-	/** bonus stage level */
-	private static final int BONUS_STAGE_LEVEL = 6;
-	/** bonus stage shootingFrequency */
-	private static final int BONUS_LEVEL_SHOOTING_FREQ = 2100000;
+	/** Bytes of a saved bullet or boom: position and speeds. */
+	private static final int SHOT_BYTES = 16;
+	/** Whether collisions are refined with the sprites' opaque pixels. */
+	private static final boolean PIXEL_COLLISION = Boolean.parseBoolean(
+			System.getProperty("invaders.pixelCollision", "true"));
+	/** Sprites of the bonus score items, only one of them falls at a time. */
+	private static final DrawManager.SpriteType[] BONUS_SCORE_ITEMS = {
+			DrawManager.SpriteType.BonusScoreItem1,
+			DrawManager.SpriteType.BonusScoreItem2,
+			DrawManager.SpriteType.BonusScoreItem3 };
 
 	/** Current game difficulty settings. */
 	private GameSettings gameSettings;
+	/** Kind of the current level. */
+	private StageType stageType;
 	/** Current difficulty level number. */
 	private int level;
 	/** Formation of enemy ships. */
@@ -83,9 +90,6 @@ public class GameScreen extends Screen implements Serializable {
 	private boolean bonusLife;
     /** boss object */
 	private Boss boss;
-	/** Generator for random number. */
-
-	private Random random = new Random();
 	/** Number of remained boom. */
 	private int boomTimes ;
 	/** Set of all booms on screen fired by player. */
@@ -114,12 +118,8 @@ public class GameScreen extends Screen implements Serializable {
 	private int bonusSeconds ;
 	/** Frame */
 	Frame frame;
-	/** Object of Items */
-	private Item bulletSpeedItem;
-	private Item shootingCoolItem;
-	private Item bonusLifeItem;
-	private Item bonusScoreItem;
-	private Item boomItem;
+	/** Items falling on screen. */
+	private EntityWorld items;
 
 	/** Set position of background image */
 	private int backgroundPos = 0;
@@ -127,6 +127,16 @@ public class GameScreen extends Screen implements Serializable {
 	private int countdown=INPUT_DELAY/1000;
 	/** Design setting for the ship. */
 	private transient DesignSetting designSetting;
+	/** Saved game applied by load, null for a new level. */
+	private transient GameSnapshot savedSnapshot;
+	/** Records the level, null when not recording. */
+	private transient Replay.Recorder recorder;
+	/** Plays a recorded level back, null when playing live. */
+	private transient Replay.Player replayPlayer;
+	/** Key states of the current frame when recording or playing back. */
+	private transient boolean[] frameKeys;
+	/** Gameplay events of the session. */
+	private transient Telemetry telemetry;
 
 	/**
 	 * Constructor, establishes the properties of the screen.
@@ -151,6 +161,7 @@ public class GameScreen extends Screen implements Serializable {
 		super(width, height, fps);
 
 		this.gameSettings = gameSettings;
+		this.stageType = gameSettings.getStageType();
 		this.bonusLife = bonusLife;
 		this.level = gameState.getLevel();
 		this.score = gameState.getScore();
@@ -177,7 +188,11 @@ public class GameScreen extends Screen implements Serializable {
 	 */
 	public final void initialize() {
 		super.initialize();
-		if(this.level == BOSS_STAGE_LEVEL ){
+		if (this.replayPlayer == null
+				&& System.getProperty(Replay.RECORD_PROPERTY) != null
+				&& GameClock.isTicking())
+			startRecording();
+		if(this.stageType == StageType.BOSS ){
 			this.boss = new Boss();
 			this.boss.attach(this);
 		}
@@ -202,9 +217,10 @@ public class GameScreen extends Screen implements Serializable {
 				.getCooldown(BONUS_SHIP_EXPLOSION);
 
 		this.screenFinishedCooldown = Core.getCooldown(SCREEN_CHANGE_INTERVAL);
-		this.bullets = new HashSet<Bullet>();
+		this.bullets = new LinkedHashSet<Bullet>();
 
-		this.booms = new HashSet<Boom>();
+		this.booms = new LinkedHashSet<Boom>();
+		this.items = new EntityWorld();
 		// Skill Cursor , input delay
 		this.skillCursor = 0;
 		this.skillInputDelay
@@ -219,30 +235,309 @@ public class GameScreen extends Screen implements Serializable {
 
 		this.pauseTime = 0;
 
-		this.gameStartTime = System.currentTimeMillis();
+		this.gameStartTime = GameClock.now();
+		this.telemetry = Core.getTelemetry();
+		this.telemetry.levelStart(this.level, this.score, this.lives);
+		LevelPack levelPack = Core.getLevelPack();
+		GameSettings next = levelPack == null ? null
+				: levelPack.get(this.level + 1);
+		if (next != null)
+			drawManager.prefetchStage(next.getStageType());
 		this.inputDelay = Core.getCooldown(INPUT_DELAY);
 		this.inputDelay.reset();
 
-		if(this.level == BONUS_STAGE_LEVEL){
-			this.bonusTime = getCooldown(10000);
+		if(this.stageType == StageType.BONUS){
+			this.bonusTime = getCooldown(gameSettings.getBonusTime());
 			bonusTime.reset();
 		}
 
 	}
 	/**
-	 * load a game, connect object
+	 * Initializes the screen and applies the saved game given with
+	 * setSnapshot.
 	 */
 	public final void load(){
-		logger = Core.getLogger();
-		designSetting = new DesignSetting(DrawManager.SpriteType.Ship);
-		enemyShipFormation.setLogger(this.logger);
-		enemyShipFormation.attach(this);
-		skill1.setLogger(logger);
-		if(this.level == BONUS_STAGE_LEVEL ){
+		initialize();
+		// Replays start from a fresh level, saved games are not recorded.
+		this.recorder = null;
+		this.frameKeys = null;
+		if (this.savedSnapshot != null) {
+			restore(this.savedSnapshot);
+			this.savedSnapshot = null;
+		}
+	}
+
+	/**
+	 * Starts recording the level. The clock restarts its ticks and the
+	 * random generator is reseeded, so playback can start from the same
+	 * time and seed.
+	 */
+	private void startRecording() {
+		long seed = System.nanoTime();
+		GameRandom.reseed(seed);
+		GameClock.useTicks(GameClock.now(), this.fps);
+		int[] skillCool = this.skillCool.clone();
+		GameState state = new GameState(this.level, this.score,
+				this.bonusLife ? this.lives - 1 : this.lives, this.bulletsShot,
+				this.shipsDestroyed, this.boomTimes, skillCool,
+				this.ultimateTimes);
+		this.recorder = new Replay.Recorder(new Replay.Header(seed,
+				GameClock.now(), this.fps, this.width, this.height,
+				this.gameSettings, state,
+				this.bonusLife, this.designSetting));
+		this.frameKeys = new boolean[InputManager.NUM_KEYS];
+	}
+
+	/**
+	 * Plays a recorded level back instead of reading the keyboard, without
+	 * drawing or waiting between frames. The game clock and random
+	 * generator must be set up from the replay header before the screen
+	 * is initialized.
+	 *
+	 * @param player
+	 *            Recorded level.
+	 */
+	public final void setReplay(final Replay.Player player) {
+		this.replayPlayer = player;
+		this.frameKeys = new boolean[InputManager.NUM_KEYS];
+		this.headless = true;
+	}
+
+	/**
+	 * Sets the saved game applied when the screen is loaded.
+	 *
+	 * @param snapshot
+	 *            Saved game.
+	 */
+	public final void setSnapshot(final GameSnapshot snapshot) {
+		this.savedSnapshot = snapshot;
+	}
+
+	/**
+	 * Captures the state of the game.
+	 *
+	 * @return Snapshot of the game.
+	 */
+	public final GameSnapshot createSnapshot() {
+		GameSnapshot snapshot = new GameSnapshot();
+
+		GameSnapshot.Writer state = new GameSnapshot.Writer();
+		state.putInt(this.level).putInt(this.score).putInt(this.lives);
+		state.putInt(this.bulletsShot).putInt(this.shipsDestroyed);
+		state.putInt(this.boomTimes).putInt(this.ultimateTimes);
+		state.putBoolean(this.bonusLife);
+		state.putInt(this.bonusTime == null ? 0
+				: this.bonusTime.getDuration() - this.bonusTime.passedCooldown());
+		snapshot.put(GameSnapshot.STATE, state);
+
+		GameSnapshot.Writer ship = new GameSnapshot.Writer();
+		ship.putInt(this.ship.getPositionX()).putInt(this.ship.getPositionY());
+		ship.putInt(this.ship.getBulletSpeed());
+		ship.putInt(this.ship.getShootingCoolDown());
+		snapshot.put(GameSnapshot.SHIP, ship);
+
+		if (this.enemyShipFormation != null) {
+			GameSnapshot.Writer formation = new GameSnapshot.Writer();
+			this.enemyShipFormation.writeState(formation);
+			snapshot.put(GameSnapshot.FORMATION, formation);
+		}
+		if (this.boss != null) {
+			GameSnapshot.Writer boss = new GameSnapshot.Writer();
+			boss.putInt(this.boss.getPositionX()).putInt(this.boss.getPositionY());
+			boss.putInt(this.boss.getLives());
+			snapshot.put(GameSnapshot.BOSS, boss);
+		}
+
+		GameSnapshot.Writer shots = new GameSnapshot.Writer();
+		shots.putInt(this.bullets.size());
+		for (Bullet bullet : this.bullets)
+			shots.putInt(bullet.getPositionX()).putInt(bullet.getPositionY())
+					.putInt(bullet.getSpeedX()).putInt(bullet.getSpeedY());
+		shots.putInt(this.booms.size());
+		for (Boom boom : this.booms)
+			shots.putInt(boom.getPositionX()).putInt(boom.getPositionY())
+					.putInt(boom.getSpeedX()).putInt(boom.getSpeedY());
+		snapshot.put(GameSnapshot.BULLETS, shots);
+
+		GameSnapshot.Writer items = new GameSnapshot.Writer();
+		this.items.writeTo(items);
+		snapshot.put(GameSnapshot.ITEMS, items);
+
+		GameSnapshot.Writer skills = new GameSnapshot.Writer();
+		skills.putInt(this.skill1.returnSkillCoolTime());
+		skills.putInt(this.skill2.returnSkillCoolTime());
+		skills.putInt(this.skill3.returnSkillCoolTime());
+		skills.putInt(this.skill4.returnSkillCoolTime());
+		skills.putInt(this.skillCursor);
+		snapshot.put(GameSnapshot.SKILLS, skills);
+		return snapshot;
+	}
+
+	/**
+	 * Captures the start of a level, used for autosaves between levels.
+	 * Only the counters and the skill cooldowns are stored, the level
+	 * itself is built fresh when loaded.
+	 *
+	 * @param gameState
+	 *            State the level starts from.
+	 * @return Snapshot of the start of the level.
+	 */
+	public static GameSnapshot createLevelSnapshot(final GameState gameState) {
+		GameSnapshot snapshot = new GameSnapshot();
+
+		GameSnapshot.Writer state = new GameSnapshot.Writer();
+		state.putInt(gameState.getLevel()).putInt(gameState.getScore());
+		state.putInt(gameState.getLivesRemaining());
+		state.putInt(gameState.getBulletsShot());
+		state.putInt(gameState.getShipsDestroyed());
+		state.putInt(gameState.getBoomTimes());
+		state.putInt(gameState.getUltimateTimes());
+		snapshot.put(GameSnapshot.STATE, state);
+
+		GameSnapshot.Writer skills = new GameSnapshot.Writer();
+		for (int coolTime : gameState.getSkillCool())
+			skills.putInt(coolTime);
+		snapshot.put(GameSnapshot.SKILLS, skills);
+		return snapshot;
+	}
+
+	/**
+	 * Reads the game state a saved game starts from, used to build the
+	 * screen the snapshot is then applied to.
+	 *
+	 * @param snapshot
+	 *            Saved game.
+	 * @return Game state of the saved game.
+	 */
+	public static GameState readGameState(final GameSnapshot snapshot) {
+		GameSnapshot.Reader state = snapshot.get(GameSnapshot.STATE);
+		int level = state.getInt();
+		int score = state.getInt();
+		int lives = state.getInt();
+		int bulletsShot = state.getInt();
+		int shipsDestroyed = state.getInt();
+		int boomTimes = state.getInt();
+		int ultimateTimes = state.getInt();
+
+		int[] skillCool = new int[4];
+		GameSnapshot.Reader skills = snapshot.get(GameSnapshot.SKILLS);
+		if (skills != null)
+			for (int i = 0; i < skillCool.length; i++)
+				skillCool[i] = skills.getInt();
+		return new GameState(level, score, lives, bulletsShot,
+				shipsDestroyed, boomTimes, skillCool, ultimateTimes);
+	}
+
+	/**
+	 * Reads the number of saved bullets or booms.
+	 *
+	 * @param shots
+	 *            Bullets section.
+	 * @return Number of entries, -1 if more than the section holds.
+	 */
+	private static int readShotCount(final GameSnapshot.Reader shots) {
+		int count = shots.getInt();
+		return count < 0 || count > shots.remaining() / SHOT_BYTES ? -1
+				: count;
+	}
+
+	/**
+	 * Restores the saved bullets.
+	 *
+	 * @param shots
+	 *            Bullets section.
+	 * @return False if the section is corrupted.
+	 */
+	private boolean restoreBullets(final GameSnapshot.Reader shots) {
+		int count = readShotCount(shots);
+		for (int i = 0; i < count; i++) {
+			int x = shots.getInt();
+			int y = shots.getInt();
+			Bullet bullet = BulletPool.getBullet(x, y, shots.getInt(),
+					shots.getInt());
+			bullet.setPositionX(x);
+			bullet.resetPreviousPosition();
+			this.bullets.add(bullet);
+		}
+		return count >= 0;
+	}
+
+	/**
+	 * Restores the saved booms, after the bullets.
+	 *
+	 * @param shots
+	 *            Bullets section.
+	 * @return False if the section is corrupted.
+	 */
+	private boolean restoreBooms(final GameSnapshot.Reader shots) {
+		int count = readShotCount(shots);
+		for (int i = 0; i < count; i++) {
+			int x = shots.getInt();
+			int y = shots.getInt();
+			Boom boom = BoomPool.getBoom(x, y, shots.getInt(),
+					shots.getInt());
+			boom.setPositionX(x);
+			boom.resetPreviousPosition();
+			this.booms.add(boom);
+		}
+		return count >= 0;
+	}
+
+	/**
+	 * Applies a saved game to the freshly initialized screen.
+	 *
+	 * @param snapshot
+	 *            Saved game.
+	 */
+	private void restore(final GameSnapshot snapshot) {
+		GameSnapshot.Reader state = snapshot.get(GameSnapshot.STATE);
+		// Counters were already applied through readGameState.
+		for (int i = 0; i < 7; i++)
+			state.getInt();
+		this.bonusLife = state.getBoolean();
+		this.bonusSeconds = state.getInt();
+		// Saves taken at the start of the level keep the full bonus time.
+		if (this.stageType == StageType.BONUS && this.bonusSeconds > 0) {
 			this.bonusTime = getCooldown(this.bonusSeconds * 1000);
-			bonusTime.reset();
+			this.bonusTime.reset();
+		}
+
+		GameSnapshot.Reader ship = snapshot.get(GameSnapshot.SHIP);
+		if (ship != null) {
+			this.ship.setPositionX(ship.getInt());
+			this.ship.setPositionY(ship.getInt());
+			this.ship.setBulletSpeed(ship.getInt());
+			this.ship.setShootingCoolDown(ship.getInt());
 		}
 
+		GameSnapshot.Reader formation = snapshot.get(GameSnapshot.FORMATION);
+		if (formation != null && this.enemyShipFormation != null)
+			this.enemyShipFormation.readState(formation);
+
+		GameSnapshot.Reader boss = snapshot.get(GameSnapshot.BOSS);
+		if (boss != null && this.boss != null) {
+			this.boss.setPositionX(boss.getInt());
+			this.boss.setPositionY(boss.getInt());
+			int lives = boss.getInt();
+			while (!this.boss.isDestroyed() && this.boss.getLives() > lives)
+				this.boss.destroy();
+		}
+
+		GameSnapshot.Reader shots = snapshot.get(GameSnapshot.BULLETS);
+		if (shots != null && !(restoreBullets(shots) && restoreBooms(shots)))
+			this.logger.warning("Corrupted save, bullets not all restored.");
+
+		GameSnapshot.Reader items = snapshot.get(GameSnapshot.ITEMS);
+		if (items != null)
+			this.items.readFrom(items);
+
+		GameSnapshot.Reader skills = snapshot.get(GameSnapshot.SKILLS);
+		if (skills != null) {
+			for (int i = 0; i < 4; i++)
+				skills.getInt();
+			this.skillCursor = Math.max(0, Math.min(3, skills.getInt()));
+		}
+		this.logger.info("Restored saved game at level " + this.level);
 	}
 
 	/**
@@ -253,8 +548,38 @@ public class GameScreen extends Screen implements Serializable {
 	public final int run() throws IOException, ClassNotFoundException {
 		super.run();
 
+		Replay.Outcome outcome = new Replay.Outcome(this.score, this.lives,
+				this.bulletsShot, this.shipsDestroyed);
+		if (this.recorder != null && !Core.flag_main && !Core.flag_restart) {
+			try {
+				this.logger.info("Level recorded to " + this.recorder.save(
+						Paths.get(System.getProperty(Replay.RECORD_PROPERTY)),
+						outcome));
+			} catch (IOException e) {
+				this.logger.warning("Recording the level failed: "
+						+ e.getMessage());
+			}
+		}
+		if (this.replayPlayer != null) {
+			Replay.Outcome expected = this.replayPlayer.getExpected();
+			if (outcome.equals(expected))
+				this.logger.info("Replay reproduced: " + outcome);
+			else
+				this.logger.warning("Replay diverged: " + outcome
+						+ ", recorded " + expected);
+		}
+		// A level left from the pause menu was neither cleared nor lost.
+		if (!Core.flag_main && !Core.flag_restart)
+			this.telemetry.levelEnd(this.level, this.score, this.lives,
+					GameClock.now() - this.gameStartTime);
+		this.recorder = null;
+		if (this.frameKeys != null)
+			this.inputManager.freezeKeys(null);
+
 		this.score += LIFE_SCORE * (this.lives - 1);
 		this.logger.info("Screen cleared with a score of " + this.score);
+		this.logger.fine(ObjectPool.describeAll());
+		this.logger.fine(SoundCoalescer.getInstance().toString());
 
 		return this.returnCode;
 	}
@@ -265,11 +590,24 @@ public class GameScreen extends Screen implements Serializable {
 	protected final void update() throws IOException, ClassNotFoundException {
 		super.update();
 
+		// Keys are read once per frame, so the frame can be recorded.
+		if (this.replayPlayer != null) {
+			if (!this.replayPlayer.frame(this.frameKeys)) {
+				this.isRunning = false;
+				return;
+			}
+			this.inputManager.freezeKeys(this.frameKeys);
+		} else if (this.recorder != null) {
+			this.inputManager.copyKeys(this.frameKeys);
+			this.recorder.frame(this.frameKeys);
+			this.inputManager.freezeKeys(this.frameKeys);
+		}
+
 		// Countdown to game start. 스테이지 시작 전 5초
 		if (!this.inputDelay.checkFinished() && countdown >= 0) {
 
 			int countDowned = (int) ((INPUT_DELAY
-					- (System.currentTimeMillis()
+					- (GameClock.now()
 					- this.gameStartTime)) / 1000);
 			if (countDowned >= -1 && countDowned < countdown) {
 				countdown = countDowned;
@@ -280,20 +618,22 @@ public class GameScreen extends Screen implements Serializable {
 					effectSound.countDownSound.start();
 				} else if (countdown == 0) {
 					effectSound.roundStartSound.start();
-				} else if (countdown == -1 && !backgroundMusic.isRunning()){
-					backgroundMusic.start();
+				} else if (countdown == -1){
+					// Cross-fades from the music of the previous screen.
+					backgroundMusic.play(this.stageType == StageType.BOSS
+							? MusicPlayer.BOSS_TRACK : MusicPlayer.GAME_TRACK);
 				}
 			}
 		}
 
 		if (this.inputDelay.checkFinished() && !this.levelFinished) {
 			if (pauseTime != 0) {
-				this.skill1.pause(System.currentTimeMillis() - this.pauseTime);
-				this.skill2.pause(System.currentTimeMillis() - this.pauseTime);
-				this.skill3.pause(System.currentTimeMillis() - this.pauseTime);
-				this.skill4.pause(System.currentTimeMillis() - this.pauseTime);
+				this.skill1.pause(GameClock.now() - this.pauseTime);
+				this.skill2.pause(GameClock.now() - this.pauseTime);
+				this.skill3.pause(GameClock.now() - this.pauseTime);
+				this.skill4.pause(GameClock.now() - this.pauseTime);
 				if (bonusTime != null && !bonusTime.checkFinished()) {
-					if(bonusSeconds ==  0 ) bonusTime.pause(System.currentTimeMillis() - this.pauseTime);
+					if(bonusSeconds ==  0 ) bonusTime.pause(GameClock.now() - this.pauseTime);
 					else bonusSeconds = 0;
 				}
 				this.pauseTime = 0;
@@ -324,6 +664,7 @@ public class GameScreen extends Screen implements Serializable {
 				if (moveLeft && !isLeftBorder) {
 					this.ship.moveLeft();
 				}
+				Audio.listenAt(this.ship, this.width);
 				if (this.skillInputDelay
 						.checkFinished() && this.inputDelay.checkFinished()) {
 					if (SkillCursorRight && skillCursor < 3) {
@@ -350,19 +691,23 @@ public class GameScreen extends Screen implements Serializable {
 					if (this.skillCursor == 0 && this.skill1.checkOpen() && this.skill1.returnSkillCoolTime() == 0) {
 							effectSound.skill1Sound.start();
 							this.skill1.startActivate();
+							this.telemetry.skill(this.level, 1);
 							this.skill1.startCoolTime();
 					} else if (this.skillCursor == 1 && this.skill2.checkOpen() && this.skill2.checkCoolTime()) {
 							effectSound.skill2Sound.start();
 							this.skill2.startActivate();
+							this.telemetry.skill(this.level, 2);
 							this.skill2.startCoolTime();
 
 					} else if (this.skillCursor == 2 && this.skill3.checkOpen() && this.skill3.checkCoolTime()) {
 							effectSound.skill3Sound.start();
 							this.skill3.startActivate();
+							this.telemetry.skill(this.level, 3);
 							this.skill3.startCoolTime();
 					} else if (this.skillCursor == 3 && this.skill4.checkOpen() && this.skill4.checkCoolTime()) {
 							effectSound.skill4Sound.start();
 							this.skill4.startActivate();
+							this.telemetry.skill(this.level, 4);
 							this.skill4.startCoolTime();
 							this.ship.boomSkillShoot(this.booms, -1);
 							this.ship.boomSkillShoot(this.booms, 0);
@@ -389,7 +734,8 @@ public class GameScreen extends Screen implements Serializable {
 				if (this.inputDelay.checkFinished() && !isPauseScreen && inputManager.isKeyDown(KeyEvent.VK_SPACE)) {
 					if (this.ship.shoot(this.bullets)) {
 						this.bulletsShot++;
-						effectSound.shootingSound.start();
+						this.telemetry.shot(this.level);
+						effectSound.shootingSound.startAt(this.ship, this.width);
 					}
 				}
 
@@ -402,25 +748,37 @@ public class GameScreen extends Screen implements Serializable {
 				}
 				if(!isPauseScreen&&inputManager.isKeyDown(KeyEvent.VK_C) && ultimateTimes > 0){
 					effectSound.ultimateSound.start();
-					this.ultimate = new Ultimate(this.ship.getPositionX() + this.ship.getWidth()/ 2-100,
+					UltimatePool.recycle(this.ultimate);
+					this.ultimate = UltimatePool.getUltimate(this.ship.getPositionX() + this.ship.getWidth()/ 2-100,
 							this.ship.getPositionY());
 					ultimateTimes--;
 					this.logger.info("The Ultimate has been started.");
 					effectSound.boomingSound.start();
 				}
 				if (!isPauseScreen && inputManager.isKeyDown(KeyEvent.VK_ESCAPE)) {
-					if (this.pauseTime == 0) this.pauseTime = System.currentTimeMillis();
+					if (this.pauseTime == 0) this.pauseTime = GameClock.now();
 					GameState gameState = getGameState();
 					this.skillCool[0] = this.skill1.returnSkillCoolTime();
 					this.skillCool[1] = this.skill2.returnSkillCoolTime();
 					this.skillCool[2] = this.skill3.returnSkillCoolTime();
 					this.skillCool[3] = this.skill4.returnSkillCoolTime();
-					if(this.level == BONUS_STAGE_LEVEL)
+					if(this.stageType == StageType.BONUS)
 						this.bonusSeconds = this.bonusTime.getDuration() - this.bonusTime.passedCooldown();
 					GameStatus gameStatus = new GameStatus(gameState, gameSettings, bonusLife);
-					Screen currentScreen = new PauseScreen(width, height, fps, gameStatus,getGameScreen());
-					this.logger.info("escKey.");
-					returnCode = frame.setScreen(currentScreen,0);
+					if (this.replayPlayer != null) {
+						GameClock.advance(this.replayPlayer.pause());
+					} else {
+						Screen currentScreen = new PauseScreen(width, height, fps, gameStatus,getGameScreen());
+						this.logger.info("escKey.");
+						long pauseStart = GameClock.getTicks();
+						if (this.frameKeys != null)
+							inputManager.freezeKeys(null);
+						returnCode = frame.setScreen(currentScreen,0);
+						if (this.recorder != null) {
+							this.recorder.pause(GameClock.getTicks() - pauseStart);
+							inputManager.freezeKeys(this.frameKeys);
+						}
+					}
 				}
 				if (Core.flag_main || Core.flag_restart)
 					this.isRunning = false;
@@ -429,46 +787,35 @@ public class GameScreen extends Screen implements Serializable {
 			if (this.enemyShipSpecial != null) {
 				if (!this.enemyShipSpecial.isDestroyed())
 					this.enemyShipSpecial.move(2, 0);
-				else if (this.enemyShipSpecialExplosionCooldown.checkFinished())
+				else if (this.enemyShipSpecialExplosionCooldown.checkFinished()) {
+					EnemyShipPool.recycleSpecialShip(this.enemyShipSpecial);
 					this.enemyShipSpecial = null;
+				}
 
 			}
 			if (this.enemyShipSpecial == null
 					&& this.enemyShipSpecialCooldown.checkFinished()) {
-				this.enemyShipSpecial = new EnemyShip();
+				this.enemyShipSpecial = EnemyShipPool.getSpecialShip();
 				this.enemyShipSpecialCooldown.reset();
 				this.logger.info("A special ship appears");
 			}
 			if (this.enemyShipSpecial != null) this.enemyShipSpecial.update();
 			if (this.enemyShipSpecial != null
 					&& this.enemyShipSpecial.getPositionX() > this.width) {
+				EnemyShipPool.recycleSpecialShip(this.enemyShipSpecial);
 				this.enemyShipSpecial = null;
 				this.logger.info("The special ship has escaped");
 			}
 
 			// 위치업데이트
-			if (this.bulletSpeedItem != null) {
-				this.bulletSpeedItem.update();
-			}
-			if (this.shootingCoolItem != null) {
-				this.shootingCoolItem.update();
-			}
-			if (this.bonusLifeItem != null) {
-				this.bonusLifeItem.update();
-			}
-			if (this.bonusScoreItem != null) {
-				this.bonusScoreItem.update();
-			}
+			EntitySystems.move(this.items);
 			if (this.ultimate != null) {
 				this.ultimate.update();
 			}
-			if (this.boomItem != null) {
-				this.boomItem.update();
-			}
 			this.ship.update();
-			if (this.level == BOSS_STAGE_LEVEL) {
+			if (this.stageType == StageType.BOSS) {
 				this.boss.update();
-				int r = random.nextInt(6);
+				int r = GameRandom.get().nextInt(6);
 				if (r == 0) this.boss.pinwheelShoot(this.bullets);
 				else if (r == 1 || r == 2)
 					this.boss.targetingShoot(this.bullets, this.ship);
@@ -478,54 +825,24 @@ public class GameScreen extends Screen implements Serializable {
 				this.enemyShipFormation.targetingShoot(this.bullets, this.ship);
 			}
 		} else {
-			if (pauseTime == 0) pauseTime = System.currentTimeMillis();
+			if (pauseTime == 0) pauseTime = GameClock.now();
 		}
 
 		manageCollisions();
 
-		if(this.shootingCoolItem != null && checkCollision(this.shootingCoolItem, this.ship)){
-			if(this.ship.getShootingCoolDown() > 310){
-				this.ship.setShootingCoolDown(this.ship.getShootingCoolDown()-110);
-			}
-			this.logger.info("Get Item : Bullet Shooting Cooldown Up ! " + this.ship.getShootingCoolDown());
-			this.shootingCoolItem = null;
-			effectSound.getPowerUpSound.start();
-		}
-		if(this.bulletSpeedItem != null && checkCollision(this.bulletSpeedItem, this.ship)){
-			if(this.ship.getBulletSpeed() > -10){
-				this.ship.setBulletSpeed(this.ship.getBulletSpeed()-1);
-			}
-			this.logger.info("Get Item : Bullet Shooting Cool down Up ! " + this.ship.getBulletSpeed());
-			this.bulletSpeedItem = null;
-			effectSound.getPowerUpSound.start();
-		}
-
-		if (this.bonusLifeItem != null && checkCollision(this.bonusLifeItem, this.ship)) {
-			if (this.lives < 3) this.lives++;
-			this.bonusLifeItem = null;
-			effectSound.recoverySound.start();
-		}
-
-		if (this.bonusScoreItem != null && checkCollision(this.bonusScoreItem, this.ship)) {
-			this.score = this.score + this.bonusScoreItem.getPointValue();
-			this.bonusScoreItem = null;
-			effectSound.getCoinSound.start();
-		}
-
-		if (this.boomItem != null && checkCollision(this.boomItem, this.ship)) {
-			if (this.boomTimes < 3) {
-				boomTimes++;
-				this.logger.info("Get Item : Boom ! ");
-			}
-			this.boomItem = null;
-			effectSound.getItemSound.start();
-		}
+		EntitySystems.collide(this.items, this.ship, this::pickUpItem);
 
 		cleanBullets();
 		cleanBooms();
-		draw();
+		if (this.ultimate != null && this.ultimate.getPositionY() + 200 < 0) {
+			UltimatePool.recycle(this.ultimate);
+			this.ultimate = null;
+		}
+		EntitySystems.cull(this.items, Integer.MIN_VALUE, this.height);
+		if (!this.headless)
+			draw();
 
-		if (this.level == BOSS_STAGE_LEVEL) {
+		if (this.stageType == StageType.BOSS) {
 			if ((this.boss.isDestroyed() || this.lives == 0)
 					&& !this.levelFinished) {
 				this.skillCool[0] = this.skill1.returnSkillCoolTime();
@@ -542,7 +859,7 @@ public class GameScreen extends Screen implements Serializable {
 			}
 		} else {
 			if ((this.enemyShipFormation.isEmpty() || this.lives == 0 ||
-					(gameSettings.getShootingFrecuency() ==  BONUS_LEVEL_SHOOTING_FREQ
+					(this.stageType == StageType.BONUS
 							&& bonusTime.checkFinished())) && !this.levelFinished) {
 				this.skillCool[0] = this.skill1.returnSkillCoolTime();
 				this.skillCool[1] = this.skill2.returnSkillCoolTime();
@@ -577,7 +894,7 @@ public class GameScreen extends Screen implements Serializable {
 		if (this.enemyShipSpecial != null)
 			drawManager.drawEntity(this.enemyShipSpecial, this.enemyShipSpecial.getPositionX(), this.enemyShipSpecial.getPositionY());
 
-		if (this.level == BOSS_STAGE_LEVEL) {
+		if (this.stageType == StageType.BOSS) {
 			drawManager.drawEntity(boss,boss.getPositionX(),boss.getPositionY());
 		} else {
 			enemyShipFormation.draw();
@@ -600,48 +917,9 @@ public class GameScreen extends Screen implements Serializable {
 		for (Boom boom : this.booms)
 			drawManager.drawEntity(boom, boom.getPositionX(),
 					boom.getPositionY());
-		if (this.ultimate != null) {
-			if (this.ultimate.getPositionY() + 200 < 0) {
-				this.ultimate = null;
-			} else {
-				drawManager.drawEntity(this.ultimate, this.ultimate.getPositionX(), this.ultimate.getPositionY());
-			}
-		}
-		if (this.bulletSpeedItem != null) {
-			if (bulletSpeedItem.getPositionY() > this.height) {
-				this.bulletSpeedItem = null;
-			} else {
-				drawManager.drawEntity(this.bulletSpeedItem, this.bulletSpeedItem.getPositionX(), this.bulletSpeedItem.getPositionY());
-			}
-		}
-		if (this.shootingCoolItem != null) {
-			if (shootingCoolItem.getPositionY() > this.height) {
-				this.shootingCoolItem = null;
-			} else {
-				drawManager.drawEntity(this.shootingCoolItem, this.shootingCoolItem.getPositionX(), this.shootingCoolItem.getPositionY());
-			}
-		}
-		if (this.bonusLifeItem != null) {
-			if (bonusLifeItem.getPositionY() > this.height) {
-				this.bonusLifeItem = null;
-			} else {
-				drawManager.drawEntity(this.bonusLifeItem, this.bonusLifeItem.getPositionX(), this.bonusLifeItem.getPositionY());
-			}
-		}
-		if (this.bonusScoreItem != null) {
-			if (bonusScoreItem.getPositionY() > this.height) {
-				this.bonusScoreItem = null;
-			} else {
-				drawManager.drawEntity(this.bonusScoreItem, this.bonusScoreItem.getPositionX(), this.bonusScoreItem.getPositionY());
-			}
-		}
-		if (this.boomItem != null) {
-			if (this.boomItem.getPositionY() > this.height) {
-				this.boomItem = null;
-			} else {
-				drawManager.drawEntity(this.boomItem, this.boomItem.getPositionX(), this.boomItem.getPositionY());
-			}
-		}
+		if (this.ultimate != null)
+			drawManager.drawEntity(this.ultimate, this.ultimate.getPositionX(), this.ultimate.getPositionY());
+		EntitySystems.render(this.items, drawManager);
 		// Interface.
 		drawManager.drawUltimate(this.ultimateTimes);
 		drawManager.drawScore(this, this.score);
@@ -651,14 +929,15 @@ public class GameScreen extends Screen implements Serializable {
 		drawManager.drawHorizontalLine(this, SEPARATION_LINE_HEIGHT - 1);
 		drawManager.drawBooms(this, this.boomTimes);
 		drawManager.drawSkills(skillCursor, skill1, skill2, skill3, skill4, this.pauseTime);
-		if(this.level ==  BONUS_STAGE_LEVEL){
+		if(this.stageType == StageType.BONUS){
 			drawManager.drawBonusTime(this, bonusTime, this.pauseTime);
 		}
 		// Countdown to game start. 스테이지 시작전 5초
 		if (!this.inputDelay.checkFinished()) {
-			int countdown = (int) ((INPUT_DELAY - (System.currentTimeMillis()
+			int countdown = (int) ((INPUT_DELAY - (GameClock.now()
 							- this.gameStartTime)) / 1000);
-			drawManager.drawCountDown(this, this.level, countdown,
+			drawManager.drawCountDown(this, this.level,
+					gameSettings.getTitle(), countdown,
 					this.bonusLife);
 			drawManager.drawHorizontalLine(this, this.height / 2 - this.height / 12);
 			drawManager.drawHorizontalLine(this, this.height / 2 + this.height / 12);
@@ -669,7 +948,7 @@ public class GameScreen extends Screen implements Serializable {
 	 * Cleans bullets that go off screen.
 	 */
 	private void cleanBullets () {
-		Set<Bullet> recyclable = new HashSet<>();
+		Set<Bullet> recyclable = new LinkedHashSet<>();
 		for (Bullet bullet : this.bullets) {
 			bullet.update(this.skill3.checkActivate());
 			if (bullet.getPositionY() < SEPARATION_LINE_HEIGHT
@@ -681,7 +960,7 @@ public class GameScreen extends Screen implements Serializable {
 	}
 
 	private void cleanBooms () {
-		Set<Boom> recyclable = new HashSet<>();
+		Set<Boom> recyclable = new LinkedHashSet<>();
 		for (Boom boom : this.booms) {
 			boom.update();
 			if (boom.getPositionY() < SEPARATION_LINE_HEIGHT
@@ -695,17 +974,18 @@ public class GameScreen extends Screen implements Serializable {
 	 * Manages collisions between bullets and ships.
 	 */
 	private void manageCollisions () {
-		Set<Bullet> recyclable = new HashSet<Bullet>();
-		Set<Boom> recyclableBoom = new HashSet<Boom>();
+		Set<Bullet> recyclable = new LinkedHashSet<Bullet>();
+		Set<Boom> recyclableBoom = new LinkedHashSet<Boom>();
 		for (Boom boom : this.booms) {
-			if (this.level == BOSS_STAGE_LEVEL) {
-				if (this.level == BOSS_STAGE_LEVEL) {
+			if (this.stageType == StageType.BOSS) {
+				if (this.stageType == StageType.BOSS) {
 					if (checkCollision(boom, this.boss)) {
-						effectSound.destroyedEnemySound.start();
+						effectSound.destroyedEnemySound.startAt(this.boss, this.width);
 						effectSound.boomingSound.stop();
 						this.boss.destroy();
 						if (this.boss.isDestroyed()) {
 							this.score += boss.getPointValue();
+							this.telemetry.kill(this.level, boss.getPointValue(), Telemetry.WEAPON_BOOM);
 							this.logger.info("The Boss is destroyed." );
 						}
 						recyclableBoom.add(boom);
@@ -719,16 +999,17 @@ public class GameScreen extends Screen implements Serializable {
 							if (!enemyShip2.isDestroyed()
 									&& checkBoomCollision(boom, enemyShip2)) {
 								if (enemyShip.getLives() >= 2) {
-									effectSound.hitEnemySound.start();
+									effectSound.hitEnemySound.startAt(enemyShip2, this.width);
 									effectSound.boomingSound.stop();
 									this.enemyShipFormation.destroy(enemyShip2);
 								} else {
-									effectSound.destroyedEnemySound.start();
+									effectSound.destroyedEnemySound.startAt(enemyShip2, this.width);
 									effectSound.boomingSound.stop();
 									this.score += enemyShip2.getPointValue();
+									this.telemetry.kill(this.level, enemyShip2.getPointValue(), Telemetry.WEAPON_BOOM);
 									this.enemyShipFormation.destroy(enemyShip2);
 									dropItem(enemyShip);
-									this.logger.info("The item is falling !");
+									this.logger.fine("The item is falling !");
 								}
 							}
 						}
@@ -740,6 +1021,7 @@ public class GameScreen extends Screen implements Serializable {
 					&& checkCollision(boom, this.enemyShipSpecial)) {
 				this.score += this.enemyShipSpecial.getPointValue();
 				this.shipsDestroyed++;
+				this.telemetry.kill(this.level, this.enemyShipSpecial.getPointValue(), Telemetry.WEAPON_BOOM);
 				this.enemyShipSpecial.destroy();
 				this.enemyShipSpecialExplosionCooldown.reset();
 				recyclableBoom.add(boom);
@@ -751,9 +1033,10 @@ public class GameScreen extends Screen implements Serializable {
 					recyclable.add(bullet);
 					if (!this.ship.isDestroyed()) {
 						if (!this.skill1.checkActivate()) {
-							effectSound.deathSound.start();
+							effectSound.deathSound.startAt(this.ship, this.width);
 							this.ship.destroy();
 							this.lives--;
+							this.telemetry.death(this.level, this.lives);
 							this.logger.info("Hit on player ship, " + this.lives
 									+ " lives remaining.");
 							this.ship.setBulletSpeed(-6);
@@ -764,13 +1047,14 @@ public class GameScreen extends Screen implements Serializable {
 					}
 				}
 			} else {
-				if (this.level == BOSS_STAGE_LEVEL) {
+				if (this.stageType == StageType.BOSS) {
 					if (checkCollision(bullet, this.boss)) {
-						effectSound.hitEnemySound.start();
+						effectSound.hitEnemySound.startAt(this.boss, this.width);
 						this.boss.destroy();
 						if (this.boss.isDestroyed()) {
 							this.score += boss.getPointValue();
-							effectSound.destroyedEnemySound.start();
+							this.telemetry.kill(this.level, boss.getPointValue(), Telemetry.WEAPON_BULLET);
+							effectSound.destroyedEnemySound.startAt(this.boss, this.width);
 						}
 						recyclable.add(bullet);
 					}
@@ -779,24 +1063,26 @@ public class GameScreen extends Screen implements Serializable {
 						if (!enemyShip.isDestroyed()
 								&& checkCollision(bullet, enemyShip)) {
 							if (enemyShip.getLives() >= 2) {
-								effectSound.hitEnemySound.start();
+								effectSound.hitEnemySound.startAt(enemyShip, this.width);
 								this.enemyShipFormation.destroy(enemyShip);
 							} else {
-								effectSound.destroyedEnemySound.start();
+								effectSound.destroyedEnemySound.startAt(enemyShip, this.width);
 								this.score += enemyShip.getPointValue();
 								this.shipsDestroyed++;
+								this.telemetry.kill(this.level, enemyShip.getPointValue(), Telemetry.WEAPON_BULLET);
 								this.enemyShipFormation.destroy(enemyShip);
 								dropItem(enemyShip);
-								this.logger.info("The item is falling !");
+								this.logger.fine("The item is falling !");
 							}
 							recyclable.add(bullet);
 						}
 					if (this.enemyShipSpecial != null
 							&& !this.enemyShipSpecial.isDestroyed()
 							&& checkCollision(bullet, this.enemyShipSpecial)) {
-						effectSound.destroyedEnemySound.start();
+						effectSound.destroyedEnemySound.startAt(this.enemyShipSpecial, this.width);
 						this.score += this.enemyShipSpecial.getPointValue();
 						this.shipsDestroyed++;
+						this.telemetry.kill(this.level, this.enemyShipSpecial.getPointValue(), Telemetry.WEAPON_BULLET);
 						this.enemyShipSpecial.destroy();
 						this.enemyShipSpecialExplosionCooldown.reset();
 						recyclable.add(bullet);
@@ -808,11 +1094,12 @@ public class GameScreen extends Screen implements Serializable {
 			for (EnemyShip enemyShip : this.enemyShipFormation)
 				if (!enemyShip.isDestroyed()
 						&& checkCollision(ultimate, enemyShip)){
-					effectSound.destroyedEnemySound.start();
+					effectSound.destroyedEnemySound.startAt(enemyShip, this.width);
 					this.score += enemyShip.getPointValue();
+					this.telemetry.kill(this.level, enemyShip.getPointValue(), Telemetry.WEAPON_ULTIMATE);
 					this.enemyShipFormation.destroy(enemyShip);
 					dropItem(enemyShip);
-					this.logger.info("The item is falling !");
+					this.logger.fine("The item is falling !");
 				}
 		}
 		this.bullets.removeAll(recyclable);
@@ -843,7 +1130,137 @@ public class GameScreen extends Screen implements Serializable {
 		int distanceX = Math.abs(centerAX - centerBX);
 		int distanceY = Math.abs(centerAY - centerBY);
 
-		return distanceX < maxDistanceX && distanceY < maxDistanceY;
+		if (distanceX >= maxDistanceX || distanceY >= maxDistanceY)
+			return false;
+		return !PIXEL_COLLISION || checkPixelCollision(a, b);
+	}
+
+	/**
+	 * Checks if a bullet hit an entity at any point of its last movement.
+	 *
+	 * @param a
+	 *            First entity, the bullet.
+	 * @param b
+	 *            Second entity, the ship.
+	 * @return Result of the collision test.
+	 */
+	private boolean checkCollision(final Bullet a, final Entity b) {
+		return checkSweptCollision(a, a.getPreviousPositionX(),
+				a.getPreviousPositionY(), b);
+	}
+
+	/**
+	 * Checks if a boom hit an entity at any point of its last movement.
+	 *
+	 * @param a
+	 *            First entity, the boom.
+	 * @param b
+	 *            Second entity, the ship.
+	 * @return Result of the collision test.
+	 */
+	private boolean checkCollision(final Boom a, final Entity b) {
+		return checkSweptCollision(a, a.getPreviousPositionX(),
+				a.getPreviousPositionY(), b);
+	}
+
+	/**
+	 * Checks if a moving entity collided with another one while travelling
+	 * from its previous position to its current one, so fast projectiles
+	 * cannot skip over thin targets. The target is taken as static during
+	 * the tick.
+	 *
+	 * @param a
+	 *            Moving entity, at its current position.
+	 * @param previousX
+	 *            Position of the moving entity in the x-axis before the
+	 *            last update.
+	 * @param previousY
+	 *            Position of the moving entity in the y-axis before the
+	 *            last update.
+	 * @param b
+	 *            Target entity.
+	 * @return Result of the collision test.
+	 */
+	private boolean checkSweptCollision(final Entity a, final int previousX,
+			final int previousY, final Entity b) {
+		int deltaX = a.getPositionX() - previousX;
+		int deltaY = a.getPositionY() - previousY;
+		if (deltaX == 0 && deltaY == 0)
+			return checkCollision(a, b);
+
+		// Slab test of the moving box against the target box.
+		double entryX, exitX, entryY, exitY;
+		if (deltaX == 0) {
+			if (previousX + a.getWidth() <= b.getPositionX()
+					|| previousX >= b.getPositionX() + b.getWidth())
+				return false;
+			entryX = Double.NEGATIVE_INFINITY;
+			exitX = Double.POSITIVE_INFINITY;
+		} else {
+			double near = (b.getPositionX() - (previousX + a.getWidth()))
+					/ (double) deltaX;
+			double far = (b.getPositionX() + b.getWidth() - previousX)
+					/ (double) deltaX;
+			entryX = Math.min(near, far);
+			exitX = Math.max(near, far);
+		}
+		if (deltaY == 0) {
+			if (previousY + a.getHeight() <= b.getPositionY()
+					|| previousY >= b.getPositionY() + b.getHeight())
+				return false;
+			entryY = Double.NEGATIVE_INFINITY;
+			exitY = Double.POSITIVE_INFINITY;
+		} else {
+			double near = (b.getPositionY() - (previousY + a.getHeight()))
+					/ (double) deltaY;
+			double far = (b.getPositionY() + b.getHeight() - previousY)
+					/ (double) deltaY;
+			entryY = Math.min(near, far);
+			exitY = Math.max(near, far);
+		}
+		double entry = Math.max(Math.max(entryX, entryY), 0);
+		double exit = Math.min(Math.min(exitX, exitY), 1);
+		if (entry >= exit)
+			return false;
+		if (!PIXEL_COLLISION)
+			return true;
+
+		// Narrow phase along the part of the path inside the target box.
+		SpriteMask maskA = drawManager.getSpriteMask(a.getSpriteType());
+		SpriteMask maskB = drawManager.getSpriteMask(b.getSpriteType());
+		if (maskA == null || maskB == null)
+			return true;
+		int steps = (int) Math.ceil(Math.max(abs(deltaX), abs(deltaY))
+				* (exit - entry));
+		for (int step = 0; step <= steps; step++) {
+			double t = steps == 0 ? entry : entry + (exit - entry) * step / steps;
+			int x = previousX + (int) Math.round(deltaX * t);
+			int y = previousY + (int) Math.round(deltaY * t);
+			if (SpriteMask.overlaps(maskA, x, y, maskB, b.getPositionX(),
+					b.getPositionY()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the opaque pixels of two entities overlap. Only meant to be
+	 * called once their bounding boxes are known to overlap; entities
+	 * without a mask are treated as solid boxes.
+	 *
+	 * @param a
+	 *            First entity.
+	 * @param b
+	 *            Second entity.
+	 * @return Result of the collision test.
+	 */
+	private boolean checkPixelCollision(final Entity a, final Entity b) {
+		SpriteMask maskA = drawManager.getSpriteMask(a.getSpriteType());
+		SpriteMask maskB = drawManager.getSpriteMask(b.getSpriteType());
+		if (maskA == null || maskB == null)
+			return true;
+		return SpriteMask.overlaps(maskA, a.getPositionX(), a.getPositionY(),
+				maskB, b.getPositionX(), b.getPositionY());
 	}
 
 	/**
@@ -872,51 +1289,97 @@ public class GameScreen extends Screen implements Serializable {
 		return distanceX < maxDistanceX && distanceY < maxDistanceY;
 	}
 
+	/**
+	 * Applies the effect of an item caught by the ship.
+	 *
+	 * @param world
+	 *            World the item belongs to.
+	 * @param index
+	 *            Row of the caught item.
+	 * @return True, caught items are always removed.
+	 */
+	private boolean pickUpItem(final EntityWorld world, final int index) {
+		this.telemetry.item(this.level, world.getSprite(index));
+		switch (world.getSprite(index)) {
+			case ShootingCoolItem:
+				if(this.ship.getShootingCoolDown() > 310){
+					this.ship.setShootingCoolDown(this.ship.getShootingCoolDown()-110);
+				}
+				this.logger.info("Get Item : Bullet Shooting Cooldown Up ! " + this.ship.getShootingCoolDown());
+				effectSound.getPowerUpSound.start();
+				break;
+			case BulletSpeedItem:
+				if(this.ship.getBulletSpeed() > -10){
+					this.ship.setBulletSpeed(this.ship.getBulletSpeed()-1);
+				}
+				this.logger.info("Get Item : Bullet Shooting Cool down Up ! " + this.ship.getBulletSpeed());
+				effectSound.getPowerUpSound.start();
+				break;
+			case BonusLifeItem:
+				if (this.lives < 3) this.lives++;
+				effectSound.recoverySound.start();
+				break;
+			case Boom:
+				if (this.boomTimes < 3) {
+					boomTimes++;
+					this.logger.info("Get Item : Boom ! ");
+				}
+				effectSound.getItemSound.start();
+				break;
+			default:
+				this.score = this.score + world.getPoints(index);
+				effectSound.getCoinSound.start();
+				break;
+		}
+		return true;
+	}
+
 	private void dropItem(EnemyShip enemyShip) {
-		int r = random.nextInt(5);
-		if(r == 1) { // 5분의 1의확률, 중복으로 아이템 생성x
-			int c = random.nextInt(4);
-			if(c == 0){
-				if(this.shootingCoolItem == null){ // 연사속도
-					effectSound.dropItemSound.start();
-					this.shootingCoolItem = new Item(enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.ShootingCoolItem, 3);
-				}
-			} else if (c == 1) {
-				if (this.bulletSpeedItem == null) { // 총알속도
-					effectSound.dropItemSound.start();
-					this.bulletSpeedItem= new Item(enemyShip.getPositionX(),  enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.BulletSpeedItem, 2);
+		int r = GameRandom.get().nextInt(gameSettings.getDropChance());
+		if(r == 0) { // 레벨 설정의 확률, 중복으로 아이템 생성x
+			int c = gameSettings.pickDrop(GameRandom.get()
+					.nextInt(gameSettings.getTotalDropWeight()));
+			if(c == GameSettings.DROP_SHOOTING_COOL){
+				if(!this.items.contains(DrawManager.SpriteType.ShootingCoolItem)){ // 연사속도
+					effectSound.dropItemSound.startAt(enemyShip, this.width);
+					Item.spawn(this.items, enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.ShootingCoolItem, 3);
+				}
+			} else if (c == GameSettings.DROP_BULLET_SPEED) {
+				if (!this.items.contains(DrawManager.SpriteType.BulletSpeedItem)) { // 총알속도
+					effectSound.dropItemSound.startAt(enemyShip, this.width);
+					Item.spawn(this.items, enemyShip.getPositionX(),  enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.BulletSpeedItem, 2);
 				}
 			}
-			else if(c == 2) { //폭탄이드랍.
-				if(this.boomItem == null){
-					effectSound.dropItemSound.start(); // 폭탄 아이템 드랍 소리
-					this.boomItem = new Item(enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16,DrawManager.SpriteType.Boom,4);
+			else if(c == GameSettings.DROP_BOOM) { //폭탄이드랍.
+				if(!this.items.contains(DrawManager.SpriteType.Boom)){
+					effectSound.dropItemSound.startAt(enemyShip, this.width); // 폭탄 아이템 드랍 소리
+					Item.spawn(this.items, enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16,DrawManager.SpriteType.Boom,4);
 				}
 			}
-			else if(c == 3){
-				if(this.bonusLifeItem == null){
-					effectSound.dropItemSound.start();	// 보너스 라이프 아이템 드랍 소리
-					this.bonusLifeItem = new Item(enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.BonusLifeItem, 3);
+			else if(c == GameSettings.DROP_BONUS_LIFE){
+				if(!this.items.contains(DrawManager.SpriteType.BonusLifeItem)){
+					effectSound.dropItemSound.startAt(enemyShip, this.width);	// 보너스 라이프 아이템 드랍 소리
+					Item.spawn(this.items, enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.BonusLifeItem, 3);
 				}
 			} else {
 				// 점수 오름차순으로 1/2, 1/3, 1/6 확률
-				r = random.nextInt(6);
+				r = GameRandom.get().nextInt(6);
 				if(r == 0){
-					if(this.bonusScoreItem == null){
-						effectSound.dropItemSound.start();		// 보너스 라이프 아이템 드랍 소리
-						this.bonusScoreItem = new Item(enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.BonusScoreItem3, 6);
+					if(!this.items.contains(BONUS_SCORE_ITEMS)){
+						effectSound.dropItemSound.startAt(enemyShip, this.width);		// 보너스 라이프 아이템 드랍 소리
+						Item.spawn(this.items, enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.BonusScoreItem3, 6);
 					}
 				}
 				else if(r == 1 || r == 2){
-					if(this.bonusScoreItem == null){
-						effectSound.dropItemSound.start();		// 보너스 라이프 아이템 드랍 소리
-						this.bonusScoreItem = new Item(enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.BonusScoreItem2,4);
+					if(!this.items.contains(BONUS_SCORE_ITEMS)){
+						effectSound.dropItemSound.startAt(enemyShip, this.width);		// 보너스 라이프 아이템 드랍 소리
+						Item.spawn(this.items, enemyShip.getPositionX(), enemyShip.getPositionY(), 16, 16, DrawManager.SpriteType.BonusScoreItem2,4);
 					}
 				}
 				else{
-					if(this.bonusScoreItem == null){
-						effectSound.dropItemSound.start();		// 보너스 스코어 아이템 드랍 소리
-						this.bonusScoreItem = new Item(enemyShip.getPositionX(), enemyShip.getPositionY(),16, 16, DrawManager.SpriteType.BonusScoreItem1, 2);
+					if(!this.items.contains(BONUS_SCORE_ITEMS)){
+						effectSound.dropItemSound.startAt(enemyShip, this.width);		// 보너스 스코어 아이템 드랍 소리
+						Item.spawn(this.items, enemyShip.getPositionX(), enemyShip.getPositionY(),16, 16, DrawManager.SpriteType.BonusScoreItem1, 2);
 					}
 				}
 			}
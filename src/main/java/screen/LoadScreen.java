@@ -0,0 +1,110 @@
+package screen;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.util.List;
+
+import engine.Cooldown;
+import engine.Core;
+import engine.SaveSlots;
+
+/**
+ * Implements the load screen, it lists the saved games to resume.
+ */
+public class LoadScreen extends Screen {
+
+	/** Milliseconds between changes in user selection. */
+	private static final int SELECTION_TIME = 200;
+
+	/** Saved games, most recent first. */
+	private List<SaveSlots.SlotInfo> saves;
+	/** Index of the selected save. */
+	private int selected;
+	/** Slot chosen by the player, -1 if none. */
+	private int chosenSlot = -1;
+	/** Time between changes in user selection. */
+	private Cooldown selectionCooldown;
+
+	/**
+	 * Constructor, establishes the properties of the screen.
+	 *
+	 * @param width
+	 *            Screen width.
+	 * @param height
+	 *            Screen height.
+	 * @param fps
+	 *            Frames per second, frame rate at which the game is run.
+	 */
+	public LoadScreen(final int width, final int height, final int fps) {
+		super(width, height, fps);
+
+		this.returnCode = Core.MAIN_MENU;
+		this.saves = Core.getFileManager().listSaves();
+		this.selectionCooldown = Core.getCooldown(SELECTION_TIME);
+		this.selectionCooldown.reset();
+	}
+
+	/**
+	 * Starts the action.
+	 *
+	 * @return Next screen code.
+	 */
+	public final int run() throws IOException, ClassNotFoundException {
+		super.run();
+
+		return this.returnCode;
+	}
+
+	/**
+	 * Updates the elements on screen and checks for events.
+	 */
+	protected final void update() throws IOException, ClassNotFoundException {
+		super.update();
+
+		draw();
+		if (this.selectionCooldown.checkFinished()
+				&& this.inputDelay.checkFinished()) {
+			if (!this.saves.isEmpty()) {
+				if (inputManager.isKeyDown(KeyEvent.VK_UP)
+						|| inputManager.isKeyDown(KeyEvent.VK_W)) {
+					this.selected = (this.selected + this.saves.size() - 1)
+							% this.saves.size();
+					this.selectionCooldown.reset();
+				}
+				if (inputManager.isKeyDown(KeyEvent.VK_DOWN)
+						|| inputManager.isKeyDown(KeyEvent.VK_S)) {
+					this.selected = (this.selected + 1) % this.saves.size();
+					this.selectionCooldown.reset();
+				}
+			}
+			if (inputManager.isKeyDown(KeyEvent.VK_SPACE)) {
+				if (!this.saves.isEmpty()) {
+					this.chosenSlot = this.saves.get(this.selected).getSlot();
+					this.returnCode = Core.LOAD;
+				}
+				this.isRunning = false;
+			}
+			if (inputManager.isKeyDown(KeyEvent.VK_ESCAPE))
+				this.isRunning = false;
+		}
+	}
+
+	/**
+	 * @return Slot chosen by the player, -1 if none.
+	 */
+	public final int getChosenSlot() {
+		return this.chosenSlot;
+	}
+
+	/**
+	 * Draws the elements associated with the screen.
+	 */
+	private void draw() {
+		drawManager.initDrawing(this);
+
+		drawManager.drawLoadMenu(this);
+		drawManager.drawSaveSlots(this, this.saves, this.selected);
+
+		drawManager.completeDrawing(this);
+	}
+}
@@ -3,27 +3,30 @@ package screen;
 import engine.Cooldown;
 import engine.Core;
 import engine.FileManager;
+import engine.GainBus;
 import engine.GameStatus;
+import engine.SaveService;
 
 import java.awt.event.KeyEvent;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
-import static engine.Core.backgroundMusic;
-import static engine.Core.effectSound;
-
 public class PauseScreen extends Screen{
     GameStatus gameStatus;
 
     /** Milliseconds between changes in user selection. */
     private static final int SELECTION_TIME = 200;
+    /** Milliseconds the result of a save stays on screen. */
+    private static final int SAVE_STATUS_TIME = 2000;
 
     /** Time between changes in user selection. */
     private Cooldown selectionCooldown;
     /** FileManager instance. */
     private static FileManager fileManager;
     private GameScreen gameScreen;
+    /** Checks if a save was requested from this screen. */
+    private boolean saveRequested;
 
     /** Index of focused menu */
     int cursor;
@@ -118,26 +121,29 @@ public class PauseScreen extends Screen{
             }
             if (this.cursor == SAVE && inputManager.isKeyDown(KeyEvent.VK_SPACE)) {
                 fileManager.saveGame(gameScreen.getGameScreen());
+                this.saveRequested = true;
                 this.selectionCooldown.reset();
             }
             if (this.cursor == MUSIC_DOWN && (inputManager.isKeyDown(KeyEvent.VK_SPACE) ||
                                             inputManager.isKeyDown(KeyEvent.VK_LEFT))) {
-                backgroundMusic.decrease();
+                Core.getVolume().decrease(GainBus.MUSIC);
                 this.selectionCooldown.reset();
             }
             if (this.cursor == MUSIC_UP && (inputManager.isKeyDown(KeyEvent.VK_SPACE) ||
                                             inputManager.isKeyDown(KeyEvent.VK_RIGHT))) {
-                backgroundMusic.increase();
+                Core.getVolume().increase(GainBus.MUSIC);
                 this.selectionCooldown.reset();
             }
             if ((this.cursor == SOUND_DOWN && (inputManager.isKeyDown(KeyEvent.VK_SPACE) ||
                                             inputManager.isKeyDown(KeyEvent.VK_RIGHT)))) {
-                effectSound.decrease();
+                Core.getVolume().decrease(GainBus.SFX);
+                Core.getVolume().decrease(GainBus.UI);
                 this.selectionCooldown.reset();
             }
             if (this.cursor == SOUND_UP && (inputManager.isKeyDown(KeyEvent.VK_SPACE) ||
                                             inputManager.isKeyDown(KeyEvent.VK_RIGHT))) {
-                effectSound.increase();
+                Core.getVolume().increase(GainBus.SFX);
+                Core.getVolume().increase(GainBus.UI);
                 this.selectionCooldown.reset();
             }
         }
@@ -205,6 +211,22 @@ public class PauseScreen extends Screen{
         drawManager.initDrawing(this);
         drawManager.drawPauseTitle(this);
         drawManager.drawPauseMenu(this, this.cursor);
+        if (this.saveRequested)
+            drawSaveStatus();
         drawManager.completeDrawing(this);
     }
+
+    /**
+     * Draws the progress of the save requested from this screen.
+     */
+    private void drawSaveStatus() {
+        SaveService saveService = fileManager.getSaveService();
+        SaveService.Status status = saveService.getStatus();
+        if (status == SaveService.Status.SAVING)
+            drawManager.drawSaveStatus(this, "Saving...");
+        else if (System.currentTimeMillis() - saveService.getStatusTime()
+                < SAVE_STATUS_TIME)
+            drawManager.drawSaveStatus(this,
+                    status == SaveService.Status.SAVED ? "Saved" : "Save failed");
+    }
 }
@@ -9,7 +9,9 @@ import java.util.logging.Logger;
 import engine.Cooldown;
 import engine.Core;
 import engine.DrawManager;
+import engine.GameClock;
 import engine.InputManager;
+import engine.SoundCoalescer;
 
 /**
  * Implements a generic screen.
@@ -42,6 +44,8 @@ public class Screen implements Serializable {
 
 	/** If the screen is running. */
 	protected boolean isRunning;
+	/** If the screen runs without drawing or waiting between frames. */
+	protected boolean headless;
 	/** What kind of screen goes next. */
 	protected int returnCode;
 
@@ -86,8 +90,12 @@ public class Screen implements Serializable {
 		while (this.isRunning) {
 			long time = System.currentTimeMillis();
 
+			GameClock.tick();
 			update();
+			SoundCoalescer.getInstance().flush();
 
+			if (this.headless)
+				continue;
 			time = (1000 / this.fps) - (System.currentTimeMillis() - time);
 			if (time > 0) {
 				try {
@@ -46,6 +46,7 @@ public class Skill1 extends Skill{
     public void startActivate(){
         activation = true;
         duration.reset();
+        Core.recycleCooldown(this.skillCooldown);
         this.skillCooldown = Core.getCooldown(SKILL_COOLDOWN);
     }
     public boolean checkActivate(){ return activation; }
@@ -75,7 +76,7 @@ public class Skill1 extends Skill{
             return true;
         }
         else {
-            this.logger.info("Skill1 Cooldown left");
+            this.logger.fine("Skill1 Cooldown left");
             return false;
         }
     }
@@ -47,6 +47,7 @@ public class Skill2 extends Skill{
     public void startActivate(){
         activation = true;
         duration.reset();
+        Core.recycleCooldown(this.skillCooldown);
         this.skillCooldown = Core.getCooldown(SKILL_COOLDOWN);
     }
 
@@ -81,7 +82,7 @@ public class Skill2 extends Skill{
             return true;
         }
         else {
-            this.logger.info("Skill2 Cooldown left");
+            this.logger.fine("Skill2 Cooldown left");
             return false;
         }
     }
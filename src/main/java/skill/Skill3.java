@@ -47,6 +47,7 @@ public class Skill3 extends Skill {
     public void startActivate(){
         activation = true;
         duration.reset();
+        Core.recycleCooldown(this.skillCooldown);
         this.skillCooldown = Core.getCooldown(SKILL_COOLDOWN);
     }
 
@@ -82,7 +83,7 @@ public class Skill3 extends Skill {
             return true;
         }
         else {
-            this.logger.info("Skill3 Cooldown left");
+            this.logger.fine("Skill3 Cooldown left");
             return false;
         }
     }
@@ -46,6 +46,7 @@ public class Skill4 extends Skill {
     public void startActivate(){
         activation = true;
         duration.reset();
+        Core.recycleCooldown(this.skillCooldown);
         this.skillCooldown = Core.getCooldown(SKILL_COOLDOWN);
     }
 
@@ -79,7 +80,7 @@ public class Skill4 extends Skill {
             this.logger.info("Skill4 was used. ");
             return true;
         } else {
-            this.logger.info("Skill4 Cooldown left");
+            this.logger.fine("Skill4 Cooldown left");
             return false;
         }
     }
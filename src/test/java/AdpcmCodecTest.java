@@ -0,0 +1,91 @@
+import engine.AdpcmCodec;
+import engine.AudioMixer;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdpcmCodecTest {
+
+    private static byte[] readAll(final AudioInputStream stream) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1000];
+        int read;
+        while ((read = stream.read(buffer)) > 0)
+            bytes.write(buffer, 0, read);
+        return bytes.toByteArray();
+    }
+
+    @Test
+    void roundTripStaysCloseAtAQuarterOfTheSize() throws Exception {
+        // Not a whole number of blocks, so the last block is short and odd.
+        int frames = 2501;
+        short[] samples = new short[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            samples[2 * i] = (short) (12000 * Math.sin(i * 2 * Math.PI * 440 / 22050));
+            samples[2 * i + 1] = (short) (-6000 * Math.sin(i * 2 * Math.PI * 1000 / 22050));
+        }
+        byte[] compact = AdpcmCodec.encode(samples, 2, 22050);
+        assertTrue(compact.length < samples.length * 2 / 3.5, "size " + compact.length);
+
+        AudioInputStream stream = AdpcmCodec.open(new ByteArrayInputStream(compact));
+        assertEquals(22050, stream.getFormat().getSampleRate());
+        assertEquals(2, stream.getFormat().getChannels());
+        assertEquals(frames, stream.getFrameLength());
+        byte[] pcm = readAll(stream);
+        assertEquals(samples.length * 2, pcm.length);
+        int worst = 0;
+        for (int i = 0; i < samples.length; i++) {
+            int decoded = (short) (pcm[2 * i] & 0xFF | pcm[2 * i + 1] << 8);
+            worst = Math.max(worst, Math.abs(decoded - samples[i]));
+        }
+        assertTrue(worst < 600, "error " + worst);
+    }
+
+    @Test
+    void mixerDecodesCompactFilesToOutputFormat() throws Exception {
+        short[] samples = new short[1000];
+        Arrays.fill(samples, (short) 5000);
+        byte[] compact = AdpcmCodec.encode(samples, 1, AudioMixer.SAMPLE_RATE / 2);
+
+        AudioMixer.Sample sample = AudioMixer.decode(new ByteArrayInputStream(compact));
+        assertEquals(2000, sample.getFrames());
+        assertThrows(UnsupportedAudioFileException.class,
+                () -> AdpcmCodec.open(new ByteArrayInputStream(new byte[40])));
+        assertEquals("sounds/hit.ima", AdpcmCodec.compactName("sounds/hit.wav"));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedSounds() {
+        AudioMixer measure = new AudioMixer(1);
+        measure.load("shootingSound.wav");
+        // Room for the shooting sound, not with another one.
+        long budget = measure.getCachedBytes() + 1;
+        AudioMixer mixer = new AudioMixer(2, budget);
+        AudioMixer.Sample shooting = mixer.load("shootingSound.wav");
+        assertNotNull(shooting);
+        assertSame(shooting, mixer.load("shootingSound.wav"));
+        assertEquals(1, mixer.getDecodeCount());
+
+        assertNotNull(mixer.load("dropItemSound.wav"));
+        assertTrue(mixer.getCachedBytes() <= budget);
+        AudioMixer.Sample again = mixer.load("shootingSound.wav");
+        assertNotSame(shooting, again);
+        assertEquals(3, mixer.getDecodeCount());
+
+        // Plays of the evicted decoding still stop by name.
+        mixer.play(shooting, 1.0f, false);
+        mixer.render(new short[0], 0);
+        assertEquals(1, mixer.getActiveVoices());
+        mixer.stopAll("shootingSound.wav");
+        mixer.render(new short[0], 0);
+        assertEquals(0, mixer.getActiveVoices());
+        assertNull(mixer.load("missing.wav"));
+    }
+}
@@ -0,0 +1,97 @@
+import engine.AsyncLogHandler;
+import engine.MinimalFormatter;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLogHandlerTest {
+
+    // Logged at a given time, as setMillis is deprecated and setInstant
+    // does not exist in Java 8.
+    private static final class TimedRecord extends LogRecord {
+        private static final long serialVersionUID = 1L;
+        private final long millis;
+
+        TimedRecord(final String message, final long millis) {
+            super(Level.INFO, message);
+            this.millis = millis;
+        }
+
+        @Override
+        public long getMillis() {
+            return millis;
+        }
+    }
+
+    private static int count(final String text, final String part) {
+        int count = 0;
+        for (int i = text.indexOf(part); i >= 0; i = text.indexOf(part, i + 1))
+            count++;
+        return count;
+    }
+
+    @Test
+    void writesRecordsFromManyThreads() throws InterruptedException {
+        StringWriter output = new StringWriter();
+        AsyncLogHandler handler = new AsyncLogHandler(output, new MinimalFormatter(), Level.ALL, "test-log");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final int id = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10; i++) {
+                    // One record per second, below the rate limit.
+                    LogRecord record = new TimedRecord("Thread {0} record {1}",
+                            (id * 10 + i) * 1000L);
+                    record.setParameters(new Object[] { id, i });
+                    handler.publish(record);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        handler.flush();
+        String text = output.toString();
+        assertEquals(40, count(text, "record"));
+        assertTrue(text.contains("Thread 2 record 7"));
+        handler.close();
+    }
+
+    @Test
+    void limitsRecordsPerMessage() {
+        StringWriter output = new StringWriter();
+        AsyncLogHandler handler = new AsyncLogHandler(output, new MinimalFormatter(), Level.ALL, "test-log");
+        long second = 1000000L * 1000;
+        for (int i = 0; i < 100; i++) {
+            LogRecord record = new TimedRecord("Formation now moving left", second + i);
+            handler.publish(record);
+        }
+        LogRecord later = new TimedRecord("Formation now moving left", second + 1000);
+        handler.publish(later);
+        handler.close();
+        String text = output.toString();
+        assertEquals(21 + 1, count(text, "Formation now moving left"));
+        assertTrue(text.contains("Suppressed 80 records"));
+    }
+
+    @Test
+    void skipsDisabledLevels() {
+        StringWriter output = new StringWriter();
+        AsyncLogHandler handler = new AsyncLogHandler(output, new MinimalFormatter(), Level.INFO, "test-log");
+        Logger logger = Logger.getLogger("AsyncLogHandlerTest");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(handler);
+        logger.setLevel(Level.ALL);
+        logger.fine("hidden");
+        logger.log(Level.WARNING, "Shown {0}", 7);
+        handler.close();
+        logger.removeHandler(handler);
+        assertFalse(output.toString().contains("hidden"));
+        assertTrue(output.toString().contains("Shown 7"));
+    }
+}
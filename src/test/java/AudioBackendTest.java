@@ -0,0 +1,126 @@
+import engine.Audio;
+import engine.AudioMixer;
+import engine.GainBus;
+import engine.JavaSoundBackend;
+import engine.Music;
+import engine.MusicPlayer;
+import engine.NullAudioBackend;
+import engine.RecordingAudioBackend;
+import engine.RecordingAudioBackend.Event;
+import engine.RecordingAudioBackend.Type;
+import engine.Sound;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioBackendTest {
+
+    @Test
+    void recordsMusicTimeline() {
+        RecordingAudioBackend backend = new RecordingAudioBackend();
+        Music music = new Music(backend, "title");
+        music.start();
+        music.play("boss", 500);
+        music.stop();
+        assertFalse(music.isRunning());
+
+        List<Event> events = backend.getEvents();
+        assertEquals(3, events.size());
+        assertEquals("title", events.get(0).getName());
+        assertEquals(0, events.get(0).getValue());
+        assertEquals(500, events.get(1).getValue());
+        assertEquals(Type.PLAY_MUSIC, events.get(2).getType());
+        assertNull(events.get(2).getName());
+    }
+
+    @Test
+    void nullBackendPlaysNothing() {
+        NullAudioBackend backend = new NullAudioBackend();
+        int handle = backend.play("shootingSound.wav", 1.0f, false, GainBus.SFX, 0, 0);
+        assertEquals(AudioMixer.NO_VOICE, handle);
+        assertFalse(backend.isPlaying(handle));
+    }
+
+    @Test
+    void javaSoundBackendPlaysThroughTheMixer() {
+        AudioMixer mixer = new AudioMixer(2);
+        JavaSoundBackend backend = new JavaSoundBackend(mixer,
+                new MusicPlayer(mixer, name -> { throw new IOException(name); }, null));
+        mixer.load("shootingSound.wav");
+        int handle = backend.play("shootingSound.wav", 1.0f, false, GainBus.SFX, 0, 0);
+        mixer.render(new short[0], 0);
+        assertTrue(backend.isPlaying(handle));
+        assertEquals(1, mixer.getActiveVoices());
+        backend.stopAll("shootingSound.wav");
+        mixer.render(new short[0], 0);
+        assertFalse(backend.isPlaying(handle));
+
+        Audio missing = new Audio(backend, "missing.wav", false, GainBus.SFX);
+        assertFalse(missing.isRunning());
+    }
+
+    @Test
+    void decodesMissingSoundsOffTheCallingThread() throws Exception {
+        AudioMixer mixer = new AudioMixer(2);
+        JavaSoundBackend backend = new JavaSoundBackend(mixer,
+                new MusicPlayer(mixer, name -> { throw new IOException(name); }, null));
+        assertEquals(AudioMixer.NO_VOICE,
+                backend.play("shootingSound.wav", 1.0f, false, GainBus.SFX, 0, 0));
+        assertEquals(1, mixer.getMissCount());
+        long deadline = System.currentTimeMillis() + 5000;
+        while (mixer.getDecodeCount() < 1 && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(1, mixer.getDecodeCount());
+
+        int handle = backend.play("shootingSound.wav", 1.0f, false, GainBus.SFX, 0, 0);
+        mixer.render(new short[0], 0);
+        assertTrue(backend.isPlaying(handle));
+        assertEquals(1, mixer.getMissCount());
+    }
+
+    @Test
+    void warmUpLeavesTheCountdownSoundsCached() {
+        // Too small for every sound, the ones primed first are evicted.
+        AudioMixer mixer = new AudioMixer(2, 2048 * 1024L);
+        Audio.setBackend(new JavaSoundBackend(mixer,
+                new MusicPlayer(mixer, name -> { throw new IOException(name); }, null)));
+        try {
+            new Sound().warmUp();
+        } finally {
+            Audio.setBackend(null);
+        }
+        assertTrue(mixer.getCachedBytes() <= 2048 * 1024L);
+        assertNotNull(mixer.request("roundStart.wav"));
+        assertNotNull(mixer.request("countdown.wav"));
+        assertNotNull(mixer.request("skillUnlock.wav"));
+        assertEquals(0, mixer.getMissCount());
+    }
+
+    @Test
+    void preparesSoundsSilentlyAheadOfTheirFirstPlay() {
+        AudioMixer mixer = new AudioMixer(2);
+        JavaSoundBackend backend = new JavaSoundBackend(mixer,
+                new MusicPlayer(mixer, name -> { throw new IOException(name); }, null));
+        Audio shooting = new Audio(backend, "shootingSound.wav", false, GainBus.SFX);
+        shooting.prepare();
+        assertEquals(1, mixer.getDecodeCount());
+        short[] out = new short[512 * AudioMixer.CHANNELS];
+        mixer.render(out, 512);
+        assertEquals(1, mixer.getActiveVoices());
+        for (short sample : out)
+            assertEquals(0, sample);
+        // Only the first block is played.
+        mixer.render(out, 1);
+        assertEquals(0, mixer.getActiveVoices());
+
+        backend.play("shootingSound.wav", 1.0f, false, GainBus.SFX, 0, 0);
+        assertEquals(1, mixer.getDecodeCount());
+
+        RecordingAudioBackend recording = new RecordingAudioBackend();
+        new Audio(recording, "shootingSound.wav", false, GainBus.SFX).prepare();
+        assertTrue(recording.getEvents().isEmpty());
+    }
+}
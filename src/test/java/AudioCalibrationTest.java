@@ -0,0 +1,44 @@
+import engine.AudioCalibration;
+import engine.AudioCalibration.Step;
+import engine.AudioMixer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioCalibrationTest {
+
+    @Test
+    void savesAndLoadsTheBufferSize(@TempDir final Path directory) throws IOException {
+        Path file = directory.resolve("saves").resolve(AudioCalibration.FILE);
+        assertEquals(AudioMixer.DEFAULT_LINE_BLOCKS, AudioCalibration.load(file));
+
+        AudioCalibration.save(file, 3);
+        assertEquals(3, AudioCalibration.load(file));
+
+        Files.write(file, "buffer 100\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(AudioMixer.MAX_LINE_BLOCKS, AudioCalibration.load(file));
+        Files.write(file, "buffer many\n".getBytes(StandardCharsets.UTF_8));
+        assertEquals(AudioMixer.DEFAULT_LINE_BLOCKS, AudioCalibration.load(file));
+    }
+
+    @Test
+    void choosesTheSmallestGlitchFreeBuffer() {
+        Step eight = new Step(8, 0, 0, 90000000L, 60000000L, 100000000L);
+        Step four = new Step(4, 0, 0, 45000000L, 30000000L, 50000000L);
+        Step three = new Step(3, 2, 1, 30000000L, 20000000L, 60000000L);
+        assertTrue(four.isGlitchFree());
+        assertFalse(three.isGlitchFree());
+        assertEquals(4, AudioCalibration.choose(Arrays.asList(eight, four, three)));
+        assertEquals(AudioMixer.MAX_LINE_BLOCKS, AudioCalibration.choose(Collections.singletonList(three)));
+        assertTrue(three.toString().startsWith("3 blocks"));
+        assertTrue(three.toString().endsWith("2 underruns, 1 stalls"));
+    }
+}
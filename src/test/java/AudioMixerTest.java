@@ -0,0 +1,141 @@
+import engine.AudioMixer;
+import engine.GainBus;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AudioMixerTest {
+
+    private static AudioMixer.Sample constant(final int frames, final short value) {
+        short[] data = new short[frames * AudioMixer.CHANNELS];
+        Arrays.fill(data, value);
+        return new AudioMixer.Sample(data);
+    }
+
+    @Test
+    void decodesMonoWavToStereoAtOutputRate() throws Exception {
+        // 8-bit unsigned mono at half the output rate.
+        byte[] pcm = new byte[100];
+        Arrays.fill(pcm, (byte) 0xC0);
+        AudioFormat format = new AudioFormat(AudioMixer.SAMPLE_RATE / 2, 8, 1, false, false);
+        ByteArrayOutputStream wav = new ByteArrayOutputStream();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, pcm.length),
+                AudioFileFormat.Type.WAVE, wav);
+
+        AudioMixer.Sample sample = AudioMixer.decode(new ByteArrayInputStream(wav.toByteArray()));
+        assertEquals(200, sample.getFrames());
+        AudioMixer mixer = new AudioMixer(2);
+        mixer.play(sample, 1.0f, false);
+        short[] out = new short[8];
+        mixer.render(out, 4);
+        assertEquals(0x4000, out[0]);
+        assertEquals(0x4000, out[1]);
+    }
+
+    @Test
+    void overlapsAndClipsVoices() {
+        AudioMixer mixer = new AudioMixer(4);
+        AudioMixer.Sample sample = constant(3, (short) 20000);
+        mixer.play(sample, 1.0f, false);
+        mixer.play(sample, 1.0f, false);
+        short[] out = new short[4 * AudioMixer.CHANNELS];
+        // Commands are applied by the next block.
+        mixer.render(out, 0);
+        assertEquals(2, mixer.getActiveVoices());
+
+        mixer.render(out, 4);
+        assertEquals(Short.MAX_VALUE, out[0]);
+        assertEquals(0, out[6]);
+        assertEquals(0, mixer.getActiveVoices());
+    }
+
+    @Test
+    void stealsVoiceClosestToItsEnd() {
+        AudioMixer mixer = new AudioMixer(2);
+        int music = mixer.play(constant(10, (short) 1), 1.0f, true);
+        int shortSound = mixer.play(constant(2, (short) 1), 1.0f, false);
+        int stealer = mixer.play(constant(5, (short) 1), 1.0f, false);
+        // Plays are started by the audio thread, with the next block.
+        assertFalse(mixer.isPlaying(shortSound));
+        mixer.render(new short[0], 0);
+        assertTrue(mixer.isPlaying(music));
+        assertFalse(mixer.isPlaying(shortSound));
+        assertTrue(mixer.isPlaying(stealer));
+        assertEquals(1, mixer.getSteals());
+
+        mixer.stop(stealer);
+        mixer.render(new short[0], 0);
+        assertFalse(mixer.isPlaying(stealer));
+        assertEquals(1, mixer.getActiveVoices());
+    }
+
+    @Test
+    void queuesCommandsFromManyThreads() throws InterruptedException {
+        AudioMixer mixer = new AudioMixer(8);
+        AudioMixer.Sample sample = constant(1000, (short) 1);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++)
+                    assertNotEquals(AudioMixer.NO_VOICE, mixer.play(sample, 1.0f, false));
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        mixer.render(new short[0], 0);
+        assertEquals(8, mixer.getActiveVoices());
+        assertEquals(400 - 8, mixer.getSteals());
+        assertEquals(0, mixer.getDroppedCommands());
+        assertTrue(mixer.getMaxCommandLatency() > 0);
+
+        mixer.stopAll(sample);
+        mixer.render(new short[0], 0);
+        assertEquals(0, mixer.getActiveVoices());
+    }
+
+    @Test
+    void measuresTheCommandThatWaitedTheLongest() throws InterruptedException {
+        AudioMixer mixer = new AudioMixer(2);
+        mixer.setListener(0);
+        Thread.sleep(50);
+        mixer.setListener(0);
+        mixer.render(new short[0], 0);
+        assertTrue(mixer.getMaxCommandLatency() >= 50000000L);
+    }
+
+    @Test
+    void pansWithEqualPowerAndAttenuatesWithDistance() {
+        AudioMixer mixer = new AudioMixer(2);
+        AudioMixer.Sample sample = constant(4, (short) 1000);
+        short[] out = new short[2 * AudioMixer.CHANNELS];
+        mixer.play(sample, 1.0f, false, GainBus.SFX, 1, 0);
+        mixer.render(out, 2);
+        assertEquals(0, out[0]);
+        assertEquals(1414, out[1]);
+
+        mixer.stopAll(sample);
+        mixer.play(sample, 1.0f, false, GainBus.SFX, -0.5f, 0);
+        mixer.render(out, 1);
+        // Equal power: the squared gains add up to twice a centered one.
+        double left = out[0] / 1000.0;
+        double right = out[1] / 1000.0;
+        assertEquals(2, left * left + right * right, 0.01);
+        assertTrue(left > right);
+
+        mixer.stopAll(sample);
+        mixer.setListener(1);
+        mixer.play(sample, 1.0f, false, GainBus.SFX, 0, 1);
+        mixer.render(out, 2);
+        assertEquals(500, out[0]);
+        assertEquals(500, out[2]);
+    }
+}
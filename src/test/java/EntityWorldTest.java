@@ -0,0 +1,60 @@
+import engine.DrawManager;
+import entity.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EntityWorldTest {
+
+    EntityWorld world;
+
+    @BeforeEach
+    void setUp() {
+        world = new EntityWorld(2);
+    }
+
+    @Test
+    void spawnItem() {
+        int index = Item.spawn(world, 10, 20, 16, 16, DrawManager.SpriteType.BonusScoreItem2, 4);
+        assertEquals(1, world.size());
+        assertEquals(32, world.getWidth(index));
+        assertEquals(100, world.getPoints(index));
+        assertEquals(true, world.contains(DrawManager.SpriteType.BonusScoreItem2));
+    }
+
+    @Test
+    void move() {
+        int index = Item.spawn(world, 10, 20, 16, 16, DrawManager.SpriteType.Boom, 4);
+        EntitySystems.move(world);
+        assertEquals(10, world.getPositionX(index));
+        assertEquals(24, world.getPositionY(index));
+    }
+
+    @Test
+    void growAndCull() {
+        for (int i = 0; i < 10; i++)
+            Item.spawn(world, 0, i * 100, 16, 16, DrawManager.SpriteType.BonusLifeItem, 3);
+        assertEquals(10, world.size());
+        EntitySystems.cull(world, Integer.MIN_VALUE, 450);
+        assertEquals(5, world.size());
+        for (int i = 0; i < world.size(); i++)
+            assertTrue(world.getPositionY(i) <= 450);
+    }
+
+    @Test
+    void collide() {
+        Ship ship = new Ship(0, 0, 18, 16, DrawManager.SpriteType.Ship);
+        Item.spawn(world, 5, 5, 16, 16, DrawManager.SpriteType.BonusScoreItem1, 2);
+        Item.spawn(world, 500, 500, 16, 16, DrawManager.SpriteType.BonusScoreItem3, 2);
+        int[] points = new int[1];
+        int hits = EntitySystems.collide(world, ship, (w, index) -> {
+            points[0] += w.getPoints(index);
+            return true;
+        });
+        assertEquals(1, hits);
+        assertEquals(50, points[0]);
+        assertEquals(1, world.size());
+        assertEquals(DrawManager.SpriteType.BonusScoreItem3, world.getSprite(0));
+    }
+}
@@ -0,0 +1,79 @@
+import engine.DrawManager.SpriteType;
+import engine.GameSnapshot;
+import entity.EntityWorld;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameSnapshotTest {
+
+    @Test
+    void roundTrip() throws IOException {
+        GameSnapshot snapshot = new GameSnapshot();
+        snapshot.put(GameSnapshot.STATE, new GameSnapshot.Writer()
+                .putInt(3).putLong(-2L).putBoolean(true).putString("save"));
+        snapshot.put(99, new GameSnapshot.Writer().putInt(7));
+
+        GameSnapshot decoded = GameSnapshot.decode(snapshot.encode());
+        GameSnapshot.Reader state = decoded.get(GameSnapshot.STATE);
+        assertAll(
+                () -> assertEquals(3, state.getInt()),
+                () -> assertEquals(-2L, state.getLong()),
+                () -> assertTrue(state.getBoolean()),
+                () -> assertEquals("save", state.getString()),
+                () -> assertEquals(0, state.remaining()),
+                // Fields added by later versions read as zero.
+                () -> assertEquals(0, state.getInt()),
+                () -> assertTrue(decoded.has(99)),
+                () -> assertNull(decoded.get(GameSnapshot.ITEMS))
+        );
+    }
+
+    @Test
+    void littleEndianHeader() {
+        ByteBuffer encoded = new GameSnapshot().encode();
+        assertAll(
+                () -> assertEquals('I', encoded.get(0)),
+                () -> assertEquals(GameSnapshot.VERSION,
+                        encoded.order(ByteOrder.LITTLE_ENDIAN).getInt(4))
+        );
+    }
+
+    @Test
+    void rejectsInvalidFiles() {
+        ByteBuffer newer = new GameSnapshot().encode().order(ByteOrder.LITTLE_ENDIAN);
+        newer.putInt(4, GameSnapshot.VERSION + 1);
+        assertAll(
+                () -> assertThrows(IOException.class,
+                        () -> GameSnapshot.decode(ByteBuffer.wrap(new byte[16]))),
+                () -> assertThrows(IOException.class,
+                        () -> GameSnapshot.decode(newer))
+        );
+    }
+
+    @Test
+    void items() throws IOException {
+        EntityWorld world = new EntityWorld();
+        int row = world.create(EntityWorld.POSITION | EntityWorld.SPRITE);
+        world.setPosition(row, 12, 34);
+        world.setSprite(row, SpriteType.BonusLifeItem);
+
+        GameSnapshot.Writer out = new GameSnapshot.Writer();
+        world.writeTo(out);
+        GameSnapshot snapshot = new GameSnapshot();
+        snapshot.put(GameSnapshot.ITEMS, out);
+
+        EntityWorld restored = new EntityWorld();
+        restored.readFrom(GameSnapshot.decode(snapshot.encode())
+                .get(GameSnapshot.ITEMS));
+        assertAll(
+                () -> assertEquals(1, restored.size()),
+                () -> assertEquals(34, restored.getPositionY(0)),
+                () -> assertEquals(SpriteType.BonusLifeItem, restored.getSprite(0))
+        );
+    }
+}
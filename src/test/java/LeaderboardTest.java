@@ -0,0 +1,98 @@
+import engine.Leaderboard;
+import engine.Score;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+
+    private static final String CATEGORY = Leaderboard.DEFAULT_CATEGORY;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void topAndBestScores() throws IOException {
+        Leaderboard leaderboard = new Leaderboard(directory);
+        leaderboard.submit(CATEGORY, "AAA", 300);
+        leaderboard.submit(CATEGORY, "BBB", 900);
+        leaderboard.submit(CATEGORY, "AAA", 500);
+        leaderboard.submit("boss", "CCC", 9999);
+
+        List<Leaderboard.Entry> top = new Leaderboard(directory).top(CATEGORY, 2);
+        assertAll(
+                () -> assertEquals(2, top.size()),
+                () -> assertEquals("BBB", top.get(0).getName()),
+                () -> assertEquals(500, top.get(1).getScore()),
+                () -> assertEquals(500, leaderboard.best(CATEGORY, "AAA").getScore()),
+                () -> assertNull(leaderboard.best(CATEGORY, "CCC"))
+        );
+    }
+
+    @Test
+    void importsOnlyIntoEmptyLeaderboard() throws IOException {
+        Leaderboard leaderboard = new Leaderboard(directory);
+        List<Score> legacy = Arrays.asList(new Score("ROB", 6500),
+                new Score("PAT", 6000));
+        assertTrue(leaderboard.importIfEmpty(CATEGORY, legacy));
+        assertFalse(new Leaderboard(directory).importIfEmpty(CATEGORY, legacy));
+        assertEquals(2, leaderboard.top(CATEGORY, 10).size());
+    }
+
+    @Test
+    void tornRecordIsDropped() throws IOException {
+        Leaderboard leaderboard = new Leaderboard(directory);
+        leaderboard.submit(CATEGORY, "AAA", 100);
+        Files.write(directory.resolve("leaderboard.log"),
+                new byte[] { 30, 0, 0, 0, 1, 2 }, StandardOpenOption.APPEND);
+
+        Leaderboard reopened = new Leaderboard(directory);
+        assertEquals(1, reopened.top(CATEGORY, 10).size());
+        reopened.submit(CATEGORY, "BBB", 200);
+        assertEquals(2, new Leaderboard(directory).top(CATEGORY, 10).size());
+    }
+
+    @Test
+    void concurrentWritersAndCompaction() throws Exception {
+        Leaderboard first = new Leaderboard(directory, 5);
+        Leaderboard second = new Leaderboard(directory, 5);
+        List<Thread> writers = new ArrayList<Thread>();
+        List<Throwable> errors = new ArrayList<Throwable>();
+        for (Leaderboard leaderboard : Arrays.asList(first, second)) {
+            String name = leaderboard == first ? "ONE" : "TWO";
+            Thread writer = new Thread(() -> {
+                try {
+                    for (int i = 1; i <= 20; i++)
+                        leaderboard.submit(CATEGORY, name, i * 10);
+                } catch (IOException e) {
+                    synchronized (errors) {
+                        errors.add(e);
+                    }
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers)
+            writer.join();
+
+        List<Leaderboard.Entry> top = new Leaderboard(directory).top(CATEGORY, 10);
+        assertAll(
+                () -> assertTrue(errors.isEmpty()),
+                // Compaction keeps the log within twice the retained scores.
+                () -> assertTrue(top.size() >= 5 && top.size() <= 10),
+                () -> assertEquals(200, top.get(0).getScore()),
+                () -> assertEquals(200, top.get(1).getScore()),
+                () -> assertEquals(200, first.best(CATEGORY, "TWO").getScore())
+        );
+    }
+}
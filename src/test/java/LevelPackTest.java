@@ -0,0 +1,97 @@
+import engine.GameSettings;
+import engine.GameSettings.StageType;
+import engine.LevelPack;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LevelPackTest {
+
+    private static Path write(final Path file, final String text, final long modified) throws IOException {
+        Files.write(file, text.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+        return file;
+    }
+
+    @Test
+    void loadsDefaultCampaign() throws IOException {
+        LevelPack pack = LevelPack.load();
+        assertEquals(9, pack.size());
+        assertFalse(pack.isReloadable());
+
+        GameSettings first = pack.get(1);
+        assertEquals(5, first.getFormationWidth());
+        assertEquals(1000, first.getShootingFrecuency());
+        assertEquals(StageType.NORMAL, first.getStageType());
+        assertNull(first.getTitle());
+
+        GameSettings bonus = pack.get(6);
+        assertEquals(StageType.BONUS, bonus.getStageType());
+        assertEquals(0, bonus.getShootingFrecuency());
+        assertEquals(10000, bonus.getBonusTime());
+        assertEquals("BONUS STAGE!", bonus.getTitle());
+        assertEquals(StageType.BOSS, pack.get(8).getStageType());
+        assertNull(pack.get(10));
+    }
+
+    @Test
+    void readsOptionalSettings(@TempDir final Path directory) throws IOException {
+        LevelPack pack = LevelPack.load(write(directory.resolve("pack"),
+                "level 1  # first\nformation 3 4\nspeed 7\nshooting 900\n"
+                        + "mix 50 25 25\ndrops 2 0 0 1 0 3\ntitle Hello there\n", 1000));
+        GameSettings level = pack.get(1);
+        assertEquals(3, level.getFormationWidth());
+        assertEquals(4, level.getFormationHeight());
+        assertEquals(50, level.getEnemyShare(0));
+        assertEquals(2, level.getDropChance());
+        assertEquals(4, level.getTotalDropWeight());
+        assertEquals(GameSettings.DROP_BOOM, level.pickDrop(0));
+        assertEquals(GameSettings.DROP_BONUS_SCORE, level.pickDrop(1));
+        assertEquals("Hello there", level.getTitle());
+    }
+
+    @Test
+    void reportsLineOfErrors(@TempDir final Path directory) throws IOException {
+        Path unknown = write(directory.resolve("unknown"),
+                "level 1\nformation 3 3\nspeed 2\nshooting 100\nlives 3\n", 1000);
+        IOException error = assertThrows(IOException.class, () -> LevelPack.load(unknown));
+        assertEquals("unknown:5: unknown setting lives", error.getMessage());
+
+        Path gap = write(directory.resolve("gap"),
+                "level 1\nformation 3 3\nspeed 2\nshooting 100\nlevel 3\n", 1000);
+        error = assertThrows(IOException.class, () -> LevelPack.load(gap));
+        assertEquals("gap:5: expected level 2, found 3", error.getMessage());
+
+        Path incomplete = write(directory.resolve("incomplete"),
+                "\nlevel 1\nformation 3 3\nshooting 100\n", 1000);
+        error = assertThrows(IOException.class, () -> LevelPack.load(incomplete));
+        assertEquals("incomplete:2: level 1 has no speed", error.getMessage());
+    }
+
+    @Test
+    void reloadsChangedFile(@TempDir final Path directory) throws IOException {
+        Path file = write(directory.resolve("pack"),
+                "level 1\nformation 3 3\nspeed 2\nshooting 100\n", 1000);
+        LevelPack pack = LevelPack.load(file);
+        assertSame(pack, pack.reload());
+        assertSame(pack, LevelPack.load(file));
+
+        write(file, "level 1\nformation 4 3\nspeed 2\nshooting 100\n"
+                + "level 2\nformation 5 3\nspeed 2\nshooting 100\n", 2000);
+        LevelPack reloaded = pack.reload();
+        assertNotSame(pack, reloaded);
+        assertEquals(2, reloaded.size());
+        assertEquals(4, reloaded.get(1).getFormationWidth());
+        assertEquals(3, pack.get(1).getFormationWidth());
+
+        write(file, "level 1\nformation 0 3\n", 3000);
+        assertThrows(IOException.class, reloaded::reload);
+    }
+}
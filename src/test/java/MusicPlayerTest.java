@@ -0,0 +1,118 @@
+import engine.AudioMixer;
+import engine.MusicPlayer;
+import org.junit.jupiter.api.Test;
+
+import javax.sound.sampled.AudioFileFormat;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+import javax.sound.sampled.AudioSystem;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MusicPlayerTest {
+
+    private static byte[] wav(final int frames, final short value) throws IOException {
+        byte[] pcm = new byte[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            pcm[2 * i] = (byte) value;
+            pcm[2 * i + 1] = (byte) (value >> 8);
+        }
+        AudioFormat format = new AudioFormat(AudioMixer.SAMPLE_RATE, 16, 1, true, false);
+        ByteArrayOutputStream wav = new ByteArrayOutputStream();
+        AudioSystem.write(new AudioInputStream(new ByteArrayInputStream(pcm), format, frames),
+                AudioFileFormat.Type.WAVE, wav);
+        return wav.toByteArray();
+    }
+
+    private static MusicPlayer player(final AudioMixer mixer) throws IOException {
+        Map<String, byte[]> tracks = new HashMap<>();
+        // Much shorter than a chunk, so every chunk crosses the loop point.
+        tracks.put("low", wav(1000, (short) 1000));
+        tracks.put("high", wav(50000, (short) 3000));
+        return new MusicPlayer(mixer, name -> {
+            byte[] data = tracks.get(name);
+            if (data == null)
+                throw new IOException("No track " + name);
+            return new ByteArrayInputStream(data);
+        }, "low");
+    }
+
+    /** Renders blocks slowly enough for the decoder until the first sample has a value. */
+    private static short[] renderUntil(final AudioMixer mixer, final int value) throws InterruptedException {
+        short[] block = new short[512 * AudioMixer.CHANNELS];
+        long deadline = System.currentTimeMillis() + 5000;
+        do {
+            Thread.sleep(2);
+            mixer.render(block, 512);
+        } while (block[0] != value && System.currentTimeMillis() < deadline);
+        assertEquals(value, block[0]);
+        return block;
+    }
+
+    @Test
+    void loopsWithoutGaps() throws Exception {
+        AudioMixer mixer = new AudioMixer(4);
+        MusicPlayer music = player(mixer);
+        music.start();
+        assertTrue(music.isRunning());
+        renderUntil(mixer, 1000);
+        long underruns = music.getUnderruns();
+        short[] block = new short[512 * AudioMixer.CHANNELS];
+        for (int i = 0; i < 100; i++) {
+            Thread.sleep(1);
+            mixer.render(block, 512);
+            for (short sample : block)
+                assertEquals(1000, sample);
+        }
+        assertEquals(underruns, music.getUnderruns());
+
+        music.stop();
+        assertFalse(music.isRunning());
+        renderUntil(mixer, 0);
+    }
+
+    @Test
+    void crossFadesBetweenTracks() throws Exception {
+        AudioMixer mixer = new AudioMixer(4);
+        MusicPlayer music = player(mixer);
+        music.play("low", 0);
+        renderUntil(mixer, 1000);
+
+        // 100 ms is 4410 frames, about 9 blocks.
+        music.play("high", 100);
+        short[] block = new short[512 * AudioMixer.CHANNELS];
+        boolean blended = false;
+        long deadline = System.currentTimeMillis() + 5000;
+        do {
+            Thread.sleep(2);
+            mixer.render(block, 512);
+            for (short sample : block) {
+                // Truncation may lose a unit while both decks play.
+                assertTrue(sample >= 999 && sample <= 3000, "sample " + sample);
+                blended |= sample > 1000 && sample < 3000;
+            }
+        } while (block[block.length - 1] != 3000 && System.currentTimeMillis() < deadline);
+        assertTrue(blended);
+        assertEquals(3000, block[block.length - 1]);
+    }
+
+    @Test
+    void keepsSilentOnMissingTrack() throws Exception {
+        AudioMixer mixer = new AudioMixer(4);
+        MusicPlayer music = player(mixer);
+        music.play("missing", 0);
+        short[] block = new short[512 * AudioMixer.CHANNELS];
+        for (int i = 0; i < 20; i++) {
+            Thread.sleep(2);
+            mixer.render(block, 512);
+            assertEquals(0, block[0]);
+        }
+        music.play("low", 0);
+        renderUntil(mixer, 1000);
+    }
+}
@@ -0,0 +1,71 @@
+import engine.ObjectPool;
+import entity.Bullet;
+import entity.BulletPool;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ObjectPoolTest {
+
+    ObjectPool<StringBuilder> pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ObjectPool<>("Test", StringBuilder::new,
+                builder -> builder.setLength(0), ObjectPool.Policy.bounded(2, 3));
+    }
+
+    @Test
+    void reuse() {
+        StringBuilder first = pool.acquire();
+        first.append("used");
+        pool.release(first);
+        assertAll(
+                () -> assertEquals(2, pool.getCreatedCount()),
+                () -> assertSame(first, pool.acquire()),
+                () -> assertEquals(0, first.length())
+        );
+    }
+
+    @Test
+    void bounded() {
+        StringBuilder[] builders = new StringBuilder[5];
+        for (int i = 0; i < builders.length; i++)
+            builders[i] = pool.acquire();
+        for (StringBuilder builder : builders)
+            pool.release(builder);
+        assertAll(
+                () -> assertEquals(5, pool.getCreatedCount()),
+                () -> assertEquals(5, pool.getPeakInUse()),
+                () -> assertEquals(3, pool.getIdleCount())
+        );
+    }
+
+    @Test
+    void rejectsSecondRelease() {
+        StringBuilder builder = pool.acquire();
+        pool.release(builder);
+        assertThrows(IllegalStateException.class, () -> pool.release(builder));
+        assertThrows(IllegalStateException.class, () -> pool.release(new StringBuilder()));
+        assertAll(
+                () -> assertEquals(2, pool.getIdleCount()),
+                () -> assertSame(builder, pool.acquire())
+        );
+    }
+
+    @Test
+    void bulletSizeRestored() {
+        BulletPool.reset();
+        Bullet big = BulletPool.getBullet(100, 100, 0, -10);
+        BulletPool.recycle(Collections.singleton(big));
+        Bullet small = BulletPool.getBullet(100, 100, 0, 5);
+        assertAll(
+                () -> assertSame(big, small),
+                () -> assertEquals(10, small.getWidth()),
+                () -> assertEquals(95, small.getPositionX())
+        );
+    }
+}
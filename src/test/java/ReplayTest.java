@@ -0,0 +1,80 @@
+import engine.DesignSetting;
+import engine.DrawManager;
+import engine.GameSettings;
+import engine.GameState;
+import engine.InputManager;
+import engine.Replay;
+import org.junit.jupiter.api.Test;
+
+import java.awt.event.KeyEvent;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplayTest {
+
+    private static Replay.Header header() {
+        DesignSetting design = new DesignSetting(DrawManager.SpriteType.Ship);
+        design.setShipSize(16, 24);
+        return new Replay.Header(42L, 1700000000000L, 60, 690, 790,
+                new GameSettings(5, 4, 60, 2000),
+                new GameState(3, 1200, 2, 40, 17, 3, new int[] { 15, 10, 5, 0 }, 1),
+                true, design);
+    }
+
+    @Test
+    void framesPlayBackAsRecorded() throws IOException {
+        Replay.Recorder recorder = new Replay.Recorder(header());
+        boolean[][] frames = new boolean[500][InputManager.NUM_KEYS];
+        for (int i = 100; i < 300; i++)
+            frames[i][KeyEvent.VK_RIGHT] = true;
+        for (int i = 150; i < 160; i++)
+            frames[i][KeyEvent.VK_SPACE] = true;
+        frames[400][KeyEvent.VK_ESCAPE] = true;
+        for (int i = 0; i < frames.length; i++) {
+            recorder.frame(frames[i]);
+            if (i == 400)
+                recorder.pause(1234);
+        }
+        Replay.Outcome outcome = new Replay.Outcome(5000, 1, 80, 30);
+        byte[] data = recorder.finish(outcome);
+        // Only key changes are stored.
+        assertTrue(data.length < 120, "replay takes " + data.length + " bytes");
+
+        Replay.Player player = new Replay.Player(data);
+        boolean[] keys = new boolean[InputManager.NUM_KEYS];
+        for (int i = 0; i < frames.length; i++) {
+            assertTrue(player.frame(keys));
+            assertArrayEquals(frames[i], keys, "frame " + i);
+            assertEquals(i == 400 ? 1234 : 0, player.pause());
+        }
+        assertFalse(player.frame(keys));
+        assertEquals(frames.length, player.getFrameCount());
+        assertEquals(outcome, player.getExpected());
+    }
+
+    @Test
+    void headerRoundTrip() throws IOException {
+        Replay.Recorder recorder = new Replay.Recorder(header());
+        Replay.Header read = new Replay.Player(
+                recorder.finish(new Replay.Outcome(0, 0, 0, 0))).getHeader();
+        assertEquals(42L, read.getSeed());
+        assertEquals(1700000000000L, read.getStartTime());
+        assertEquals(690, read.getWidth());
+        assertEquals(2000, read.getSettings().getShootingFrecuency());
+        assertEquals(1200, read.getState().getScore());
+        assertArrayEquals(new int[] { 15, 10, 5, 0 }, read.getState().getSkillCool());
+        assertTrue(read.isBonusLife());
+        assertEquals(DrawManager.SpriteType.Ship, read.createDesign().getShipType());
+        assertEquals(24, read.createDesign().getSizeY());
+    }
+
+    @Test
+    void rejectsOtherFiles() {
+        assertThrows(IOException.class, () -> new Replay.Player(new byte[] { 1, 2, 3, 4, 5 }));
+        byte[] data = new Replay.Recorder(header()).finish(new Replay.Outcome(0, 0, 0, 0));
+        byte[] truncated = new byte[data.length - 3];
+        System.arraycopy(data, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> new Replay.Player(truncated));
+    }
+}
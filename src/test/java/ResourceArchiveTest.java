@@ -0,0 +1,77 @@
+import engine.ResourceArchive;
+import engine.Resources;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourceArchiveTest {
+
+    @TempDir
+    Path directory;
+
+    @AfterEach
+    void forgetArchive() {
+        Resources.setArchive(null);
+    }
+
+    private static String text(final ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void packAndMap() throws IOException {
+        Path source = Files.createDirectories(directory.resolve("res/sub"));
+        Files.write(directory.resolve("res/scores"), "ROB\n6500\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(source.resolve("clip.wav"), new byte[] { 1, 2, 3 });
+        Path pak = directory.resolve("resources.pak");
+
+        assertEquals(2, ResourceArchive.pack(directory.resolve("res"), pak));
+        ResourceArchive archive = ResourceArchive.open(pak);
+        ByteBuffer clip = archive.get("sub/clip.wav");
+        assertAll(
+                () -> assertNull(archive.verify()),
+                () -> assertEquals("ROB\n6500\n", text(archive.get("scores"))),
+                () -> assertEquals(3, clip.remaining()),
+                () -> assertEquals(3, clip.get(2)),
+                () -> assertTrue(clip.isReadOnly()),
+                () -> assertNull(archive.get("missing"))
+        );
+    }
+
+    @Test
+    void rejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("bad.pak");
+        Files.write(file, new byte[16]);
+        assertThrows(IOException.class, () -> ResourceArchive.open(file));
+    }
+
+    @Test
+    void archiveTakesPrecedenceOverClasspath() throws IOException {
+        Files.createDirectories(directory.resolve("res"));
+        Files.write(directory.resolve("res/scores"), "PAK\n1\n".getBytes(StandardCharsets.UTF_8));
+        Path pak = directory.resolve("resources.pak");
+        ResourceArchive.pack(directory.resolve("res"), pak);
+
+        Resources.setArchive(null);
+        assertTrue(text(Resources.get("scores")).startsWith("ROB"));
+        Resources.setArchive(ResourceArchive.open(pak));
+        assertEquals("PAK\n1\n", text(Resources.get("scores")));
+
+        InputStream stream = Resources.open("graphics");
+        assertTrue(stream.markSupported());
+        int first = stream.read();
+        stream.reset();
+        assertEquals(first, stream.read());
+    }
+}
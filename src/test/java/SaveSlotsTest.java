@@ -0,0 +1,89 @@
+import engine.GameSnapshot;
+import engine.SaveSlots;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SaveSlotsTest {
+
+    @TempDir
+    Path directory;
+
+    private static GameSnapshot snapshot(final int level, final int score) {
+        GameSnapshot snapshot = new GameSnapshot();
+        snapshot.put(GameSnapshot.STATE, new GameSnapshot.Writer()
+                .putInt(level).putInt(score).putInt(3));
+        GameSnapshot.Writer bullets = new GameSnapshot.Writer();
+        for (int i = 0; i < 64; i++)
+            bullets.putInt(i);
+        snapshot.put(GameSnapshot.BULLETS, bullets);
+        return snapshot;
+    }
+
+    @Test
+    void deltaReadsBackLatestSave() throws IOException {
+        SaveSlots slots = new SaveSlots(directory);
+        GameSnapshot first = snapshot(2, 100);
+        int keyframe = slots.write(1, first, SaveSlots.SlotInfo.of(1, first));
+        GameSnapshot second = snapshot(2, 250);
+        second.put(GameSnapshot.SKILLS, new GameSnapshot.Writer().putInt(9));
+        int delta = slots.write(1, second, SaveSlots.SlotInfo.of(1, second));
+
+        GameSnapshot loaded = new SaveSlots(directory).read(1);
+        GameSnapshot.Reader state = loaded.get(GameSnapshot.STATE);
+        assertAll(
+                () -> assertTrue(delta < keyframe / 2),
+                () -> assertEquals(2, state.getInt()),
+                () -> assertEquals(250, state.getInt()),
+                () -> assertEquals(9, loaded.get(GameSnapshot.SKILLS).getInt()),
+                () -> assertTrue(loaded.has(GameSnapshot.BULLETS))
+        );
+    }
+
+    @Test
+    void tornDeltaFallsBackToPreviousSave() throws IOException {
+        SaveSlots slots = new SaveSlots(directory);
+        GameSnapshot first = snapshot(4, 100);
+        slots.write(0, first, SaveSlots.SlotInfo.of(0, first));
+        GameSnapshot second = snapshot(4, 200);
+        slots.write(0, second, SaveSlots.SlotInfo.of(0, second));
+
+        // A crash in the middle of appending the next delta.
+        Files.write(slots.getSlotFile(0), new byte[] { 'D', 40, 0, 0, 0, 1 },
+                StandardOpenOption.APPEND);
+        SaveSlots reopened = new SaveSlots(directory);
+        GameSnapshot.Reader state = reopened.read(0).get(GameSnapshot.STATE);
+        state.getInt();
+        assertEquals(200, state.getInt());
+
+        // The next save rewrites the slot, so it is not lost behind the tear.
+        GameSnapshot third = snapshot(5, 300);
+        reopened.write(0, third, SaveSlots.SlotInfo.of(0, third));
+        assertEquals(5, new SaveSlots(directory).read(0)
+                .get(GameSnapshot.STATE).getInt());
+    }
+
+    @Test
+    void listsMostRecentFirst() throws IOException {
+        SaveSlots slots = new SaveSlots(directory);
+        slots.write(2, snapshot(1, 10), new SaveSlots.SlotInfo(2, 1, 10, 3, 1000));
+        slots.write(0, snapshot(3, 30), new SaveSlots.SlotInfo(0, 3, 30, 2, 3000));
+        slots.write(1, snapshot(2, 20), new SaveSlots.SlotInfo(1, 2, 20, 1, 2000));
+
+        List<SaveSlots.SlotInfo> saves = new SaveSlots(directory).list();
+        assertAll(
+                () -> assertEquals(3, saves.size()),
+                () -> assertEquals(0, saves.get(0).getSlot()),
+                () -> assertEquals(3, saves.get(0).getLevel()),
+                () -> assertEquals(2, saves.get(2).getSlot()),
+                () -> assertNull(slots.read(5))
+        );
+    }
+}
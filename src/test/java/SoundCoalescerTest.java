@@ -0,0 +1,125 @@
+import engine.Audio;
+import engine.GainBus;
+import engine.GameClock;
+import engine.RecordingAudioBackend;
+import engine.RecordingAudioBackend.Event;
+import engine.RecordingAudioBackend.Type;
+import engine.SoundCoalescer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SoundCoalescerTest {
+
+    private final RecordingAudioBackend backend = new RecordingAudioBackend();
+
+    @BeforeEach
+    void useTicks() {
+        // 10 ms per tick.
+        GameClock.useTicks(1000, 100);
+    }
+
+    @AfterEach
+    void useRealTime() {
+        GameClock.useRealTime();
+    }
+
+    private List<String> timeline() {
+        List<String> timeline = new ArrayList<>();
+        for (Event event : backend.getEvents())
+            timeline.add(event.toString());
+        return timeline;
+    }
+
+    @Test
+    void mergesIdenticalStartsWithinTheWindow() {
+        SoundCoalescer coalescer = new SoundCoalescer(40, 4);
+        Audio hit = new Audio(backend, "hit", false, GainBus.SFX);
+        for (int i = 0; i < 5; i++)
+            coalescer.start(hit);
+        coalescer.flush();
+        assertEquals(1, coalescer.getPlayed());
+        assertEquals(4, coalescer.getDropped());
+
+        GameClock.advance(2);
+        coalescer.start(hit);
+        coalescer.flush();
+        GameClock.advance(3);
+        coalescer.start(hit);
+        coalescer.flush();
+        assertEquals(2, coalescer.getPlayed());
+        assertEquals(Arrays.asList("1000 PLAY hit", "1050 PLAY hit"),
+                timeline());
+    }
+
+    @Test
+    void keepsHighestPrioritiesWithinTheBudget() {
+        SoundCoalescer coalescer = new SoundCoalescer(40, 2);
+        Audio low = new Audio(backend, "drop", false, GainBus.SFX);
+        Audio middle = new Audio(backend, "shoot", false, GainBus.SFX);
+        middle.setCoalescing(1, 0);
+        Audio high = new Audio(backend, "death", false, GainBus.SFX);
+        high.setCoalescing(5, 0);
+        coalescer.start(low);
+        coalescer.start(middle);
+        coalescer.start(high);
+        coalescer.flush();
+        assertTrue(high.isRunning());
+        assertTrue(middle.isRunning());
+        assertFalse(low.isRunning());
+        assertEquals(Type.PLAY, backend.getEvents().get(0).getType());
+        assertEquals("death", backend.getEvents().get(0).getName());
+        assertEquals("Sound events: 2 played, 1 dropped (0 duplicates, "
+                + "0 cooling down, 1 over budget)", coalescer.toString());
+    }
+
+    @Test
+    void appliesCooldownsAndStops() {
+        SoundCoalescer coalescer = new SoundCoalescer(40, 4);
+        Audio destroyed = new Audio(backend, "destroyed", false, GainBus.SFX);
+        destroyed.setCoalescing(0, 100);
+        coalescer.start(destroyed);
+        coalescer.flush();
+        GameClock.advance(5);
+        coalescer.start(destroyed);
+        coalescer.flush();
+        assertEquals(1, coalescer.getPlayed());
+        GameClock.advance(5);
+        coalescer.start(destroyed);
+        coalescer.flush();
+        assertEquals(2, coalescer.getPlayed());
+
+        // A stop cancels the start of its frame and stops earlier plays.
+        GameClock.advance(10);
+        coalescer.start(destroyed);
+        coalescer.stop(destroyed);
+        coalescer.flush();
+        assertFalse(destroyed.isRunning());
+        assertEquals(Arrays.asList("1000 PLAY destroyed",
+                "1100 PLAY destroyed", "1200 STOP_ALL destroyed"), timeline());
+        assertEquals("Sound events: 2 played, 1 dropped (0 duplicates, "
+                + "1 cooling down, 0 over budget)", coalescer.toString());
+    }
+
+    @Test
+    void playsMergedStartsAtTheirAveragePosition() {
+        SoundCoalescer coalescer = new SoundCoalescer(40, 4);
+        Audio hit = new Audio(backend, "hit", false, GainBus.SFX);
+        coalescer.start(hit, -1);
+        coalescer.start(hit, 0.5f);
+        coalescer.flush();
+        GameClock.advance(5);
+        coalescer.start(hit, 1);
+        coalescer.flush();
+        List<Event> events = backend.getEvents();
+        assertEquals(2, events.size());
+        assertEquals(-0.25f, events.get(0).getPan());
+        assertEquals(1, events.get(1).getPan());
+    }
+}
@@ -0,0 +1,78 @@
+import engine.DrawManager.SpriteType;
+import engine.SpriteAtlas;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpriteAtlasTest {
+
+    private static ByteBuffer file(final String... pixels) {
+        return ByteBuffer.wrap(String.join(" ,\n", pixels).getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private static SpriteAtlas atlas(final long budget) throws EOFException {
+        // Bullet1 is 2x1, Boss1 is 1x2.
+        SpriteAtlas atlas = new SpriteAtlas(file("0x000000", "0xff0000", "0xff0000", "0x00ff00"), budget);
+        atlas.add(SpriteType.Bullet1, 2, 1);
+        atlas.add(SpriteType.Boss1, 1, 2);
+        atlas.index();
+        return atlas;
+    }
+
+    @Test
+    void decodesOnFirstUse() throws EOFException {
+        SpriteAtlas atlas = atlas(1 << 20);
+        assertEquals(0, atlas.getDecodeCount());
+
+        Color[][] boss = atlas.get(SpriteType.Boss1);
+        assertEquals(1, atlas.getDecodeCount());
+        assertEquals(new Color(0xff0000), boss[0][0]);
+        assertEquals(new Color(0x00ff00), boss[0][1]);
+
+        Color[][] bullet = atlas.get(SpriteType.Bullet1);
+        assertSame(Color.BLACK, bullet[0][0]);
+        // Colors are interned across sprites.
+        assertSame(boss[0][0], bullet[1][0]);
+        assertSame(bullet, atlas.get(SpriteType.Bullet1));
+        assertEquals(2, atlas.getDecodeCount());
+        assertNull(atlas.get(SpriteType.Ultimate));
+        assertEquals(2, atlas.getWidth(SpriteType.Bullet1));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() throws EOFException {
+        SpriteAtlas atlas = atlas(30);
+        atlas.get(SpriteType.Bullet1);
+        atlas.get(SpriteType.Boss1);
+        assertTrue(atlas.getCachedBytes() <= 30);
+        atlas.get(SpriteType.Bullet1);
+        assertEquals(3, atlas.getDecodeCount());
+        // Masks outlive their sprites.
+        assertTrue(atlas.getMask(SpriteType.Boss1) != null);
+    }
+
+    @Test
+    void prefetchesInBackground() throws Exception {
+        SpriteAtlas atlas = atlas(1 << 20);
+        atlas.prefetch(Arrays.asList(SpriteType.Bullet1, SpriteType.Boss1));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (atlas.getDecodeCount() < 2 && System.currentTimeMillis() < deadline)
+            Thread.sleep(5);
+        assertEquals(2, atlas.getDecodeCount());
+        atlas.get(SpriteType.Boss1);
+        assertEquals(2, atlas.getDecodeCount());
+    }
+
+    @Test
+    void rejectsShortFile() {
+        SpriteAtlas atlas = new SpriteAtlas(file("0x000000"), 1 << 20);
+        atlas.add(SpriteType.Bullet1, 2, 1);
+        assertThrows(EOFException.class, atlas::index);
+    }
+}
@@ -0,0 +1,43 @@
+import engine.SpriteMask;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.Color;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpriteMaskTest {
+
+    SpriteMask dot, ring;
+
+    @BeforeEach
+    void setUp() {
+        Color[][] dotImage = new Color[1][1];
+        dotImage[0][0] = Color.WHITE;
+        dot = new SpriteMask(dotImage);
+
+        // 40x3 sprite, opaque only on its first and last column.
+        Color[][] ringImage = new Color[40][3];
+        for (int i = 0; i < 40; i++)
+            for (int j = 0; j < 3; j++)
+                ringImage[i][j] = (i == 0 || i == 39) ? Color.RED : Color.BLACK;
+        ring = new SpriteMask(ringImage);
+    }
+
+    @Test
+    void size() {
+        assertEquals(80, ring.getWidth());
+        assertEquals(6, ring.getHeight());
+    }
+
+    @Test
+    void overlaps() {
+        assertAll(
+                () -> assertEquals(true, SpriteMask.overlaps(dot, 0, 0, ring, 0, 0)),
+                () -> assertEquals(true, SpriteMask.overlaps(dot, 78, 4, ring, 0, 0)),
+                () -> assertEquals(false, SpriteMask.overlaps(dot, 40, 2, ring, 0, 0)),
+                () -> assertEquals(false, SpriteMask.overlaps(dot, 100, 0, ring, 0, 0)),
+                () -> assertEquals(true, SpriteMask.overlaps(ring, 11, 3, dot, 89, 7))
+        );
+    }
+}
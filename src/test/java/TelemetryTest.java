@@ -0,0 +1,75 @@
+import engine.DrawManager;
+import engine.Telemetry;
+import engine.TelemetryReport;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TelemetryTest {
+
+    @TempDir
+    Path directory;
+
+    private static void playLevel(final Telemetry telemetry, final int level, final int lives) {
+        telemetry.levelStart(level, 0, 3);
+        for (int i = 0; i < 10; i++)
+            telemetry.shot(level);
+        for (int i = 0; i < 4; i++)
+            telemetry.kill(level, 10, Telemetry.WEAPON_BULLET);
+        telemetry.kill(level, 10, Telemetry.WEAPON_BOOM);
+        telemetry.skill(level, 2);
+        telemetry.item(level, DrawManager.SpriteType.Boom);
+        if (lives == 0)
+            telemetry.death(level, 0);
+        telemetry.levelEnd(level, 50, lives, 30000);
+    }
+
+    @Test
+    void aggregatesSessions() throws IOException {
+        for (int session = 0; session < 3; session++) {
+            Telemetry telemetry = Telemetry.open(directory.resolve("session" + session));
+            telemetry.sessionStart();
+            playLevel(telemetry, 1, 3);
+            playLevel(telemetry, 2, session == 0 ? 0 : 2);
+            if (session == 2)
+                playLevel(telemetry, 300, 1);
+            telemetry.close();
+            try (java.util.stream.Stream<Path> files = Files.list(directory.resolve("session" + session))) {
+                for (Path file : (Iterable<Path>) files::iterator)
+                    Files.move(file, directory.resolve(session + "-" + file.getFileName()));
+            }
+        }
+
+        Map<Integer, TelemetryReport.LevelStats> levels = TelemetryReport.aggregate(directory);
+        assertEquals(3, levels.size());
+        TelemetryReport.LevelStats first = levels.get(1);
+        assertEquals(3, first.getAttempts());
+        assertEquals(3, first.getClears());
+        assertEquals(30000, first.getAverageTime());
+        assertEquals(0.5, first.getAccuracy(), 1e-9);
+        assertEquals(3, first.getKills(Telemetry.WEAPON_BOOM));
+        assertEquals(3, first.getSkillUses(2));
+        assertEquals(3, first.getItems());
+        TelemetryReport.LevelStats second = levels.get(2);
+        assertEquals(2, second.getClears());
+        assertEquals(1, second.getDeaths());
+        // The failed attempt does not count in the time to clear.
+        assertEquals(30000, second.getAverageTime());
+        assertEquals(1, levels.get(300).getClears());
+    }
+
+    @Test
+    void disabledWritesNothing() throws IOException {
+        Telemetry telemetry = Telemetry.disabled();
+        assertFalse(telemetry.isEnabled());
+        playLevel(telemetry, 1, 3);
+        telemetry.close();
+        assertTrue(TelemetryReport.aggregate(directory).isEmpty());
+    }
+}
@@ -0,0 +1,67 @@
+import engine.AudioMixer;
+import engine.GainBus;
+import engine.RecordingAudioBackend;
+import engine.RecordingAudioBackend.Event;
+import engine.RecordingAudioBackend.Type;
+import engine.Volume;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VolumeTest {
+
+    @Test
+    void changesOneBusAndKeepsLevels(@TempDir final Path directory) throws IOException {
+        Path file = directory.resolve("saves").resolve(Volume.FILE);
+        RecordingAudioBackend backend = new RecordingAudioBackend();
+        Volume volume = new Volume(backend, file);
+        assertEquals(-5.0f, volume.getLevel(GainBus.MUSIC));
+        assertEquals(GainBus.values().length, backend.getEvents().size());
+
+        backend.clear();
+        volume.decrease(GainBus.SFX);
+        List<Event> events = backend.getEvents();
+        assertEquals(1, events.size());
+        assertEquals(Type.SET_BUS_GAIN, events.get(0).getType());
+        assertEquals("SFX", events.get(0).getName());
+        assertEquals(Math.pow(10, -0.25), events.get(0).getValue(), 1e-6);
+
+        volume.save();
+        assertEquals(Arrays.asList("master 0.0", "music -5.0", "sfx -5.0", "ui 0.0"),
+                Files.readAllLines(file, StandardCharsets.UTF_8));
+        Volume reloaded = new Volume(new RecordingAudioBackend(), file);
+        assertEquals(-5.0f, reloaded.getLevel(GainBus.SFX));
+    }
+
+    @Test
+    void skipsBadLines(@TempDir final Path directory) throws IOException {
+        Path file = directory.resolve(Volume.FILE);
+        Files.write(file, "master -10\nbass 3\nmusic loud\nui 100\n".getBytes(StandardCharsets.UTF_8));
+        Volume volume = new Volume(new RecordingAudioBackend(), file);
+        assertEquals(-10.0f, volume.getLevel(GainBus.MASTER));
+        assertEquals(-5.0f, volume.getLevel(GainBus.MUSIC));
+        assertEquals(6.0f, volume.getLevel(GainBus.UI));
+    }
+
+    @Test
+    void mixerScalesBusesByMaster() {
+        AudioMixer mixer = new AudioMixer(2);
+        short[] data = new short[4 * AudioMixer.CHANNELS];
+        Arrays.fill(data, (short) 1000);
+        mixer.play(new AudioMixer.Sample(data), 1.0f, false, GainBus.UI);
+        mixer.setBusGain(GainBus.UI, 0.5f);
+        mixer.setBusGain(GainBus.MASTER, 0.5f);
+        mixer.setBusGain(GainBus.SFX, 0.0f);
+        short[] out = new short[2 * AudioMixer.CHANNELS];
+        mixer.render(out, 2);
+        assertEquals(250, out[0]);
+    }
+}